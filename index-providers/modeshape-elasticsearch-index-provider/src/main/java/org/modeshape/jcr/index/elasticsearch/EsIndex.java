@@ -22,6 +22,7 @@ import javax.jcr.query.qom.Constraint;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.api.index.IndexDefinition;
+import org.modeshape.jcr.index.elasticsearch.client.EsBulkProcessor;
 import org.modeshape.jcr.index.elasticsearch.client.EsClient;
 import org.modeshape.jcr.index.elasticsearch.client.EsRequest;
 import org.modeshape.jcr.spi.index.IndexConstraints;
@@ -39,6 +40,7 @@ public class EsIndex implements ProvidedIndex {
     private final EsIndexColumns columns;
     private final Operations operations;
     private final EsClient client;
+    private final EsBulkProcessor processor;
     
     /**
      * Creates new index.
@@ -55,6 +57,7 @@ public class EsIndex implements ProvidedIndex {
         this.columns = new EsIndexColumns(context, defn);
         this.operations = new Operations(context.getValueFactories(), columns);
         this.createIndex();
+        this.processor = client.newBulkProcessor(name(), workspace);
     }
 
     /**
@@ -73,6 +76,7 @@ public class EsIndex implements ProvidedIndex {
         this.columns = columns;
         this.operations = new Operations(context.getValueFactories(), columns);
         this.createIndex();
+        this.processor = client.newBulkProcessor(name(), workspace);
     }
 
     /**
@@ -108,7 +112,7 @@ public class EsIndex implements ProvidedIndex {
         try {
             EsRequest doc = findOrCreateDoc(nodeKey);
             putValue(doc, column, value);
-            client.storeDocument(name(), workspace, nodeKey, doc);
+            processor.index(nodeKey, doc);
         } catch (IOException e) {
             throw new EsIndexException(e);
         }
@@ -126,7 +130,7 @@ public class EsIndex implements ProvidedIndex {
         try {
             EsRequest doc = findOrCreateDoc(nodeKey);
             putValues(doc, column, values);
-            client.storeDocument(name(), workspace, nodeKey, doc);
+            processor.index(nodeKey, doc);
         } catch (IOException e) {
             throw new EsIndexException(e);
         }
@@ -135,11 +139,7 @@ public class EsIndex implements ProvidedIndex {
     @Override
     public void remove(String nodeKey) {
         CheckArg.isNotNull(nodeKey, "nodeKey");
-        try {
-            client.deleteDocument(name(), workspace, nodeKey);
-        } catch (IOException e) {
-            throw new EsIndexException(e);
-        }
+        processor.delete(nodeKey);
     }
 
     @Override
@@ -153,7 +153,7 @@ public class EsIndex implements ProvidedIndex {
                 return;
             }
             doc.remove(propertyName);            
-            client.storeDocument(name(), workspace, nodeKey, doc);
+            processor.index(nodeKey, doc);
         } catch (IOException e) {
             throw new EsIndexException(e);
         }
@@ -166,9 +166,12 @@ public class EsIndex implements ProvidedIndex {
 
         try {
             EsRequest doc = find(nodeKey);
+            if (doc == null) {
+                return;
+            }
             doc.remove(propertyName);
-            client.storeDocument(name(), workspace, nodeKey, doc);
-        } catch (Exception e) {
+            processor.index(nodeKey, doc);
+        } catch (IOException e) {
             throw new EsIndexException(e);
         }
     }
@@ -181,6 +184,10 @@ public class EsIndex implements ProvidedIndex {
      * @throws IOException 
      */
     private EsRequest find(String nodeKey) throws IOException {
+        if (processor.contains(nodeKey)) {
+            // the latest changes have not been sent to the ES engine yet
+            return processor.get(nodeKey);
+        }
         return client.getDocument(name(), workspace, nodeKey);
     }
 
@@ -193,7 +200,7 @@ public class EsIndex implements ProvidedIndex {
      * @throws IOException 
      */
     private EsRequest findOrCreateDoc(String nodeKey) throws IOException {
-        EsRequest doc = client.getDocument(name(), workspace, nodeKey);
+        EsRequest doc = find(nodeKey);
         return doc != null ? doc : new EsRequest();
     }
 
@@ -244,6 +251,7 @@ public class EsIndex implements ProvidedIndex {
     @Override
     public void commit() {
         try {
+            processor.flush();
             client.refresh(name());
         } catch (IOException e) {
             throw new EsIndexException(e);
@@ -283,7 +291,10 @@ public class EsIndex implements ProvidedIndex {
 
     @Override
     public void clearAllData() {
+        processor.clear();
         try {
+            // wait for the changes which have already been sent
+            processor.flush();
             client.deleteAll(name(), workspace);
         } catch (IOException e) {
             throw new EsIndexException(e);
@@ -292,6 +303,17 @@ public class EsIndex implements ProvidedIndex {
 
     @Override
     public void shutdown(boolean destroyed) {
+        if (destroyed) {
+            // there is no point in sending the changes of an index which is about to be deleted
+            processor.clear();
+        }
+        try {
+            processor.flush();
+        } catch (IOException e) {
+            throw new EsIndexException(e);
+        } finally {
+            processor.close();
+        }
         if (destroyed) {
             try {
                 client.deleteIndex(name());
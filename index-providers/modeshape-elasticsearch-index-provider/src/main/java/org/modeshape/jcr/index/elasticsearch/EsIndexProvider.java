@@ -35,6 +35,7 @@ import javax.jcr.query.qom.ChildNodeJoinCondition;
 import javax.jcr.query.qom.DescendantNodeJoinCondition;
 import javax.jcr.query.qom.DynamicOperand;
 import javax.jcr.query.qom.JoinCondition;
+import java.io.IOException;
 import java.util.Collection;
 
 /**
@@ -44,13 +45,16 @@ public class EsIndexProvider extends IndexProvider {
 
     private String host = "localhost";
     private int port = 9200;
+    private int maxConnections = EsClient.DEFAULT_MAX_CONNECTIONS;
+    private int bulkSize = EsClient.DEFAULT_BULK_SIZE;
+    private int bulkFlushIntervalMillis = EsClient.DEFAULT_BULK_FLUSH_INTERVAL_MILLIS;
     private EsClient client;
 
     @Override
     protected void doInitialize() throws RepositoryException {
         logger().debug("Elasticsearch index provider for repository '{0}' "
                 + "is trying to connect to cluster", getRepositoryName());
-        client = new EsClient(host, port);
+        client = new EsClient(host, port, maxConnections, bulkSize, bulkFlushIntervalMillis);
     }
 
     /**
@@ -89,9 +93,71 @@ public class EsIndexProvider extends IndexProvider {
         this.port = port;
     }
 
+    /**
+     * Gets the maximum number of concurrent connections to the ES instance.
+     *
+     * @return the maximum number of connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Assigns the maximum number of concurrent connections to the ES instance.
+     *
+     * @param maxConnections the maximum number of connections
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Gets the maximum number of changes sent to the ES instance in a single bulk request.
+     *
+     * @return the number of changes
+     */
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    /**
+     * Assigns the maximum number of changes sent to the ES instance in a single bulk request.
+     *
+     * @param bulkSize the number of changes
+     */
+    public void setBulkSize(int bulkSize) {
+        this.bulkSize = bulkSize;
+    }
+
+    /**
+     * Gets the number of milliseconds after which buffered changes are sent to the ES instance.
+     *
+     * @return the interval in milliseconds, or 0 if changes are only sent on commit or when the bulk size is reached
+     */
+    public int getBulkFlushIntervalMillis() {
+        return bulkFlushIntervalMillis;
+    }
+
+    /**
+     * Assigns the number of milliseconds after which buffered changes are sent to the ES instance.
+     *
+     * @param bulkFlushIntervalMillis the interval in milliseconds, or 0 if changes should only be sent on commit or when the
+     * bulk size is reached
+     */
+    public void setBulkFlushIntervalMillis(int bulkFlushIntervalMillis) {
+        this.bulkFlushIntervalMillis = bulkFlushIntervalMillis;
+    }
+
     @Override
     protected void postShutdown() {
         logger().debug("Shutting down the elasticsearch index provider '{0}' in repository '{1}'", getName(), getRepositoryName());
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                logger().debug(e, "Unable to close the connections of the elasticsearch index provider '{0}'", getName());
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,247 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.elasticsearch.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.modeshape.common.util.NamedThreadFactory;
+
+/**
+ * Buffers the changes made to the documents of a single index and sends them to the Elasticsearch engine using
+ * {@link EsClient#bulk bulk requests}.
+ * <p>
+ * The buffered changes are sent asynchronously once {@code bulkSize} documents have been changed, every
+ * {@code flushIntervalMillis} and whenever {@link #flush()} is called. Multiple changes made to the same document before it is
+ * sent are collapsed into a single one. Until a change has been acknowledged by the engine, it is visible via
+ * {@link #contains(String)} and {@link #get(String)}, so that callers can read their own writes before the engine has them.
+ * </p>
+ * <p>
+ * The bulk requests are sent by a single thread, in the order in which they were created. The failures of individual changes
+ * are collected and reported by the next call to {@link #flush()}.
+ * </p>
+ */
+public class EsBulkProcessor implements AutoCloseable {
+
+    private final EsClient client;
+    private final String name;
+    private final String type;
+    private final int bulkSize;
+    private final ScheduledExecutorService executor;
+
+    // the value for a deleted document is null
+    private Map<String, EsRequest> buffer = new LinkedHashMap<>();
+    private final List<Batch> inFlight = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+
+    protected EsBulkProcessor(EsClient client, String name, String type, int bulkSize, int flushIntervalMillis) {
+        this.client = client;
+        this.name = name;
+        this.type = type;
+        this.bulkSize = bulkSize;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("modeshape-es-bulk-" + name));
+        if (flushIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::flushAsync, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Adds (or replaces) a document.
+     *
+     * @param id document id
+     * @param doc document; the processor keeps a copy, so the caller may change it afterwards
+     */
+    public void index(String id, EsRequest doc) {
+        change(id, doc.copy());
+    }
+
+    /**
+     * Deletes a document.
+     *
+     * @param id document id
+     */
+    public void delete(String id) {
+        change(id, null);
+    }
+
+    /**
+     * Tests whether there is a change of the given document which has not yet been acknowledged by the ES engine.
+     *
+     * @param id document id
+     * @return true if the document has been changed and the change has not been sent yet
+     */
+    public synchronized boolean contains(String id) {
+        if (buffer.containsKey(id)) {
+            return true;
+        }
+        for (Batch batch : inFlight) {
+            if (batch.docs.containsKey(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the latest version of a document which has not yet been acknowledged by the ES engine.
+     *
+     * @param id document id
+     * @return a copy of the document, or null if the document has been deleted or if it {@link #contains(String) has not
+     * been changed}
+     */
+    public synchronized EsRequest get(String id) {
+        if (buffer.containsKey(id)) {
+            return copyOf(buffer.get(id));
+        }
+        // the latest batch has the latest version ...
+        for (int i = inFlight.size() - 1; i >= 0; i--) {
+            Map<String, EsRequest> docs = inFlight.get(i).docs;
+            if (docs.containsKey(id)) {
+                return copyOf(docs.get(id));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends all the buffered changes to the ES engine without waiting for the response.
+     */
+    public synchronized void flushAsync() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        Batch batch = new Batch(buffer);
+        buffer = new LinkedHashMap<>();
+        inFlight.add(batch);
+        batch.future = CompletableFuture.supplyAsync(batch::send, executor)
+                                        .whenComplete((response, error) -> completed(batch, response, error));
+    }
+
+    /**
+     * Sends all the buffered changes to the ES engine and waits until all the changes have been acknowledged.
+     *
+     * @throws IOException if any of the changes sent since the previous flush failed
+     */
+    public void flush() throws IOException {
+        flushAsync();
+        awaitInFlight();
+        List<String> failed;
+        synchronized (this) {
+            if (failures.isEmpty()) {
+                return;
+            }
+            failed = new ArrayList<>(failures);
+            failures.clear();
+        }
+        throw new IOException("Unable to index " + failed.size() + " document(s) in '" + name + "': " + failed);
+    }
+
+    /**
+     * Discards all the buffered changes which have not been sent yet.
+     */
+    public synchronized void clear() {
+        buffer.clear();
+    }
+
+    /**
+     * Sends all the buffered changes, waits until they have been acknowledged and stops the processor.
+     */
+    @Override
+    public void close() {
+        flushAsync();
+        awaitInFlight();
+        executor.shutdown();
+    }
+
+    private void change(String id, EsRequest doc) {
+        boolean full;
+        synchronized (this) {
+            buffer.put(id, doc);
+            full = buffer.size() >= bulkSize;
+        }
+        if (full) {
+            flushAsync();
+        }
+    }
+
+    private void awaitInFlight() {
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        synchronized (this) {
+            for (Batch batch : inFlight) {
+                futures.add(batch.future);
+            }
+        }
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // the failure has already been recorded ...
+            }
+        }
+    }
+
+    private synchronized void completed(Batch batch, EsBulkResponse response, Throwable error) {
+        inFlight.remove(batch);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            failures.add(batch.docs.size() + " document(s): " + cause.getMessage());
+        } else if (response.hasFailures()) {
+            for (Map.Entry<String, String> failure : response.failures().entrySet()) {
+                failures.add(failure.getKey() + " (" + failure.getValue() + ")");
+            }
+        }
+    }
+
+    private static EsRequest copyOf(EsRequest doc) {
+        return doc != null ? doc.copy() : null;
+    }
+
+    private final class Batch {
+        protected final Map<String, EsRequest> docs;
+        protected CompletableFuture<EsBulkResponse> future;
+
+        protected Batch(Map<String, EsRequest> docs) {
+            this.docs = docs;
+        }
+
+        protected EsBulkResponse send() {
+            EsBulkRequest request = new EsBulkRequest();
+            for (Map.Entry<String, EsRequest> entry : docs.entrySet()) {
+                if (entry.getValue() != null) {
+                    request.index(entry.getKey(), entry.getValue());
+                } else {
+                    request.delete(entry.getKey());
+                }
+            }
+            try {
+                return client.bulk(name, type, request);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.elasticsearch.client;
+
+/**
+ * A number of changes sent to the Elasticsearch engine in a single {@code _bulk} request, in the newline delimited JSON 
+ * format expected by the engine.
+ */
+public class EsBulkRequest {
+    private final StringBuilder content = new StringBuilder();
+    private int size;
+
+    /**
+     * Adds (or replaces) a document.
+     *
+     * @param id document id
+     * @param doc document
+     */
+    public void index(String id, EsRequest doc) {
+        action("index", id);
+        content.append(doc.toString()).append('\n');
+    }
+
+    /**
+     * Deletes a document.
+     *
+     * @param id document id
+     */
+    public void delete(String id) {
+        action("delete", id);
+    }
+
+    /**
+     * Gets the number of changes in this request.
+     *
+     * @return the number of changes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tests whether this request contains any changes.
+     *
+     * @return true if there are no changes.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void action(String type, String id) {
+        EsRequest metadata = new EsRequest();
+        metadata.put("_id", id);
+        EsRequest action = new EsRequest();
+        action.put(type, metadata);
+        content.append(action.toString()).append('\n');
+        size++;
+    }
+
+    @Override
+    public String toString() {
+        return content.toString();
+    }
+}
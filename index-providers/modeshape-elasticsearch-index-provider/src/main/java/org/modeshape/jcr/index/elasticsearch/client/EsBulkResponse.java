@@ -0,0 +1,70 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.elasticsearch.client;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.modeshape.schematic.document.Document;
+
+/**
+ * The outcome of an {@link EsBulkRequest}. Each of the changes of a bulk request succeeds or fails on its own, so the 
+ * failures are reported per document.
+ */
+public class EsBulkResponse {
+    private final Map<String, String> failures;
+
+    protected EsBulkResponse(EsResponse response) {
+        Object errors = response.get("errors");
+        if (!Boolean.TRUE.equals(errors)) {
+            this.failures = Collections.emptyMap();
+            return;
+        }
+        this.failures = new LinkedHashMap<>();
+        Object[] items = (Object[]) response.get("items");
+        for (Object item : items) {
+            // each item has a single field named after the action (e.g. "index" or "delete")
+            for (Document.Field field : ((Document) item).fields()) {
+                Document result = (Document) field.getValue();
+                Object error = result.get("error");
+                if (error != null) {
+                    String reason = error instanceof Document ? ((Document) error).getString("reason", error.toString())
+                                                              : error.toString();
+                    failures.put(result.getString("_id"), field.getName() + " failed with status " +
+                                                          result.get("status") + ": " + reason);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests whether any of the changes failed.
+     *
+     * @return true if at least one change failed.
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Gets the changes which failed.
+     *
+     * @return the reason of each failure by document id; never null
+     */
+    public Map<String, String> failures() {
+        return Collections.unmodifiableMap(failures);
+    }
+}
@@ -15,29 +15,56 @@
  */
 package org.modeshape.jcr.index.elasticsearch.client;
 
+import java.io.Closeable;
 import java.io.IOException;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.modeshape.common.util.CheckArg;
 import org.modeshape.schematic.document.Document;
 import org.modeshape.jcr.index.elasticsearch.query.MatchAllQuery;
 
 /**
  * HTTP-based interface for the Elasticsearch engine.
+ * <p>
+ * All the requests are sent through a single, pooled HTTP client which keeps the connections to the engine alive between
+ * requests, so instances should be shared and {@link #close() closed} when no longer needed.
+ * </p>
  *
  * @author kulikov
  */
-public class EsClient {
+public class EsClient implements Closeable {
+
+    /**
+     * The default maximum number of concurrent connections to the ES engine.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
+    /**
+     * The default maximum number of changes which are sent to the ES engine in a single bulk request.
+     */
+    public static final int DEFAULT_BULK_SIZE = 500;
+
+    /**
+     * The default number of milliseconds after which buffered changes are sent to the ES engine.
+     */
+    public static final int DEFAULT_BULK_FLUSH_INTERVAL_MILLIS = 1000;
 
     private final String host;
     private final int port;
+    private final int bulkSize;
+    private final int bulkFlushIntervalMillis;
+    private final CloseableHttpClient httpClient;
 
     /**
      * Creates new instance.
@@ -46,8 +73,43 @@ public class EsClient {
      * @param port the port number of ES engine.
      */
     public EsClient(String host, int port) {
+        this(host, port, DEFAULT_MAX_CONNECTIONS, DEFAULT_BULK_SIZE, DEFAULT_BULK_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates new instance.
+     *
+     * @param host the address of the ES engine.
+     * @param port the port number of ES engine.
+     * @param maxConnections the maximum number of concurrent connections to the ES engine; must be positive
+     * @param bulkSize the maximum number of changes sent in a single bulk request; must be positive
+     * @param bulkFlushIntervalMillis the number of milliseconds after which buffered changes are sent to the ES engine, or 0 if
+     * they should only be sent when explicitly flushed or when {@code bulkSize} is reached.
+     */
+    public EsClient(String host, int port, int maxConnections, int bulkSize, int bulkFlushIntervalMillis) {
+        CheckArg.isPositive(maxConnections, "maxConnections");
+        CheckArg.isPositive(bulkSize, "bulkSize");
+        CheckArg.isNonNegative(bulkFlushIntervalMillis, "bulkFlushIntervalMillis");
         this.host = host;
         this.port = port;
+        this.bulkSize = bulkSize;
+        this.bulkFlushIntervalMillis = bulkFlushIntervalMillis;
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        // all the requests go to the same host
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+    }
+
+    /**
+     * Creates a new processor which buffers the changes made to the given index and sends them to the ES engine in bulk.
+     *
+     * @param name the name of the index.
+     * @param type index type
+     * @return a new {@link EsBulkProcessor} instance; never null
+     */
+    public EsBulkProcessor newBulkProcessor(String name, String type) {
+        return new EsBulkProcessor(this, name, type, bulkSize, bulkFlushIntervalMillis);
     }
 
     /**
@@ -58,14 +120,8 @@ public class EsClient {
      * @throws IOException communication exception.
      */
     public boolean indexExists(String name) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpHead head = new HttpHead(String.format("http://%s:%d/%s", host, port, name));
-        try {
-            CloseableHttpResponse response = client.execute(head);
-            return response.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
-        } finally {
-            head.releaseConnection();
-        }
+        return execute(head, response -> response.getStatusLine().getStatusCode() == HttpStatus.SC_OK);
     }
 
     /**
@@ -82,16 +138,9 @@ public class EsClient {
             deleteIndex(name);
         }
 
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s", host, port, name));
-        try {
-            StringEntity requestEntity = new StringEntity(mappings.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
-            CloseableHttpResponse resp = client.execute(method);
-            return resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
-        } finally {
-            method.releaseConnection();
-        }
+        method.setEntity(new StringEntity(mappings.toString(), ContentType.APPLICATION_JSON));
+        return execute(method, response -> response.getStatusLine().getStatusCode() == HttpStatus.SC_OK);
     }
 
     /**
@@ -102,14 +151,8 @@ public class EsClient {
      * @throws IOException
      */
     public boolean deleteIndex(String name) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpDelete delete = new HttpDelete(String.format("http://%s:%d/%s", host, port, name));
-        try {
-            CloseableHttpResponse resp = client.execute(delete);
-            return resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
-        } finally {
-            delete.releaseConnection();
-        }
+        return execute(delete, response -> response.getStatusLine().getStatusCode() == HttpStatus.SC_OK);
     }
 
     /**
@@ -124,17 +167,12 @@ public class EsClient {
      */
     public boolean storeDocument(String name, String type, String id,
             EsRequest doc) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s/%s", host, port, name, type, id));
-        try {
-            StringEntity requestEntity = new StringEntity(doc.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
-            CloseableHttpResponse resp = client.execute(method);
-            int statusCode = resp.getStatusLine().getStatusCode();
+        method.setEntity(new StringEntity(doc.toString(), ContentType.APPLICATION_JSON));
+        return execute(method, response -> {
+            int statusCode = response.getStatusLine().getStatusCode();
             return statusCode == HttpStatus.SC_CREATED || statusCode == HttpStatus.SC_OK;
-        } finally {
-            method.releaseConnection();
-        }
+        });
     }
 
     /**
@@ -147,24 +185,20 @@ public class EsClient {
      * @throws IOException
      */
     public EsRequest getDocument(String name, String type, String id) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpGet method = new HttpGet(String.format("http://%s:%d/%s/%s/%s", host, port, name, type, id));
-        try {
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
+        return execute(method, response -> {
+            int status = response.getStatusLine().getStatusCode();
             switch (status) {
                 case HttpStatus.SC_OK :
-                    EsResponse doc = EsResponse.read(resp.getEntity().getContent());
+                    EsResponse doc = EsResponse.read(response.getEntity().getContent());
                     return new EsRequest((Document) doc.get("_source"));
                 case HttpStatus.SC_NOT_ACCEPTABLE:
                 case HttpStatus.SC_NOT_FOUND:
                     return null;
                 default:
-                    throw new IOException(resp.getStatusLine().getReasonPhrase());
+                    throw new IOException(response.getStatusLine().getReasonPhrase());
             }
-        } finally {
-            method.releaseConnection();
-        }
+        });
     }
 
     /**
@@ -177,13 +211,29 @@ public class EsClient {
      * @throws IOException
      */
     public boolean deleteDocument(String name, String type, String id) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpDelete delete = new HttpDelete(String.format("http://%s:%d/%s/%s/%s", host, port, name, type, id));
-        try {
-            return client.execute(delete).getStatusLine().getStatusCode() == HttpStatus.SC_OK;
-        } finally {
-            delete.releaseConnection();
-        }
+        return execute(delete, response -> response.getStatusLine().getStatusCode() == HttpStatus.SC_OK);
+    }
+
+    /**
+     * Sends multiple changes to an index in a single request.
+     *
+     * @param name index name.
+     * @param type index type.
+     * @param request the changes
+     * @return the outcome of each of the changes.
+     * @throws IOException if the request as a whole failed
+     */
+    public EsBulkResponse bulk(String name, String type, EsBulkRequest request) throws IOException {
+        HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s/_bulk", host, port, name, type));
+        method.setEntity(new StringEntity(request.toString(), ContentType.APPLICATION_JSON));
+        return execute(method, response -> {
+            int status = response.getStatusLine().getStatusCode();
+            if (status != HttpStatus.SC_OK) {
+                throw new IOException(response.getStatusLine().getReasonPhrase());
+            }
+            return new EsBulkResponse(EsResponse.read(response.getEntity().getContent()));
+        });
     }
 
     /**
@@ -194,22 +244,12 @@ public class EsClient {
      * @throws IOException
      */
     public void deleteAll(String name, String type) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s", host, port, name, type));
-        try {
-            EsRequest query = new EsRequest();
-            query.put("query", new MatchAllQuery().build());
-            StringEntity requestEntity = new StringEntity(query.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
-            method.setHeader(" X-HTTP-Method-Override", "DELETE");
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-        } finally {
-            method.releaseConnection();
-        }
+        EsRequest query = new EsRequest();
+        query.put("query", new MatchAllQuery().build());
+        method.setEntity(new StringEntity(query.toString(), ContentType.APPLICATION_JSON));
+        method.setHeader(" X-HTTP-Method-Override", "DELETE");
+        execute(method, this::checkOk);
     }
 
     /**
@@ -219,17 +259,8 @@ public class EsClient {
      * @throws IOException
      */
     public void flush(String name) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/_flush", host, port, name));
-        try {
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-        } finally {
-            method.releaseConnection();
-        }
+        execute(method, this::checkOk);
     }
 
     /**
@@ -239,17 +270,8 @@ public class EsClient {
      * @throws IOException
      */
     public void refresh(String name) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/_refresh", host, port, name));
-        try {
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-        } finally {
-            method.releaseConnection();
-        }
+        execute(method, this::checkOk);
     }
 
     /**
@@ -262,21 +284,12 @@ public class EsClient {
      * @throws IOException
      */
     public EsResponse search(String name, String type, EsRequest query) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s/_search", host, port, name, type));
-        try {
-            StringEntity requestEntity = new StringEntity(query.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
-
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-            return EsResponse.read(resp.getEntity().getContent());
-        } finally {
-            method.releaseConnection();
-        }
+        method.setEntity(new StringEntity(query.toString(), ContentType.APPLICATION_JSON));
+        return execute(method, response -> {
+            checkOk(response);
+            return EsResponse.read(response.getEntity().getContent());
+        });
     }
 
     /**
@@ -288,23 +301,35 @@ public class EsClient {
      * @throws IOException
      */
     public long count(String name, String type) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpPost method = new HttpPost(String.format("http://%s:%d/%s/%s/_count", host, port, name, type));
-        try {
-            EsRequest query = new EsRequest();
-            query.put("query", new MatchAllQuery().build());
-            StringEntity requestEntity = new StringEntity(query.toString(), ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
+        EsRequest query = new EsRequest();
+        query.put("query", new MatchAllQuery().build());
+        method.setEntity(new StringEntity(query.toString(), ContentType.APPLICATION_JSON));
+        return execute(method, response -> {
+            checkOk(response);
+            return (Integer) EsResponse.read(response.getEntity().getContent()).get("count");
+        });
+    }
 
-            CloseableHttpResponse resp = client.execute(method);
-            int status = resp.getStatusLine().getStatusCode();
-            if (status != HttpStatus.SC_OK) {
-                throw new IOException(resp.getStatusLine().getReasonPhrase());
-            }
-            return (Integer) EsResponse.read(resp.getEntity().getContent()).get("count");
-        } finally {
-            method.releaseConnection();
-        }
+    /**
+     * Closes the connections to the ES engine.
+     *
+     * @throws IOException if the connections cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
     }
 
+    private <T> T execute(HttpRequestBase method, ResponseHandler<T> handler) throws IOException {
+        // the handler based execution always consumes the response, so that the connection can be reused
+        return httpClient.execute(method, handler);
+    }
+
+    private Void checkOk(HttpResponse response) throws IOException {
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+            throw new IOException(response.getStatusLine().getReasonPhrase());
+        }
+        return null;
+    }
 }
@@ -47,6 +47,15 @@ public class EsRequest {
         document = DocumentFactory.newDocument(origin);
     }
     
+    /**
+     * Creates a copy of this document.
+     * 
+     * @return new document with the same content.
+     */
+    public EsRequest copy() {
+        return new EsRequest(document);
+    }
+
     /**
      * Adds single property value.
      * 
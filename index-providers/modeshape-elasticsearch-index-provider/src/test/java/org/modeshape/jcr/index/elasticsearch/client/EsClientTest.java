@@ -25,7 +25,11 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
 import org.modeshape.common.util.FileUtil;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.index.elasticsearch.EsIndexColumn;
@@ -150,6 +154,112 @@ public class EsClientTest {
         long count = client.count(INDEX_NAME, TYPE_NAME);
         assertEquals(1, count);
     }
-    
-    
-}
\ No newline at end of file
+
+    @Test
+    public void shouldIndexAndDeleteDocumentsInBulk() throws Exception {
+        EsBulkRequest request = new EsBulkRequest();
+        for (int i = 0; i < 10; i++) {
+            EsRequest doc = new EsRequest();
+            doc.put("field1", "value" + i);
+            request.index(Integer.toString(i), doc);
+        }
+        request.delete("3");
+        request.delete("not-there");
+        assertEquals(12, request.size());
+
+        EsBulkResponse response = client.bulk(INDEX_NAME, TYPE_NAME, request);
+        assertFalse(response.hasFailures());
+        assertEquals("value1", client.getDocument(INDEX_NAME, TYPE_NAME, "1").get("field1"));
+        assertNull(client.getDocument(INDEX_NAME, TYPE_NAME, "3"));
+        client.refresh(INDEX_NAME);
+        assertEquals(9, client.count(INDEX_NAME, TYPE_NAME));
+    }
+
+    @Test
+    public void shouldReportFailuresOfIndividualDocumentsInBulk() throws Exception {
+        EsBulkRequest request = new EsBulkRequest();
+        EsRequest good = new EsRequest();
+        good.put("field2", 1.5);
+        request.index("good", good);
+        EsRequest bad = new EsRequest();
+        bad.put("field2", "not a number");
+        request.index("bad", bad);
+
+        EsBulkResponse response = client.bulk(INDEX_NAME, TYPE_NAME, request);
+        assertTrue(response.hasFailures());
+        assertEquals(1, response.failures().size());
+        assertTrue(response.failures().containsKey("bad"));
+        assertTrue(client.getDocument(INDEX_NAME, TYPE_NAME, "good") != null);
+    }
+
+    @Test
+    public void shouldCollapseBufferedChangesOfTheSameDocument() throws Exception {
+        try (EsBulkProcessor processor = new EsBulkProcessor(client, INDEX_NAME, TYPE_NAME, 100, 0)) {
+            EsRequest doc = new EsRequest();
+            doc.put("field1", "value1");
+            processor.index("1", doc);
+            doc.put("field1", "value2");
+            processor.index("1", doc);
+            processor.index("2", doc);
+            processor.delete("2");
+
+            // the changes are visible before they are sent ...
+            assertEquals("value2", processor.get("1").get("field1"));
+            assertTrue(processor.contains("2"));
+            assertNull(processor.get("2"));
+            assertNull(client.getDocument(INDEX_NAME, TYPE_NAME, "1"));
+
+            processor.flush();
+            assertFalse(processor.contains("1"));
+            assertEquals("value2", client.getDocument(INDEX_NAME, TYPE_NAME, "1").get("field1"));
+            assertNull(client.getDocument(INDEX_NAME, TYPE_NAME, "2"));
+        }
+    }
+
+    @Test
+    public void shouldSendChangesOnceTheBulkSizeIsReached() throws Exception {
+        try (EsBulkProcessor processor = new EsBulkProcessor(client, INDEX_NAME, TYPE_NAME, 5, 0)) {
+            for (int i = 0; i < 12; i++) {
+                EsRequest doc = new EsRequest();
+                doc.put("field1", "value" + i);
+                processor.index(Integer.toString(i), doc);
+            }
+            // the last 2 changes are still buffered ...
+            assertTrue(processor.contains("11"));
+            processor.flush();
+            client.refresh(INDEX_NAME);
+            assertEquals(12, client.count(INDEX_NAME, TYPE_NAME));
+        }
+    }
+
+    @Test
+    public void shouldSendChangesPeriodically() throws Exception {
+        try (EsBulkProcessor processor = new EsBulkProcessor(client, INDEX_NAME, TYPE_NAME, 100, 50)) {
+            EsRequest doc = new EsRequest();
+            doc.put("field1", "value1");
+            processor.index("1", doc);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (processor.contains("1") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("value1", client.getDocument(INDEX_NAME, TYPE_NAME, "1").get("field1"));
+        }
+    }
+
+    @Test
+    public void shouldReportFailedChangesOnFlush() throws Exception {
+        try (EsBulkProcessor processor = new EsBulkProcessor(client, INDEX_NAME, TYPE_NAME, 100, 0)) {
+            EsRequest bad = new EsRequest();
+            bad.put("field2", "not a number");
+            processor.index("bad", bad);
+            try {
+                processor.flush();
+                fail("Expected the failure of the document to be reported");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("bad"));
+            }
+            // the failure is reported only once ...
+            processor.flush();
+        }
+    }
+}
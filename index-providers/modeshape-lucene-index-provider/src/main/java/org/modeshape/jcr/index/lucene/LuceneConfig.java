@@ -20,6 +20,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.analysis.util.CharArraySet;
@@ -27,6 +28,11 @@ import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -57,12 +63,27 @@ public final class LuceneConfig {
 
     protected static final String LAST_SUCCESSFUL_COMMIT_TIME = "last_commit_time";
 
+    /**
+     * The default maximum number of milliseconds that searches can see stale data when nobody is waiting for a change.
+     */
+    protected static final int DEFAULT_REFRESH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The default minimum number of milliseconds between two refreshes when searches are waiting for a change.
+     */
+    protected static final int DEFAULT_MIN_REFRESH_INTERVAL_MILLIS = 25;
+
     private final LockFactory lockFactory;
     private final String directoryClass;
     private final Analyzer analyzer;
     private final Codec codec;
     private final String basePath;   
     private final AtomicLong lastSuccessfulCommitTime;
+    private final int refreshIntervalMillis;
+    private final int minRefreshIntervalMillis;
+    private final double ramBufferSizeMB;
+    private final String mergePolicyClass;
+    private final LongConsumer refreshLatencyListener;
     
     protected static LuceneConfig inMemory() {
         return new LuceneConfig(null, null, null, null, null, null);
@@ -74,12 +95,29 @@ public final class LuceneConfig {
     
     protected LuceneConfig(String baseDir, String lockFactoryClass, String directoryClass, String analyzerClass,
                            String codecName, Environment environment) {
+        this(baseDir, lockFactoryClass, directoryClass, analyzerClass, codecName, null, null, null, null, environment, null);
+    }
+
+    protected LuceneConfig(String baseDir, String lockFactoryClass, String directoryClass, String analyzerClass,
+                           String codecName, Integer refreshIntervalMillis, Integer minRefreshIntervalMillis, Integer ramBufferSizeMB,
+                           String mergePolicyClass, Environment environment, LongConsumer refreshLatencyListener) {
         this.directoryClass = directoryClass;
         this.lockFactory = lockFactory(lockFactoryClass);
         this.analyzer = analyzer(analyzerClass, environment);
         this.codec = codec(codecName);
         this.basePath = baseDir;
         this.lastSuccessfulCommitTime = new AtomicLong(-1);
+        this.refreshIntervalMillis = refreshIntervalMillis != null ? refreshIntervalMillis : DEFAULT_REFRESH_INTERVAL_MILLIS;
+        this.minRefreshIntervalMillis = minRefreshIntervalMillis != null ? minRefreshIntervalMillis : 
+                                        Math.min(DEFAULT_MIN_REFRESH_INTERVAL_MILLIS, this.refreshIntervalMillis);
+        CheckArg.isPositive(this.refreshIntervalMillis, "refreshIntervalMillis");
+        CheckArg.isNonNegative(this.minRefreshIntervalMillis, "minRefreshIntervalMillis");
+        CheckArg.isLessThanOrEqualTo(this.minRefreshIntervalMillis, this.refreshIntervalMillis, "minRefreshIntervalMillis");
+        this.ramBufferSizeMB = ramBufferSizeMB != null ? ramBufferSizeMB : IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB;
+        this.mergePolicyClass = mergePolicyClass;
+        // validate the merge policy class eagerly
+        mergePolicy(mergePolicyClass);
+        this.refreshLatencyListener = refreshLatencyListener;
     }
     
     protected IndexWriter newWriter( String workspaceName, String indexName ) {
@@ -101,6 +139,8 @@ public final class LuceneConfig {
         IndexWriterConfig writerConfig = new IndexWriterConfig(analyzer);
         writerConfig.setCommitOnClose(true);
         writerConfig.setCodec(codec);
+        writerConfig.setRAMBufferSizeMB(ramBufferSizeMB);
+        writerConfig.setMergePolicy(mergePolicy(mergePolicyClass));
         return writerConfig;
     }
     
@@ -116,8 +156,33 @@ public final class LuceneConfig {
         return lastSuccessfulCommitTime.get();
     }
     
-    protected int refreshTimeSeconds() {
-        return 30;
+    /**
+     * Returns the maximum number of seconds that searches can see stale data when nobody is waiting for a specific change.
+     * 
+     * @return the number of seconds; always positive
+     */
+    protected double maxStaleSeconds() {
+        return refreshIntervalMillis / 1000d;
+    }
+
+    /**
+     * Returns the minimum number of seconds between two refreshes, when searches are waiting for a specific change.
+     *
+     * @return the number of seconds; never negative
+     */
+    protected double minStaleSeconds() {
+        return minRefreshIntervalMillis / 1000d;
+    }
+
+    /**
+     * Records the time it took to refresh the searchers of an index.
+     * 
+     * @param nanos the duration of the refresh, in nanoseconds
+     */
+    protected void refreshed( long nanos ) {
+        if (refreshLatencyListener != null) {
+            refreshLatencyListener.accept(nanos);
+        }
     }
 
     /**
@@ -146,6 +211,28 @@ public final class LuceneConfig {
         return StringUtil.isBlank(name) ? Codec.getDefault() : Codec.forName(name);
     }
 
+    private MergePolicy mergePolicy(String mergePolicyClass) {
+        if (StringUtil.isBlank(mergePolicyClass)) {
+            return new TieredMergePolicy();
+        }
+        switch (mergePolicyClass) {
+            case "org.apache.lucene.index.TieredMergePolicy" : {
+                return new TieredMergePolicy();
+            }
+            case "org.apache.lucene.index.LogByteSizeMergePolicy" : {
+                return new LogByteSizeMergePolicy();
+            }
+            case "org.apache.lucene.index.LogDocMergePolicy" : {
+                return new LogDocMergePolicy();
+            }
+            case "org.apache.lucene.index.NoMergePolicy" : {
+                return NoMergePolicy.INSTANCE;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown merge policy implementation: " + mergePolicyClass);
+        }
+    }
+
     private LockFactory lockFactory(String lockFactoryClass) {
         if (StringUtil.isBlank(lockFactoryClass)) {
             return null; 
@@ -89,7 +89,7 @@ public abstract class LuceneIndex implements ProvidedIndex<Object> {
         CheckArg.isNotNull(nodeKey, "nodeKey");
         try {
             // mark the nodekey as removed
-            writer.deleteDocuments(FieldUtil.idTerm(nodeKey));
+            searcher.deleteDocuments(FieldUtil.idTerm(nodeKey));
         } catch (IOException e) {
             throw new LuceneIndexException(e);
         }
@@ -179,7 +179,7 @@ public abstract class LuceneIndex implements ProvidedIndex<Object> {
 
     public void clearAllData() {
         try {
-            writer.deleteAll();
+            searcher.deleteAll();
             writer.commit();
         } catch (IOException e) {
             throw new LuceneIndexException("Cannot remove all documents from the index");
@@ -27,6 +27,7 @@ import org.modeshape.common.collection.Problems;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.NodeTypes;
 import org.modeshape.jcr.api.index.IndexDefinition;
+import org.modeshape.jcr.api.monitor.DurationMetric;
 import org.modeshape.jcr.api.query.qom.ChildCount;
 import org.modeshape.jcr.cache.change.ChangeSetAdapter;
 import org.modeshape.jcr.query.QueryContext;
@@ -76,13 +77,24 @@ public class LuceneIndexProvider extends IndexProvider {
     private String directoryClass;
     private String analyzerClass;
     private String codec;
+    private String mergePolicyClass;
+    private Integer ramBufferSizeMB;
+
+    /**
+     * The maximum number of milliseconds after which changes become visible to searches. Searches which need to see the latest 
+     * changes will trigger a refresh sooner, but never more often than every {@link #minRefreshIntervalMillis}.
+     */
+    private Integer refreshIntervalMillis;
+    private Integer minRefreshIntervalMillis;
     
     private LuceneConfig luceneConfig;
     
     @Override
     protected void doInitialize() throws RepositoryException {
         String baseDir = baseDir(); 
-        this.luceneConfig = new LuceneConfig(baseDir, lockFactoryClass, directoryClass, analyzerClass, codec, environment());
+        this.luceneConfig = new LuceneConfig(baseDir, lockFactoryClass, directoryClass, analyzerClass, codec, refreshIntervalMillis,
+                                             minRefreshIntervalMillis, ramBufferSizeMB, mergePolicyClass, environment(),
+                                             nanos -> recordLatency(DurationMetric.INDEX_REFRESH_TIME, nanos));
     }
 
     private String baseDir() throws RepositoryException {
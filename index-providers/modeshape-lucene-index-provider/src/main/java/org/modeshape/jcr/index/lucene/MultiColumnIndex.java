@@ -16,24 +16,25 @@
 package org.modeshape.jcr.index.lucene;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.jcr.query.qom.Constraint;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.LegacyDoubleField;
 import org.apache.lucene.document.LegacyIntField;
 import org.apache.lucene.document.LegacyLongField;
 import org.apache.lucene.document.StringField;
-import org.apache.lucene.index.Term;
 import org.apache.lucene.util.BytesRef;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.index.lucene.query.LuceneQueryFactory;
+import org.modeshape.jcr.spi.index.IndexConstraints;
 import org.modeshape.jcr.value.PropertyType;
 
 /**
@@ -50,7 +51,14 @@ import org.modeshape.jcr.value.PropertyType;
 @SuppressWarnings("deprecation")
 class MultiColumnIndex extends LuceneIndex {
 
+    /**
+     * The maximum number of pending documents which are buffered before they are written to the index, even if the index
+     * hasn't been committed. This bounds the amount of memory used when a large number of nodes is (re)indexed at once.
+     */
+    protected static final int MAX_PENDING_DOCUMENTS = 1000;
+
     private final DocumentIdCache cache;
+    private final PendingDocuments pendingDocuments;
     
     protected MultiColumnIndex( String name,
                                 String workspaceName, 
@@ -61,6 +69,9 @@ class MultiColumnIndex extends LuceneIndex {
         // we keep track of the node keys which are added/removed in the commit data
         // this is an optimization to avoid searching for a document each time an update or partial remove is performed
         this.cache = new DocumentIdCache();
+        // all the column changes made to a node between two commits are merged into a single document which is only written
+        // once, to avoid loading and re-indexing the same document for each of the node's properties
+        this.pendingDocuments = new PendingDocuments();
     }
 
     @Override
@@ -68,44 +79,15 @@ class MultiColumnIndex extends LuceneIndex {
         CheckArg.isNotNull(nodeKey, "nodeKey");
         CheckArg.isNotNull(propertyName, "propertyName");
         CheckArg.isNotNull(values, "values");
-       
-        try {
-            // first look at the cache and commit data to check if a document exists or not with this key. If a document does not
-            // exist, this operation will be a lot faster. Otherwise the document needs to be loaded which is costly....
-            // THIS IS A COSTLY OPERATION...
-            if (documentExists(nodeKey)) {
-                // we're updating an existing document
-                logger.debug("Updating the property '{0}' of document '{1}' in the Lucene index '{2}' with the values '{3}'",
-                             propertyName, nodeKey, name, values);
-                Document oldDocument = searcher.loadDocumentById(nodeKey);
-                Document newDocument = clone(oldDocument, propertyName);
-                                            
-                //add the fields for the new property
-                List<Field> fields = valuesToFields(propertyName, values);
-                fields.stream().forEach(newDocument::add);
-                writer.updateDocument(FieldUtil.idTerm(nodeKey), newDocument);
-            } else {
-                // we're creating the document for the first time...
-                logger.debug("Adding the document '{0}' in the Lucene Index '{1}' with the property '{2}' and values '{3}",
-                             nodeKey, name, propertyName, values);                 
-                Document document = new Document();
-                addProperty(nodeKey, document, propertyName, values);
-                writer.addDocument(document);
-                // mark the node key as added
-                cache.add(nodeKey);
-            }
-        } catch (IOException e) {
-            throw new LuceneIndexException(e);
-        }
+        logger.debug("Adding the property '{0}' with the values '{1}' to the document '{2}' in the Lucene index '{3}'",
+                     propertyName, values, nodeKey, name);
+        pendingDocuments.add(nodeKey, propertyName, valuesToFields(propertyName, values));
     }
 
-    private Document clone(Document oldDocument, String... excludeProps) {
-        List<String> excluded = Arrays.asList(excludeProps);
-
+    private Document clone(Document oldDocument) {
         Document newDocument = new Document();
         oldDocument.getFields()
                    .stream()
-                   .filter((field) -> (!excluded.contains(field.name())))
                    .map((field) -> (clone((Field) field)))
                    .forEach(newDocument::add);
         return newDocument;
@@ -148,31 +130,7 @@ class MultiColumnIndex extends LuceneIndex {
     protected void remove(final String nodeKey, final String propertyName) {
         CheckArg.isNotNull(nodeKey, "nodeKey");
         CheckArg.isNotNull(propertyName, "propertyName");
-       
-        if (!documentExists(nodeKey)) {
-            // no document found so nothing to do
-            return;
-        }
-        try {
-            Document document = searcher.loadDocumentById(nodeKey);
-            boolean hasProperty = document.getField(propertyName) != null;
-            if (!hasProperty) {
-                return;
-            }
-            Term idTerm = FieldUtil.idTerm(nodeKey);
-            if (document.getFields().size() == 1) {
-                // there are no more fields, so remove the entire document....
-                writer.deleteDocuments(idTerm);
-                // mark the node key as removed
-                cache.remove(nodeKey);
-            } else {
-                // create a clone without the property
-                Document newDocument = clone(document, propertyName);
-                writer.updateDocument(idTerm, newDocument);
-            }
-        } catch (IOException e) {
-            throw new LuceneIndexException(e);
-        }
+        pendingDocuments.remove(nodeKey, propertyName);
     }
 
     @Override
@@ -182,16 +140,196 @@ class MultiColumnIndex extends LuceneIndex {
 
     @Override
     public void remove( String nodeKey ) {
-        super.remove(nodeKey);
-        if (documentExists(nodeKey)) {
-            cache.remove(nodeKey);
+        CheckArg.isNotNull(nodeKey, "nodeKey");
+        pendingDocuments.remove(nodeKey);
+    }
+
+    @Override
+    public void commit() {
+        pendingDocuments.flush();
+        super.commit();
+    }
+
+    @Override
+    public long estimateCardinality( List<Constraint> andedConstraints, Map<String, Object> variables ) {
+        pendingDocuments.flush();
+        return super.estimateCardinality(andedConstraints, variables);
+    }
+
+    @Override
+    public long estimateTotalCount() {
+        pendingDocuments.flush();
+        return super.estimateTotalCount();
+    }
+
+    @Override
+    public Results filter( IndexConstraints constraints, long cardinalityEstimate ) {
+        pendingDocuments.flush();
+        return super.filter(constraints, cardinalityEstimate);
+    }
+
+    @Override
+    public void shutdown( boolean destroyed ) {
+        if (!destroyed) {
+            // the writer commits when it's closed, so make sure the pending changes are part of that commit
+            pendingDocuments.flush();
         }
+        super.shutdown(destroyed);
+    }
+
+    @Override
+    public void clearAllData() {
+        pendingDocuments.clear();
+        super.clearAllData();
     }
 
     private boolean documentExists( String nodeKey ) {
         return cache.hasNode(nodeKey) || writer.getCommitData().containsKey(nodeKey);
     }
 
+    private Document removeProperty( Document document, String propertyName ) {
+        boolean hasProperty = document.getField(propertyName) != null ||
+                              document.getField(FieldUtil.lengthField(propertyName)) != null;
+        if (hasProperty) {
+            document.removeFields(propertyName);
+            document.removeFields(FieldUtil.lengthField(propertyName));
+        }
+        return document;
+    }
+
+    /**
+     * An in-memory overlay of the documents which have been changed since the last time the index was flushed. Each document
+     * holds the latest state of all the columns of a node, so that it can be written to the index with a single add, update or
+     * delete operation. Any read of a document goes through this overlay first, so that changes made before the index is flushed
+     * are never lost.
+     */
+    private class PendingDocuments {
+        private final Map<String, PendingDocument> documentsByKey = new LinkedHashMap<>();
+
+        protected synchronized void add( String nodeKey, String propertyName, List<Field> fields ) {
+            PendingDocument pending = pendingDocument(nodeKey, true);
+            Document document = pending.document;
+            if (document == null) {
+                // the node was removed and is now re-added...
+                document = pending.newDocument(nodeKey);
+            } else {
+                removeProperty(document, propertyName);
+            }
+            fields.forEach(document::add);
+            flushIfFull();
+        }
+
+        protected synchronized void remove( String nodeKey, String propertyName ) {
+            PendingDocument pending = pendingDocument(nodeKey, false);
+            if (pending == null || pending.document == null) {
+                // there is no document for this node, so nothing to do
+                return;
+            }
+            removeProperty(pending.document, propertyName);
+            if (pending.document.getFields().size() == 1) {
+                // only the id is left, so remove the entire document...
+                pending.document = null;
+            }
+            flushIfFull();
+        }
+
+        protected synchronized void remove( String nodeKey ) {
+            PendingDocument pending = documentsByKey.get(nodeKey);
+            if (pending != null) {
+                pending.document = null;
+            } else if (documentExists(nodeKey)) {
+                documentsByKey.put(nodeKey, new PendingDocument(null, true));
+                flushIfFull();
+            }
+        }
+
+        protected synchronized void flush() {
+            if (documentsByKey.isEmpty()) {
+                return;
+            }
+            try {
+                for (Map.Entry<String, PendingDocument> entry : documentsByKey.entrySet()) {
+                    String nodeKey = entry.getKey();
+                    PendingDocument pending = entry.getValue();
+                    if (pending.document == null) {
+                        if (pending.existing) {
+                            searcher.deleteDocuments(FieldUtil.idTerm(nodeKey));
+                            // mark the node key as removed
+                            cache.remove(nodeKey);
+                        }
+                    } else if (pending.existing) {
+                        searcher.updateDocument(FieldUtil.idTerm(nodeKey), pending.document);
+                    } else {
+                        searcher.addDocument(pending.document);
+                        // mark the node key as added
+                        cache.add(nodeKey);
+                    }
+                }
+            } catch (IOException e) {
+                throw new LuceneIndexException(e);
+            } finally {
+                documentsByKey.clear();
+            }
+        }
+
+        protected synchronized void clear() {
+            documentsByKey.clear();
+        }
+
+        private void flushIfFull() {
+            if (documentsByKey.size() >= MAX_PENDING_DOCUMENTS) {
+                flush();
+            }
+        }
+
+        private PendingDocument pendingDocument( String nodeKey, boolean create ) {
+            PendingDocument pending = documentsByKey.get(nodeKey);
+            if (pending != null) {
+                return pending;
+            }
+            // first look at the cache and commit data to check if a document exists or not with this key. If a document does not
+            // exist, this operation will be a lot faster. Otherwise the document needs to be loaded which is costly, but this 
+            // only happens once for each node between two flushes...
+            Document existingDocument = documentExists(nodeKey) ? loadDocument(nodeKey) : null;
+            if (existingDocument != null) {
+                pending = new PendingDocument(MultiColumnIndex.this.clone(existingDocument), true);
+            } else if (create) {
+                pending = new PendingDocument(null, false);
+                pending.newDocument(nodeKey);
+            } else {
+                return null;
+            }
+            documentsByKey.put(nodeKey, pending);
+            return pending;
+        }
+    }
+
+    private Document loadDocument( String nodeKey ) {
+        try {
+            return searcher.loadDocumentById(nodeKey);
+        } catch (IOException e) {
+            throw new LuceneIndexException(e);
+        }
+    }
+
+    private static class PendingDocument {
+        // whether a document for the node exists in the index
+        private final boolean existing;
+        // the new document of the node or null if the node's document should be removed
+        private Document document;
+
+        protected PendingDocument( Document document, boolean existing ) {
+            this.document = document;
+            this.existing = existing;
+        }
+
+        protected Document newDocument( String nodeKey ) {
+            this.document = new Document();
+            this.document.add(FieldUtil.idField(nodeKey));
+            return this.document;
+        }
+    }
+
     /**
      * A simple holder which tracks for each index writer session the document keys which exist in the index
      * and then writes this information in the commit data. This avoids the document searching required when updating the column
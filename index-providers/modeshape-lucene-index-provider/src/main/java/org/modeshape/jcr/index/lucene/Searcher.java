@@ -16,7 +16,6 @@
 package org.modeshape.jcr.index.lucene;
 
 import java.io.IOException;
-import java.io.InterruptedIOException;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,23 +25,24 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.jcr.query.qom.Constraint;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TrackingIndexWriter;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.SimpleCollector;
@@ -50,7 +50,6 @@ import org.apache.lucene.util.Bits;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.logging.Logger;
-import org.modeshape.common.util.NamedThreadFactory;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.index.lucene.query.LuceneQueryFactory;
 import org.modeshape.jcr.spi.index.IndexConstraints;
@@ -71,34 +70,60 @@ public class Searcher {
     private static final Logger LOGGER = Logger.getLogger(Searcher.class);
     private static final int MAX_QUERIES_TO_CACHE = 200;
     private static final long MAX_RAM_BYTES_TO_USE = 50 * 1024L * 1024L;
+    // the maximum amount of time a search waits for the latest changes to become visible 
+    private static final int MAX_WAIT_FOR_CHANGES_MILLIS = 30 * 1000;
 
     private static final Set<String> ID_FIELD_SET = Collections.singleton(FieldUtil.ID);
     
+    private final TrackingIndexWriter writer;
     private final SearcherManager searchManager;
-    private final ScheduledExecutorService searchManagerRefreshService;
-    private final ScheduledFuture<?> searchManagerRefreshResult;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
     private final QueryCache queryCache;
+    // the generation of the latest change made through this searcher's writer
+    private final AtomicLong latestChangeGeneration = new AtomicLong(-1);
 
     protected Searcher( LuceneConfig config, IndexWriter writer, String name ) {
+        this.writer = new TrackingIndexWriter(writer);
         this.searchManager = config.searchManager(writer);
+        this.searchManager.addListener(new RefreshListener(config));
         this.queryCache = new LRUQueryCache(MAX_QUERIES_TO_CACHE, MAX_RAM_BYTES_TO_USE);
-        this.searchManagerRefreshService = Executors.newScheduledThreadPool(1, new NamedThreadFactory(
-                name + "-lucene-search-manager-refresher"));
-        this.searchManagerRefreshResult = this.searchManagerRefreshService.scheduleWithFixedDelay(this::refreshSearchManager,
-                                                                                                  0,
-                                                                                                  config.refreshTimeSeconds(),
-                                                                                                  TimeUnit.SECONDS);
+        // reopen the searchers in the background at most every 'maxStale' seconds, but (much) sooner if anyone is waiting for
+        // a specific change to become visible
+        this.reopenThread = new ControlledRealTimeReopenThread<>(this.writer, searchManager, config.maxStaleSeconds(),
+                                                                 config.minStaleSeconds());
+        this.reopenThread.setName(name + "-lucene-nrt-reopen");
+        this.reopenThread.setDaemon(true);
+        this.reopenThread.start();
     }
     
     protected void close() {
         try {
-            searchManagerRefreshResult.cancel(false);
-            searchManagerRefreshService.shutdown();
+            reopenThread.close();
             searchManager.close();
         } catch (IOException e) {
             LOGGER.warn(e, LuceneIndexProviderI18n.warnErrorWhileClosingSearcher);
         }
     }
+
+    protected void addDocument( Document document ) throws IOException {
+        changed(writer.addDocument(document));
+    }
+
+    protected void updateDocument( Term idTerm, Document document ) throws IOException {
+        changed(writer.updateDocument(idTerm, document));
+    }
+
+    protected void deleteDocuments( Term idTerm ) throws IOException {
+        changed(writer.deleteDocuments(idTerm));
+    }
+
+    protected void deleteAll() throws IOException {
+        changed(writer.deleteAll());
+    }
+
+    private void changed( long generation ) {
+        latestChangeGeneration.accumulateAndGet(generation, Math::max);
+    }
     
     protected Filter.Results filter(IndexConstraints indexConstraints, 
                                     LuceneQueryFactory queryFactory,
@@ -139,19 +164,28 @@ public class Searcher {
         }
     }
 
-    protected void refreshSearchManager()  {
+    /**
+     * Waits until all the changes made through this searcher have become visible to searches. Unlike a forced refresh, this 
+     * returns immediately if there haven't been any changes since the searchers were last reopened.
+     */
+    protected void waitForLatestChanges() {
+        long generation = latestChangeGeneration.get();
+        if (generation < 0) {
+            // there were no changes
+            return;
+        }
         try {
-            searchManager.maybeRefreshBlocking();
-        } catch (InterruptedIOException ie) {
+            if (!reopenThread.waitForGeneration(generation, MAX_WAIT_FOR_CHANGES_MILLIS)) {
+                LOGGER.debug("Timeout while waiting for the changes of generation {0} to become visible", generation);
+            }
+        } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-        } catch (IOException e) {
-            LOGGER.warn(e, LuceneIndexProviderI18n.warnErrorWhileClosingSearcher);
         }
     }
 
-    protected <T> T search(Searchable<T> searchable, boolean refreshReader) {
-        if (refreshReader) {
-            refreshSearchManager();
+    protected <T> T search(Searchable<T> searchable, boolean waitForLatestChanges) {
+        if (waitForLatestChanges) {
+            waitForLatestChanges();
         }
         IndexSearcher searcher = null;
         try {
@@ -364,6 +398,30 @@ public class Searcher {
         }
     }
     
+    private static class RefreshListener implements ReferenceManager.RefreshListener {
+        private final LuceneConfig config;
+        private long refreshStart;
+
+        protected RefreshListener( LuceneConfig config ) {
+            this.config = config;
+        }
+
+        @Override
+        public void beforeRefresh() {
+            // refreshes are serialized by the search manager
+            refreshStart = System.nanoTime();
+        }
+
+        @Override
+        public void afterRefresh( boolean didRefresh ) {
+            if (didRefresh) {
+                long duration = System.nanoTime() - refreshStart;
+                LOGGER.trace("Reopened the Lucene searchers in {0} ns", duration);
+                config.refreshed(duration);
+            }
+        }
+    }
+
     @FunctionalInterface
     protected interface Searchable<T> {
         T search(IndexSearcher searcher) throws IOException;
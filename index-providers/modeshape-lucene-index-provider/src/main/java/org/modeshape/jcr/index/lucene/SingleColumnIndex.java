@@ -57,7 +57,7 @@ class SingleColumnIndex extends LuceneIndex {
             // which means removing the old one and creating a new one (which is what Lucene does anyway)
             logger.debug("Adding the document '{0}' in the Lucene Index '{1}' with the property '{2}' and values '{3}",
                          nodeKey, name, propertyName, values);
-            writer.updateDocument(FieldUtil.idTerm(nodeKey), document);
+            searcher.updateDocument(FieldUtil.idTerm(nodeKey), document);
         } catch (IOException e) {
             throw new LuceneIndexException(e);
         }
@@ -68,7 +68,7 @@ class SingleColumnIndex extends LuceneIndex {
         // simply remove the document with this key, since if this method was called, `propertyName` is already tracked by this index
         // and there's can't be more than 1 column
         try {
-            writer.deleteDocuments(FieldUtil.idTerm(nodeKey));
+            searcher.deleteDocuments(FieldUtil.idTerm(nodeKey));
         } catch (IOException e) {
             throw new LuceneIndexException(e);
         }
@@ -16,7 +16,10 @@
 package org.modeshape.jcr.index.lucene;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import java.util.UUID;
+import org.apache.lucene.document.Document;
 import org.junit.Test;
 import org.modeshape.jcr.value.PropertyType;
 
@@ -87,4 +90,49 @@ public class MultiColumnIndexPersistenceTest extends SingleColumnIndexPersistenc
         index.commit();
         assertEquals(1, index.estimateTotalCount());
     }
+
+    @Test
+    public void shouldMergeAllColumnChangesOfExistingNodeIntoSingleDocument() throws Exception {
+        String nodeKey = UUID.randomUUID().toString();
+        String longProperty = addMultiplePropertiesToSameNode(index, nodeKey, 1, PropertyType.LONG);
+        String stringProperty = addMultiplePropertiesToSameNode(index, nodeKey, 1, PropertyType.STRING);
+        index.commit();
+
+        // change, remove and add columns of the same node before committing
+        addMultiplePropertiesToSameNode(index, nodeKey, 1, PropertyType.LONG);
+        index.remove(nodeKey, stringProperty);
+        String dateProperty = addMultiplePropertiesToSameNode(index, nodeKey, 1, PropertyType.DATE);
+        index.commit();
+
+        assertEquals(1, index.estimateTotalCount());
+        Document document = index.searcher.loadDocumentById(nodeKey);
+        assertEquals(1, document.getFields(longProperty).length);
+        assertNotNull(document.getField(dateProperty));
+        assertNull(document.getField(stringProperty));
+        assertNull(document.getField(FieldUtil.lengthField(stringProperty)));
+    }
+
+    @Test
+    public void shouldReAddNodeRemovedBeforeCommit() throws Exception {
+        String nodeKey = UUID.randomUUID().toString();
+        String longProperty = addMultiplePropertiesToSameNode(index, nodeKey, 1, PropertyType.LONG);
+        index.commit();
+
+        index.remove(nodeKey);
+        String stringProperty = addMultiplePropertiesToSameNode(index, nodeKey, 1, PropertyType.STRING);
+        index.commit();
+
+        assertEquals(1, index.estimateTotalCount());
+        Document document = index.searcher.loadDocumentById(nodeKey);
+        assertNull(document.getField(longProperty));
+        assertNotNull(document.getField(stringProperty));
+    }
+
+    @Test
+    public void shouldSeePendingChangesBeforeCommit() throws Exception {
+        String nodeKey = UUID.randomUUID().toString();
+        addMultiplePropertiesToSameNode(index, nodeKey, 1, PropertyType.LONG);
+        assertEquals(1, index.estimateTotalCount());
+        assertNotNull(index.searcher.loadDocumentById(nodeKey));
+    }
 }
@@ -17,12 +17,14 @@ package org.modeshape.jcr.index.lucene;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -55,6 +57,23 @@ public class SingleColumnIndexPersistenceTest extends AbstractIndexPersistenceTe
         assertEquals(0, index.estimateTotalCount());
     }
 
+    @Test
+    public void shouldMakeChangesVisibleBeforeTheRefreshInterval() throws Exception {
+        List<Long> refreshTimes = new CopyOnWriteArrayList<>();
+        index.shutdown(true);
+        config = new LuceneConfig("target/lucene-index-test", null, null, null, null, 60 * 1000, 0, null, null, null,
+                                  refreshTimes::add);
+        index = defaultIndex();
+
+        String nodeKey = UUID.randomUUID().toString();
+        IndexedProperty property = newProperty(PropertyType.STRING);
+        index.add(nodeKey, property.getName(), property.getValue());
+        index.commit();
+        // the search waits only for the change to become visible, not for the refresh interval to elapse
+        assertNotNull(index.searcher.loadDocumentById(nodeKey));
+        assertFalse(refreshTimes.isEmpty());
+    }
+
     @Test
     public void shouldAddNodesWithSingleValues() throws Exception {
         assertEquals(0, index.estimateTotalCount());
@@ -123,6 +123,7 @@ public final class CommonI18n {
     public static I18n errorClosingWrappedStream;
     
     public static I18n incorrectRingBufferSize;
+    public static I18n ringBufferConsumerIsolated;
 
     private CommonI18n() {
     }
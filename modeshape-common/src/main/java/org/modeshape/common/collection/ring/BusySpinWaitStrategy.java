@@ -0,0 +1,41 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.collection.ring;
+
+/**
+ * A {@link WaitStrategy} that spins in a tight loop until an entry is available for consumption. This has the lowest latency of
+ * all strategies, but it keeps a CPU core busy for each waiting consumer and should only be used when there are more cores than
+ * consumer threads.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public long waitFor( long position,
+                         Pointer pointer,
+                         Pointer dependentPointer,
+                         PointerBarrier barrier ) {
+        long availablePosition;
+        while ((availablePosition = dependentPointer.get()) < position && !barrier.isComplete()) {
+            // spin ...
+        }
+        return availablePosition;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        // nothing is ever blocked ...
+    }
+}
@@ -69,6 +69,17 @@ public interface Cursor extends DependentOnPointers {
      */
     boolean publish( long position );
 
+    /**
+     * Publish all of the positions between the supplied lower and upper positions (inclusive), making them available for
+     * consumers. This is used to publish the positions that were {@link #claim(int) claimed as a batch}.
+     * 
+     * @param lowerPosition the lowest position that is now available for consumers
+     * @param upperPosition the highest position that is now available for consumers
+     * @return true if the positions were published, or false if not
+     */
+    boolean publish( long lowerPosition,
+                     long upperPosition );
+
     /**
      * Get the highest published position that is equal to or between the supplied lower and upper positions.
      * 
@@ -19,6 +19,7 @@ package org.modeshape.common.collection.ring;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * @author Randall Hauch (rhauch@redhat.com)
@@ -62,7 +63,13 @@ public class GarbageCollectingConsumer implements Runnable, AutoCloseable, Depen
                 if (availableSequence < position) {
                     return availableSequence;
                 }
-                return cursor.getHighestPublishedPosition(position, availableSequence);
+                long highestPublished;
+                while ((highestPublished = cursor.getHighestPublishedPosition(position, availableSequence)) < position) {
+                    // A producer has claimed the position but is still writing the entry, which takes very little time ...
+                    if (closed) return -1;
+                    LockSupport.parkNanos(1L);
+                }
+                return highestPublished;
             }
 
             @Override
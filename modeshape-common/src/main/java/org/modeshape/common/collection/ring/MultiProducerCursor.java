@@ -0,0 +1,239 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.collection.ring;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import org.modeshape.common.collection.ring.GarbageCollectingConsumer.Collectable;
+import org.modeshape.common.util.CheckArg;
+
+/**
+ * A cursor for a ring buffer that allows multiple threads to concurrently claim and publish positions without any locking. Each
+ * producer atomically claims its positions by advancing the cursor with a compare-and-set, so producers never wait for each other
+ * but only for the slowest {@link Pointer} that is consuming entries (using the supplied {@link WaitStrategy strategy}).
+ * <p>
+ * Because producers may publish their positions in a different order than they were claimed, this cursor records for each slot
+ * of the ring buffer the lap in which it was last published. Consumers then only see the positions up to the first one that has
+ * been claimed but not yet published, so that every consumer still sees all entries in the order in which they were claimed.
+ * </p>
+ */
+public class MultiProducerCursor implements Cursor {
+
+    private static final AtomicReferenceFieldUpdater<MultiProducerCursor, Pointer[]> STAY_BEHIND_UPDATER = AtomicReferenceFieldUpdater.newUpdater(MultiProducerCursor.class,
+                                                                                                                                                  Pointer[].class,
+                                                                                                                                                  "stayBehinds");
+
+    private final int bufferSize;
+    private final int mask;
+    private final int indexShift;
+    /**
+     * The highest position that has been claimed, which may not yet have been published.
+     */
+    protected final Pointer current = new Pointer(Pointer.INITIAL_VALUE);
+    protected final WaitStrategy waitStrategy;
+    private final Pointer slowestConsumerPosition = new Pointer(Pointer.INITIAL_VALUE);
+    private final AtomicIntegerArray publishedLaps;
+    protected volatile long finalPosition = Long.MAX_VALUE;
+    protected volatile Pointer[] stayBehinds = new Pointer[0];
+
+    public MultiProducerCursor( int bufferSize,
+                                WaitStrategy waitStrategy ) {
+        CheckArg.isPositive(bufferSize, "cursor.getBufferSize()");
+        CheckArg.isPowerOfTwo(bufferSize, "cursor.getBufferSize()");
+        this.bufferSize = bufferSize;
+        this.mask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.waitStrategy = waitStrategy;
+        this.publishedLaps = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i != bufferSize; ++i) {
+            publishedLaps.set(i, -1);
+        }
+    }
+
+    @Override
+    public long getCurrent() {
+        return current.get();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public long claim() {
+        return claimUpTo(1);
+    }
+
+    @Override
+    public long claim( int number ) {
+        return claimUpTo(number);
+    }
+
+    /**
+     * Claim the supplied number of positions.
+     * 
+     * @param number the number of positions to claim for writing; must be positive
+     * @return the highest position that was claimed
+     */
+    protected long claimUpTo( int number ) {
+        assert number > 0;
+        while (true) {
+            long currentPosition = current.get();
+            long maxPosition = currentPosition + number;
+            long wrapPoint = maxPosition - bufferSize;
+            long cachedSlowestConsumerPosition = slowestConsumerPosition.get();
+
+            if (wrapPoint > cachedSlowestConsumerPosition || cachedSlowestConsumerPosition > currentPosition) {
+                long minPosition = positionOfSlowestPointer(currentPosition);
+                if (wrapPoint > minPosition) {
+                    // This takes on the order of tens of nanoseconds, so it's a useful activity to pause a bit.
+                    LockSupport.parkNanos(1L);
+                    waitStrategy.signalAllWhenBlocking();
+                    continue;
+                }
+                slowestConsumerPosition.set(minPosition);
+            } else if (current.compareAndSet(currentPosition, maxPosition)) {
+                return maxPosition;
+            }
+        }
+    }
+
+    protected long positionOfSlowestPointer( long minimumPosition ) {
+        return Pointers.getMinimum(stayBehinds, minimumPosition);
+    }
+
+    protected long positionOfSlowestConsumer() {
+        return slowestConsumerPosition.get();
+    }
+
+    @Override
+    public boolean publish( long position ) {
+        publishedLaps.lazySet(index(position), lap(position));
+        if (finalPosition != Long.MAX_VALUE) return false;
+        waitStrategy.signalAllWhenBlocking();
+        return true;
+    }
+
+    @Override
+    public boolean publish( long lowerPosition,
+                            long upperPosition ) {
+        for (long position = lowerPosition; position < upperPosition; ++position) {
+            publishedLaps.lazySet(index(position), lap(position));
+        }
+        // Publishing the highest position also signals the consumers ...
+        return publish(upperPosition);
+    }
+
+    private int index( long position ) {
+        return (int)position & mask;
+    }
+
+    private int lap( long position ) {
+        return (int)(position >>> indexShift);
+    }
+
+    protected boolean isPublished( long position ) {
+        return publishedLaps.get(index(position)) == lap(position);
+    }
+
+    @Override
+    public long getHighestPublishedPosition( long lowerPosition,
+                                             long upperPosition ) {
+        for (long position = lowerPosition; position <= upperPosition; ++position) {
+            if (!isPublished(position)) {
+                return position - 1L;
+            }
+        }
+        return upperPosition;
+    }
+
+    @Override
+    public PointerBarrier newBarrier() {
+        return new PointerBarrier() {
+            private volatile boolean closed = false;
+
+            @Override
+            public long waitFor( long position ) throws InterruptedException, TimeoutException {
+                if (position > finalPosition) {
+                    // The consumer is waiting for a position beyond the final position, meaning we're done ...
+                    return -1;
+                }
+                long availableSequence = waitStrategy.waitFor(position, current, current, this);
+                if (availableSequence < position) {
+                    return availableSequence;
+                }
+                long highestPublished;
+                while ((highestPublished = getHighestPublishedPosition(position, availableSequence)) < position) {
+                    // The position has been claimed by a producer that is still writing the entry, which takes very little time ...
+                    if (closed) return -1;
+                    LockSupport.parkNanos(1L);
+                }
+                return highestPublished;
+            }
+
+            @Override
+            public boolean isComplete() {
+                return closed || MultiProducerCursor.this.isComplete();
+            }
+
+            @Override
+            public void close() {
+                this.closed = true;
+            }
+        };
+    }
+
+    @Override
+    public void signalConsumers() {
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    @Override
+    public void complete() {
+        finalPosition = current.get();
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    @Override
+    public boolean isComplete() {
+        return finalPosition != Long.MAX_VALUE;
+    }
+
+    @Override
+    public Pointer newPointer() {
+        Pointer result = new Pointer(current.get());
+        this.stayBehind(result);
+        return result;
+    }
+
+    @Override
+    public void stayBehind( Pointer... pointers ) {
+        Pointers.add(this, STAY_BEHIND_UPDATER, this, pointers);
+    }
+
+    @Override
+    public boolean ignore( Pointer pointer ) {
+        return Pointers.remove(this, STAY_BEHIND_UPDATER, pointer);
+    }
+
+    @Override
+    public GarbageCollectingConsumer createGarbageCollectingConsumer( Collectable collectable ) {
+        return new GarbageCollectingConsumer(this, current, waitStrategy, collectable);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.collection.ring;
+
+/**
+ * The policy that determines what a {@link RingBuffer} does when a consumer falls so far behind that the producers would soon have
+ * to wait for it before they can add more entries.
+ */
+public enum OverflowPolicy {
+    /**
+     * The producers wait until the slowest consumer has processed enough entries. This guarantees that each consumer only ever
+     * holds entries in the ring buffer itself, but a single slow consumer slows down all producers.
+     */
+    BLOCK,
+
+    /**
+     * A consumer that falls more than half of the ring buffer behind is isolated: from then on its entries are copied into its
+     * own unbounded queue and processed in a separate thread, so that it no longer holds back the producers. The consumer still
+     * sees all entries in the same order. This trades memory for the throughput of the producers, since the isolated queue grows
+     * as long as the consumer can't keep up.
+     */
+    ISOLATE_SLOW_CONSUMERS
+}
@@ -45,6 +45,11 @@ public class Pointer {
         this.value.set(newValue);
     }
 
+    public boolean compareAndSet( long expectedValue,
+                                  long newValue ) {
+        return this.value.compareAndSet(expectedValue, newValue);
+    }
+
     public long incrementAndGet() {
         return this.value.incrementAndGet();
     }
@@ -18,9 +18,11 @@ package org.modeshape.common.collection.ring;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -81,6 +83,13 @@ import org.modeshape.common.util.CheckArg;
  * <p>
  * Once a ring buffer has been shutdown, it cannot be restarted.
  * </p>
+ * <h2>Producers and slow consumers</h2>
+ * <p>
+ * A ring buffer built for multiple producers uses a {@link MultiProducerCursor}, with which each producer claims its positions
+ * with an atomic compare-and-set rather than a lock, so producers never wait for each other. Producers do have to wait for the
+ * slowest consumer when the buffer is full, unless the buffer uses the {@link OverflowPolicy#ISOLATE_SLOW_CONSUMERS} policy, in
+ * which case consumers that fall too far behind are moved into their own queue.
+ * </p>
  * 
  * @param <T> the type of entries stored in the buffer
  * @param <C> the type of consumer
@@ -88,6 +97,7 @@ import org.modeshape.common.util.CheckArg;
  */
 public final class RingBuffer<T, C> {
 
+    private final String name;
     private final int bufferSize;
     private final int mask;
     protected final Cursor cursor;
@@ -98,6 +108,8 @@ public final class RingBuffer<T, C> {
     private final Set<ConsumerRunner> consumers = new CopyOnWriteArraySet<>();
     private final GarbageCollectingConsumer gcConsumer;
     private final Lock producerLock;
+    private final OverflowPolicy overflowPolicy;
+    private final long isolationLag;
     protected final Logger logger = Logger.getLogger(getClass());
 
     RingBuffer( String name,
@@ -105,7 +117,9 @@ public final class RingBuffer<T, C> {
                 Executor executor,
                 ConsumerAdapter<T, C> consumerAdapter,
                 boolean gcEntries,
-                boolean singleProducer ) {
+                boolean serializeProducers,
+                OverflowPolicy overflowPolicy ) {
+        this.name = name;
         this.cursor = cursor;
         this.bufferSize = cursor.getBufferSize();
         CheckArg.isPositive(bufferSize, "cursor.getBufferSize()");
@@ -114,6 +128,8 @@ public final class RingBuffer<T, C> {
         this.buffer = new Object[bufferSize];
         this.executor = executor;
         this.consumerAdapter = consumerAdapter;
+        this.overflowPolicy = overflowPolicy;
+        this.isolationLag = bufferSize / 2;
         if (gcEntries) {
             this.gcConsumer = this.cursor.createGarbageCollectingConsumer(new Collectable() {
 
@@ -128,12 +144,12 @@ public final class RingBuffer<T, C> {
             this.gcConsumer = null;
         }
 
-        if (singleProducer) {
-            // There is but one thread calling 'add', so no need for alock. Create an impl that does nothing ...
-            producerLock = new NoOpLock();
-        } else {
-            // Multiple threads can call 'add', so use a real lock ...
+        if (serializeProducers) {
+            // Multiple threads can call 'add' but the cursor only supports one, so use a real lock ...
             producerLock = new ReentrantLock();
+        } else {
+            // There is but one thread calling 'add' or the cursor allows concurrent claims, so no need for a lock ...
+            producerLock = new NoOpLock();
         }
     }
 
@@ -173,11 +189,12 @@ public final class RingBuffer<T, C> {
         try {
             producerLock.lock();
             long position = cursor.claim(entries.length); // blocks
+            long firstPosition = position - entries.length + 1L;
             for (int i = 0; i != entries.length; ++i) {
-                int index = (int)(position & mask);
+                int index = (int)((firstPosition + i) & mask);
                 buffer[index] = entries[i];
             }
-            return cursor.publish(position);
+            return cursor.publish(firstPosition, position);
         } finally {
             producerLock.unlock();
         }
@@ -294,6 +311,15 @@ public final class RingBuffer<T, C> {
         return bufferSize;
     }
 
+    /**
+     * Get the name of this buffer.
+     * 
+     * @return the name; never null
+     */
+    public String getName() {
+        return name;
+    }
+
     /**
      * Checks if there are any consumers registered.
      * 
@@ -390,6 +416,7 @@ public final class RingBuffer<T, C> {
         private final int timesToRetryUponTimeout;
         private final AtomicBoolean runThread = new AtomicBoolean(true);
         private final CountDownLatch stopLatch = new CountDownLatch(1);
+        private IsolatedConsumer isolated;
 
         protected ConsumerRunner( C consumer,
                                   final int timesToRetryUponTimeout ) {
@@ -462,14 +489,26 @@ public final class RingBuffer<T, C> {
                         long maxPosition = barrier.waitFor(next);
                         while (next <= maxPosition) {
                             entry = getEntry(next);
-                            try {
-                                if (!consumerAdapter.consume(consumer, entry, next, maxPosition)) {
-                                    // The consumer is done, so break out of the loop and clean up ...
+                            if (isolated != null) {
+                                // Just hand the entry over to the isolated consumer's thread ...
+                                if (!isolated.enqueue(entry, next, maxPosition)) {
                                     consume = false;
                                     break;
                                 }
-                            } catch (Throwable t) {
-                                consumerAdapter.handleException(consumer, t, entry, next, maxPosition);
+                            } else {
+                                try {
+                                    if (!consumerAdapter.consume(consumer, entry, next, maxPosition)) {
+                                        // The consumer is done, so break out of the loop and clean up ...
+                                        consume = false;
+                                        break;
+                                    }
+                                } catch (Throwable t) {
+                                    consumerAdapter.handleException(consumer, t, entry, next, maxPosition);
+                                }
+                                if (overflowPolicy == OverflowPolicy.ISOLATE_SLOW_CONSUMERS
+                                    && cursor.getCurrent() - next > isolationLag) {
+                                    isolate(cursor.getCurrent() - next);
+                                }
                             }
                             next = pointer.incrementAndGet() + 1L;
                             retry = timesToRetryUponTimeout;
@@ -501,6 +540,10 @@ public final class RingBuffer<T, C> {
                     cursor.ignore(pointer);
                 } finally {
                     try {
+                        if (isolated != null) {
+                            // Let the isolated consumer process its remaining entries, unless it was removed ...
+                            isolated.finish(!runThread.get());
+                        }
                         consumerAdapter.close(consumer);
                     } catch (Throwable t) {
                         logger.error(t, CommonI18n.errorWhileClosingRingBufferConsumer, consumer, t.getMessage());
@@ -514,6 +557,96 @@ public final class RingBuffer<T, C> {
                 }
             }
         }
+
+        /**
+         * Move the consumer into its own thread, fed by an unbounded queue, so that it no longer holds back the producers. This
+         * is only called from the consumer's thread, so all entries consumed so far happen before those consumed in the new
+         * thread.
+         * 
+         * @param lag the number of entries that the consumer is behind the cursor
+         */
+        private void isolate( long lag ) {
+            logger.warn(CommonI18n.ringBufferConsumerIsolated, consumer, name, lag);
+            isolated = new IsolatedConsumer(consumer);
+            executor.execute(isolated);
+        }
+    }
+
+    /**
+     * The runnable that processes, in its own thread, the entries of a consumer that has been isolated because it could not keep
+     * up with the producers.
+     */
+    protected class IsolatedConsumer implements Runnable {
+        private final C consumer;
+        private final BlockingQueue<IsolatedEntry<T>> queue = new LinkedBlockingQueue<>();
+        private final CountDownLatch stopLatch = new CountDownLatch(1);
+        private volatile boolean consume = true;
+
+        protected IsolatedConsumer( C consumer ) {
+            this.consumer = consumer;
+        }
+
+        protected boolean enqueue( T entry,
+                                   long position,
+                                   long maxPosition ) {
+            if (!consume) return false;
+            queue.add(new IsolatedEntry<>(entry, position, maxPosition));
+            return true;
+        }
+
+        protected void finish( boolean discardRemaining ) {
+            if (discardRemaining) {
+                consume = false;
+                queue.clear();
+            }
+            // An entry without a position signals the end ...
+            queue.add(new IsolatedEntry<T>(null, -1L, -1L));
+            try {
+                stopLatch.await();
+            } catch (InterruptedException e) {
+                // The thread was interrupted ...
+                Thread.interrupted();
+                // do nothing ...
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    IsolatedEntry<T> next = queue.take();
+                    if (next.position < 0L) return;
+                    if (!consume) continue;
+                    try {
+                        if (!consumerAdapter.consume(consumer, next.entry, next.position, next.maxPosition)) {
+                            // The consumer is done, so just drain the remaining entries ...
+                            consume = false;
+                        }
+                    } catch (Throwable t) {
+                        consumerAdapter.handleException(consumer, t, next.entry, next.position, next.maxPosition);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // The thread was interrupted ...
+                Thread.interrupted();
+            } finally {
+                stopLatch.countDown();
+            }
+        }
+    }
+
+    protected static final class IsolatedEntry<T> {
+        protected final T entry;
+        protected final long position;
+        protected final long maxPosition;
+
+        protected IsolatedEntry( T entry,
+                                 long position,
+                                 long maxPosition ) {
+            this.entry = entry;
+            this.position = position;
+            this.maxPosition = maxPosition;
+        }
     }
 
     protected static final class NoOpLock implements Lock {
@@ -95,7 +95,8 @@ public class RingBufferBuilder<T, C> {
     private boolean singleProducer = true;
     private String name = DEFAULT_NAME;
     private WaitStrategy waitStrategy;
-    
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
     /**
      * @param executor the executor that should be used to create threads to run {@link Consumer}s; may not be null
      * @param adapter the adapter for consumers; may not be null
@@ -139,11 +140,32 @@ public class RingBufferBuilder<T, C> {
         return this;
     }
 
+    /**
+     * Use the supplied strategy for consumers that are waiting for new entries. By default, consumers use a
+     * {@link BlockingWaitStrategy}; the other strategies are {@link YieldingWaitStrategy}, {@link BusySpinWaitStrategy} and
+     * {@link TimeoutParkingWaitStrategy}.
+     * 
+     * @param waitStrategy the wait strategy; may be null if the default should be used
+     * @return this builder; never null
+     */
     public RingBufferBuilder<T, C> waitUsing( WaitStrategy waitStrategy ) {
         this.waitStrategy = waitStrategy;
         return this;
     }
 
+    /**
+     * Use the supplied policy when a consumer falls too far behind the producers. By default, {@link OverflowPolicy#BLOCK} is
+     * used.
+     * 
+     * @param overflowPolicy the overflow policy; may not be null
+     * @return this builder; never null
+     */
+    public RingBufferBuilder<T, C> onOverflow( OverflowPolicy overflowPolicy ) {
+        CheckArg.isNotNull(overflowPolicy, "overflowPolicy");
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
     protected RingBufferBuilder<T, C> singleProducer() {
         this.singleProducer = true;
         return this;
@@ -155,7 +177,7 @@ public class RingBufferBuilder<T, C> {
     }
 
     public RingBufferBuilder<T, C> named( String bufferName ) {
-        if (bufferName != null && bufferName.trim().isEmpty()) this.name = bufferName;
+        if (bufferName != null && !bufferName.trim().isEmpty()) this.name = bufferName;
         return this;
     }
 
@@ -163,7 +185,9 @@ public class RingBufferBuilder<T, C> {
         WaitStrategy waitStrategy = this.waitStrategy;
         if (waitStrategy == null) waitStrategy = defaultWaitStrategy();
         Cursor cursor = defaultCursor(bufferSize, waitStrategy);
-        return new RingBuffer<T, C>(name, cursor, executor, adapter, garbageCollect, singleProducer);
+        // Only cursors for a single producer need the producers to be serialized ...
+        boolean serializeProducers = !singleProducer && !(cursor instanceof MultiProducerCursor);
+        return new RingBuffer<T, C>(name, cursor, executor, adapter, garbageCollect, serializeProducers, overflowPolicy);
     }
 
     protected WaitStrategy defaultWaitStrategy() {
@@ -172,6 +196,9 @@ public class RingBufferBuilder<T, C> {
 
     protected Cursor defaultCursor( int bufferSize,
                                     WaitStrategy waitStrategy ) {
-        return new SingleProducerCursor(bufferSize, waitStrategy);
+        if (singleProducer) {
+            return new SingleProducerCursor(bufferSize, waitStrategy);
+        }
+        return new MultiProducerCursor(bufferSize, waitStrategy);
     }
 }
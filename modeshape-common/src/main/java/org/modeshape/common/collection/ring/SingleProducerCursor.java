@@ -116,6 +116,13 @@ public class SingleProducerCursor implements Cursor {
         return true;
     }
 
+    @Override
+    public boolean publish( long lowerPosition,
+                            long upperPosition ) {
+        // There is only one producer, so publishing the highest position publishes all of the lower ones ...
+        return publish(upperPosition);
+    }
+
     @Override
     public long getHighestPublishedPosition( long lowerPosition,
                                              long upperPosition ) {
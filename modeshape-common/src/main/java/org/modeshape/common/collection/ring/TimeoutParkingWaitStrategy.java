@@ -0,0 +1,95 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.common.collection.ring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import org.modeshape.common.util.CheckArg;
+
+/**
+ * A {@link WaitStrategy} that parks the current thread for short periods until an entry is available for consumption, and that
+ * throws a {@link TimeoutException} if no entry becomes available within the supplied timeout. It never uses locks, so producers
+ * don't have to signal the waiting consumers, but the consumers may see new entries up to one park interval late.
+ * <p>
+ * Note that a {@link RingBuffer} consumer only retries a limited number of times after a timeout (see
+ * {@link RingBuffer#addConsumer(Object, int)}), so this strategy is best used for consumers that should stop when idle.
+ * </p>
+ */
+public class TimeoutParkingWaitStrategy implements WaitStrategy {
+
+    /**
+     * The default number of nanoseconds that a waiting thread is parked before checking again for available entries.
+     */
+    public static final long DEFAULT_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    private final long timeoutNanos;
+    private final long parkNanos;
+
+    /**
+     * Create a strategy that parks the waiting threads for {@link #DEFAULT_PARK_NANOS} at a time.
+     * 
+     * @param timeout the maximum time to wait for an entry; must be positive
+     * @param unit the unit of the timeout; may not be null
+     */
+    public TimeoutParkingWaitStrategy( long timeout,
+                                       TimeUnit unit ) {
+        this(timeout, unit, DEFAULT_PARK_NANOS);
+    }
+
+    /**
+     * Create a strategy.
+     * 
+     * @param timeout the maximum time to wait for an entry; must be positive
+     * @param unit the unit of the timeout; may not be null
+     * @param parkNanos the number of nanoseconds a waiting thread is parked before checking again for available entries; must
+     *        be positive
+     */
+    public TimeoutParkingWaitStrategy( long timeout,
+                                       TimeUnit unit,
+                                       long parkNanos ) {
+        CheckArg.isPositive(timeout, "timeout");
+        CheckArg.isNotNull(unit, "unit");
+        CheckArg.isPositive(parkNanos, "parkNanos");
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public long waitFor( long position,
+                         Pointer pointer,
+                         Pointer dependentPointer,
+                         PointerBarrier barrier ) throws InterruptedException, TimeoutException {
+        long availablePosition = dependentPointer.get();
+        if (availablePosition >= position) return availablePosition;
+        long deadline = System.nanoTime() + timeoutNanos;
+        while ((availablePosition = dependentPointer.get()) < position && !barrier.isComplete()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new TimeoutException();
+            }
+            LockSupport.parkNanos(parkNanos);
+        }
+        return availablePosition;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        // nothing is ever blocked on a lock ...
+    }
+}
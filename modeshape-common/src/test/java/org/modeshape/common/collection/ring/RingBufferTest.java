@@ -21,10 +21,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.modeshape.common.FixFor;
 import org.modeshape.common.statistic.Stopwatch;
@@ -302,6 +310,176 @@ public class RingBufferTest {
         assertEquals(1024, ringBuffer.getBufferSize());
     }
 
+    @Test
+    public void shouldAllowMultipleProducersToAddEntriesConcurrently() throws Exception {
+        assertMultipleProducersAddAllEntries(new BlockingWaitStrategy(), OverflowPolicy.BLOCK, 8, 4, 5000);
+    }
+
+    @Test
+    public void shouldAllowMultipleProducersWithYieldingWaitStrategy() throws Exception {
+        assertMultipleProducersAddAllEntries(new YieldingWaitStrategy(), OverflowPolicy.BLOCK, 16, 4, 5000);
+    }
+
+    @Test
+    public void shouldAllowMultipleProducersWithBusySpinWaitStrategy() throws Exception {
+        assertMultipleProducersAddAllEntries(new BusySpinWaitStrategy(), OverflowPolicy.BLOCK, 16, 2, 5000);
+    }
+
+    @Test
+    public void shouldAllowMultipleProducersWithTimeoutParkingWaitStrategy() throws Exception {
+        assertMultipleProducersAddAllEntries(new TimeoutParkingWaitStrategy(10, TimeUnit.SECONDS), OverflowPolicy.BLOCK, 16, 4,
+                                             5000);
+    }
+
+    @Test
+    public void shouldAllowMultipleProducersWhenIsolatingSlowConsumers() throws Exception {
+        assertMultipleProducersAddAllEntries(new BlockingWaitStrategy(), OverflowPolicy.ISOLATE_SLOW_CONSUMERS, 8, 4, 5000);
+    }
+
+    @Test
+    public void shouldAddBatchesOfEntriesFromMultipleProducers() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            RingBuffer<Long, Consumer<Long>> ringBuffer = RingBufferBuilder.withMultipleProducers(executor, Long.class).ofSize(16)
+                                                                           .build();
+            PerProducerOrderConsumer consumer = new PerProducerOrderConsumer(2);
+            ringBuffer.addConsumer(consumer);
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p != 2; ++p) {
+                final long producer = p;
+                producers.add(executor.submit(() -> {
+                    for (long i = 0; i != 1000; i += 4) {
+                        ringBuffer.add(new Long[] {entry(producer, i), entry(producer, i + 1), entry(producer, i + 2),
+                            entry(producer, i + 3)});
+                    }
+                }));
+            }
+            for (Future<?> producer : producers) {
+                producer.get(30, TimeUnit.SECONDS);
+            }
+            ringBuffer.shutdown();
+            assertThat(consumer.getCount(), is(2000L));
+            assertTrue(consumer.isInOrder());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotBlockProducersWhenSlowConsumerIsIsolated() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            RingBuffer<Long, Consumer<Long>> ringBuffer = RingBufferBuilder.withMultipleProducers(executor, Long.class).ofSize(8)
+                                                                           .onOverflow(OverflowPolicy.ISOLATE_SLOW_CONSUMERS)
+                                                                           .build();
+            PerProducerOrderConsumer slow = new PerProducerOrderConsumer(1) {
+                @Override
+                public boolean consume( Long entry,
+                                        long position,
+                                        long maxPosition ) {
+                    try {
+                        Thread.sleep(20L);
+                    } catch (InterruptedException e) {
+                        Thread.interrupted();
+                    }
+                    return super.consume(entry, position, maxPosition);
+                }
+            };
+            PerProducerOrderConsumer fast = new PerProducerOrderConsumer(1);
+            ringBuffer.addConsumer(slow);
+            ringBuffer.addConsumer(fast);
+
+            // Add far more entries than fit in the buffer; this would take at least 2 seconds if the slow consumer were not
+            // isolated ...
+            Future<?> producer = executor.submit(() -> {
+                for (long i = 0; i != 100; ++i) {
+                    ringBuffer.add(entry(0, i));
+                }
+            });
+            producer.get(1, TimeUnit.SECONDS);
+            ringBuffer.shutdown();
+            assertThat(fast.getCount(), is(100L));
+            assertTrue(fast.isInOrder());
+            assertThat(slow.getCount(), is(100L));
+            assertTrue(slow.isInOrder());
+            assertTrue(slow.isClosed());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Measures the throughput of adding entries to a buffer with a single consumer for different numbers of producers. This
+     * runs for a long time and prints the results, so it is not run as part of the build.
+     */
+    @Test
+    @Ignore( "Benchmark that takes a long time to run" )
+    public void shouldMeasureThroughputOfMultipleProducers() throws Exception {
+        int entriesPerRun = 2000000;
+        for (int producers = 1; producers <= 64; producers *= 2) {
+            for (WaitStrategy waitStrategy : new WaitStrategy[] {new BlockingWaitStrategy(), new YieldingWaitStrategy()}) {
+                Stopwatch sw = new Stopwatch();
+                sw.start();
+                assertMultipleProducersAddAllEntries(waitStrategy, OverflowPolicy.BLOCK, 1 << 10, producers, entriesPerRun / producers);
+                sw.stop();
+                System.out.println(producers + " producers with " + waitStrategy.getClass().getSimpleName() + ": "
+                                   + (entriesPerRun * 1000L / Math.max(1L, sw.getTotalDuration().getDurationInMilliseconds().longValue()))
+                                   + " entries/sec");
+            }
+        }
+    }
+
+    protected void assertMultipleProducersAddAllEntries( WaitStrategy waitStrategy,
+                                                         OverflowPolicy overflowPolicy,
+                                                         int bufferSize,
+                                                         int numProducers,
+                                                         final int entriesPerProducer ) throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            RingBuffer<Long, Consumer<Long>> ringBuffer = RingBufferBuilder.withMultipleProducers(executor, Long.class)
+                                                                           .ofSize(bufferSize).waitUsing(waitStrategy)
+                                                                           .onOverflow(overflowPolicy).garbageCollect(true)
+                                                                           .build();
+            PerProducerOrderConsumer consumer1 = new PerProducerOrderConsumer(numProducers);
+            PerProducerOrderConsumer consumer2 = new PerProducerOrderConsumer(numProducers);
+            ringBuffer.addConsumer(consumer1);
+            ringBuffer.addConsumer(consumer2);
+
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p != numProducers; ++p) {
+                final long producer = p;
+                producers.add(executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i != entriesPerProducer; ++i) {
+                        ringBuffer.add(entry(producer, i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> producer : producers) {
+                producer.get(60, TimeUnit.SECONDS);
+            }
+            ringBuffer.shutdown();
+
+            long expected = (long)numProducers * entriesPerProducer;
+            assertThat(consumer1.getCount(), is(expected));
+            assertThat(consumer2.getCount(), is(expected));
+            assertTrue(consumer1.isInOrder());
+            assertTrue(consumer2.isInOrder());
+            assertTrue(consumer1.isClosed());
+            assertTrue(consumer2.isClosed());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected static long entry( long producer,
+                                 long sequence ) {
+        return (producer << 32) | sequence;
+    }
+
     protected void print( String message ) {
         if (print) System.out.println(message);
     }
@@ -377,6 +555,55 @@ public class RingBufferTest {
         }
     }
 
+    /**
+     * A consumer that verifies that the entries of each producer are seen in the order in which that producer added them, and
+     * that the positions are consecutive.
+     */
+    protected static class PerProducerOrderConsumer extends Consumer<Long> {
+        private final long[] lastSequences;
+        private long lastPosition = -2L;
+        private volatile long count = 0L;
+        private volatile boolean inOrder = true;
+        private volatile boolean closed = false;
+
+        public PerProducerOrderConsumer( int numProducers ) {
+            this.lastSequences = new long[numProducers];
+            Arrays.fill(lastSequences, -1L);
+        }
+
+        @Override
+        public boolean consume( Long entry,
+                                long position,
+                                long maxPosition ) {
+            int producer = (int)(entry.longValue() >>> 32);
+            long sequence = entry.longValue() & 0xFFFFFFFFL;
+            if (sequence != lastSequences[producer] + 1 || (lastPosition != -2L && position != lastPosition + 1)) {
+                inOrder = false;
+            }
+            lastSequences[producer] = sequence;
+            lastPosition = position;
+            ++count;
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public boolean isInOrder() {
+            return inOrder;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+
     private static class LongConsumerAdapter implements RingBuffer.ConsumerAdapter<Long, MonotonicallyIncreasingConsumer> {
         protected static final LongConsumerAdapter INSTANCE = new LongConsumerAdapter();
 
@@ -15,6 +15,8 @@
  */
 package org.modeshape.jcr.api;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.Future;
 import javax.jcr.AccessDeniedException;
 import javax.jcr.RepositoryException;
@@ -146,4 +148,31 @@ public interface Workspace extends javax.jcr.Workspace {
      * @see FederationManager
      */
     FederationManager getFederationManager() throws RepositoryException;
+
+    /**
+     * Deserializes an XML document and adds the resulting item subgraph as a child of the node at <code>parentAbsPath</code>,
+     * exactly like {@link #importXML(String, InputStream, int)} except that the imported content is persisted in batches rather
+     * than in a single save at the end of the document. This bounds the amount of memory and the size of the transactions needed
+     * to import very large documents.
+     * <p>
+     * Whenever at least <code>batchSize</code> nodes have been created since the previous save and the content imported so far
+     * satisfies all node type constraints, that content is saved. Reference properties are set only once all of the nodes they
+     * refer to have been imported. Because of the intermediate saves, a failure part way through the document leaves the
+     * batches that were already saved in the workspace.
+     * </p>
+     *
+     * @param parentAbsPath the absolute path of the node below which the deserialized subgraph is added.
+     * @param in An <code>InputStream</code> from which the XML to be deserialized is read.
+     * @param uuidBehavior a four-value flag that governs how incoming UUIDs are handled.
+     * @param batchSize the minimum number of nodes that are imported before the content is saved; must be positive
+     * @throws IOException if an error during an I/O operation occurs.
+     * @throws IllegalArgumentException if the batch size is not positive
+     * @throws RepositoryException if any of the conditions described for {@link #importXML(String, InputStream, int)} occur.
+     * @see #importXML(String, InputStream, int)
+     * @since 5.3
+     */
+    void importXML( String parentAbsPath,
+                    InputStream in,
+                    int uuidBehavior,
+                    int batchSize ) throws IOException, RepositoryException;
 }
@@ -18,6 +18,7 @@ package org.modeshape.jcr.api.monitor;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.jcr.Session;
 import javax.jcr.query.Query;
 
@@ -32,19 +33,65 @@ public enum DurationMetric {
      * The metric that captures the duration of {@link Query#execute() query executions}. Note that the payload of the
      * {@link DurationActivity} instances are the query strings.
      */
-    QUERY_EXECUTION_TIME("query-execution-time", "Query duration",
+    QUERY_EXECUTION_TIME("query-execution-time", TimeUnit.MILLISECONDS, "Query duration",
                          "The metric measuring the amount of time required to execute queries."),
     /**
      * The metric that captures the duration of {@link Session sessions}. Note that the payload of the {@link DurationActivity}
      * instances are the session usern IDs.
      */
-    SESSION_LIFETIME("session-lifetime", "Session duration", "The metric measuring the how long sessions are kept open."),
+    SESSION_LIFETIME("session-lifetime", TimeUnit.MILLISECONDS, "Session duration",
+                     "The metric measuring the how long sessions are kept open."),
     /**
      * The metric that captures the duration of sequencer executions. Note that the payload of the {@link DurationActivity}
      * instances are strings containing the sequencer name and the input and output paths.
      */
-    SEQUENCER_EXECUTION_TIME("sequencer-execution-time", "Sequencing duration",
-                             "The metric measuring how long sequencers take to run and save the changes.");
+    SEQUENCER_EXECUTION_TIME("sequencer-execution-time", TimeUnit.MILLISECONDS, "Sequencing duration",
+                             "The metric measuring how long sequencers take to run and save the changes."),
+    /**
+     * The metric that captures the latency of reading node documents from the persistent store, which happens every time a node
+     * is not found in a workspace cache.
+     *
+     * @since 5.3
+     */
+    DOCUMENT_STORE_READ_TIME("document-store-read-time", TimeUnit.MICROSECONDS, "Document store read latency",
+                             "The metric measuring how long it takes to read a node from the persistent store, in microseconds."),
+    /**
+     * The metric that captures how long {@link Session#save() save} operations wait to acquire the locks on all the nodes they
+     * change.
+     *
+     * @since 5.3
+     */
+    SAVE_LOCK_TIME("save-lock-time", TimeUnit.MICROSECONDS, "Save lock acquisition latency",
+                   "The metric measuring how long save operations wait to lock the changed nodes, in microseconds."),
+    /**
+     * The metric that captures how long {@link Session#save() save} operations take to write the changed nodes into the
+     * persistent store.
+     *
+     * @since 5.3
+     */
+    SAVE_PERSIST_TIME("save-persist-time", TimeUnit.MICROSECONDS, "Save persistence latency",
+                      "The metric measuring how long save operations take to persist the changes, in microseconds."),
+    /**
+     * The metric that captures how long an index takes to process the changes from one transaction.
+     *
+     * @since 5.3
+     */
+    INDEX_UPDATE_TIME("index-update-time", TimeUnit.MICROSECONDS, "Index update latency",
+                      "The metric measuring how long indexes take to apply the changes of a transaction, in microseconds."),
+    /**
+     * The metric that captures how long it takes an index to reopen its searchers so that they see the latest changes.
+     *
+     * @since 5.3
+     */
+    INDEX_REFRESH_TIME("index-refresh-time", TimeUnit.MICROSECONDS, "Index refresh latency",
+                       "The metric measuring how long indexes take to make the latest changes visible to searches, in microseconds."),
+    /**
+     * The metric that captures how long it takes to store binary values in the binary store.
+     *
+     * @since 5.3
+     */
+    BINARY_STORE_WRITE_TIME("binary-store-write-time", TimeUnit.MICROSECONDS, "Binary store write latency",
+                            "The metric measuring how long it takes to write binary values to the binary store, in microseconds.");
 
     private static final Map<String, DurationMetric> BY_LITERAL;
     private static final Map<String, DurationMetric> BY_NAME;
@@ -59,13 +106,16 @@ public enum DurationMetric {
         BY_NAME = Collections.unmodifiableMap(byName);
     }
     private final String literal;
+    private final TimeUnit timeUnit;
     private final String label;
     private final String description;
 
     private DurationMetric( String literal,
+                            TimeUnit timeUnit,
                             String label,
                             String description ) {
         this.literal = literal;
+        this.timeUnit = timeUnit;
         this.label = label;
         this.description = description;
     }
@@ -79,6 +129,16 @@ public enum DurationMetric {
         return literal;
     }
 
+    /**
+     * The time unit of the values in the {@link Statistics statistics} recorded for this metric.
+     *
+     * @return the time unit; never null
+     * @since 5.3
+     */
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
     /**
      * The readable label for this metric.
      * 
@@ -0,0 +1,97 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.api.monitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The distribution of all the values recorded for a {@link DurationMetric duration metric} since the repository was started.
+ * Unlike the {@link Statistics} of a {@link History}, this allows determining the values below which a certain percentage of the
+ * recorded durations fall (e.g. the median or the 99th percentile), which is what latency-related settings should be based on.
+ * The returned values are approximate, but always within a few percent of the actual recorded values.
+ *
+ * @since 5.3
+ */
+public interface Percentiles {
+
+    /**
+     * A distribution without any recorded values.
+     */
+    public Percentiles NO_PERCENTILES = new Percentiles() {
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * <strong>Always returns <code>0</code> (zero).</strong>
+         *
+         * @see org.modeshape.jcr.api.monitor.Percentiles#getCount()
+         */
+        @Override
+        public long getCount() {
+            return 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * <strong>Always returns <code>0</code> (zero).</strong>
+         *
+         * @see org.modeshape.jcr.api.monitor.Percentiles#getValueAtPercentile(double, java.util.concurrent.TimeUnit)
+         */
+        @Override
+        public long getValueAtPercentile( double percentile,
+                                          TimeUnit unit ) {
+            return 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * <strong>Always returns <code>0</code> (zero).</strong>
+         *
+         * @see org.modeshape.jcr.api.monitor.Percentiles#getMaximum(java.util.concurrent.TimeUnit)
+         */
+        @Override
+        public long getMaximum( TimeUnit unit ) {
+            return 0;
+        }
+    };
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return the number of values; never negative
+     */
+    public long getCount();
+
+    /**
+     * Get the value below which (or equal to which) the given percentage of the recorded values fall.
+     *
+     * @param percentile the percentage, between 0 and 100 (e.g. {@code 99.9})
+     * @param unit the desired time unit; may not be null
+     * @return the value at the given percentile, or 0 if there are no recorded values
+     */
+    public long getValueAtPercentile( double percentile,
+                                      TimeUnit unit );
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @param unit the desired time unit; may not be null
+     * @return the largest value, or 0 if there are no recorded values
+     */
+    public long getMaximum( TimeUnit unit );
+}
@@ -113,6 +113,18 @@ public interface RepositoryMonitor {
             return DurationActivity.NO_DURATION_RECORDS;
         }
 
+        /**
+         * {@inheritDoc}
+         * <p>
+         * <strong>Always returns {@link Percentiles#NO_PERCENTILES}.</strong>
+         * 
+         * @see org.modeshape.jcr.api.monitor.RepositoryMonitor#getPercentiles(org.modeshape.jcr.api.monitor.DurationMetric)
+         */
+        @Override
+        public Percentiles getPercentiles( DurationMetric metric ) {
+            return Percentiles.NO_PERCENTILES;
+        }
+
     };
 
     /**
@@ -190,4 +202,23 @@ public interface RepositoryMonitor {
      */
     public DurationActivity[] getLongestRunning( DurationMetric metric ) throws AccessDeniedException, RepositoryException;
 
+    /**
+     * Get the distribution of all the durations recorded for the specified metric since the repository was started, which can be
+     * used to obtain percentiles such as the median or the 99th percentile.
+     * <p>
+     * The default implementation returns {@link Percentiles#NO_PERCENTILES}, so that implementations written before this method
+     * was added keep working.
+     * </p>
+     * 
+     * @param metric the duration metric; may not be null
+     * @return the percentiles; never null but possibly empty if no durations were recorded for the metric
+     * @throws AccessDeniedException if the session does not have privileges to monitor the repository
+     * @throws RepositoryException if there is an error obtaining the percentiles
+     * @see #getAvailableDurationMetrics()
+     * @since 5.3
+     */
+    public default Percentiles getPercentiles( DurationMetric metric ) throws AccessDeniedException, RepositoryException {
+        return Percentiles.NO_PERCENTILES;
+    }
+
 }
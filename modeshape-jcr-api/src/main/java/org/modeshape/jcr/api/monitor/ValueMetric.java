@@ -104,7 +104,22 @@ public enum ValueMetric {
     /**
      * The metric that records the number of nodes that were sequenced.
      */
-    SEQUENCED_COUNT("sequenced-count", false, "Sequenced nodes", "The number of nodes that were sequenced during the window.");
+    SEQUENCED_COUNT("sequenced-count", false, "Sequenced nodes", "The number of nodes that were sequenced during the window."),
+    /**
+     * The metric that records the number of node lookups that were answered by a workspace cache.
+     *
+     * @since 5.3
+     */
+    WORKSPACE_CACHE_HITS("workspace-cache-hits", false, "Workspace cache hits",
+                         "The number of nodes that were found in a workspace cache during the window."),
+    /**
+     * The metric that records the number of node lookups that were not answered by a workspace cache and required reading the
+     * node from the persistent store.
+     *
+     * @since 5.3
+     */
+    WORKSPACE_CACHE_MISSES("workspace-cache-misses", false, "Workspace cache misses",
+                           "The number of nodes that had to be read from the persistent store during the window.");
 
     private static final Map<String, ValueMetric> BY_LITERAL;
     private static final Map<String, ValueMetric> BY_NAME;
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import javax.jcr.AccessDeniedException;
@@ -3628,5 +3629,28 @@ abstract class AbstractJcrNode extends AbstractJcrItem implements Node {
                 return null;
             }
         }
+
+        @Override
+        public int prefetchSize() {
+            return session.getChildPrefetchSize();
+        }
+
+        @Override
+        public void prefetch( List<ChildReference> refs ) {
+            session.prefetchNodes(keysOf(refs));
+        }
+
+        @Override
+        public Future<?> prefetchAsync( List<ChildReference> refs ) {
+            return session.prefetchNodesAsync(keysOf(refs));
+        }
+
+        private static List<NodeKey> keysOf( List<ChildReference> refs ) {
+            List<NodeKey> keys = new ArrayList<>(refs.size());
+            for (ChildReference ref : refs) {
+                keys.add(ref.getKey());
+            }
+            return keys;
+        }
     }
 }
@@ -71,7 +71,7 @@ public final class BackupDocumentReader {
                         // No more files to read ...
                         return null;
                     }
-                    documents = Json.readMultiple(stream, false);
+                    documents = Json.createStreamReader(stream);
                 }
                 try {
                     Document doc = documents.nextDocument();
@@ -15,7 +15,6 @@
  */
 package org.modeshape.jcr;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -23,6 +22,7 @@ import java.io.OutputStream;
 import java.util.zip.GZIPOutputStream;
 import org.modeshape.schematic.document.Document;
 import org.modeshape.schematic.document.Json;
+import org.modeshape.schematic.internal.document.JsonStreamWriter;
 import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.collection.Problems;
 import org.modeshape.common.util.CheckArg;
@@ -41,7 +41,7 @@ public final class BackupDocumentWriter {
     private final String filenamePrefix;
     private final boolean compress;
     protected final long maxDocumentsPerFile;
-    protected OutputStream stream;
+    protected JsonStreamWriter stream;
     protected long count = 0L;
     protected long totalCount = 0L;
     protected long fileCount = 0L;
@@ -87,11 +87,11 @@ public final class BackupDocumentWriter {
                 currentFile = new File(parentDirectory, filename);
                 OutputStream fileStream = new FileOutputStream(currentFile);
                 if (compress) fileStream = new GZIPOutputStream(fileStream);
-                stream = new BufferedOutputStream(fileStream);
+                // The writer buffers the UTF-8 bytes itself ...
+                stream = Json.createStreamWriter(fileStream);
             }
-            Json.write(document, stream);
-            // Need to append a non-consumable character so that we can read multiple JSON documents per file
-            stream.write((byte)'\n');
+            // The writer follows each document with a line feed, so that we can read multiple JSON documents per file
+            stream.write(document);
         } catch (IOException e) {
             problems.addError(JcrI18n.problemsWritingDocumentToBackup, currentFile.getAbsolutePath(), e.getMessage());
         }
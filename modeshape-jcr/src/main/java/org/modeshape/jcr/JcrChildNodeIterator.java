@@ -15,9 +15,14 @@
  */
 package org.modeshape.jcr;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import org.modeshape.common.annotation.NotThreadSafe;
@@ -28,12 +33,46 @@ import org.modeshape.jcr.cache.ChildReferences;
 /**
  * A concrete {@link NodeIterator} implementation for children. Where possible, the creator should pass in the size. However, if
  * it is not known, the size is computed by this iterator only when needed.
+ * <p>
+ * When the {@link NodeResolver resolver} has a {@link NodeResolver#prefetchSize() prefetch size}, the child references are read
+ * ahead in windows of that size: the nodes in each window are loaded with one request before the first of them is resolved, and
+ * the following window is loaded in the background while the current one is consumed. The nodes are always returned in the
+ * order of the child references.
+ * </p>
  */
 @NotThreadSafe
 final class JcrChildNodeIterator implements NodeIterator {
 
     protected static interface NodeResolver {
         public Node nodeFrom( ChildReference ref );
+
+        /**
+         * Get the number of child references that should be read ahead and loaded together.
+         *
+         * @return the size of the read-ahead window, or 0 if the nodes should be resolved one at a time
+         */
+        public default int prefetchSize() {
+            return 0;
+        }
+
+        /**
+         * Load the nodes for the supplied child references, so that {@link #nodeFrom(ChildReference)} doesn't have to load them
+         * one at a time.
+         *
+         * @param refs the references to the nodes that will be resolved next; never null or empty
+         */
+        public default void prefetch( List<ChildReference> refs ) {
+        }
+
+        /**
+         * Start loading the nodes for the supplied child references in the background.
+         *
+         * @param refs the references to the nodes that will be resolved after those already prefetched; never null or empty
+         * @return the future that completes when the nodes are loaded, or null if they could not be loaded in the background
+         */
+        public default Future<?> prefetchAsync( List<ChildReference> refs ) {
+            return null;
+        }
     }
 
     private final NodeResolver resolver;
@@ -46,7 +85,7 @@ final class JcrChildNodeIterator implements NodeIterator {
     JcrChildNodeIterator( NodeResolver resolver,
                           Iterator<ChildReference> iterator ) {
         this.resolver = resolver;
-        this.iterator = iterator;
+        this.iterator = readAhead(resolver, iterator);
         this.size = -1L; // we'll calculate if needed
     }
 
@@ -54,10 +93,16 @@ final class JcrChildNodeIterator implements NodeIterator {
                           ChildReferences childReferences ) {
         assert size >= 0L;
         this.resolver = resolver;
-        this.iterator = childReferences.iterator();
+        this.iterator = readAhead(resolver, childReferences.iterator());
         this.size = childReferences.size();
     }
 
+    private static Iterator<ChildReference> readAhead( NodeResolver resolver,
+                                                       Iterator<ChildReference> iterator ) {
+        int windowSize = resolver.prefetchSize();
+        return windowSize > 0 ? new ReadAheadIterator(resolver, iterator, windowSize) : iterator;
+    }
+
     @Override
     public long getPosition() {
         return ndx;
@@ -142,4 +187,82 @@ final class JcrChildNodeIterator implements NodeIterator {
             nextNode();
         }
     }
+
+    /**
+     * An iterator over child references that prefetches the nodes of the references a window at a time.
+     */
+    private static final class ReadAheadIterator implements Iterator<ChildReference> {
+        private final NodeResolver resolver;
+        private final Iterator<ChildReference> delegate;
+        private final int windowSize;
+        private final ArrayDeque<ChildReference> current;
+        private List<ChildReference> following;
+        private Future<?> followingLoad;
+
+        protected ReadAheadIterator( NodeResolver resolver,
+                                     Iterator<ChildReference> delegate,
+                                     int windowSize ) {
+            this.resolver = resolver;
+            this.delegate = delegate;
+            this.windowSize = windowSize;
+            this.current = new ArrayDeque<>(windowSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !current.isEmpty() || following != null || delegate.hasNext();
+        }
+
+        @Override
+        public ChildReference next() {
+            if (current.isEmpty()) {
+                nextWindow();
+                if (current.isEmpty()) throw new NoSuchElementException();
+            }
+            return current.removeFirst();
+        }
+
+        private void nextWindow() {
+            if (following != null) {
+                List<ChildReference> window = following;
+                if (followingLoad == null) {
+                    resolver.prefetch(window);
+                } else {
+                    awaitFollowingLoad();
+                }
+                following = null;
+                followingLoad = null;
+                current.addAll(window);
+            } else {
+                List<ChildReference> window = take();
+                if (window.isEmpty()) return;
+                resolver.prefetch(window);
+                current.addAll(window);
+            }
+            // Start loading the next window while this one is consumed ...
+            List<ChildReference> window = take();
+            if (!window.isEmpty()) {
+                following = window;
+                followingLoad = resolver.prefetchAsync(window);
+            }
+        }
+
+        private void awaitFollowingLoad() {
+            try {
+                followingLoad.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // The nodes that weren't loaded will be resolved one at a time ...
+            }
+        }
+
+        private List<ChildReference> take() {
+            List<ChildReference> window = new ArrayList<>(windowSize);
+            while (window.size() < windowSize && delegate.hasNext()) {
+                window.add(delegate.next());
+            }
+            return window;
+        }
+    }
 }
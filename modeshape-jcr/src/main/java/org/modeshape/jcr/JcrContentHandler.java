@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -28,6 +29,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.jcr.Binary;
 import javax.jcr.ImportUUIDBehavior;
 import javax.jcr.InvalidItemStateException;
@@ -44,12 +46,14 @@ import org.modeshape.common.SystemFailureException;
 import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.collection.Collections;
 import org.modeshape.common.collection.LinkedHashMultimap;
+import org.modeshape.common.logging.Logger;
 import org.modeshape.common.text.TextDecoder;
 import org.modeshape.common.text.XmlNameEncoder;
 import org.modeshape.common.util.Base64;
 import org.modeshape.common.util.StringUtil;
 import org.modeshape.jcr.cache.CachedNode;
 import org.modeshape.jcr.cache.CachedNode.ReferenceType;
+import org.modeshape.jcr.cache.ChildReferences;
 import org.modeshape.jcr.cache.MutableCachedNode;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.ReferrerCounts;
@@ -61,6 +65,7 @@ import org.modeshape.jcr.value.Path;
 import org.modeshape.jcr.value.PathFactory;
 import org.modeshape.jcr.value.Property;
 import org.modeshape.jcr.value.PropertyFactory;
+import org.modeshape.jcr.value.Reference;
 import org.modeshape.jcr.value.basic.NodeKeyReference;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
@@ -73,6 +78,13 @@ import org.xml.sax.helpers.DefaultHandler;
  * <p>
  * Each content handler is only intended to be used once and discarded. This class is <b>NOT</b> thread-safe.
  * </p>
+ * <p>
+ * By default all of the imported content is accumulated in the session and saved (if at all) at the end of the document. When
+ * a positive batch size is supplied, the handler instead operates in <i>bulk mode</i>: whenever at least that many nodes have
+ * been created since the last flush and the content imported so far is in a consistent state, the session is saved. Reference
+ * properties whose targets have not yet been imported remain deferred (as keys and values only) until their targets exist, so
+ * the memory used by an import is bounded by the batch size rather than by the size of the document.
+ * </p>
  * 
  * @see JcrSession#getImportContentHandler(String, int)
  * @see JcrWorkspace#getImportContentHandler(String, int)
@@ -92,6 +104,8 @@ class JcrContentHandler extends DefaultHandler {
 
     private static final String ALT_XML_SCHEMA_NAMESPACE_PREFIX = "xsd";
 
+    private static final Logger LOGGER = Logger.getLogger(JcrContentHandler.class);
+
     protected final NamespaceRegistry namespaces;
     protected final int uuidBehavior;
     protected final boolean retentionInfoRetained;
@@ -117,9 +131,13 @@ class JcrContentHandler extends DefaultHandler {
     private final org.modeshape.jcr.api.NamespaceRegistry jcrNamespaceRegistry;
     private final boolean saveWhenCompleted;
     private final String systemWorkspaceKey;
+    private final int batchSize;
+    private final long startTime;
 
     private AbstractJcrNode currentNode;
     private ContentHandler delegate;
+    private long nodesImported;
+    private long nodesSinceLastFlush;
 
 
     JcrContentHandler( JcrSession session,
@@ -128,7 +146,19 @@ class JcrContentHandler extends DefaultHandler {
                        boolean saveWhenCompleted,
                        boolean retentionInfoRetained,
                        boolean lifecycleInfoRetained ) throws PathNotFoundException, RepositoryException {
+        this(session, parent, uuidBehavior, saveWhenCompleted, retentionInfoRetained, lifecycleInfoRetained, 0);
+    }
+
+    JcrContentHandler( JcrSession session,
+                       AbstractJcrNode parent,
+                       int uuidBehavior,
+                       boolean saveWhenCompleted,
+                       boolean retentionInfoRetained,
+                       boolean lifecycleInfoRetained,
+                       int batchSize ) throws PathNotFoundException, RepositoryException {
         assert session != null;
+        assert batchSize >= 0;
+        assert batchSize == 0 || saveWhenCompleted;
         assert uuidBehavior == ImportUUIDBehavior.IMPORT_UUID_CREATE_NEW
                || uuidBehavior == ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING
                || uuidBehavior == ImportUUIDBehavior.IMPORT_UUID_COLLISION_REPLACE_EXISTING
@@ -145,6 +175,8 @@ class JcrContentHandler extends DefaultHandler {
         this.retentionInfoRetained = retentionInfoRetained;
         this.lifecycleInfoRetained = lifecycleInfoRetained;
         this.saveWhenCompleted = saveWhenCompleted;
+        this.batchSize = batchSize;
+        this.startTime = System.nanoTime();
 
         this.cache = session.cache();
 
@@ -229,11 +261,28 @@ class JcrContentHandler extends DefaultHandler {
     }
 
     protected void postProcessNodes() throws SAXException {
+        postProcessNodes(true);
+    }
+
+    /**
+     * Set the deferred reference properties and perform the additional processing required by some of the imported nodes.
+     *
+     * @param completed true if the whole document has been read and all of the deferred work should be done, or false if only
+     *        the work that can already be completed (because all of the nodes it depends upon exist) should be done
+     * @throws SAXException if there is a problem processing the nodes
+     */
+    protected void postProcessNodes( boolean completed ) throws SAXException {
         try {
             // first make sure all the necessary reference properties have been set
-            processReferences();
-            
-            for (AbstractJcrNode node : nodesForPostProcessing) {
+            processReferences(completed);
+
+            for (Iterator<AbstractJcrNode> iter = nodesForPostProcessing.iterator(); iter.hasNext();) {
+                AbstractJcrNode node = iter.next();
+                if (!completed && !isReadyForPostProcessing(node)) {
+                    // Something this node depends upon has not yet been imported ...
+                    continue;
+                }
+                iter.remove();
                 MutableCachedNode mutable = node.mutable();
 
                 // ---------------
@@ -316,12 +365,19 @@ class JcrContentHandler extends DefaultHandler {
         }
     }
 
-    private void processReferences() throws RepositoryException {
+    private void processReferences( boolean completed ) throws RepositoryException {
         // if there were any reference properties imported, they can only be set on the corresponding nodes *after* all
-        // the graph has been imported
-        for (Map.Entry<NodeKey, ReferenceProperty> entry : this.allReferenceProperties.entries()) {
-            AbstractJcrNode node = session.node(entry.getKey(), null);
+        // the nodes they refer to have been imported
+        Iterator<Map.Entry<NodeKey, ReferenceProperty>> iter = this.allReferenceProperties.entries().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<NodeKey, ReferenceProperty> entry = iter.next();
             ReferenceProperty referenceProperty = entry.getValue();
+            if (!completed && !referencedNodesExist(referenceProperty)) {
+                // At least one of the referenced nodes has not yet been imported ...
+                continue;
+            }
+            iter.remove();
+            AbstractJcrNode node = session.node(entry.getKey(), null);
             AbstractJcrProperty property = null;
             // set the reference property without validating it first
             if (!referenceProperty.isMultiple()) {
@@ -347,9 +403,18 @@ class JcrContentHandler extends DefaultHandler {
         
         // Restore the back references on the nodes which have been removed/replaced by the import and which have referrers
         // outside the graph of nodes that was imported
-        for (Map.Entry<NodeKey, ReferrerCounts> entry : referrersByNodeKey.entrySet()) {
-            PropertyFactory propFactory = context.getPropertyFactory();
-            MutableCachedNode referred = cache.mutable(entry.getKey());
+        PropertyFactory propFactory = context.getPropertyFactory();
+        for (Iterator<Map.Entry<NodeKey, ReferrerCounts>> iter = referrersByNodeKey.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<NodeKey, ReferrerCounts> entry = iter.next();
+            NodeKey key = entry.getKey();
+            boolean imported = cache.getNode(key) != null;
+            if (!imported && !completed) {
+                // The removed node may still be imported again later in the document ...
+                continue;
+            }
+            iter.remove();
+            if (!imported) continue;
+            MutableCachedNode referred = cache.mutable(key);
             ReferrerCounts counts = entry.getValue();
             if (referred != null && counts != null) {
                 // Add in the strong and weak referrers (that are outside the import scope) that used to be in the node
@@ -372,6 +437,34 @@ class JcrContentHandler extends DefaultHandler {
         }
     }
 
+    private boolean referencedNodesExist( ReferenceProperty property ) throws RepositoryException {
+        String workspaceKey = cache.getRootKey().getWorkspaceKey();
+        for (Value value : property.values()) {
+            Object reference = ((JcrValue)value).value();
+            NodeKey key = null;
+            if (reference instanceof NodeKeyReference) {
+                key = ((NodeKeyReference)reference).getNodeKey();
+            } else if (reference instanceof Reference && NodeKey.isValidFormat(((Reference)reference).getString())) {
+                key = new NodeKey(((Reference)reference).getString());
+            }
+            // References into other workspaces (e.g., the system workspace) cannot be imported by this document ...
+            if (key == null || !workspaceKey.equals(key.getWorkspaceKey())) continue;
+            if (cache.getNode(key) == null) return false;
+        }
+        return true;
+    }
+
+    private boolean isReadyForPostProcessing( AbstractJcrNode node ) {
+        NodeKey key = node.key();
+        if (allReferenceProperties.containsKey(key)) {
+            // the node still has reference properties that could not be set ...
+            return false;
+        }
+        // shares can only be processed after the shareable node has been imported ...
+        String shareableNodeUUID = shareIdsToUUIDMap.get(key);
+        return shareableNodeUUID == null || uuidToNodeKeyMapping.containsKey(shareableNodeUUID);
+    }
+
     protected boolean isValidReference( AbstractJcrNode node,
                                         Name propertyName,
                                         boolean returnValueIfNoProperty ) throws RepositoryException {
@@ -404,6 +497,83 @@ class JcrContentHandler extends DefaultHandler {
         delegate.characters(ch, start, length);
     }
 
+    /**
+     * Called each time the element for a node has been completely read. In bulk mode, this saves the content imported so far
+     * once at least {@link #batchSize} nodes have been created since the previous save, but only if that content can be saved
+     * without violating constraints that the remainder of the document may still satisfy.
+     *
+     * @param openHandler the handler for the parent of the completed node; may not be null
+     * @throws SAXException if there is a problem saving the imported content
+     */
+    protected void nodeCompleted( NodeHandler openHandler ) throws SAXException {
+        if (batchSize == 0 || nodesSinceLastFlush < batchSize) return;
+        try {
+            if (!mandatoryChildrenExist(openHandler)) return;
+            postProcessNodes(false);
+            if (!canSaveWithDeferredNodes()) return;
+            session.save();
+        } catch (RepositoryException e) {
+            throw new EnclosingSAXException(e);
+        }
+        // the base version keys are consumed by each save ...
+        session.initBaseVersionKeys();
+        nodesSinceLastFlush = 0;
+        LOGGER.debug("Imported {0} node(s) into workspace '{1}' ({2} nodes/sec)", nodesImported, session.workspaceName(),
+                     nodesPerSecond());
+    }
+
+    private boolean mandatoryChildrenExist( NodeHandler openHandler ) throws SAXException, RepositoryException {
+        NodeTypes nodeTypes = session.nodeTypes();
+        // The nodes that are still being imported may not yet have all of their mandatory children ...
+        for (NodeHandler handler = openHandler; handler != null; handler = handler.parentHandler()) {
+            if (!(handler instanceof BasicNodeHandler) || handler.ignoreAllChildren()) continue;
+            AbstractJcrNode node = handler.node();
+            Collection<JcrNodeDefinition> mandatoryChildDefns = nodeTypes.getMandatoryChildNodeDefinitions(
+                    node.getPrimaryTypeName(), node.getMixinTypeNames());
+            if (mandatoryChildDefns.isEmpty()) continue;
+            ChildReferences childReferences = node.node().getChildReferences(cache);
+            for (JcrNodeDefinition defn : mandatoryChildDefns) {
+                if (childReferences.getChildCount(defn.getInternalName()) == 0) return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean canSaveWithDeferredNodes() throws RepositoryException {
+        if (!referrersByNodeKey.isEmpty()) {
+            // a removed node which is referenced from outside the import has not yet been imported again, and saving now
+            // would remove it (and the references to it) ...
+            return false;
+        }
+        NodeTypes nodeTypes = session.nodeTypes();
+        for (AbstractJcrNode node : nodesForPostProcessing) {
+            NodeKey key = node.key();
+            if (shareIdsToUUIDMap.containsKey(key)) {
+                // the share is still linked under a placeholder key ...
+                return false;
+            }
+            Name primaryType = node.getPrimaryTypeName();
+            Set<Name> mixinTypes = node.getMixinTypeNames();
+            if (nodeTypes.isVersionable(primaryType, mixinTypes)) {
+                // the base version has to be known when the node is first saved ...
+                return false;
+            }
+            Collection<JcrPropertyDefinition> mandatoryPropDefns = nodeTypes.getMandatoryPropertyDefinitions(primaryType,
+                                                                                                             mixinTypes);
+            for (ReferenceProperty referenceProperty : allReferenceProperties.get(key)) {
+                for (JcrPropertyDefinition defn : mandatoryPropDefns) {
+                    if (defn.getInternalName().equals(referenceProperty.name())) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private long nodesPerSecond() {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        return elapsedMillis == 0 ? nodesImported : nodesImported * 1000L / elapsedMillis;
+    }
+
     @Override
     public void endDocument() throws SAXException {
         postProcessNodes();
@@ -414,6 +584,10 @@ class JcrContentHandler extends DefaultHandler {
                 throw new SAXException(e);
             }
         }
+        if (batchSize > 0) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            LOGGER.info(JcrI18n.bulkImportCompleted, nodesImported, session.workspaceName(), elapsedMillis, nodesPerSecond());
+        }
         super.endDocument();
     }
 
@@ -908,6 +1082,8 @@ class JcrContentHandler extends DefaultHandler {
 
                 node = child;
                 importedNodeKeys.add(node.key());
+                ++nodesImported;
+                ++nodesSinceLastFlush;
 
                 if (postProcessed) {
                     // This node needs to be post-processed ...
@@ -931,6 +1107,17 @@ class JcrContentHandler extends DefaultHandler {
                 node = removedNode.node();
                 ReferrerCounts referrers = node.getReferrerCounts(cache);
                 if (referrers != null) referrersByNodeKey.put(node.getKey(), referrers);
+                if (batchSize > 0) {
+                    // In bulk mode the content may be saved before the removed descendants that appear later in the document
+                    // have been imported again, so the backreferences of the descendants have to be restored as well ...
+                    for (Iterator<NodeKey> iter = cache.getAllNodeKeysAtAndBelow(node.getKey()); iter.hasNext();) {
+                        NodeKey descendantKey = iter.next();
+                        CachedNode descendant = cache.getNode(descendantKey);
+                        if (descendant == null || descendantKey.equals(node.getKey())) continue;
+                        referrers = descendant.getReferrerCounts(cache);
+                        if (referrers != null) referrersByNodeKey.put(descendantKey, referrers);
+                    }
+                }
             } catch (ItemNotFoundException | InvalidItemStateException err) {
                 // do nothing ...
             }
@@ -1115,6 +1302,7 @@ class JcrContentHandler extends DefaultHandler {
                 case "node":
                     current.finish(); // make sure the node is created
                     current = current.parentHandler();
+                    nodeCompleted(current);
                     break;
                 case "value":
                     // Add the content for the current property ...
@@ -1198,6 +1386,7 @@ class JcrContentHandler extends DefaultHandler {
                                 String name ) throws SAXException {
             current.finish();
             current = current.parentHandler();
+            nodeCompleted(current);
         }
 
         @Override
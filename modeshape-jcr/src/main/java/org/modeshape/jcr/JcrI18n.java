@@ -135,6 +135,7 @@ public final class JcrI18n {
     public static I18n primaryItemDoesNotExist;
     public static I18n itemNotFoundWithUuid;
     public static I18n itemAlreadyExistsWithUuid;
+    public static I18n bulkImportCompleted;
     public static I18n itemNotFoundAtPath;
     public static I18n identifierPathNeverReferencesProperty;
     public static I18n propertyNotFoundAtPathRelativeToReferenceNode;
@@ -389,6 +390,11 @@ public final class JcrI18n {
     public static I18n unableToWriteTemporaryDirectory;
     public static I18n unableToDeleteTemporaryFile;
     public static I18n unableToFindBinaryValue;
+    public static I18n discardingBinaryStoreLocations;
+    public static I18n errorDuringBinaryTiering;
+    public static I18n binaryTieringRequiresLocationsDirectory;
+    public static I18n discardingBinaryUsageLedger;
+    public static I18n unableToWriteBinaryUsageLedger;
     public static I18n tempDirectorySystemPropertyMustBeSet;
 
     public static I18n errorKillingRepository;
@@ -425,6 +431,7 @@ public final class JcrI18n {
     public static I18n beginChildrenOptimization;
     public static I18n completeChildrenOptimization;
     public static I18n errorDuringChildrenOptimization;
+    public static I18n workspaceCloned;
 
     public static I18n mBeanAlreadyRegistered;
     public static I18n cannotRegisterMBean;
@@ -450,6 +457,8 @@ public final class JcrI18n {
     public static I18n localIndexProviderDirectoryMustBeWritable;
     public static I18n localIndexProviderDoesNotSupportTextIndexes;
     public static I18n localIndexProviderDoesNotSupportMultiColumnIndexes;
+    public static I18n localIndexProviderUnknownStorageEngine;
+    public static I18n localIndexProviderUnableToOpenMappedStorage;
 
     public static I18n warnRogueTransaction;
     public static I18n warnAttemptingToUnlockAnotherLock;
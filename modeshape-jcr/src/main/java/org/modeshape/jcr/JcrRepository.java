@@ -15,6 +15,7 @@
  */
 package org.modeshape.jcr;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.security.AccessControlContext;
@@ -39,6 +40,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -93,6 +95,7 @@ import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.RepositoryCache;
 import org.modeshape.jcr.cache.SessionCache;
 import org.modeshape.jcr.cache.WorkspaceNotFoundException;
+import org.modeshape.jcr.cache.document.DirtyChildBlocks;
 import org.modeshape.jcr.cache.document.DocumentStore;
 import org.modeshape.jcr.cache.document.LocalDocumentStore;
 import org.modeshape.jcr.clustering.ClusteringService;
@@ -118,10 +121,13 @@ import org.modeshape.jcr.security.AuthenticationProviders;
 import org.modeshape.jcr.security.EnvironmentAuthenticationProvider;
 import org.modeshape.jcr.security.JaasProvider;
 import org.modeshape.jcr.security.SecurityContext;
+import org.modeshape.jcr.txn.GroupCommitter;
 import org.modeshape.jcr.txn.Transactions;
+import org.modeshape.jcr.value.BinaryKey;
 import org.modeshape.jcr.value.NamespaceRegistry;
 import org.modeshape.jcr.value.ValueFactories;
 import org.modeshape.jcr.value.binary.BinaryStore;
+import org.modeshape.jcr.value.binary.BinaryUsageLedger;
 import org.modeshape.jmx.RepositoryStatisticsBean;
 import org.modeshape.schematic.SchematicDb;
 import org.modeshape.schematic.document.Array;
@@ -910,6 +916,8 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
         private final RepositoryStatistics statistics;
         private final RepositoryStatisticsBean mbean;
         private final BinaryStore binaryStore;
+        private final BinaryUsageLedger binaryUsageLedger;
+        private final AtomicInteger binaryCleanupRuns = new AtomicInteger();
         private final ScheduledExecutorService statsRollupService;
         private final Sequencers sequencers;
         private final QueryParsers queryParsers;
@@ -1016,6 +1024,7 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                     }
                     this.mimeTypeDetector = other.mimeTypeDetector;
                     this.binaryStore = other.binaryStore;
+                    this.binaryUsageLedger = other.binaryUsageLedger;
                     this.changeBus = other.changeBus;
                     this.internalWorkerContext = other.internalWorkerContext;
                     this.nodeTypes = other.nodeTypes.with(this, true, true);
@@ -1071,7 +1080,9 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                     BinaryStorage binaryStorageConfig = config.getBinaryStorage();
                     binaryStore = binaryStorageConfig.getBinaryStore();
                     binaryStore.start();
-                    tempContext = tempContext.with(binaryStore);
+                    this.binaryUsageLedger = binaryUsageLedger();
+                    // values are stored via the context, so that's where the writes to the binary store are monitored ...
+                    tempContext = tempContext.with(new MonitoringBinaryStore(binaryStore, statistics));
 
                     // Now create the registry implementation and the execution context that uses it ...
                     this.persistentRegistry = new SystemNamespaceRegistry(this);
@@ -1108,7 +1119,10 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
 
                     // Set up the document store and environment
                     final RepositoryEnvironment repositoryEnvironment = new JcrRepositoryEnvironment(transactions, lockingService,
-                                                                                                     journalId());
+                                                                                                     journalId(), statistics,
+                                                                                                     groupCommitter(transactions),
+                                                                                                     dirtyChildBlocks(),
+                                                                                                     binaryUsageLedger);
                     LocalDocumentStore localStore = new LocalDocumentStore(schematicDb, repositoryEnvironment);
                     this.documentStore = connectors.hasConnectors() ? new FederatedDocumentStore(connectors, localStore) : localStore;
 
@@ -1337,12 +1351,12 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                     threadPoolName = optConfig.getThreadPoolName();
                     long optInitialTimeInMillis = determineInitialDelay(optConfig.getInitialTimeExpression());
                     long optIntervalInHours = optConfig.getIntervalInHours();
-                    int targetCount = optConfig.getChildCountTarget();
-                    int tolerance = optConfig.getChildCountTolerance();
+                    int workers = optConfig.getWorkers();
+                    int maxNodesPerSecond = optConfig.getMaxNodesPerSecond();
                     assert optInitialTimeInMillis >= 0;
                     long optIntervalInMillis = TimeUnit.MILLISECONDS.convert(optIntervalInHours, TimeUnit.HOURS);
                     ScheduledExecutorService optService = this.context.getScheduledThreadPool(threadPoolName);
-                    OptimizationTask optTask = new OptimizationTask(JcrRepository.this, targetCount, tolerance);
+                    OptimizationTask optTask = new OptimizationTask(JcrRepository.this, workers, maxNodesPerSecond);
                     backgroundProcesses.add(optService.scheduleAtFixedRate(optTask, optInitialTimeInMillis, optIntervalInMillis,
                                                                            TimeUnit.MILLISECONDS));
                 }
@@ -1394,6 +1408,27 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
             return journal != null ? journal.journalId() : null;
         }
 
+        private GroupCommitter groupCommitter( Transactions transactions ) {
+            RepositoryConfiguration.GroupCommit groupCommit = config.getGroupCommit();
+            if (!groupCommit.isEnabled()) {
+                return null;
+            }
+            return new GroupCommitter(transactions, groupCommit.getWindowMillis(), groupCommit.getMaxSaves());
+        }
+
+        private BinaryUsageLedger binaryUsageLedger() {
+            String directory = config.getGarbageCollection().getBinaryUsageLedgerDirectory();
+            return directory != null ? new BinaryUsageLedger(new File(directory)) : new BinaryUsageLedger();
+        }
+
+        private DirtyChildBlocks dirtyChildBlocks() {
+            DocumentOptimization optConfig = config.getDocumentOptimization();
+            if (!optConfig.isEnabled()) {
+                return null;
+            }
+            return new DirtyChildBlocks(optConfig.getChildCountTarget(), optConfig.getChildCountTolerance());
+        }
+
         final ClusteringService clusteringService() {
             return clusteringService;
         }
@@ -1669,6 +1704,10 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                 this.binaryStore.shutdown();
             }
 
+            if (binaryUsageLedger != null) {
+                binaryUsageLedger.close();
+            }
+
             if (cache != null) {
                 // Now shutdown the repository caches ...
                 this.cache.completeShutdown();
@@ -1823,8 +1862,26 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
                 logger.debug("Starting binary value cleanup in the '{0}' repository", repositoryName());
             }
             try {
-                this.binaryStore.removeValuesUnusedLongerThan(RepositoryConfiguration.UNUSED_BINARY_VALUE_AGE_IN_MILLIS,
-                                                              TimeUnit.MILLISECONDS);
+                // only every so often scan the whole store, since the ledger doesn't know the values that were never used ...
+                long minimumAge = RepositoryConfiguration.UNUSED_BINARY_VALUE_AGE_IN_MILLIS;
+                int fullScanInterval = config.getGarbageCollection().getBinaryFullScanInterval();
+                boolean removed = false;
+                if (binaryCleanupRuns.getAndIncrement() % fullScanInterval != 0) {
+                    List<BinaryKey> unusedKeys = binaryUsageLedger.unusedLongerThan(minimumAge, TimeUnit.MILLISECONDS);
+                    removed = unusedKeys.isEmpty()
+                              || this.binaryStore.removeValues(unusedKeys, minimumAge, TimeUnit.MILLISECONDS);
+                    if (removed) {
+                        // the values which the store kept (e.g., because they were stored again) remain in the ledger ...
+                        List<BinaryKey> removedKeys = new ArrayList<>(unusedKeys.size());
+                        for (BinaryKey key : unusedKeys) {
+                            if (!this.binaryStore.hasBinary(key)) removedKeys.add(key);
+                        }
+                        binaryUsageLedger.recordRemoved(removedKeys);
+                    }
+                }
+                if (!removed) {
+                    this.binaryStore.removeValuesUnusedLongerThan(minimumAge, TimeUnit.MILLISECONDS);
+                }
             } catch (Throwable e) {
                 logger.error(e, JcrI18n.errorDuringGarbageCollection, e.getMessage());
             }
@@ -1870,11 +1927,21 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
         private final Transactions transactions;
         private final LockingService lockingService;
         private final String journalId;
+        private final RepositoryStatistics statistics;
+        private final GroupCommitter groupCommitter;
+        private final DirtyChildBlocks dirtyChildBlocks;
+        private final BinaryUsageLedger binaryUsageLedger;
         
-        private JcrRepositoryEnvironment(Transactions transactions, LockingService lockingService, String journalId) {
+        private JcrRepositoryEnvironment(Transactions transactions, LockingService lockingService, String journalId,
+                                         RepositoryStatistics statistics, GroupCommitter groupCommitter,
+                                         DirtyChildBlocks dirtyChildBlocks, BinaryUsageLedger binaryUsageLedger) {
             this.transactions = transactions;
             this.lockingService = lockingService;
             this.journalId = journalId;
+            this.statistics = statistics;
+            this.groupCommitter = groupCommitter;
+            this.dirtyChildBlocks = dirtyChildBlocks;
+            this.binaryUsageLedger = binaryUsageLedger;
         }
 
         @Override
@@ -1900,6 +1967,26 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
             }
             return runningState().nodeTypeManager().getNodeTypes();
         }
+
+        @Override
+        public RepositoryStatistics statistics() {
+            return statistics;
+        }
+
+        @Override
+        public GroupCommitter groupCommitter() {
+            return groupCommitter;
+        }
+
+        @Override
+        public DirtyChildBlocks dirtyChildBlocks() {
+            return dirtyChildBlocks;
+        }
+
+        @Override
+        public BinaryUsageLedger binaryUsageLedger() {
+            return binaryUsageLedger;
+        }
     }
 
     private final class InternalSecurityContext implements SecurityContext {
@@ -2009,20 +2096,20 @@ public class JcrRepository implements org.modeshape.jcr.api.Repository {
     }
 
     protected static class OptimizationTask extends BackgroundRepositoryTask {
-        private final int targetCount;
-        private final int tolerance;
+        private final int workers;
+        private final int maxNodesPerSecond;
 
         protected OptimizationTask( JcrRepository repository,
-                                    int targetCount,
-                                    int tolerance ) {
+                                    int workers,
+                                    int maxNodesPerSecond ) {
             super(repository);
-            this.targetCount = targetCount;
-            this.tolerance = tolerance;
+            this.workers = workers;
+            this.maxNodesPerSecond = maxNodesPerSecond;
         }
 
         @Override
         protected void doRun( JcrRepository repository ) {
-            repository.runningState().repositoryCache().optimizeChildren(targetCount, tolerance);
+            repository.runningState().repositoryCache().optimizeDirtyChildren(workers, maxNodesPerSecond);
         }
     }
 
@@ -22,6 +22,7 @@ import javax.jcr.RepositoryException;
 import org.modeshape.jcr.api.monitor.DurationActivity;
 import org.modeshape.jcr.api.monitor.DurationMetric;
 import org.modeshape.jcr.api.monitor.History;
+import org.modeshape.jcr.api.monitor.Percentiles;
 import org.modeshape.jcr.api.monitor.RepositoryMonitor;
 import org.modeshape.jcr.api.monitor.ValueMetric;
 import org.modeshape.jcr.api.monitor.Window;
@@ -78,4 +79,10 @@ public class JcrRepositoryMonitor implements RepositoryMonitor {
         return statistics().getLongestRunning(metric);
     }
 
+    @Override
+    public Percentiles getPercentiles( DurationMetric metric ) throws AccessDeniedException {
+        if (!permitted) throw new AccessDeniedException();
+        return statistics().getPercentiles(metric);
+    }
+
 }
@@ -32,6 +32,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -94,6 +97,7 @@ import org.modeshape.jcr.cache.SessionCacheWrapper;
 import org.modeshape.jcr.cache.SiblingCounter;
 import org.modeshape.jcr.cache.WorkspaceNotFoundException;
 import org.modeshape.jcr.cache.WrappedException;
+import org.modeshape.jcr.cache.document.TransactionalWorkspaceCache;
 import org.modeshape.jcr.cache.document.WorkspaceCache;
 import org.modeshape.jcr.query.BufferManager;
 import org.modeshape.jcr.security.AdvancedAuthorizationProvider;
@@ -127,6 +131,23 @@ public class JcrSession implements org.modeshape.jcr.api.Session {
 
     private static final String[] NO_ATTRIBUTES_NAMES = new String[] {};
 
+    /**
+     * The name of the session attribute that specifies the number of child nodes that {@link Node#getNodes()} and its variants
+     * load together when iterating over the children of a node. The value may be a number or a string, and a value of 0 disables
+     * the read-ahead.
+     *
+     * @see #setChildPrefetchSize(int)
+     */
+    public static final String CHILD_PREFETCH_SIZE_ATTRIBUTE = "org.modeshape.jcr.childPrefetchSize";
+
+    /**
+     * The number of child nodes that are loaded together when the session attribute {@value #CHILD_PREFETCH_SIZE_ATTRIBUTE} is not
+     * specified.
+     */
+    public static final int DEFAULT_CHILD_PREFETCH_SIZE = 100;
+
+    private static final String CHILD_PREFETCH_POOL_NAME = "modeshape-child-prefetch";
+
     protected final JcrRepository repository;
     private final SessionCache cache;
     private final JcrRootNode rootNode;
@@ -144,6 +165,8 @@ public class JcrSession implements org.modeshape.jcr.api.Session {
     private volatile BufferManager bufferMgr;
     private final boolean hasCustomAuthorizationProvider;
     private final boolean mimeTypeDetectionEnabled;
+    private volatile int childPrefetchSize;
+    private volatile ExecutorService prefetchExecutor;
 
     private ExecutionContext context;
 
@@ -206,6 +229,7 @@ public class JcrSession implements org.modeshape.jcr.api.Session {
         this.rootNode = new JcrRootNode(this, this.cache.getRootKey());
         this.jcrNodes.put(this.rootNode.key(), this.rootNode);
         this.sessionAttributes = sessionAttributes != null ? sessionAttributes : Collections.<String, Object>emptyMap();
+        this.childPrefetchSize = childPrefetchSizeFrom(this.sessionAttributes.get(CHILD_PREFETCH_SIZE_ATTRIBUTE));
 
         // Pre-cache all of the namespaces to be a snapshot of what's in the global registry at this time.
         // This behavior is specified in Section 3.5.2 of the JCR 2.0 specification.
@@ -244,6 +268,21 @@ public class JcrSession implements org.modeshape.jcr.api.Session {
         repository.statistics().increment(ValueMetric.SESSION_COUNT);
         acm = new AccessControlManagerImpl(this);
         this.mimeTypeDetectionEnabled = original.mimeTypeDetectionEnabled;
+        this.childPrefetchSize = original.childPrefetchSize;
+    }
+
+    private static int childPrefetchSizeFrom( Object value ) {
+        if (value instanceof Number) {
+            return Math.max(((Number)value).intValue(), 0);
+        }
+        if (value != null) {
+            try {
+                return Math.max(Integer.parseInt(value.toString().trim()), 0);
+            } catch (NumberFormatException e) {
+                // use the default ...
+            }
+        }
+        return DEFAULT_CHILD_PREFETCH_SIZE;
     }
 
     final JcrWorkspace workspace() {
@@ -465,6 +504,73 @@ public class JcrSession implements org.modeshape.jcr.api.Session {
         jcrNodes.remove(node.key(), node);
     }
 
+    /**
+     * Get the number of child nodes that are loaded together when iterating over the children of a node.
+     *
+     * @return the number of child nodes loaded together, or 0 if each child node is loaded separately
+     * @see #CHILD_PREFETCH_SIZE_ATTRIBUTE
+     */
+    public int getChildPrefetchSize() {
+        return childPrefetchSize;
+    }
+
+    /**
+     * Set the number of child nodes that are loaded together when iterating over the children of a node. Larger values reduce
+     * the number of requests made to the persistent store for nodes with many children, while a value of 0 loads each child
+     * node separately. The new value applies to iterators obtained after this call.
+     *
+     * @param childPrefetchSize the number of child nodes to load together; may not be negative
+     * @see #CHILD_PREFETCH_SIZE_ATTRIBUTE
+     */
+    public void setChildPrefetchSize( int childPrefetchSize ) {
+        CheckArg.isNonNegative(childPrefetchSize, "childPrefetchSize");
+        this.childPrefetchSize = childPrefetchSize;
+    }
+
+    /**
+     * Load into the workspace cache those of the supplied nodes that are not already cached, using a single request.
+     *
+     * @param keys the keys of the nodes that will be needed soon; may not be null
+     */
+    final void prefetchNodes( Collection<NodeKey> keys ) {
+        try {
+            cache.getWorkspace().prefetch(keys);
+        } catch (RuntimeException e) {
+            // The nodes will be loaded one at a time when they're needed ...
+            Logger.getLogger(getClass()).debug(e, "Unable to prefetch {0} nodes in workspace '{1}'", keys.size(),
+                                               workspaceName());
+        }
+    }
+
+    /**
+     * Start loading into the workspace cache those of the supplied nodes that are not already cached.
+     *
+     * @param keys the keys of the nodes that will be needed after those already loaded; may not be null
+     * @return the future that completes when the nodes are loaded, or null if they could not be loaded in the background
+     */
+    final Future<?> prefetchNodesAsync( final Collection<NodeKey> keys ) {
+        final WorkspaceCache workspaceCache = cache.getWorkspace();
+        if (workspaceCache instanceof TransactionalWorkspaceCache) {
+            // The transaction is bound to this thread, so the nodes can't be loaded by another ...
+            return null;
+        }
+        try {
+            return prefetchExecutor().submit(() -> prefetchNodes(keys));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private ExecutorService prefetchExecutor() {
+        ExecutorService executor = prefetchExecutor;
+        if (executor == null) {
+            int maxPoolSize = Runtime.getRuntime().availableProcessors();
+            executor = repository.runningState().context().getCachedTreadPool(CHILD_PREFETCH_POOL_NAME, maxPoolSize);
+            prefetchExecutor = executor;
+        }
+        return executor;
+    }
+
     /**
      * Obtain the {@link Node JCR Node} object for the node with the supplied key.
      *
@@ -41,6 +41,8 @@ import javax.jcr.version.VersionHistory;
 import javax.jcr.version.VersionIterator;
 import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.ChildReference;
 import org.modeshape.jcr.cache.MutableCachedNode;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.SessionCache;
@@ -256,6 +258,7 @@ final class JcrVersionHistoryNode extends JcrSystemNode implements VersionHistor
             }
         }
 
+        unlinkSharedFrozenContent(system, version.key);
         system.mutable(key).removeChild(system, version.key);
         system.destroy(version.key);
         try {
@@ -266,6 +269,42 @@ final class JcrVersionHistoryNode extends JcrSystemNode implements VersionHistor
         }
     }
 
+    /**
+     * Detach the frozen nodes which the supplied version shares with other versions, so that destroying the version does not
+     * destroy content which is still used by those other versions. A frozen node is shared when it has additional parents, and
+     * removing it from the version's frozen content makes one of the other versions its primary parent.
+     *
+     * @param system the system session cache; may not be null
+     * @param versionKey the key of the version which is to be destroyed; may not be null
+     */
+    private void unlinkSharedFrozenContent( SessionCache system,
+                                            NodeKey versionKey ) {
+        LinkedList<CachedNode> frozenNodes = new LinkedList<>();
+        frozenNodes.add(system.getNode(versionKey));
+        while (!frozenNodes.isEmpty()) {
+            CachedNode frozenNode = frozenNodes.removeFirst();
+            List<NodeKey> sharedChildKeys = new ArrayList<>();
+            for (ChildReference childRef : frozenNode.getChildReferences(system)) {
+                CachedNode child = system.getNode(childRef);
+                if (child == null) {
+                    continue;
+                }
+                if (!frozenNode.getKey().equals(child.getParentKey(system))
+                    || !child.getAdditionalParentKeys(system).isEmpty()) {
+                    sharedChildKeys.add(child.getKey());
+                } else {
+                    frozenNodes.add(child);
+                }
+            }
+            if (!sharedChildKeys.isEmpty()) {
+                MutableCachedNode mutable = system.mutable(frozenNode.getKey());
+                for (NodeKey childKey : sharedChildKeys) {
+                    mutable.removeChild(system, childKey);
+                }
+            }
+        }
+    }
+
     /*
     * Verify that the only references to this version are from its predecessors and successors in the version history.
     */
@@ -28,6 +28,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.jcr.AccessDeniedException;
 import javax.jcr.InvalidItemStateException;
@@ -54,6 +56,7 @@ import org.modeshape.common.annotation.NotThreadSafe;
 import org.modeshape.common.i18n.I18n;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
+import org.modeshape.common.util.SecureHash;
 import org.modeshape.jcr.AbstractJcrNode.Type;
 import org.modeshape.jcr.api.value.DateTime;
 import org.modeshape.jcr.cache.CachedNode;
@@ -63,6 +66,7 @@ import org.modeshape.jcr.cache.MutableCachedNode;
 import org.modeshape.jcr.cache.NodeCache;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.SessionCache;
+import org.modeshape.jcr.value.BinaryValue;
 import org.modeshape.jcr.value.DateTimeFactory;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.NameFactory;
@@ -72,6 +76,7 @@ import org.modeshape.jcr.value.Property;
 import org.modeshape.jcr.value.PropertyFactory;
 import org.modeshape.jcr.value.Reference;
 import org.modeshape.jcr.value.ReferenceFactory;
+import org.modeshape.jcr.value.basic.NodeKeyReference;
 
 /**
  * Local implementation of version management code, comparable to an implementation of the JSR-283 {@code VersionManager}
@@ -89,6 +94,7 @@ final class JcrVersionManager implements org.modeshape.jcr.api.version.VersionMa
                                                                                                               JcrLexicon.FROZEN_PRIMARY_TYPE,
                                                                                                               JcrLexicon.FROZEN_MIXIN_TYPES,
                                                                                                               JcrLexicon.FROZEN_UUID,
+                                                                                                              ModeShapeLexicon.FROZEN_CONTENT_HASH,
                                                                                                               JcrLexicon.PRIMARY_TYPE,
                                                                                                               JcrLexicon.MIXIN_TYPES,
                                                                                                               JcrLexicon.UUID})));
@@ -362,9 +368,17 @@ final class JcrVersionManager implements org.modeshape.jcr.api.version.VersionMa
 
             // Now process the children of the versionable node, and add them under the frozen node ...
             MutableCachedNode frozenNode = frozen.get();
+            SharedFrozenContent sharing = null;
+            Map<String, ChildReference> previousChildren = null;
+            if (repository().getConfiguration().isVersionContentShared()) {
+                // The unchanged subgraphs can be shared with the frozen node of the version we're checking in from ...
+                sharing = new SharedFrozenContent(versionSession, systemSession);
+                previousChildren = sharing.frozenChildrenOf(sharing.previousFrozenNode(cachedNode, cache));
+            }
             for (ChildReference childRef : versionableNode.getChildReferences(versionSession)) {
                 AbstractJcrNode child = session.node(childRef.getKey(), null, versionedKey);
-                versionNodeAt(child, childRef.getName(), frozenNode, false, versionSession, systemSession);
+                versionNodeAt(child, childRef.getName(), frozenNode, false, versionSession, systemSession, sharing,
+                              previousChildren);
             }
 
             // Now save all of the changes.
@@ -387,7 +401,12 @@ final class JcrVersionManager implements org.modeshape.jcr.api.version.VersionMa
      * @param parentInVersionHistory the node in the version history under which the frozen version should be recorded
      * @param forceCopy true if the OPV should be ignored and a COPY is to be performed, or false if the OPV should be used
      * @param nodeCache the session cache used to access the node information; may not be null
-     * @param versionHistoryCache the session cache used to create nodes in the version history; may not be null     @throws RepositoryException if an error occurs accessing the repository
+     * @param versionHistoryCache the session cache used to create nodes in the version history; may not be null
+     * @param sharing the frozen content that can be shared with the previous version, or null if the frozen content should
+     *        always be copied
+     * @param previousSiblings the children of the previous version's counterpart of {@code parentInVersionHistory}, keyed by
+     *        their frozen identifier; may be null if there is no such counterpart or if {@code sharing} is null
+     * @throws RepositoryException if an error occurs accessing the repository
      */
     @SuppressWarnings( "fallthrough" )
     private void versionNodeAt( AbstractJcrNode node,
@@ -395,7 +414,9 @@ final class JcrVersionManager implements org.modeshape.jcr.api.version.VersionMa
                                 MutableCachedNode parentInVersionHistory,
                                 boolean forceCopy,
                                 SessionCache nodeCache,
-                                SessionCache versionHistoryCache ) throws RepositoryException {
+                                SessionCache versionHistoryCache,
+                                SharedFrozenContent sharing,
+                                Map<String, ChildReference> previousSiblings ) throws RepositoryException {
         int onParentVersion = 0;
         if (forceCopy) {
             onParentVersion = OnParentVersionAction.COPY;
@@ -446,6 +467,17 @@ final class JcrVersionManager implements org.modeshape.jcr.api.version.VersionMa
                     return;
                 }
 
+                String contentHash = null;
+                if (sharing != null) {
+                    contentHash = sharing.hash(node);
+                    NodeKey unchangedKey = sharing.findUnchanged(previousSiblings, node, nodeName, contentHash);
+                    if (unchangedKey != null) {
+                        // Nothing in this subgraph changed since the previous version, so share its frozen copy ...
+                        parentInVersionHistory.linkChild(versionHistoryCache, unchangedKey, nodeName);
+                        return;
+                    }
+                }
+
                 // But the copy needs to be a 'nt:frozenNode', so that it doesn't compete with the actual node
                 // (outside of version history) ...
                 Name primaryTypeName = node.getPrimaryTypeName();
@@ -456,13 +488,21 @@ final class JcrVersionManager implements org.modeshape.jcr.api.version.VersionMa
                 props.add(factory.create(JcrLexicon.FROZEN_UUID, node.getIdentifier()));
                 props.add(factory.create(JcrLexicon.UUID, key));
                 addVersionedPropertiesFor(node, forceCopy, props);
+                if (contentHash != null) {
+                    props.add(factory.create(ModeShapeLexicon.FROZEN_CONTENT_HASH, contentHash));
+                }
                 MutableCachedNode newCopy = parentInVersionHistory.createChild(versionHistoryCache, key, nodeName, props);
 
                 // Now process the children of the versionable node ...
+                Map<String, ChildReference> previousChildren = null;
+                if (sharing != null) {
+                    previousChildren = sharing.frozenChildrenOf(sharing.findPrevious(previousSiblings, node, nodeName));
+                }
                 NodeKey parentKey = node.key();
                 for (ChildReference childRef : node.node().getChildReferences(nodeCache)) {
                     AbstractJcrNode child = session.node(childRef.getKey(), null, parentKey);
-                    versionNodeAt(child, childRef.getName(), newCopy, forceCopy, nodeCache, versionHistoryCache);
+                    versionNodeAt(child, childRef.getName(), newCopy, forceCopy, nodeCache, versionHistoryCache, sharing,
+                                  previousChildren);
                 }
                 return;
             case OnParentVersionAction.INITIALIZE:
@@ -1080,6 +1120,166 @@ final class JcrVersionManager implements org.modeshape.jcr.api.version.VersionMa
         }
     }
 
+    /**
+     * The frozen content recorded by the previous version of a node, which a new version can share rather than copy. A frozen
+     * node is shared when the {@link ModeShapeLexicon#FROZEN_CONTENT_HASH hash} recorded on it equals the hash of the content
+     * being checked in, which covers the node's types, identifier and properties, plus the names and hashes of all of its
+     * children. The shared frozen node is simply linked as an additional child of the new frozen parent, so a checkin only
+     * writes the frozen nodes along the paths that changed.
+     */
+    @NotThreadSafe
+    private final class SharedFrozenContent {
+
+        private final SessionCache nodeCache;
+        private final SessionCache versionHistoryCache;
+        private final Map<NodeKey, String> hashes = new HashMap<NodeKey, String>();
+
+        protected SharedFrozenContent( SessionCache nodeCache,
+                                       SessionCache versionHistoryCache ) {
+            this.nodeCache = nodeCache;
+            this.versionHistoryCache = versionHistoryCache;
+        }
+
+        /**
+         * Find the frozen node of the base version of the supplied versionable node.
+         *
+         * @param versionable the versionable node which is being checked in; may not be null
+         * @param cache the cache for the versionable node; may not be null
+         * @return the frozen node, or null if the node has no base version
+         */
+        protected CachedNode previousFrozenNode( CachedNode versionable,
+                                                 NodeCache cache ) {
+            Property baseVersion = versionable.getProperty(JcrLexicon.BASE_VERSION, cache);
+            if (baseVersion == null || baseVersion.isEmpty()) {
+                return null;
+            }
+            Object value = baseVersion.getFirstValue();
+            if (!(value instanceof NodeKeyReference)) {
+                return null;
+            }
+            CachedNode version = versionHistoryCache.getNode(((NodeKeyReference)value).getNodeKey());
+            if (version == null) {
+                return null;
+            }
+            ChildReference frozenRef = version.getChildReferences(versionHistoryCache).getChild(JcrLexicon.FROZEN_NODE);
+            return frozenRef != null ? versionHistoryCache.getNode(frozenRef) : null;
+        }
+
+        /**
+         * Get the children of a previous frozen node, keyed by the identifier of the node they were frozen from.
+         *
+         * @param frozenNode the previous frozen node; may be null
+         * @return the children keyed by their frozen identifier, or null if {@code frozenNode} is null
+         */
+        protected Map<String, ChildReference> frozenChildrenOf( CachedNode frozenNode ) {
+            if (frozenNode == null) {
+                return null;
+            }
+            Map<String, ChildReference> children = new HashMap<String, ChildReference>();
+            for (ChildReference childRef : frozenNode.getChildReferences(versionHistoryCache)) {
+                CachedNode child = versionHistoryCache.getNode(childRef);
+                Property frozenUuid = child != null ? child.getProperty(JcrLexicon.FROZEN_UUID, versionHistoryCache) : null;
+                if (frozenUuid != null && !frozenUuid.isEmpty()) {
+                    children.put(string(frozenUuid.getFirstValue()), childRef);
+                }
+            }
+            return children;
+        }
+
+        /**
+         * Find the previous frozen copy of the supplied node.
+         *
+         * @param previousSiblings the previous frozen children of the node's frozen parent; may be null
+         * @param node the node which is being versioned; may not be null
+         * @param nodeName the name of the node which is being versioned; may not be null
+         * @return the previous frozen copy, or null if there is none
+         * @throws RepositoryException if an error occurs accessing the repository
+         */
+        protected CachedNode findPrevious( Map<String, ChildReference> previousSiblings,
+                                           AbstractJcrNode node,
+                                           Name nodeName ) throws RepositoryException {
+            if (previousSiblings == null) {
+                return null;
+            }
+            ChildReference previous = previousSiblings.get(node.getIdentifier());
+            if (previous == null || !previous.getName().equals(nodeName)) {
+                return null;
+            }
+            return versionHistoryCache.getNode(previous);
+        }
+
+        /**
+         * Find the previous frozen copy of the supplied node, if the node and all of its descendants are unchanged since then.
+         *
+         * @param previousSiblings the previous frozen children of the node's frozen parent; may be null
+         * @param node the node which is being versioned; may not be null
+         * @param nodeName the name of the node which is being versioned; may not be null
+         * @param contentHash the {@link #hash(AbstractJcrNode) hash} of the node; may not be null
+         * @return the key of the unchanged frozen copy, or null if there is none
+         * @throws RepositoryException if an error occurs accessing the repository
+         */
+        protected NodeKey findUnchanged( Map<String, ChildReference> previousSiblings,
+                                         AbstractJcrNode node,
+                                         Name nodeName,
+                                         String contentHash ) throws RepositoryException {
+            CachedNode previous = findPrevious(previousSiblings, node, nodeName);
+            if (previous == null) {
+                return null;
+            }
+            Property previousHash = previous.getProperty(ModeShapeLexicon.FROZEN_CONTENT_HASH, versionHistoryCache);
+            if (previousHash == null || !contentHash.equals(string(previousHash.getFirstValue()))) {
+                return null;
+            }
+            return previous.getKey();
+        }
+
+        /**
+         * Compute the hash of the content which a COPY of the supplied node would freeze.
+         *
+         * @param node the node; may not be null
+         * @return the hexadecimal SHA-1 hash; never null
+         * @throws RepositoryException if an error occurs accessing the repository
+         */
+        protected String hash( AbstractJcrNode node ) throws RepositoryException {
+            String hash = hashes.get(node.key());
+            if (hash != null) {
+                return hash;
+            }
+            StringBuilder content = new StringBuilder();
+            content.append(node.getIdentifier()).append('\n');
+            if (node.isShared()) {
+                // Only a proxy to the shareable node is frozen ...
+                content.append(ModeShapeLexicon.SHARE).append('\n');
+            } else {
+                content.append(node.getPrimaryTypeName()).append('\n');
+                content.append(new TreeSet<Name>(node.getMixinTypeNames())).append('\n');
+                List<Property> props = new ArrayList<Property>();
+                addVersionedPropertiesFor(node, true, props);
+                Map<Name, Property> sortedProps = new TreeMap<Name, Property>();
+                for (Property prop : props) {
+                    sortedProps.put(prop.getName(), prop);
+                }
+                for (Property prop : sortedProps.values()) {
+                    content.append(prop.getName());
+                    for (Object value : prop) {
+                        content.append('|').append(org.modeshape.jcr.value.PropertyType.discoverType(value)).append(':');
+                        // Don't read the content of binary values, since their SHA-1 is already known ...
+                        content.append(value instanceof BinaryValue ? ((BinaryValue)value).getHexHash() : string(value));
+                    }
+                    content.append('\n');
+                }
+                NodeKey parentKey = node.key();
+                for (ChildReference childRef : node.node().getChildReferences(nodeCache)) {
+                    AbstractJcrNode child = session.node(childRef.getKey(), null, parentKey);
+                    content.append(childRef.getSegment()).append('=').append(hash(child)).append('\n');
+                }
+            }
+            hash = SecureHash.sha1(content.toString());
+            hashes.put(node.key(), hash);
+            return hash;
+        }
+    }
+
     @NotThreadSafe
     private class RestoreCommand {
 
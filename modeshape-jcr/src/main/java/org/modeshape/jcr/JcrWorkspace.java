@@ -42,6 +42,7 @@ import javax.jcr.nodetype.ConstraintViolationException;
 import javax.jcr.observation.ObservationManager;
 import javax.jcr.version.Version;
 import javax.jcr.version.VersionException;
+import javax.transaction.SystemException;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.JcrContentHandler.EnclosingSAXException;
@@ -72,6 +73,11 @@ import org.xml.sax.helpers.XMLReaderFactory;
 @ThreadSafe
 class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
 
+    /**
+     * The maximum number of nodes written in a single transaction when cloning an entire workspace.
+     */
+    private static final int WORKSPACE_CLONE_BATCH_SIZE = 500;
+
     private final JcrSession session;
     private final String workspaceName;
     private final Lock lock = new ReentrantLock();
@@ -700,7 +706,23 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
                                                    int uuidBehavior )
         throws PathNotFoundException, ConstraintViolationException, VersionException, LockException, AccessDeniedException,
         RepositoryException {
+        return getImportContentHandler(parentAbsPath, uuidBehavior, 0);
+    }
 
+    /**
+     * Obtain a content handler that imports into a separate session, which is saved when the document has been read (and
+     * after each batch of nodes, if the batch size is positive).
+     *
+     * @param parentAbsPath the absolute path of the node below which the content is to be imported; may not be null
+     * @param uuidBehavior the behavior for handling incoming UUIDs
+     * @param batchSize the minimum number of nodes imported between intermediate saves, or 0 if the content is only to be saved
+     *        at the end of the document
+     * @return the content handler; never null
+     * @throws RepositoryException if the parent node cannot be found or is checked in, or if another error occurs
+     */
+    protected ContentHandler getImportContentHandler( String parentAbsPath,
+                                                      int uuidBehavior,
+                                                      int batchSize ) throws RepositoryException {
         CheckArg.isNotNull(parentAbsPath, "parentAbsPath");
         session.checkLive();
 
@@ -718,7 +740,8 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
         Repository repo = getSession().getRepository();
         boolean retainLifecycleInfo = repo.getDescriptorValue(Repository.OPTION_LIFECYCLE_SUPPORTED).getBoolean();
         boolean retainRetentionInfo = repo.getDescriptorValue(Repository.OPTION_RETENTION_SUPPORTED).getBoolean();
-        return new JcrContentHandler(session, parent, uuidBehavior, saveWhenFinished, retainRetentionInfo, retainLifecycleInfo);
+        return new JcrContentHandler(session, parent, uuidBehavior, saveWhenFinished, retainRetentionInfo, retainLifecycleInfo,
+                                     batchSize);
     }
 
     @Override
@@ -727,6 +750,22 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
                            int uuidBehavior )
         throws IOException, VersionException, PathNotFoundException, ItemExistsException, ConstraintViolationException,
         InvalidSerializedDataException, LockException, AccessDeniedException, RepositoryException {
+        doImportXML(parentAbsPath, in, uuidBehavior, 0);
+    }
+
+    @Override
+    public void importXML( String parentAbsPath,
+                           InputStream in,
+                           int uuidBehavior,
+                           int batchSize ) throws IOException, RepositoryException {
+        CheckArg.isPositive(batchSize, "batchSize");
+        doImportXML(parentAbsPath, in, uuidBehavior, batchSize);
+    }
+
+    private void doImportXML( String parentAbsPath,
+                              InputStream in,
+                              int uuidBehavior,
+                              int batchSize ) throws IOException, RepositoryException {
         CheckArg.isNotNull(parentAbsPath, "parentAbsPath");
         CheckArg.isNotNull(in, "in");
         session.checkLive();
@@ -734,7 +773,7 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
         boolean error = false;
         try {
             XMLReader parser = XMLReaderFactory.createXMLReader();
-            parser.setContentHandler(getImportContentHandler(parentAbsPath, uuidBehavior));
+            parser.setContentHandler(getImportContentHandler(parentAbsPath, uuidBehavior, batchSize));
             parser.parse(new InputSource(in));
         } catch (EnclosingSAXException ese) {
             Exception cause = ese.getException();
@@ -806,12 +845,37 @@ class JcrWorkspace implements org.modeshape.jcr.api.Workspace {
         createWorkspace(name);
 
         JcrSession newWorkspaceSession = session.spawnSession(name, false);
+        if (canCloneDocuments()
+            && repository().repositoryCache().cloneWorkspace(srcWorkspace, name, WORKSPACE_CLONE_BATCH_SIZE)) {
+            // The content was cloned directly in the document store without firing any events, so it must be indexed ...
+            repository().runningState().queryManager().reindexContent(newWorkspaceSession.workspace());
+            return;
+        }
         JcrSession srcWorkspaceSession = session.spawnSession(srcWorkspace, true);
 
         deepClone(srcWorkspaceSession, srcWorkspaceSession.getRootNode().key(), newWorkspaceSession,
                   newWorkspaceSession.getRootNode().key());
     }
 
+    /**
+     * Determine whether an entire workspace can be cloned directly in the document store. This is not possible when there is
+     * federated content (which must be cloned via the connectors) or when the caller's transaction is still active (since the
+     * clone is written in multiple, separate transactions).
+     *
+     * @return true if the document-level clone can be used, or false if the nodes must be cloned via a session
+     * @throws RepositoryException if the transaction status cannot be determined
+     */
+    private boolean canCloneDocuments() throws RepositoryException {
+        if (repository().runningState().connectors().hasConnectors()) {
+            return false;
+        }
+        try {
+            return !repository().transactions().isCurrentlyInTransaction();
+        } catch (SystemException e) {
+            throw new RepositoryException(e);
+        }
+    }
+
     protected void deepClone( JcrSession sourceSession,
                               NodeKey sourceNodeKey,
                               JcrSession cloneSession,
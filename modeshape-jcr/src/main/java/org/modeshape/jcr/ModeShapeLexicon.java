@@ -41,6 +41,11 @@ public class ModeShapeLexicon {
     public static final Name VERSION_STORAGE = new BasicName(Namespace.URI, "versionStorage");
     public static final Name VERSION_HISTORY_FOLDER = new BasicName(Namespace.URI, "versionHistoryFolder");
     public static final Name WORKSPACE = new BasicName(Namespace.URI, "workspace");
+    /**
+     * The hash of the content of a frozen node and all of its descendants, used to share unchanged frozen subgraphs between
+     * successive versions.
+     */
+    public static final Name FROZEN_CONTENT_HASH = new BasicName(Namespace.URI, "frozenContentHash");
 
     public static final Name EXPIRATION_DATE = new BasicName(Namespace.URI, "expirationDate");
     public static final Name IS_HELD_BY_SESSION = new BasicName(Namespace.URI, "isHeldBySession");
@@ -0,0 +1,154 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import javax.jcr.RepositoryException;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.jcr.api.monitor.DurationMetric;
+import org.modeshape.jcr.mimetype.MimeTypeDetector;
+import org.modeshape.jcr.value.BinaryKey;
+import org.modeshape.jcr.value.BinaryValue;
+import org.modeshape.jcr.value.binary.BinaryStore;
+import org.modeshape.jcr.value.binary.BinaryStoreException;
+
+/**
+ * A {@link BinaryStore} which delegates to another store and records the latency of each write into the repository's
+ * {@link RepositoryStatistics statistics}, under {@link DurationMetric#BINARY_STORE_WRITE_TIME}.
+ */
+@ThreadSafe
+final class MonitoringBinaryStore implements BinaryStore {
+
+    private final BinaryStore delegate;
+    private final RepositoryStatistics statistics;
+
+    MonitoringBinaryStore( BinaryStore delegate,
+                           RepositoryStatistics statistics ) {
+        assert delegate != null;
+        assert statistics != null;
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public long getMinimumBinarySizeInBytes() {
+        return delegate.getMinimumBinarySizeInBytes();
+    }
+
+    @Override
+    public void setMinimumBinarySizeInBytes( long minSizeInBytes ) {
+        delegate.setMinimumBinarySizeInBytes(minSizeInBytes);
+    }
+
+    @Override
+    public void setTextExtractors( TextExtractors textExtractors ) {
+        delegate.setTextExtractors(textExtractors);
+    }
+
+    @Override
+    public void setMimeTypeDetector( MimeTypeDetector mimeTypeDetector ) {
+        delegate.setMimeTypeDetector(mimeTypeDetector);
+    }
+
+    @Override
+    public BinaryValue storeValue( InputStream stream,
+                                   boolean markAsUnused ) throws BinaryStoreException {
+        long start = System.nanoTime();
+        try {
+            return delegate.storeValue(stream, markAsUnused);
+        } finally {
+            statistics.recordLatency(DurationMetric.BINARY_STORE_WRITE_TIME, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BinaryValue storeValue( InputStream stream,
+                                   String hint,
+                                   boolean markAsUnused ) throws BinaryStoreException {
+        long start = System.nanoTime();
+        try {
+            return delegate.storeValue(stream, hint, markAsUnused);
+        } finally {
+            statistics.recordLatency(DurationMetric.BINARY_STORE_WRITE_TIME, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public InputStream getInputStream( BinaryKey key ) throws BinaryStoreException {
+        return delegate.getInputStream(key);
+    }
+
+    @Override
+    public boolean hasBinary( BinaryKey key ) {
+        return delegate.hasBinary(key);
+    }
+
+    @Override
+    public void markAsUsed( Iterable<BinaryKey> keys ) throws BinaryStoreException {
+        delegate.markAsUsed(keys);
+    }
+
+    @Override
+    public void markAsUnused( Iterable<BinaryKey> keys ) throws BinaryStoreException {
+        delegate.markAsUnused(keys);
+    }
+
+    @Override
+    public void removeValuesUnusedLongerThan( long minimumAge,
+                                              TimeUnit unit ) throws BinaryStoreException {
+        delegate.removeValuesUnusedLongerThan(minimumAge, unit);
+    }
+
+    @Override
+    public boolean removeValues( Iterable<BinaryKey> keys,
+                                 long minimumAge,
+                                 TimeUnit unit ) throws BinaryStoreException {
+        return delegate.removeValues(keys, minimumAge, unit);
+    }
+
+    @Override
+    public String getText( BinaryValue binary ) throws BinaryStoreException {
+        return delegate.getText(binary);
+    }
+
+    @Override
+    public String getMimeType( BinaryValue binary,
+                               String name ) throws IOException, RepositoryException {
+        return delegate.getMimeType(binary, name);
+    }
+
+    @Override
+    public Iterable<BinaryKey> getAllBinaryKeys() throws BinaryStoreException {
+        return delegate.getAllBinaryKeys();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -27,6 +27,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.jcr.ItemExistsException;
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
@@ -145,10 +147,6 @@ public class NodeTypes {
      * The set of names for the node types that are 'mix:etag'. See {@link #isETag(Name, Set)}
      */
     private final Set<Name> etagNodeTypeNames = new HashSet<>();
-    /**
-     * The set of names for the node types that are 'mix:versionable'. See {@link #isVersionable(Name, Collection)}
-     */
-    private final Set<Name> versionableNodeTypeNames = new HashSet<>();
     /**
      * The set of names for the node types that have child node definitions that allow same name siblings for every combination.
      * In other words, given any valid child, there will always be a satisfying child node definition that allows same name
@@ -158,8 +156,6 @@ public class NodeTypes {
      */
     private final Set<Name> nodeTypeNamesThatAllowSameNameSiblings = new HashSet<>();
 
-    private final Set<Name> nodeTypeNamesThatAreReferenceable = new HashSet<>();
-
     private final Set<Name> nodeTypeNamesThatAreShareable = new HashSet<>();
 
     private final Set<Name> nodeTypeNamesWithNoChildNodeDefns = new HashSet<>();
@@ -194,6 +190,29 @@ public class NodeTypes {
      */
     private final Set<Name> nonQueryableNodeTypes = new HashSet<>();
 
+    /**
+     * The dense integer identifiers of the node types, which are assigned when this immutable snapshot is created and are the
+     * bit positions used in the {@link #typeAndSupertypeBits type lattice}.
+     */
+    private final Map<Name, Integer> nodeTypeIds = new HashMap<>();
+
+    /**
+     * The compiled type lattice: for each node type identifier, the bits of the identifiers of that node type and all of its
+     * supertypes. Checking whether a node type is or extends another is then a single bit test.
+     */
+    private final long[][] typeAndSupertypeBits;
+
+    private final int versionableTypeId;
+    private final int referenceableTypeId;
+    private final int[] unorderedCollectionTypeIds;
+
+    /**
+     * The child node definition sets for parents that have no mixins with child node definitions, keyed by the name of the
+     * parent's primary type. Unlike the {@link #nodeDefinitionSet thread-local} set, these are shared by all threads, and since
+     * the sets are immutable they never need to be invalidated within this snapshot.
+     */
+    private final ConcurrentMap<Name, ReusableNodeDefinitionSet> childNodeDefinitionSetsByPrimaryType = new ConcurrentHashMap<>();
+
     protected NodeTypes( ExecutionContext context ) {
         this(context, null, 0);
     }
@@ -234,10 +253,6 @@ public class NodeTypes {
                     nodeTypeNamesThatAllowSameNameSiblings.add(name);
                 }
 
-                if (nodeType.isNodeType(JcrMixLexicon.REFERENCEABLE)) {
-                    nodeTypeNamesThatAreReferenceable.add(name);
-                }
-
                 if (nodeType.isNodeType(JcrMixLexicon.SHAREABLE)) {
                     nodeTypeNamesThatAreShareable.add(name);
                 }
@@ -264,7 +279,6 @@ public class NodeTypes {
                     fullyDefined = false;
                 }
                 if (nodeType.isNodeType(JcrMixLexicon.VERSIONABLE)) {
-                    versionableNodeTypeNames.add(name);
                     fullyDefined = false;
                 }
                 if (nodeType.isNodeType(ModeShapeLexicon.UNORDERED_COLLECTION)) {
@@ -341,6 +355,28 @@ public class NodeTypes {
             this.ntFolderChildDefinition = null;
         }
 
+        // Compile the type lattice ...
+        for (Name name : this.nodeTypes.keySet()) {
+            this.nodeTypeIds.put(name, this.nodeTypeIds.size());
+        }
+        this.typeAndSupertypeBits = new long[this.nodeTypeIds.size()][];
+        for (JcrNodeType nodeType : this.nodeTypes.values()) {
+            long[] bits = new long[(this.nodeTypeIds.size() + 63) >>> 6];
+            for (JcrNodeType type : nodeType.getTypeAndSupertypes()) {
+                Integer id = this.nodeTypeIds.get(type.getInternalName());
+                if (id != null) {
+                    bits[id >>> 6] |= 1L << id;
+                }
+            }
+            this.typeAndSupertypeBits[this.nodeTypeIds.get(nodeType.getInternalName())] = bits;
+        }
+        this.versionableTypeId = typeId(JcrMixLexicon.VERSIONABLE);
+        this.referenceableTypeId = typeId(JcrMixLexicon.REFERENCEABLE);
+        // Ordered from the smallest to the largest bucket ID length ...
+        this.unorderedCollectionTypeIds = new int[] {typeId(ModeShapeLexicon.TINY_UNORDERED_COLLECTION),
+            typeId(ModeShapeLexicon.SMALL_UNORDERED_COLLECTION), typeId(ModeShapeLexicon.LARGE_UNORDERED_COLLECTION),
+            typeId(ModeShapeLexicon.HUGE_UNORDERED_COLLECTION)};
+
         this.unmodifiableNodeTypes = Collections.unmodifiableCollection(this.nodeTypes.values());
         this.unmodifiableNodeTypeNames = Collections.unmodifiableSet(this.nodeTypes.keySet());
         this.unmodifiableMixinTypeNames = Collections.unmodifiableSet(mixinNames);
@@ -445,8 +481,7 @@ public class NodeTypes {
             return true;
         }
         if (nodeTypeName.equals(candidateSupertypeName)) return true;
-        JcrNodeType nodeType = getNodeType(nodeTypeName);
-        return nodeType != null && nodeType.isNodeType(candidateSupertypeName);
+        return isTypeOrSubtype(nodeTypeName, typeId(candidateSupertypeName));
     }
 
     /**
@@ -459,8 +494,11 @@ public class NodeTypes {
      */
     public boolean isTypeOrSubtype( Set<Name> nodeTypeNames,
                                     Name candidateSupertypeName ) {
+        if (nodeTypeNames.isEmpty()) return false;
+        if (JcrNtLexicon.BASE.equals(candidateSupertypeName)) return true;
+        int candidateId = typeId(candidateSupertypeName);
         for (Name nodeTypeName : nodeTypeNames) {
-            if (isTypeOrSubtype(nodeTypeName, candidateSupertypeName)) return true;
+            if (nodeTypeName.equals(candidateSupertypeName) || isTypeOrSubtype(nodeTypeName, candidateId)) return true;
         }
         return false;
     }
@@ -475,8 +513,60 @@ public class NodeTypes {
      */
     public boolean isTypeOrSubtype( Name[] nodeTypeNames,
                                     Name candidateSupertypeName ) {
+        if (nodeTypeNames.length == 0) return false;
+        if (JcrNtLexicon.BASE.equals(candidateSupertypeName)) return true;
+        int candidateId = typeId(candidateSupertypeName);
         for (Name nodeTypeName : nodeTypeNames) {
-            if (isTypeOrSubtype(nodeTypeName, candidateSupertypeName)) return true;
+            if (nodeTypeName.equals(candidateSupertypeName) || isTypeOrSubtype(nodeTypeName, candidateId)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the identifier of the named node type within the compiled type lattice of this snapshot.
+     *
+     * @param nodeTypeName the name of the node type; may be null
+     * @return the identifier, or -1 if there is no such node type
+     */
+    private int typeId( Name nodeTypeName ) {
+        if (nodeTypeName == null) return -1;
+        Integer id = nodeTypeIds.get(nodeTypeName);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Determine whether the named node type is or extends the node type with the given identifier, using the compiled type
+     * lattice.
+     *
+     * @param nodeTypeName the name of the node type; may be null
+     * @param candidateSupertypeId the identifier of the potential supertype, or -1 if the potential supertype is not known
+     * @return true if the node type is or extends the identified node type, or false otherwise
+     */
+    private boolean isTypeOrSubtype( Name nodeTypeName,
+                                     int candidateSupertypeId ) {
+        if (candidateSupertypeId < 0) return false;
+        int id = typeId(nodeTypeName);
+        return id >= 0 && (typeAndSupertypeBits[id][candidateSupertypeId >>> 6] & (1L << candidateSupertypeId)) != 0L;
+    }
+
+    /**
+     * Determine whether the named primary type or any of the named mixin types is or extends the node type with the given
+     * identifier, using the compiled type lattice.
+     *
+     * @param primaryType the name of the primary type; may be null
+     * @param mixinTypes the names of the mixin types; may be null or empty
+     * @param candidateSupertypeId the identifier of the potential supertype, or -1 if the potential supertype is not known
+     * @return true if any of the node types is or extends the identified node type, or false otherwise
+     */
+    private boolean isTypeOrSubtype( Name primaryType,
+                                     Collection<Name> mixinTypes,
+                                     int candidateSupertypeId ) {
+        if (candidateSupertypeId < 0) return false;
+        if (isTypeOrSubtype(primaryType, candidateSupertypeId)) return true;
+        if (mixinTypes != null && !mixinTypes.isEmpty()) {
+            for (Name mixinType : mixinTypes) {
+                if (isTypeOrSubtype(mixinType, candidateSupertypeId)) return true;
+            }
         }
         return false;
     }
@@ -555,13 +645,7 @@ public class NodeTypes {
      */
     public boolean isReferenceable( Name primaryType,
                                     Set<Name> mixinTypes ) {
-        if (nodeTypeNamesThatAreReferenceable.contains(primaryType)) return true;
-        if (mixinTypes != null) {
-            for (Name mixinType : mixinTypes) {
-                if (nodeTypeNamesThatAreReferenceable.contains(mixinType)) return true;
-            }
-        }
-        return false;
+        return isTypeOrSubtype(primaryType, mixinTypes, referenceableTypeId);
     }
 
     /**
@@ -613,7 +697,7 @@ public class NodeTypes {
      * @return true if any of the named node type is versionable, or false otherwise
      */
     public boolean isVersionable( Name nodeTypeName ) {
-        return nodeTypeName != null && versionableNodeTypeNames.contains(nodeTypeName);
+        return isTypeOrSubtype(nodeTypeName, versionableTypeId);
     }
 
     /**
@@ -645,23 +729,27 @@ public class NodeTypes {
      * @return the order of magnitude, as a power of 16
      */
     public int getBucketIdLengthForUnorderedCollection( Name nodeTypeName, Set<Name> mixinTypes ) {
-        Set<Name> allTypes = new LinkedHashSet<>();
-        allTypes.add(nodeTypeName);
-        if (mixinTypes != null && !mixinTypes.isEmpty()) {
-            allTypes.addAll(mixinTypes);
-        }
-        for (Name typeName : allTypes) {
-            if (isTypeOrSubtype(typeName, ModeShapeLexicon.TINY_UNORDERED_COLLECTION)) {
-                return 1;
-            } else if (isTypeOrSubtype(typeName, ModeShapeLexicon.SMALL_UNORDERED_COLLECTION)) {
-                return 2;
-            } else if (isTypeOrSubtype(typeName, ModeShapeLexicon.LARGE_UNORDERED_COLLECTION)) {
-                return 3;
-            } else if (isTypeOrSubtype(typeName, ModeShapeLexicon.HUGE_UNORDERED_COLLECTION)) {
-                return 4;
+        int length = bucketIdLengthForUnorderedCollection(nodeTypeName);
+        if (length == 0 && mixinTypes != null) {
+            for (Name mixinType : mixinTypes) {
+                length = bucketIdLengthForUnorderedCollection(mixinType);
+                if (length != 0) break;
             }
         }
-        throw new IllegalArgumentException("None of the node types are known unordered collection types: " + allTypes);
+        if (length == 0) {
+            Set<Name> allTypes = new LinkedHashSet<>();
+            allTypes.add(nodeTypeName);
+            if (mixinTypes != null) allTypes.addAll(mixinTypes);
+            throw new IllegalArgumentException("None of the node types are known unordered collection types: " + allTypes);
+        }
+        return length;
+    }
+
+    private int bucketIdLengthForUnorderedCollection( Name nodeTypeName ) {
+        for (int i = 0; i != unorderedCollectionTypeIds.length; ++i) {
+            if (isTypeOrSubtype(nodeTypeName, unorderedCollectionTypeIds[i])) return i + 1;
+        }
+        return 0;
     }
 
     /**
@@ -673,11 +761,7 @@ public class NodeTypes {
      */
     public boolean isVersionable( Name primaryType,
                                   Collection<Name> mixinTypes ) {
-        if (primaryType != null && versionableNodeTypeNames.contains(primaryType)) return true;
-        for (Name mixinType : mixinTypes) {
-            if (versionableNodeTypeNames.contains(mixinType)) return true;
-        }
-        return false;
+        return isTypeOrSubtype(primaryType, mixinTypes, versionableTypeId);
     }
 
     /**
@@ -2377,27 +2461,38 @@ public class NodeTypes {
             }
         }
 
-        // Go through the primary type ...
-        JcrNodeType primaryType = getNodeType(primaryTypeNameOfParent);
-        assert primaryType != null;
-        Collection<JcrNodeDefinition> defns = primaryType.allChildNodeDefinitions();
         if (mixinsWithChildDefns.isEmpty()) {
-            if (defns.isEmpty()) {
-                // No child node definitions ...
-                return use(new NoChildrenNodeDefinitionSet(primaryTypeNameOfParent, mixinsWithChildDefns));
+            // This is by far the most common case, and depends only upon the primary type ...
+            ReusableNodeDefinitionSet defnSet = childNodeDefinitionSetsByPrimaryType.get(primaryTypeNameOfParent);
+            if (defnSet == null) {
+                defnSet = childNodeDefinitionsFor(primaryTypeNameOfParent);
+                ReusableNodeDefinitionSet existing = childNodeDefinitionSetsByPrimaryType.putIfAbsent(primaryTypeNameOfParent,
+                                                                                                     defnSet);
+                if (existing != null) defnSet = existing;
             }
-            if (defns.size() == 1) {
-                JcrNodeDefinition defn = defns.iterator().next();
-                return use(new SingleNodeDefinitionSet(primaryTypeNameOfParent, mixinsWithChildDefns, defn));
-            }
-            // There are multiple child node definitions in the primary type, and no mixins with child node defns ...
-            return use(new MultipleNodeDefinitionSet(primaryTypeNameOfParent, null));
+            return use(defnSet);
         }
 
         // There is a primary type and at least one mixin with child node definitions ...
         return use(new MultipleNodeDefinitionSet(primaryTypeNameOfParent, mixinsWithChildDefns));
     }
 
+    private ReusableNodeDefinitionSet childNodeDefinitionsFor( Name primaryTypeNameOfParent ) {
+        JcrNodeType primaryType = getNodeType(primaryTypeNameOfParent);
+        assert primaryType != null;
+        Collection<JcrNodeDefinition> defns = primaryType.allChildNodeDefinitions();
+        if (defns.isEmpty()) {
+            // No child node definitions ...
+            return new NoChildrenNodeDefinitionSet(primaryTypeNameOfParent, NONE);
+        }
+        if (defns.size() == 1) {
+            JcrNodeDefinition defn = defns.iterator().next();
+            return new SingleNodeDefinitionSet(primaryTypeNameOfParent, NONE, defn);
+        }
+        // There are multiple child node definitions in the primary type, and no mixins with child node defns ...
+        return new MultipleNodeDefinitionSet(primaryTypeNameOfParent, null);
+    }
+
     /**
      * A set of child node definitions under a parent with a specific primary type and optional mixin types.
      *
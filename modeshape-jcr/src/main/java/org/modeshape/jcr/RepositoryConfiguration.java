@@ -248,6 +248,14 @@ public class RepositoryConfiguration {
          */
         public static final String LOCK_TIMEOUT_MILLIS = "lockTimeoutMillis";
 
+        /**
+         * The name of the field specifying how the frozen content of versions is stored.
+         *
+         * @see FieldValue#VERSION_STORAGE_COPY
+         * @see FieldValue#VERSION_STORAGE_SHARED
+         */
+        public static final String VERSION_STORAGE = "versionStorage";
+
         /**
          * The name of the field which contains the fully qualified name of the transaction manager lookup class to be used.
          */
@@ -349,6 +357,29 @@ public class RepositoryConfiguration {
          * The name for the field whose value is a document containing binary storage information.
          */
         public static final String COMPOSITE_STORE_NAMED_BINARY_STORES = "namedStores";
+
+        /**
+         * The name for the field under a composite "binaryStorage" specifying the directory in which the locations of the binary
+         * values within the named stores are persisted.
+         */
+        public static final String COMPOSITE_STORE_LOCATIONS_DIRECTORY = "locationsDirectory";
+
+        /**
+         * The name for the field under a composite "binaryStorage" specifying the number of values each named store is expected
+         * to contain, which enables a Bloom filter per named store.
+         */
+        public static final String COMPOSITE_STORE_BLOOM_FILTER_EXPECTED_KEYS = "bloomFilterExpectedKeys";
+
+        /**
+         * The name for the field under a composite "binaryStorage" whose value is a document describing how values are moved
+         * between a hot and a cold named store.
+         */
+        public static final String COMPOSITE_STORE_TIERING = "tiering";
+        public static final String TIERING_HOT_STORE = "hotStore";
+        public static final String TIERING_COLD_STORE = "coldStore";
+        public static final String TIERING_COLD_AFTER_HOURS = "coldAfterHours";
+        public static final String TIERING_INTERVAL_IN_MINUTES = "intervalInMinutes";
+        public static final String TIERING_PROMOTE_ON_ACCESS = "promoteOnAccess";
         
         public static final String MIMETYPE_DETECTION = "mimeTypeDetection";
 
@@ -443,10 +474,18 @@ public class RepositoryConfiguration {
         public static final String GARBAGE_COLLECTION = "garbageCollection";
         public static final String INITIAL_TIME = "initialTime";
         public static final String INTERVAL_IN_HOURS = "intervalInHours";
+        public static final String BINARY_USAGE_LEDGER_DIRECTORY = "binaryUsageLedgerDirectory";
+        public static final String BINARY_FULL_SCAN_INTERVAL = "binaryFullScanInterval";
 
         public static final String DOCUMENT_OPTIMIZATION = "documentOptimization";
         public static final String OPTIMIZATION_CHILD_COUNT_TARGET = "childCountTarget";
         public static final String OPTIMIZATION_CHILD_COUNT_TOLERANCE = "childCountTolerance";
+        public static final String OPTIMIZATION_WORKERS = "workers";
+        public static final String OPTIMIZATION_MAX_NODES_PER_SECOND = "maxNodesPerSecond";
+
+        public static final String GROUP_COMMIT = "groupCommit";
+        public static final String GROUP_COMMIT_WINDOW_MILLIS = "windowMillis";
+        public static final String GROUP_COMMIT_MAX_SAVES = "maxSaves";
 
         /**
          * The name for the field (under "sequencing" and "textExtraction") specifying the thread pool that should be used for sequencing.
@@ -511,6 +550,11 @@ public class RepositoryConfiguration {
          */
         public static final long LOCK_TIMEOUT = 10000;
 
+        /**
+         * The default value of the {@link FieldName#VERSION_STORAGE} field is '{@value}'.
+         */
+        public static final String VERSION_STORAGE = FieldValue.VERSION_STORAGE_COPY;
+
         /**
          * The default value of the {@link FieldName#TRANSACTION_MANAGER_LOOKUP} field is '{@value} '.
          */
@@ -551,9 +595,19 @@ public class RepositoryConfiguration {
 
         public static final String GARBAGE_COLLECTION_INITIAL_TIME = "00:00";
         public static final int GARBAGE_COLLECTION_INTERVAL_IN_HOURS = 24;
+        public static final int GARBAGE_COLLECTION_BINARY_FULL_SCAN_INTERVAL = 7;
 
         public static final String OPTIMIZATION_INITIAL_TIME = "02:00";
         public static final int OPTIMIZATION_INTERVAL_IN_HOURS = 24;
+        public static final int OPTIMIZATION_WORKERS = 2;
+        public static final int OPTIMIZATION_MAX_NODES_PER_SECOND = 100;
+
+        public static final long GROUP_COMMIT_WINDOW_MILLIS = 1L;
+
+        public static final int TIERING_COLD_AFTER_HOURS = 24 * 30;
+        public static final int TIERING_INTERVAL_IN_MINUTES = 60;
+        public static final boolean TIERING_PROMOTE_ON_ACCESS = true;
+        public static final int GROUP_COMMIT_MAX_SAVES = 32;
 
         public static final String JOURNAL_LOCATION = "modeshape/journal";
         // by default journal entries are kept indefinitely
@@ -591,6 +645,16 @@ public class RepositoryConfiguration {
         
         public static final String LOCKING_JGROUPS  = "jgroups";
         public static final String LOCKING_DB  = "db";
+
+        /**
+         * Every checkin copies the whole versionable subgraph into the version history.
+         */
+        public static final String VERSION_STORAGE_COPY = "copy";
+
+        /**
+         * A checkin shares the unchanged subgraphs with the frozen content of the previous version.
+         */
+        public static final String VERSION_STORAGE_SHARED = "shared";
     }
 
     protected static final Set<List<String>> DEPRECATED_FIELDS = Collections.emptySet();
@@ -922,6 +986,18 @@ public class RepositoryConfiguration {
     public long getLockTimeoutMillis() {
         return doc.getLong(FieldName.LOCK_TIMEOUT_MILLIS, Default.LOCK_TIMEOUT);
     }
+
+    /**
+     * Determine whether the frozen content of a new version should share the unchanged subgraphs recorded by the previous
+     * version, rather than being a complete copy.
+     *
+     * @return true if versions share unchanged content, or false if each version is a complete copy
+     * @see FieldName#VERSION_STORAGE
+     */
+    public boolean isVersionContentShared() {
+        return FieldValue.VERSION_STORAGE_SHARED.equalsIgnoreCase(doc.getString(FieldName.VERSION_STORAGE,
+                                                                                Default.VERSION_STORAGE));
+    }
     
     public TransactionManagerLookup getTransactionManagerLookup() {
         Document storage = doc.getDocument(FieldName.STORAGE);
@@ -1180,7 +1256,33 @@ public class RepositoryConfiguration {
                     throw new BinaryStoreException(JcrI18n.missingVariableValue.text("namedStores"));
                 }
 
-                store = new CompositeBinaryStore(binaryStores);
+                CompositeBinaryStore compositeStore = new CompositeBinaryStore(binaryStores);
+                String locationsDirectory = binaryStorage.getString(FieldName.COMPOSITE_STORE_LOCATIONS_DIRECTORY);
+                if (locationsDirectory != null) {
+                    compositeStore.setLocationsDirectory(new File(locationsDirectory));
+                }
+                int expectedKeys = binaryStorage.getInteger(FieldName.COMPOSITE_STORE_BLOOM_FILTER_EXPECTED_KEYS, 0);
+                compositeStore.setBloomFilterExpectedKeys(expectedKeys);
+                Document tiering = binaryStorage.getDocument(FieldName.COMPOSITE_STORE_TIERING);
+                if (tiering != null) {
+                    // the tiering policy needs the locations of all the values ...
+                    if (locationsDirectory == null) {
+                        throw new BinaryStoreException(
+                                JcrI18n.missingVariableValue.text(FieldName.COMPOSITE_STORE_LOCATIONS_DIRECTORY));
+                    }
+                    String hotStore = tiering.getString(FieldName.TIERING_HOT_STORE);
+                    String coldStore = tiering.getString(FieldName.TIERING_COLD_STORE);
+                    int coldAfterHours = tiering.getInteger(FieldName.TIERING_COLD_AFTER_HOURS, Default.TIERING_COLD_AFTER_HOURS);
+                    int intervalInMinutes = tiering.getInteger(FieldName.TIERING_INTERVAL_IN_MINUTES,
+                                                               Default.TIERING_INTERVAL_IN_MINUTES);
+                    boolean promoteOnAccess = tiering.getBoolean(FieldName.TIERING_PROMOTE_ON_ACCESS,
+                                                                 Default.TIERING_PROMOTE_ON_ACCESS);
+                    long coldAfterInMillis = TimeUnit.HOURS.toMillis(coldAfterHours);
+                    long intervalInMillis = TimeUnit.MINUTES.toMillis(intervalInMinutes);
+                    compositeStore.setTieringPolicy(new CompositeBinaryStore.TieringPolicy(hotStore, coldStore, coldAfterInMillis,
+                                                                                           intervalInMillis, promoteOnAccess));
+                }
+                store = compositeStore;
 
             } else if (type.equalsIgnoreCase(FieldValue.BINARY_STORAGE_TYPE_CUSTOM)) {
                 classname = binaryStorage.getString(FieldName.CLASSNAME);
@@ -1936,6 +2038,26 @@ public class RepositoryConfiguration {
         public long getIntervalInMillis() {
             return TimeUnit.MILLISECONDS.convert(getIntervalInHours(), TimeUnit.HOURS);
         }
+
+        /**
+         * Get the directory in which the ledger of unused binary values is persisted.
+         *
+         * @return the directory, or null if the ledger is only kept in memory
+         */
+        public String getBinaryUsageLedgerDirectory() {
+            return gc.getString(FieldName.BINARY_USAGE_LEDGER_DIRECTORY);
+        }
+
+        /**
+         * Get the number of garbage collection runs between two full scans of the binary store. All other runs only remove the
+         * unused binary values listed in the ledger. The first run after the repository starts is always a full scan.
+         *
+         * @return the number of runs; always positive
+         */
+        public int getBinaryFullScanInterval() {
+            return Math.max(1, gc.getInteger(FieldName.BINARY_FULL_SCAN_INTERVAL,
+                                             Default.GARBAGE_COLLECTION_BINARY_FULL_SCAN_INTERVAL));
+        }
     }
 
     /**
@@ -2017,6 +2139,77 @@ public class RepositoryConfiguration {
             Integer result = optimization.getInteger(FieldName.OPTIMIZATION_CHILD_COUNT_TOLERANCE);
             return result == null ? 0 : result.intValue();
         }
+
+        /**
+         * Get the number of nodes whose children are optimized in parallel.
+         *
+         * @return the number of workers; always positive
+         */
+        public int getWorkers() {
+            return optimization.getInteger(FieldName.OPTIMIZATION_WORKERS, Default.OPTIMIZATION_WORKERS);
+        }
+
+        /**
+         * Get the maximum number of nodes whose children are optimized per second, which limits the load that optimization
+         * places upon the persistent store.
+         *
+         * @return the maximum number of nodes per second, or 0 if the rate is not limited
+         */
+        public int getMaxNodesPerSecond() {
+            return optimization.getInteger(FieldName.OPTIMIZATION_MAX_NODES_PER_SECOND, Default.OPTIMIZATION_MAX_NODES_PER_SECOND);
+        }
+    }
+
+    /**
+     * Get the configuration for committing concurrent session saves in groups.
+     *
+     * @return the group commit configuration; never null
+     */
+    public GroupCommit getGroupCommit() {
+        Document storage = doc.getDocument(FieldName.STORAGE);
+        if (storage == null) {
+            storage = Schematic.newDocument();
+        }
+        return new GroupCommit(storage.getDocument(FieldName.GROUP_COMMIT));
+    }
+
+    @Immutable
+    public class GroupCommit {
+        private final Document groupCommit;
+
+        protected GroupCommit( Document groupCommit ) {
+            this.groupCommit = groupCommit;
+        }
+
+        /**
+         * Determine if group commit is enabled. Group commit is DISABLED by default and must be enabled by defining a
+         * "{@value FieldName#GROUP_COMMIT}" document (even empty) under "{@value FieldName#STORAGE}".
+         *
+         * @return true if enabled, or false otherwise
+         */
+        public boolean isEnabled() {
+            return groupCommit != null;
+        }
+
+        /**
+         * Get the maximum number of milliseconds that a group waits for other concurrent saves before being committed.
+         *
+         * @return the window, in milliseconds; never negative
+         */
+        public long getWindowMillis() {
+            return isEnabled() ? groupCommit.getLong(FieldName.GROUP_COMMIT_WINDOW_MILLIS, Default.GROUP_COMMIT_WINDOW_MILLIS)
+                               : Default.GROUP_COMMIT_WINDOW_MILLIS;
+        }
+
+        /**
+         * Get the maximum number of saves that are committed in a single group.
+         *
+         * @return the maximum number of saves; always positive
+         */
+        public int getMaxSaves() {
+            return isEnabled() ? groupCommit.getInteger(FieldName.GROUP_COMMIT_MAX_SAVES, Default.GROUP_COMMIT_MAX_SAVES)
+                               : Default.GROUP_COMMIT_MAX_SAVES;
+        }
     }
 
     /**
@@ -15,8 +15,11 @@
  */
 package org.modeshape.jcr;
 
+import org.modeshape.jcr.cache.document.DirtyChildBlocks;
 import org.modeshape.jcr.locking.LockingService;
+import org.modeshape.jcr.txn.GroupCommitter;
 import org.modeshape.jcr.txn.Transactions;
+import org.modeshape.jcr.value.binary.BinaryUsageLedger;
 
 /**
  * Interface which exposes global repository subsystems/configuration to running sessions.
@@ -51,4 +54,33 @@ public interface RepositoryEnvironment {
      * @return a {@link LockingService} instance, never {@code null}
      */
     LockingService lockingService();
+
+    /**
+     * Returns the statistics of the repository, which can be used to record the latencies of the various low-level operations.
+     *
+     * @return a {@link RepositoryStatistics} instance or {@code null} if statistics are not collected.
+     */
+    RepositoryStatistics statistics();
+
+    /**
+     * Returns the component which commits concurrent session saves in groups.
+     *
+     * @return a {@link GroupCommitter} instance or {@code null} if group commit is not enabled.
+     */
+    GroupCommitter groupCommitter();
+
+    /**
+     * Returns the set of parents whose blocks of children should be optimized, which sessions update when they save changes
+     * to the children of a node.
+     *
+     * @return a {@link DirtyChildBlocks} instance or {@code null} if document optimization is not enabled.
+     */
+    DirtyChildBlocks dirtyChildBlocks();
+
+    /**
+     * Returns the ledger of unused binary values, which sessions update when their saves change whether binary values are used.
+     *
+     * @return a {@link BinaryUsageLedger} instance or {@code null} if unused binary values are only found by scanning the store.
+     */
+    BinaryUsageLedger binaryUsageLedger();
 }
@@ -300,6 +300,9 @@ class RepositoryIndexManager implements IndexManager, NodeTypes.Listener {
         // Set the name of the system workspace
         Reflection.setValue(provider, "systemWorkspaceName", systemWorkspaceName);
 
+        // Set the statistics used for recording the index update latencies
+        Reflection.setValue(provider, "statistics", repository.statistics());
+
         if (initialized.get()) {
             // This manager is already initialized, so we have to initialize the new provider ...
             doInitialize(provider);
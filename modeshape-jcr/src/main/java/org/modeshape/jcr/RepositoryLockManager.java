@@ -21,7 +21,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -67,7 +66,7 @@ class RepositoryLockManager implements ChangeSetListener {
     private final JcrRepository.RunningState repository;
     private final String systemWorkspaceName;
     private final String processId;
-    private final ConcurrentMap<NodeKey, ModeShapeLock> locksByNodeKey;
+    private final LockIndex locks;
     private final Path locksPath;
     private final Logger logger;
     private final long lockExtensionIntervalMillis;
@@ -77,7 +76,7 @@ class RepositoryLockManager implements ChangeSetListener {
         this.repository = repository;
         this.systemWorkspaceName = repository.repositoryCache().getSystemWorkspaceName();
         this.processId = repository.context().getProcessId();
-        this.locksByNodeKey = new ConcurrentHashMap<NodeKey, ModeShapeLock>();
+        this.locks = new LockIndex();
         PathFactory pathFactory = repository.context().getValueFactories().getPathFactory();
         this.locksPath = pathFactory.create(pathFactory.createRootPath(), JcrLexicon.SYSTEM, ModeShapeLexicon.LOCKS);
         this.logger = Logger.getLogger(getClass());
@@ -115,44 +114,11 @@ class RepositoryLockManager implements ChangeSetListener {
     }
 
     /**
-     * Refresh the locks from the stored representation.
+     * Refresh the locks from the stored representation. The locks are not read immediately, but rather the next time they are
+     * needed.
      */
     protected void refreshFromSystem() {
-        try {
-            // Re-read and re-register all of the namespaces ...
-            SessionCache systemCache = repository.createSystemSession(repository.context(), false);
-            SystemContent system = new SystemContent(systemCache);
-            CachedNode locks = system.locksNode();
-            MutableCachedNode mutableLocks = null;
-            Set<NodeKey> corruptedLocks = new HashSet<>();
-            for (ChildReference ref : locks.getChildReferences(systemCache)) {
-                CachedNode node = systemCache.getNode(ref);
-                if (node == null) {
-                    if (mutableLocks == null) {
-                        mutableLocks = system.mutableLocksNode();
-                    }
-                    NodeKey lockKey = ref.getKey();
-                    logger.warn(JcrI18n.lockNotFound, lockKey);
-                    mutableLocks.removeChild(systemCache, lockKey);
-                    corruptedLocks.add(lockKey);
-                    continue;
-                }
-                ModeShapeLock lock = new ModeShapeLock(node, systemCache);
-                locksByNodeKey.put(lock.getLockedNodeKey(), lock);
-            }
-            if (mutableLocks != null) {
-                system.save();
-                for (Iterator<Map.Entry<NodeKey, ModeShapeLock>> locksIterator = locksByNodeKey.entrySet().iterator(); 
-                     locksIterator.hasNext();) {
-                    NodeKey lockKey = locksIterator.next().getValue().getLockKey();
-                    if (corruptedLocks.contains(lockKey)) {
-                        locksIterator.remove();
-                    }
-                }
-            }
-        } catch (Throwable e) {
-            logger.error(e, JcrI18n.errorRefreshingLocks, repository.name());
-        }
+        locks.reset();
     }
 
     /**
@@ -198,7 +164,7 @@ class RepositoryLockManager implements ChangeSetListener {
                     Property prop = propertyFactory.create(ModeShapeLexicon.EXPIRATION_DATE, newExpiration);
                     mutableLockNode.setProperty(systemSession, prop);
                     //reflect the change in the expiry date in the internal map
-                    this.locksByNodeKey.replace(lockedNodeKey, lock.withExpiryTime(newExpiration));
+                    this.locks.replace(lockedNodeKey, lock.withExpiryTime(newExpiration));
 
                     continue;
                 }
@@ -226,7 +192,7 @@ class RepositoryLockManager implements ChangeSetListener {
                     SessionCache internalSession = repository.repositoryCache().createSession(context, workspaceName, false);
                     for (NodeKey lockedNodeKey : lockedNodesByWorkspaceName.get(workspaceName)) {
                         //clear the internal cache
-                        this.locksByNodeKey.remove(lockedNodeKey);
+                        this.locks.remove(lockedNodeKey);
 
                         CachedNode lockedNode = internalSession.getWorkspace().getNode(lockedNodeKey);
                         if (lockedNode != null) {
@@ -255,32 +221,42 @@ class RepositoryLockManager implements ChangeSetListener {
     }
 
     final boolean isLocked( NodeKey lockedNodeKey ) {
-        return locksByNodeKey.containsKey(lockedNodeKey);
+        return locks.contains(lockedNodeKey);
     }
 
     final ModeShapeLock findLockFor( NodeKey nodeKey ) {
-        return locksByNodeKey.get(nodeKey);
+        return locks.get(nodeKey);
     }
 
     private final CachedNode findLockedNodeAtOrBelow( CachedNode node,
                                                       NodeCache cache ) {
+        NodeKey nodeKey = node.getKey();
+        if (isLocked(nodeKey)) return node;
         if (node.getChildReferences(cache).isEmpty()) {
-            // It is a leaf node, so just check for a lock on the node ...
-            if (isLocked(node.getKey())) return node;
-        }
-        // We assume that there are far fewer locks than there are descendants of the supplied path ...
-        Path path = node.getPath(cache);
-        for (ModeShapeLock lock : locksByNodeKey.values()) {
-            CachedNode lockedNode = cache.getNode(lock.getLockedNodeKey());
+            // It is a leaf node, so there can't be any locked descendants ...
+            return null;
+        }
+        // Walk up from each locked node, remembering the ancestors which are known not to be at or below the node, so that
+        // the ancestors shared by many locked nodes are only visited once ...
+        Set<NodeKey> notBelow = new HashSet<>();
+        for (NodeKey lockedNodeKey : locks.lockedNodeKeys()) {
+            CachedNode lockedNode = cache.getNode(lockedNodeKey);
             if (lockedNode == null) continue;
-            Path lockedPath = lockedNode.getPath(cache);
-            if (lockedPath.isAtOrBelow(path)) return lockedNode;
+            List<NodeKey> visited = new ArrayList<>();
+            NodeKey key = lockedNode.getParentKey(cache);
+            while (key != null && !notBelow.contains(key)) {
+                if (key.equals(nodeKey)) return lockedNode;
+                visited.add(key);
+                CachedNode ancestor = cache.getNode(key);
+                key = ancestor != null ? ancestor.getParentKey(cache) : null;
+            }
+            notBelow.addAll(visited);
         }
         return null;
     }
 
     final Collection<ModeShapeLock> allLocks() {
-        return locksByNodeKey.values();
+        return locks.all();
     }
 
     protected final NodeKey generateLockKey( NodeKey prototype,
@@ -350,7 +326,7 @@ class RepositoryLockManager implements ChangeSetListener {
             }
         }
 
-        ModeShapeLock existing = locksByNodeKey.putIfAbsent(nodeKey, lock);
+        ModeShapeLock existing = locks.putIfAbsent(lock);
         if (existing != null) {
             if (!existing.isExpired()) {
                 throwAlreadyLocked(session, existing);
@@ -358,7 +334,7 @@ class RepositoryLockManager implements ChangeSetListener {
             // there's an existing lock which has expired, so we have to unlock first
             unlock(session, existing.lockedNodeKey);
             // try adding the new lock
-            existing = locksByNodeKey.putIfAbsent(nodeKey, lock);
+            existing = locks.putIfAbsent(lock);
             if (existing != null) {
                 // some other thread has already replaced the old value
                 throwAlreadyLocked(session, existing);
@@ -389,10 +365,10 @@ class RepositoryLockManager implements ChangeSetListener {
             } catch (Throwable t) {
                 // couldn't come up with the path, so just use the key
             }
-            locksByNodeKey.remove(nodeKey);
+            locks.remove(nodeKey);
             throw new LockException(JcrI18n.alreadyLocked.text(location));
         } catch (RuntimeException e) {
-            locksByNodeKey.remove(nodeKey);
+            locks.remove(nodeKey);
             throw new RepositoryException(e);
         }
         return lock;
@@ -439,7 +415,7 @@ class RepositoryLockManager implements ChangeSetListener {
 
     String unlock( JcrSession session,
                    NodeKey lockedNodeKey ) throws LockException {
-        ModeShapeLock existing = locksByNodeKey.remove(lockedNodeKey);
+        ModeShapeLock existing = locks.remove(lockedNodeKey);
         if (existing == null) {
             NodeCache cache = session.cache();
             String location = session.stringFactory().create(cache.getNode(lockedNodeKey).getPath(cache));
@@ -489,21 +465,22 @@ class RepositoryLockManager implements ChangeSetListener {
      */
     Set<String> cleanLocks( JcrSession session ) throws RepositoryException {
         Set<String> lockTokens = session.lockManager().lockTokens();
-        List<ModeShapeLock> locks = null;
-        for (ModeShapeLock lock : locksByNodeKey.values()) {
-            if (lock.isSessionScoped() && lockTokens.contains(lock.getLockToken())) {
-                if (locks == null) locks = new LinkedList<ModeShapeLock>();
-                locks.add(lock);
+        List<ModeShapeLock> sessionLocks = null;
+        for (String lockToken : lockTokens) {
+            ModeShapeLock lock = locks.findByToken(lockToken);
+            if (lock != null && lock.isSessionScoped()) {
+                if (sessionLocks == null) sessionLocks = new LinkedList<ModeShapeLock>();
+                sessionLocks.add(lock);
             }
         }
 
         Set<String> cleanedTokens = null;
-        if (locks != null) {
-            cleanedTokens = new HashSet<>(locks.size());
+        if (sessionLocks != null) {
+            cleanedTokens = new HashSet<>(sessionLocks.size());
             // clear the locks which have been unlocked
-            unlock(session, locks);
-            for (ModeShapeLock lock : locks) {
-                locksByNodeKey.remove(lock.getLockedNodeKey());
+            unlock(session, sessionLocks);
+            for (ModeShapeLock lock : sessionLocks) {
+                locks.remove(lock.getLockedNodeKey());
                 cleanedTokens.add(lock.getLockToken());
             }
         }
@@ -533,7 +510,7 @@ class RepositoryLockManager implements ChangeSetListener {
                         Map<Name, Property> props = added.getProperties();
                         NodeKey lockKey = added.getKey();
                         ModeShapeLock lock = new ModeShapeLock(lockKey, props);
-                        locksByNodeKey.put(lock.getLockedNodeKey(), lock);
+                        locks.put(lock);
                     }
                 } else if (change instanceof NodeRemoved) {
                     NodeRemoved removed = (NodeRemoved)change;
@@ -543,7 +520,7 @@ class RepositoryLockManager implements ChangeSetListener {
                         if (locksToDelete == null) locksToDelete = new HashSet<NodeKey>();
                         // The key of the locked node is embedded in the lock key ...
                         NodeKey lockedNodeKey = lockedNodeKeyFromLockKey(removed.getKey());
-                        locksByNodeKey.remove(lockedNodeKey);
+                        locks.remove(lockedNodeKey);
                     }
                 }
                 // Lock nodes are never moved, and properties added or removed, and the only properties changed are those
@@ -571,12 +548,163 @@ class RepositoryLockManager implements ChangeSetListener {
 
     final ModeShapeLock findLockByToken( String token ) {
         assert token != null;
-        for (ModeShapeLock lock : locksByNodeKey.values()) {
-            if (token.equals(lock.getLockToken())) {
-                return lock;
+        return locks.findByToken(token);
+    }
+
+    /**
+     * The index of the locks, keyed by the locked nodes. The index is loaded lazily from the child references of the
+     * "mode:locks" node alone: the key of each lock node embeds the key of the locked node and the name of each lock node is the
+     * lock token, so this compact journal is enough to answer whether a node (or any of its ancestors) is locked without reading
+     * any of the lock nodes. A lock node is read only when the details of that particular lock are needed.
+     */
+    @ThreadSafe
+    private final class LockIndex {
+        private final ConcurrentMap<NodeKey, ModeShapeLock> locksByNodeKey = new ConcurrentHashMap<>();
+        private final ConcurrentMap<NodeKey, NodeKey> unreadLockKeysByNodeKey = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, NodeKey> nodeKeysByToken = new ConcurrentHashMap<>();
+        private volatile boolean loaded = false;
+
+        protected void reset() {
+            synchronized (this) {
+                loaded = false;
+                locksByNodeKey.clear();
+                unreadLockKeysByNodeKey.clear();
+                nodeKeysByToken.clear();
+            }
+        }
+
+        protected boolean contains( NodeKey lockedNodeKey ) {
+            ensureLoaded();
+            return locksByNodeKey.containsKey(lockedNodeKey) || unreadLockKeysByNodeKey.containsKey(lockedNodeKey);
+        }
+
+        protected ModeShapeLock get( NodeKey lockedNodeKey ) {
+            ensureLoaded();
+            ModeShapeLock lock = locksByNodeKey.get(lockedNodeKey);
+            if (lock == null) {
+                NodeKey lockKey = unreadLockKeysByNodeKey.get(lockedNodeKey);
+                if (lockKey != null) {
+                    lock = read(lockedNodeKey, lockKey);
+                }
+            }
+            return lock;
+        }
+
+        protected ModeShapeLock findByToken( String lockToken ) {
+            ensureLoaded();
+            NodeKey lockedNodeKey = nodeKeysByToken.get(lockToken);
+            if (lockedNodeKey == null) return null;
+            ModeShapeLock lock = get(lockedNodeKey);
+            return lock != null && lockToken.equals(lock.getLockToken()) ? lock : null;
+        }
+
+        protected Set<NodeKey> lockedNodeKeys() {
+            ensureLoaded();
+            Set<NodeKey> keys = new HashSet<>(locksByNodeKey.keySet());
+            keys.addAll(unreadLockKeysByNodeKey.keySet());
+            return keys;
+        }
+
+        protected Collection<ModeShapeLock> all() {
+            List<ModeShapeLock> all = new ArrayList<>();
+            for (NodeKey lockedNodeKey : lockedNodeKeys()) {
+                ModeShapeLock lock = get(lockedNodeKey);
+                if (lock != null) all.add(lock);
+            }
+            return all;
+        }
+
+        protected ModeShapeLock putIfAbsent( ModeShapeLock lock ) {
+            // Make sure an unread lock on the same node is taken into account ...
+            ModeShapeLock existing = get(lock.getLockedNodeKey());
+            if (existing == null) {
+                existing = locksByNodeKey.putIfAbsent(lock.getLockedNodeKey(), lock);
+            }
+            if (existing == null) {
+                nodeKeysByToken.put(lock.getLockToken(), lock.getLockedNodeKey());
+            }
+            return existing;
+        }
+
+        protected void put( ModeShapeLock lock ) {
+            ensureLoaded();
+            NodeKey lockedNodeKey = lock.getLockedNodeKey();
+            ModeShapeLock previous = locksByNodeKey.put(lockedNodeKey, lock);
+            unreadLockKeysByNodeKey.remove(lockedNodeKey);
+            if (previous != null && !previous.getLockToken().equals(lock.getLockToken())) {
+                nodeKeysByToken.remove(previous.getLockToken(), lockedNodeKey);
+            }
+            nodeKeysByToken.put(lock.getLockToken(), lockedNodeKey);
+        }
+
+        protected void replace( NodeKey lockedNodeKey,
+                                ModeShapeLock lock ) {
+            if (contains(lockedNodeKey)) {
+                put(lock);
+            }
+        }
+
+        protected ModeShapeLock remove( NodeKey lockedNodeKey ) {
+            ModeShapeLock lock = get(lockedNodeKey);
+            locksByNodeKey.remove(lockedNodeKey);
+            unreadLockKeysByNodeKey.remove(lockedNodeKey);
+            if (lock != null) {
+                nodeKeysByToken.remove(lock.getLockToken(), lockedNodeKey);
+            }
+            return lock;
+        }
+
+        private void ensureLoaded() {
+            if (loaded) return;
+            synchronized (this) {
+                if (loaded) return;
+                try {
+                    SessionCache systemCache = repository.createSystemSession(repository.context(), true);
+                    CachedNode locksNode = new SystemContent(systemCache).locksNode();
+                    for (ChildReference ref : locksNode.getChildReferences(systemCache)) {
+                        NodeKey lockKey = ref.getKey();
+                        NodeKey lockedNodeKey = lockedNodeKeyFromLockKey(lockKey);
+                        unreadLockKeysByNodeKey.putIfAbsent(lockedNodeKey, lockKey);
+                        nodeKeysByToken.putIfAbsent(ref.getName().getLocalName(), lockedNodeKey);
+                    }
+                    loaded = true;
+                } catch (Throwable e) {
+                    // leave the index unloaded so that the next call tries again, rather than ignoring the existing locks ...
+                    logger.error(e, JcrI18n.errorRefreshingLocks, repository.name());
+                }
+            }
+        }
+
+        private ModeShapeLock read( NodeKey lockedNodeKey,
+                                    NodeKey lockKey ) {
+            NodeCache systemCache = repository.repositoryCache().getWorkspaceCache(systemWorkspaceName);
+            CachedNode lockNode = systemCache.getNode(lockKey);
+            if (lockNode == null) {
+                // The lock is in the journal but the lock node is missing, so the lock is corrupted ...
+                if (unreadLockKeysByNodeKey.remove(lockedNodeKey, lockKey)) {
+                    removeCorruptedLock(lockKey);
+                }
+                return locksByNodeKey.get(lockedNodeKey);
+            }
+            ModeShapeLock lock = new ModeShapeLock(lockNode, systemCache);
+            ModeShapeLock existing = locksByNodeKey.putIfAbsent(lockedNodeKey, lock);
+            unreadLockKeysByNodeKey.remove(lockedNodeKey, lockKey);
+            return existing != null ? existing : lock;
+        }
+
+        private void removeCorruptedLock( NodeKey lockKey ) {
+            try {
+                SessionCache systemCache = repository.createSystemSession(repository.context(), false);
+                SystemContent system = new SystemContent(systemCache);
+                if (system.locksNode().getChildReferences(systemCache).hasChild(lockKey)) {
+                    logger.warn(JcrI18n.lockNotFound, lockKey);
+                    system.mutableLocksNode().removeChild(systemCache, lockKey);
+                    system.save();
+                }
+            } catch (Throwable e) {
+                logger.error(e, JcrI18n.errorRefreshingLocks, repository.name());
             }
         }
-        return null;
     }
 
     /**
@@ -30,10 +30,13 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.modeshape.common.SystemFailureException;
+import org.modeshape.common.annotation.GuardedBy;
 import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.annotation.ThreadSafe;
 import org.modeshape.common.text.Inflector;
@@ -41,6 +44,7 @@ import org.modeshape.common.util.StringUtil;
 import org.modeshape.jcr.api.monitor.DurationActivity;
 import org.modeshape.jcr.api.monitor.DurationMetric;
 import org.modeshape.jcr.api.monitor.History;
+import org.modeshape.jcr.api.monitor.Percentiles;
 import org.modeshape.jcr.api.monitor.RepositoryMonitor;
 import org.modeshape.jcr.api.monitor.Statistics;
 import org.modeshape.jcr.api.monitor.ValueMetric;
@@ -68,6 +72,8 @@ import org.modeshape.jcr.value.DateTimeFactory;
  * <li><b>{@link ValueMetric#SESSION_SAVES save operations}</b> - the number of Session save operations performed the window;</li>
  * <li><b>{@link ValueMetric#NODE_CHANGES changed nodes}</b> - the number of nodes that were created, updated, or deleted during
  * the window;</li>
+ * <li><b>{@link ValueMetric#WORKSPACE_CACHE_HITS cache hits}</b> and <b>{@link ValueMetric#WORKSPACE_CACHE_MISSES cache misses}</b>
+ * - the number of nodes that were, respectively were not, found in the workspace caches during the window;</li>
  * </ol>
  * and the metrics that record durations include:
  * <ol>
@@ -76,6 +82,10 @@ import org.modeshape.jcr.value.DateTimeFactory;
  * window;</li>
  * <li><b>{@link DurationMetric#SEQUENCER_EXECUTION_TIME sequencer execution time}</b> - the duration of sequencing operations
  * completed during the window;</li>
+ * <li><b>{@link DurationMetric#DOCUMENT_STORE_READ_TIME document store reads}, {@link DurationMetric#SAVE_LOCK_TIME save lock
+ * acquisition}, {@link DurationMetric#SAVE_PERSIST_TIME save persistence}, {@link DurationMetric#INDEX_UPDATE_TIME index updates}
+ * and {@link DurationMetric#BINARY_STORE_WRITE_TIME binary store writes}</b> - the latencies of these very frequent, low-level
+ * operations, which are recorded into {@link LatencyHistogram histograms} rather than individually;</li>
  * </ol>
  * This class provides a way to obtain the {@link History history} for a particular metric during a specified window, where the
  * window is comprised of the {@link Statistics statistics} (the average value, minimum value, maximum value, variance, standard
@@ -87,6 +97,8 @@ import org.modeshape.jcr.value.DateTimeFactory;
  * <li>each day during the last week (7 days); or</li>
  * <li>each week during the last year (52 weeks)</li>
  * </ol>
+ * In addition, the {@link #getPercentiles(DurationMetric) percentiles} of all the durations recorded since the repository was
+ * started are available for each duration metric.
  * <p>
  * To use, simply instantiate and {@link #start(ScheduledExecutorService) start} it by supplying a
  * {@link ScheduledExecutorService} instance, which is used to create a periodic task that runs every 5 seconds to roll up
@@ -132,7 +144,18 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
                                                                                                     * CAPTURE_INTERVAL_IN_SECONDS,
                                                                                                     TimeUnit.SECONDS);
 
+    /**
+     * The duration metrics which measure the latency of frequent operations, and for which the activities are not kept.
+     */
+    protected static final Set<DurationMetric> LATENCY_METRICS = EnumSet.of(DurationMetric.DOCUMENT_STORE_READ_TIME,
+                                                                            DurationMetric.SAVE_LOCK_TIME,
+                                                                            DurationMetric.SAVE_PERSIST_TIME,
+                                                                            DurationMetric.INDEX_UPDATE_TIME,
+                                                                            DurationMetric.INDEX_REFRESH_TIME,
+                                                                            DurationMetric.BINARY_STORE_WRITE_TIME);
+
     private final ConcurrentMap<DurationMetric, DurationHistory> durations = new ConcurrentHashMap<DurationMetric, DurationHistory>();
+    private final ConcurrentMap<DurationMetric, LatencyHistory> latencies = new ConcurrentHashMap<DurationMetric, LatencyHistory>();
     private final ConcurrentMap<ValueMetric, ValueHistory> values = new ConcurrentHashMap<ValueMetric, ValueHistory>();
     private final AtomicReference<ScheduledFuture<?>> rollupFuture = new AtomicReference<ScheduledFuture<?>>();
     private final DateTimeFactory timeFactory;
@@ -165,6 +188,9 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
                                                                                    MAXIMUM_LONG_RUNNING_SEQUENCING_COUNT));
         durations.put(DurationMetric.SESSION_LIFETIME, new DurationHistory(TimeUnit.MILLISECONDS,
                                                                            MAXIMUM_LONG_RUNNING_SESSION_COUNT));
+        for (DurationMetric metric : LATENCY_METRICS) {
+            latencies.put(metric, new LatencyHistory(metric.getTimeUnit()));
+        }
 
         for (ValueMetric metric : EnumSet.allOf(ValueMetric.class)) {
             boolean resetUponRollup = !metric.isContinuous();
@@ -213,6 +239,9 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
         for (DurationHistory history : durations.values()) {
             largest = history.rollup();
         }
+        for (LatencyHistory history : latencies.values()) {
+            largest = history.rollup();
+        }
         for (ValueHistory history : values.values()) {
             largest = history.rollup();
         }
@@ -283,7 +312,7 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
                                Window windowInTime ) {
         assert metric != null;
         assert windowInTime != null;
-        DurationHistory history = durations.get(metric);
+        MetricHistory history = LATENCY_METRICS.contains(metric) ? latencies.get(metric) : durations.get(metric);
         Statistics[] stats = history != null ? history.getHistory(windowInTime) : Statistics.NO_STATISTICS;
         return new HistoryImpl(stats, mostRecentTimeFor(windowInTime), windowInTime);
     }
@@ -295,6 +324,17 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
         return history != null ? history.getLongestRunning() : DurationActivity.NO_DURATION_RECORDS;
     }
 
+    @Override
+    public Percentiles getPercentiles( DurationMetric metric ) {
+        assert metric != null;
+        if (LATENCY_METRICS.contains(metric)) {
+            LatencyHistory history = latencies.get(metric);
+            return history != null ? history.getPercentiles() : Percentiles.NO_PERCENTILES;
+        }
+        DurationHistory history = durations.get(metric);
+        return history != null ? history.getPercentiles() : Percentiles.NO_PERCENTILES;
+    }
+
     /**
      * Record an incremental change to a value, called by the code that knows when and how the metric changes.
      * 
@@ -375,6 +415,22 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
         if (history != null) history.recordDuration(duration, timeUnit, payload);
     }
 
+    /**
+     * Record the latency of a frequent operation, called by the code that performs the operation. Unlike
+     * {@link #recordDuration(DurationMetric, long, TimeUnit, Map)}, this does not keep track of the individual activities and does
+     * not allocate any memory, so it can be called on hot code paths.
+     * 
+     * @param metric one of the {@link #LATENCY_METRICS latency metrics}; may not be null
+     * @param nanos the latency, in nanoseconds
+     * @see #recordDuration(DurationMetric, long, TimeUnit, Map)
+     */
+    public void recordLatency( DurationMetric metric,
+                               long nanos ) {
+        assert metric != null;
+        LatencyHistory history = latencies.get(metric);
+        if (history != null) history.recordLatency(nanos);
+    }
+
     @Override
     public void notify( ChangeSet changeSet ) {
         // Track all changes, even those that originate in remote processes ...
@@ -544,7 +600,14 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
      */
     @ThreadSafe
     protected static final class ValueHistory extends MetricHistory {
+        // continuous values are set directly, while the other values are counters which are incremented concurrently, possibly
+        // from hot code paths (e.g. cache lookups), and for which a LongAdder avoids contention. The counter is never reset,
+        // since resetting a LongAdder can lose concurrent increments; instead each window is the difference between the
+        // counter's total at the end of the window and its total at the end of the previous window
         private final AtomicLong value = new AtomicLong();
+        private final LongAdder counter = new LongAdder();
+        @GuardedBy( "this" )
+        private long counterAtLastRollup;
         private final boolean resetCounterUponRollup;
 
         protected ValueHistory( boolean resetCounterUponRollup ) {
@@ -552,16 +615,36 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
         }
 
         void recordIncrement( long increment ) {
-            this.value.addAndGet(increment);
+            if (resetCounterUponRollup) {
+                this.counter.add(increment);
+            } else {
+                this.value.addAndGet(increment);
+            }
         }
 
         void recordNewValue( long value ) {
-            this.value.set(value);
+            if (resetCounterUponRollup) {
+                synchronized (this) {
+                    // increments made concurrently are added on top of the new value rather than lost ...
+                    this.counter.add(value - (this.counter.sum() - counterAtLastRollup));
+                }
+            } else {
+                this.value.set(value);
+            }
         }
 
         @Override
         Window rollup() {
-            long value = resetCounterUponRollup ? this.value.getAndSet(0L) : this.value.get();
+            long value;
+            if (resetCounterUponRollup) {
+                synchronized (this) {
+                    long total = this.counter.sum();
+                    value = total - counterAtLastRollup;
+                    counterAtLastRollup = total;
+                }
+            } else {
+                value = this.value.get();
+            }
             return recordStatisticsForLastSecond(statisticsFor(value));
         }
     }
@@ -614,6 +697,7 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
         private final TimeUnit timeUnit;
         private final int retentionSize;
         private final PriorityBlockingQueue<DurationActivity> largestDurations;
+        private final LatencyHistogram allDurations;
 
         protected DurationHistory( TimeUnit timeUnit,
                                    int retentionSize ) {
@@ -622,6 +706,7 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
             this.timeUnit = timeUnit;
             this.retentionSize = retentionSize;
             this.largestDurations = new PriorityBlockingQueue<DurationActivity>(this.retentionSize + 5);
+            this.allDurations = new LatencyHistogram(timeUnit);
         }
 
         /**
@@ -658,6 +743,7 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
             int i = 0;
             for (DurationActivity record : records) {
                 values[i++] = record != null ? record.getDuration(TimeUnit.MILLISECONDS) : 0L;
+                if (record != null) allDurations.recordValue(record.getDuration(timeUnit));
                 this.largestDurations.add(record);
                 while (this.largestDurations.size() > this.retentionSize) {
                     this.largestDurations.poll(); // remove the smallest duration from the front of the queue
@@ -672,6 +758,202 @@ public class RepositoryStatistics implements RepositoryMonitor, ChangeSetListene
             List<DurationActivity> records = new ArrayList<DurationActivity>(this.largestDurations);
             return records.toArray(new DurationActivity[records.size()]);
         }
+
+        Percentiles getPercentiles() {
+            return allDurations;
+        }
+    }
+
+    /**
+     * The {@link MetricHistory} specialization used for recording the latencies of frequent operations. The latencies are
+     * recorded into a histogram (without allocating anything), which is swapped with an empty one upon each rollup so that the
+     * statistics for the last interval can be computed and then merged into the histogram of all the recorded latencies.
+     * Latencies which are recorded concurrently with a rollup may occasionally not be accounted for.
+     */
+    @ThreadSafe
+    protected static final class LatencyHistory extends MetricHistory {
+        private final TimeUnit timeUnit;
+        private final AtomicReference<LatencyHistogram> current;
+        private final LatencyHistogram allLatencies;
+
+        protected LatencyHistory( TimeUnit timeUnit ) {
+            this.timeUnit = timeUnit;
+            this.current = new AtomicReference<LatencyHistogram>(new LatencyHistogram(timeUnit));
+            this.allLatencies = new LatencyHistogram(timeUnit);
+        }
+
+        /**
+         * Record a new latency. This method should be as fast as possible, since it is called within production code.
+         * 
+         * @param nanos the latency, in nanoseconds
+         */
+        void recordLatency( long nanos ) {
+            current.get().recordValue(timeUnit.convert(nanos, TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        Window rollup() {
+            LatencyHistogram lastInterval = current.getAndSet(new LatencyHistogram(timeUnit));
+            allLatencies.add(lastInterval);
+            return recordStatisticsForLastSecond(lastInterval.statistics());
+        }
+
+        Percentiles getPercentiles() {
+            return allLatencies;
+        }
+    }
+
+    /**
+     * A lock-free histogram of non-negative values, inspired by <a href="http://hdrhistogram.org">HdrHistogram</a>. The values
+     * are grouped into buckets by their highest bit, and each of these exponential buckets is further divided into
+     * {@value #SUB_BUCKET_HALF_COUNT} linear sub-buckets. This means that a value can always be determined with a relative error
+     * of less than 1/{@value #SUB_BUCKET_HALF_COUNT} (~3%), while recording a value only increments a few counters.
+     * <p>
+     * Values larger than {@value #MAX_VALUE_BITS} bits are recorded as the largest trackable value, which for latencies measured
+     * in microseconds is almost two weeks.
+     * </p>
+     */
+    @ThreadSafe
+    protected static final class LatencyHistogram implements Percentiles {
+        private static final int SUB_BUCKET_BITS = 6;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+        private static final int MAX_VALUE_BITS = 40;
+        private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+        private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+        private final TimeUnit timeUnit;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong minimum = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong maximum = new AtomicLong(0L);
+
+        protected LatencyHistogram( TimeUnit timeUnit ) {
+            this.timeUnit = timeUnit;
+        }
+
+        static int bucketIndex( long value ) {
+            if (value < SUB_BUCKET_COUNT) return (int)value;
+            // the number of low bits which are dropped, so that the remaining value fits the upper half of the sub-buckets ...
+            int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+            int subBucket = (int)(value >>> shift);
+            return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (subBucket - SUB_BUCKET_HALF_COUNT);
+        }
+
+        static long highestValueInBucket( int index ) {
+            if (index < SUB_BUCKET_COUNT) return index;
+            int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+            long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+            return ((subBucket + 1) << shift) - 1;
+        }
+
+        static long middleValueInBucket( int index ) {
+            if (index < SUB_BUCKET_COUNT) return index;
+            int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+            return highestValueInBucket(index) - ((1L << shift) >> 1);
+        }
+
+        void recordValue( long value ) {
+            if (value < 0L) value = 0L;
+            else if (value > MAX_VALUE) value = MAX_VALUE;
+            counts.incrementAndGet(bucketIndex(value));
+            count.increment();
+            total.add(value);
+            updateMinimum(value);
+            updateMaximum(value);
+        }
+
+        void add( LatencyHistogram other ) {
+            long otherCount = 0L;
+            for (int i = 0; i != BUCKET_COUNT; ++i) {
+                long bucketCount = other.counts.get(i);
+                if (bucketCount != 0L) {
+                    counts.addAndGet(i, bucketCount);
+                    otherCount += bucketCount;
+                }
+            }
+            if (otherCount == 0L) return;
+            count.add(otherCount);
+            total.add(other.total.sum());
+            updateMinimum(other.minimum.get());
+            updateMaximum(other.maximum.get());
+        }
+
+        private void updateMinimum( long value ) {
+            long current = minimum.get();
+            while (value < current && !minimum.compareAndSet(current, value)) {
+                current = minimum.get();
+            }
+        }
+
+        private void updateMaximum( long value ) {
+            long current = maximum.get();
+            while (value > current && !maximum.compareAndSet(current, value)) {
+                current = maximum.get();
+            }
+        }
+
+        /**
+         * Compute the statistics for the values recorded in this histogram, with the variance being approximated using the
+         * middle value of each bucket.
+         * 
+         * @return the statistics; never null
+         */
+        Statistics statistics() {
+            long numValues = count.sum();
+            if (numValues == 0L) return EMPTY_STATISTICS;
+            double mean = ((double)total.sum()) / numValues;
+            double variance = 0.0d;
+            for (int i = 0; i != BUCKET_COUNT; ++i) {
+                long bucketCount = counts.get(i);
+                if (bucketCount != 0L) {
+                    double distance = middleValueInBucket(i) - mean;
+                    variance += bucketCount * distance * distance;
+                }
+            }
+            int intCount = (int)Math.min(numValues, Integer.MAX_VALUE);
+            return new StatisticsImpl(intCount, minimum.get(), maximum.get(), mean, variance / numValues);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getValueAtPercentile( double percentile,
+                                          TimeUnit unit ) {
+            long numValues = 0L;
+            long[] snapshot = new long[BUCKET_COUNT];
+            for (int i = 0; i != BUCKET_COUNT; ++i) {
+                snapshot[i] = counts.get(i);
+                numValues += snapshot[i];
+            }
+            if (numValues == 0L) return 0L;
+            double fraction = Math.min(Math.max(percentile, 0.0d), 100.0d) / 100.0d;
+            long rank = Math.max(1L, (long)Math.ceil(fraction * numValues));
+            long seen = 0L;
+            for (int i = 0; i != BUCKET_COUNT; ++i) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return unit.convert(Math.min(highestValueInBucket(i), maximum.get()), timeUnit);
+                }
+            }
+            return getMaximum(unit);
+        }
+
+        @Override
+        public long getMaximum( TimeUnit unit ) {
+            return unit.convert(maximum.get(), timeUnit);
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + ", p50=" + getValueAtPercentile(50.0d, timeUnit) + ", p99="
+                   + getValueAtPercentile(99.0d, timeUnit) + ", max=" + getMaximum(timeUnit) + " ("
+                   + timeUnit.name().toLowerCase() + ")";
+        }
     }
 
     /**
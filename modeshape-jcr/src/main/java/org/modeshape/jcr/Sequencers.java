@@ -24,7 +24,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,6 +54,7 @@ import org.modeshape.jcr.cache.change.PropertyChanged;
 import org.modeshape.jcr.cache.change.WorkspaceAdded;
 import org.modeshape.jcr.cache.change.WorkspaceRemoved;
 import org.modeshape.jcr.sequencer.InvalidSequencerPathExpression;
+import org.modeshape.jcr.sequencer.PathExpressionTrie;
 import org.modeshape.jcr.sequencer.SequencerPathExpression;
 import org.modeshape.jcr.sequencer.SequencerPathExpression.Matcher;
 import org.modeshape.jcr.value.Name;
@@ -84,7 +84,7 @@ public class Sequencers implements ChangeSetListener {
     private final Collection<Component> components;
     private final Lock configChangeLock = new ReentrantLock();
     private final Map<UUID, Collection<SequencerPathExpression>> pathExpressionsBySequencerId;
-    private volatile Map<String, Collection<SequencingConfiguration>> configByWorkspaceName;
+    private volatile Map<String, PathExpressionTrie<SequencingConfiguration>> configByWorkspaceName;
     private final String systemWorkspaceKey;
     private final String processId;
     private final ValueFactory<String> stringFactory;
@@ -275,14 +275,14 @@ public class Sequencers implements ChangeSetListener {
             // No sequencers for the system workspace!
             return;
         }
-        Collection<SequencingConfiguration> configs = new LinkedList<SequencingConfiguration>();
+        PathExpressionTrie<SequencingConfiguration> configs = new PathExpressionTrie<>();
         // Go through the sequencers to see which apply to this workspace ...
         for (Sequencer sequencer : sequencersById.values()) {
             boolean updated = false;
             for (SequencerPathExpression expression : pathExpressionsBySequencerId.get(sequencer.getUniqueId())) {
                 if (expression.appliesToWorkspace(workspaceName)) {
                     updated = true;
-                    configs.add(new SequencingConfiguration(expression, sequencer));
+                    configs.add(expression, new SequencingConfiguration(expression, sequencer));
                 }
             }
             if (DEBUG && updated) {
@@ -295,8 +295,8 @@ public class Sequencers implements ChangeSetListener {
         try {
             configChangeLock.lock();
             // Make a copy of the existing map ...
-            Map<String, Collection<SequencingConfiguration>> configByWorkspaceName = new HashMap<String, Collection<SequencingConfiguration>>(
-                                                                                                                                              this.configByWorkspaceName);
+            Map<String, PathExpressionTrie<SequencingConfiguration>> configByWorkspaceName = new HashMap<>(
+                                                                                                           this.configByWorkspaceName);
             // Insert the new information ...
             configByWorkspaceName.put(workspaceName, configs);
             // Replace the exisiting map (which is used without a lock) ...
@@ -316,8 +316,8 @@ public class Sequencers implements ChangeSetListener {
         try {
             configChangeLock.lock();
             // Make a copy of the existing map ...
-            Map<String, Collection<SequencingConfiguration>> configByWorkspaceName = new HashMap<String, Collection<SequencingConfiguration>>(
-                                                                                                                                              this.configByWorkspaceName);
+            Map<String, PathExpressionTrie<SequencingConfiguration>> configByWorkspaceName = new HashMap<>(
+                                                                                                           this.configByWorkspaceName);
             // Insert the new information ...
             if (configByWorkspaceName.remove(workspaceName) != null) {
                 // Replace the exisiting map (which is used without a lock) ...
@@ -435,7 +435,7 @@ public class Sequencers implements ChangeSetListener {
         }
 
         final String workspaceName = changeSet.getWorkspaceName();
-        final Collection<SequencingConfiguration> configs = this.configByWorkspaceName.get(workspaceName);
+        final PathExpressionTrie<SequencingConfiguration> configs = this.configByWorkspaceName.get(workspaceName);
         if (configs == null) {
             // No sequencers apply to this workspace ...
             return;
@@ -448,10 +448,19 @@ public class Sequencers implements ChangeSetListener {
                 if (change instanceof PropertyAdded) {
                     PropertyAdded added = (PropertyAdded)change;
                     Path nodePath = added.getPathToNode();
-                    String strPath = stringFactory.create(nodePath);
                     Name propName = added.getProperty().getName();
+                    // Find the sequencers whose path expressions may match, before building any strings ...
+                    List<SequencingConfiguration> candidates = configs.candidates(nodePath, propName);
+                    if (candidates.isEmpty()) {
+                        if (TRACE) {
+                            LOGGER.trace("Added property '{1}:{0}' in repository '{2}' did not match any sequencer",
+                                         added.getPath(), workspaceName, repository.name());
+                        }
+                        continue;
+                    }
+                    String strPath = stringFactory.create(nodePath);
                     // Check if the property is sequencable ...
-                    for (SequencingConfiguration config : configs) {
+                    for (SequencingConfiguration config : candidates) {
                         Matcher matcher = config.matches(strPath, propName);
                         if (!matcher.matches()) {
                             if (TRACE) {
@@ -472,10 +481,19 @@ public class Sequencers implements ChangeSetListener {
                 } else if (change instanceof PropertyChanged) {
                     PropertyChanged changed = (PropertyChanged)change;
                     Path nodePath = changed.getPathToNode();
-                    String strPath = stringFactory.create(nodePath);
                     Name propName = changed.getNewProperty().getName();
+                    // Find the sequencers whose path expressions may match, before building any strings ...
+                    List<SequencingConfiguration> candidates = configs.candidates(nodePath, propName);
+                    if (candidates.isEmpty()) {
+                        if (TRACE) {
+                            LOGGER.trace("Changed property '{1}:{0}' in repository '{2}' did not match any sequencer",
+                                         changed.getPath(), workspaceName, repository.name());
+                        }
+                        continue;
+                    }
+                    String strPath = stringFactory.create(nodePath);
                     // Check if the property is sequencable ...
-                    for (SequencingConfiguration config : configs) {
+                    for (SequencingConfiguration config : candidates) {
                         Matcher matcher = config.matches(strPath, propName);
                         if (!matcher.matches()) {
                             if (TRACE) {
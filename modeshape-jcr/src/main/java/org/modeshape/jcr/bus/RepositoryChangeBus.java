@@ -22,6 +22,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import org.modeshape.common.collection.ring.OverflowPolicy;
 import org.modeshape.common.collection.ring.RingBuffer;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.jcr.RepositoryStatistics;
@@ -86,6 +87,7 @@ public final class RepositoryChangeBus implements ChangeBus {
                                                      .ofSize(bufferSize)
                                                      .named(repositoryName)
                                                      .garbageCollect(true)
+                                                     .onOverflow(OverflowPolicy.ISOLATE_SLOW_CONSUMERS)
                                                      .build();
         this.statistics = statistics;
     }
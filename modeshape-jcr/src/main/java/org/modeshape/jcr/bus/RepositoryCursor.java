@@ -15,17 +15,17 @@
  */
 package org.modeshape.jcr.bus;
 
-import org.modeshape.common.collection.ring.SingleProducerCursor;
+import org.modeshape.common.collection.ring.MultiProducerCursor;
 import org.modeshape.common.collection.ring.WaitStrategy;
 import org.modeshape.jcr.RepositoryStatistics;
 import org.modeshape.jcr.api.monitor.ValueMetric;
 
 /**
- * An extension to the {@link SingleProducerCursor} cursor which adds some functionality required by the repository.
+ * An extension to the {@link MultiProducerCursor} cursor which adds some functionality required by the repository.
  * 
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
-public final class RepositoryCursor extends SingleProducerCursor {
+public final class RepositoryCursor extends MultiProducerCursor {
 
     private final RepositoryStatistics statistics;
 
@@ -203,6 +203,15 @@ public interface CachedNode {
      */
     Iterator<Property> getProperties( NodeCache cache );
 
+    /**
+     * Get an iterator over the names of all of the node's properties. Unlike {@link #getProperties(NodeCache)}, this does not
+     * require the values of the properties to be loaded.
+     * 
+     * @param cache the cache to which this node belongs, required in case this node needs to use the cache; may not be null
+     * @return the iterator over the property names; never null but possibly empty
+     */
+    Iterator<Name> getPropertyNames( NodeCache cache );
+
     /**
      * Get an iterator over all of the properties of this node that have names matching at least one of the supplied patterns.
      * 
@@ -19,7 +19,7 @@ import org.modeshape.common.annotation.Immutable;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.NamespaceRegistry;
 import org.modeshape.jcr.value.Path.Segment;
-import org.modeshape.jcr.value.basic.BasicPathSegment;
+import org.modeshape.jcr.value.basic.InternTable;
 
 /**
  * An immutable reference to a child node.
@@ -34,7 +34,7 @@ public class ChildReference implements Comparable<ChildReference> {
                            Name name,
                            int snsIndex ) {
         this.key = key;
-        this.segment = new BasicPathSegment(name, snsIndex);
+        this.segment = InternTable.segment(name, snsIndex);
     }
 
     public ChildReference( NodeKey key,
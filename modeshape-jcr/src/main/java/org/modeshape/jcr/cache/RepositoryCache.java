@@ -23,6 +23,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -50,6 +51,7 @@ import org.modeshape.jcr.cache.change.RecordingChanges;
 import org.modeshape.jcr.cache.change.RepositoryMetadataChanged;
 import org.modeshape.jcr.cache.change.WorkspaceAdded;
 import org.modeshape.jcr.cache.change.WorkspaceRemoved;
+import org.modeshape.jcr.cache.document.DirtyChildBlocks;
 import org.modeshape.jcr.cache.document.DocumentOptimizer;
 import org.modeshape.jcr.cache.document.DocumentStore;
 import org.modeshape.jcr.cache.document.DocumentTranslator;
@@ -58,6 +60,7 @@ import org.modeshape.jcr.cache.document.LocalDocumentStore.DocumentOperationResu
 import org.modeshape.jcr.cache.document.ReadOnlySessionCache;
 import org.modeshape.jcr.cache.document.TransactionalWorkspaceCaches;
 import org.modeshape.jcr.cache.document.WorkspaceCache;
+import org.modeshape.jcr.cache.document.WorkspaceCloner;
 import org.modeshape.jcr.cache.document.WritableSessionCache;
 import org.modeshape.jcr.federation.FederatedDocumentStore;
 import org.modeshape.jcr.locking.LockingService;
@@ -84,6 +87,8 @@ public class RepositoryCache {
 
     private static final Logger LOGGER = Logger.getLogger(RepositoryCache.class);
 
+    private static final String CLONING_POOL_NAME = "modeshape-workspace-cloning";
+    private static final String OPTIMIZATION_POOL_NAME = "modeshape-opt-workers";
     private static final String SYSTEM_METADATA_IDENTIFIER = "jcr:system/mode:metadata";
     private static final String REPOSITORY_NAME_FIELD_NAME = "repositoryName";
     private static final String REPOSITORY_KEY_FIELD_NAME = "repositoryKey";
@@ -1051,7 +1056,10 @@ public class RepositoryCache {
      * @param targetCountPerBlock the target number of children per block
      * @param tolerance the allowed tolerance between the target and actual number of children per block
      * @return the results of the optimization; never null
+     * @deprecated reads every document in the repository; use {@link #optimizeDirtyChildren(int, int)}, which only optimizes the
+     *             nodes whose children changed since the last optimization
      */
+    @Deprecated
     public DocumentOperationResults optimizeChildren( final int targetCountPerBlock,
                                                       final int tolerance ) {
         Stopwatch sw = new Stopwatch();
@@ -1072,6 +1080,89 @@ public class RepositoryCache {
         return null;
     }
 
+    /**
+     * Optimize the blocks of children of those nodes whose children were changed beyond the configured child count target and
+     * tolerance since the last optimization. Each node is optimized in its own transaction, so this method must not be called
+     * from within a transactional context.
+     *
+     * @param workers the number of nodes whose children are optimized in parallel; must be positive
+     * @param maxNodesPerSecond the maximum number of nodes that are optimized per second, or 0 if the rate is not limited
+     * @return the results of the optimization; null if document optimization is not enabled or if there was an error
+     */
+    public DocumentOperationResults optimizeDirtyChildren( final int workers,
+                                                           final int maxNodesPerSecond ) {
+        DirtyChildBlocks dirtyChildBlocks = repositoryEnvironment.dirtyChildBlocks();
+        if (dirtyChildBlocks == null) {
+            return null;
+        }
+        Stopwatch sw = new Stopwatch();
+        logger.info(JcrI18n.beginChildrenOptimization, getName());
+        sw.start();
+        
+        try {
+            ExecutorService executor = context.getCachedTreadPool(OPTIMIZATION_POOL_NAME, workers);
+            DocumentOperationResults results = dirtyChildBlocks.optimize(localStore(), executor, workers, maxNodesPerSecond);
+            sw.stop();
+            logger.info(JcrI18n.completeChildrenOptimization, getName(), sw.getTotalDuration().toSimpleString(), results);
+            return results;
+        } catch (Throwable e) {
+            logger.info(JcrI18n.errorDuringChildrenOptimization, getName(), sw.getTotalDuration().toSimpleString(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Clone the entire content of one workspace into another, empty workspace by copying the persisted documents directly in the
+     * document store, rather than by materializing all the nodes in a session. The content is read and written in batches of
+     * the supplied size, each in its own transaction, by several threads in parallel.
+     * <p>
+     * Note that no node events are fired for the cloned content, so the caller is responsible for reindexing the target
+     * workspace. This method must not be used if either workspace contains external (federated) content.
+     * </p>
+     *
+     * @param sourceWorkspaceName the name of the workspace whose content is to be cloned; may not be null
+     * @param targetWorkspaceName the name of the workspace into which the content is to be cloned; may not be null
+     * @param batchSize the maximum number of nodes read and written in a single transaction; must be positive
+     * @return true if the content was cloned, or false if the target workspace is not empty and therefore cannot be the target
+     *         of a clone
+     * @throws WorkspaceNotFoundException if either of the workspaces does not exist
+     */
+    public boolean cloneWorkspace( String sourceWorkspaceName,
+                                   String targetWorkspaceName,
+                                   int batchSize ) {
+        WorkspaceCache sourceCache = workspace(sourceWorkspaceName);
+        WorkspaceCache targetCache = workspace(targetWorkspaceName);
+        WorkspaceCloner cloner = new WorkspaceCloner(localStore(), translator, context.getThreadPool(CLONING_POOL_NAME),
+                                                     batchSize, sourceCache.getRootKey(), targetCache.getRootKey(),
+                                                     getSystemWorkspaceKey());
+        if (!cloner.isTargetEmpty(systemKey)) {
+            return false;
+        }
+        Stopwatch sw = new Stopwatch();
+        sw.start();
+        Set<NodeKey> changedSystemKeys = cloner.cloneContent();
+        sw.stop();
+
+        // Evict the changed nodes from the caches (here and in other processes) ...
+        targetCache.changed(changesFor(targetWorkspaceName, Collections.unmodifiableSet(targetCache.getRootKey())));
+        if (!changedSystemKeys.isEmpty()) {
+            workspace(systemWorkspaceName).changed(changesFor(systemWorkspaceName, changedSystemKeys));
+        }
+        logger.info(JcrI18n.workspaceCloned, cloner.getNodeCount(), sourceWorkspaceName, targetWorkspaceName, getName(),
+                    sw.getTotalDuration().toSimpleString());
+        return true;
+    }
+
+    private ChangeSet changesFor( String workspaceName,
+                                  Set<NodeKey> changedNodes ) {
+        RecordingChanges changes = new RecordingChanges(context.getId(), context.getProcessId(), this.getKey(), workspaceName,
+                                                        repositoryEnvironment.journalId());
+        changes.setChangedNodes(changedNodes);
+        changes.freeze(context.getSecurityContext().getUserName(), context.getData(),
+                       context.getValueFactories().getDateFactory().create());
+        return changes;
+    }
+
     @Override
     public String toString() {
         return name;
@@ -0,0 +1,345 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.cache.document;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.document.LocalDocumentStore.DocumentOperationResults;
+import org.modeshape.jcr.txn.Transactions;
+import org.modeshape.schematic.SchematicEntry;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableDocument;
+
+/**
+ * The persisted set of parent nodes whose blocks of children have grown or shrunk beyond the target number of children per
+ * block (plus or minus the tolerance) since they were last optimized.
+ * <p>
+ * Sessions {@link #needsOptimization(Document, boolean, DocumentStore) check} each parent whose children they change and
+ * {@link #markDirty(LocalDocumentStore, Transactions.Transaction, Collection) mark} those that crossed a threshold as part of
+ * the save. The {@link DocumentOptimizer} then only needs to {@link #optimize visit} the marked parents, rather than every
+ * document in the repository.
+ * </p>
+ * <p>
+ * The set is spread over several shard documents, so that concurrent saves marking different parents rarely lock the same
+ * document. Each marked parent is recorded with a stamp that is incremented every time the parent is marked, which allows the
+ * optimizer to remove only those entries that were not marked again while their parent was being optimized. Parents that are
+ * known (within this process) to be marked already are not marked again until they are optimized.
+ * </p>
+ */
+@ThreadSafe
+public class DirtyChildBlocks implements DocumentConstants {
+
+    private static final Logger LOGGER = Logger.getLogger(DirtyChildBlocks.class);
+
+    /**
+     * The prefix of the keys of the documents holding the dirty parents.
+     */
+    public static final String KEY_PREFIX = "repository:dirtyChildBlocks:";
+
+    protected static final int SHARD_COUNT = 16;
+    protected static final String PARENTS = "parents";
+
+    private final int targetCountPerBlock;
+    private final int tolerance;
+    private final Set<String> knownDirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a new set of dirty parents, using the supplied thresholds.
+     *
+     * @param targetCountPerBlock the target number of children per block; must be positive
+     * @param tolerance the allowed tolerance between the target and actual number of children per block; may not be negative
+     */
+    public DirtyChildBlocks( int targetCountPerBlock,
+                             int tolerance ) {
+        CheckArg.isPositive(targetCountPerBlock, "targetCountPerBlock");
+        CheckArg.isNonNegative(tolerance, "tolerance");
+        this.targetCountPerBlock = targetCountPerBlock;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Get the target number of children per block.
+     *
+     * @return the target; always positive
+     */
+    public int getTargetCountPerBlock() {
+        return targetCountPerBlock;
+    }
+
+    /**
+     * Get the allowed tolerance between the target and actual number of children per block.
+     *
+     * @return the tolerance; never negative
+     */
+    public int getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Determine whether the blocks of children of the node with the supplied (already changed) document are outside of the
+     * target range, and should therefore be optimized. Only the first and the last block are examined, since these are the only
+     * blocks that can grow; when children were removed, a multi-block node is always considered dirty since any of its blocks
+     * might have shrunk.
+     *
+     * @param document the first document of the node; may not be null
+     * @param childrenRemoved true if children were removed from the node, or false if children were only appended
+     * @param documentStore the store used to read the last block of children; may not be null
+     * @return true if the node's children should be optimized, or false otherwise
+     */
+    public boolean needsOptimization( Document document,
+                                      boolean childrenRemoved,
+                                      DocumentStore documentStore ) {
+        List<?> children = document.getArray(CHILDREN);
+        if (children == null) {
+            return false;
+        }
+        Document info = document.getDocument(CHILDREN_INFO);
+        String nextKey = info != null ? info.getString(NEXT_BLOCK) : null;
+        if (isOutOfRange(children.size(), nextKey != null)) {
+            return true;
+        }
+        if (nextKey == null) {
+            // This is a self-contained block ...
+            return false;
+        }
+        if (childrenRemoved) {
+            return true;
+        }
+        // Children are only ever appended to the last block ...
+        String lastKey = info.getString(LAST_BLOCK);
+        SchematicEntry lastBlock = lastKey != null ? documentStore.get(lastKey) : null;
+        if (lastBlock == null) {
+            return false;
+        }
+        List<?> lastChildren = lastBlock.content().getArray(CHILDREN);
+        return lastChildren != null && isOutOfRange(lastChildren.size(), false);
+    }
+
+    private boolean isOutOfRange( int blockSize,
+                                  boolean hasNextBlock ) {
+        return blockSize > targetCountPerBlock + tolerance || (hasNextBlock && blockSize < targetCountPerBlock - tolerance);
+    }
+
+    /**
+     * Mark the supplied parents as dirty. This must be called within the transaction which changed the parents' children, and
+     * the marks are persisted when that transaction is committed. If a shard document cannot be locked, the parents belonging to
+     * that shard are not marked; they will be marked again the next time their children are changed.
+     *
+     * @param documentStore the local document store; may not be null
+     * @param transaction the current transaction; may not be null
+     * @param parentKeys the keys of the parents whose children should be optimized; may not be null
+     */
+    public void markDirty( LocalDocumentStore documentStore,
+                           Transactions.Transaction transaction,
+                           Collection<String> parentKeys ) {
+        // Group the parents which are not already marked by shard, ordering the shards to always lock them in the same order ...
+        Map<String, List<String>> parentsByShard = new TreeMap<>();
+        for (String parentKey : parentKeys) {
+            if (!knownDirty.contains(parentKey)) {
+                parentsByShard.computeIfAbsent(shardKey(parentKey), shard -> new ArrayList<>()).add(parentKey);
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : parentsByShard.entrySet()) {
+            String shardKey = entry.getKey();
+            if (!documentStore.lockDocuments(shardKey)) {
+                LOGGER.debug("Unable to lock '{0}', so the children of {1} will not be optimized", shardKey, entry.getValue());
+                continue;
+            }
+            EditableDocument parents = documentStore.edit(shardKey, true).getOrCreateDocument(PARENTS);
+            for (String parentKey : entry.getValue()) {
+                parents.setNumber(parentKey, parents.getLong(parentKey, 0L) + 1L);
+            }
+            final List<String> marked = entry.getValue();
+            transaction.uponCommit(() -> knownDirty.addAll(marked));
+        }
+    }
+
+    /**
+     * Optimize the children of all the dirty parents, using the supplied number of workers and without exceeding the supplied
+     * rate. Each parent is optimized in its own transaction, and is removed from the set once its blocks are within the target
+     * range. Parents which are marked while this method is running will be optimized by the next call.
+     *
+     * @param documentStore the local document store; may not be null
+     * @param executor the executor used to run the workers; may not be null
+     * @param workers the number of parents which are optimized in parallel; must be positive
+     * @param maxParentsPerSecond the maximum number of parents that are optimized per second, or 0 if the rate is not limited
+     * @return the results of the optimization; never null
+     */
+    public DocumentOperationResults optimize( final LocalDocumentStore documentStore,
+                                              ExecutorService executor,
+                                              int workers,
+                                              int maxParentsPerSecond ) {
+        CheckArg.isPositive(workers, "workers");
+        CheckArg.isNonNegative(maxParentsPerSecond, "maxParentsPerSecond");
+
+        // Read the stamps of all the dirty parents ...
+        final Map<String, Long> stampsByParent = new HashMap<>();
+        for (int shard = 0; shard != SHARD_COUNT; ++shard) {
+            SchematicEntry entry = documentStore.get(KEY_PREFIX + shard);
+            Document parents = entry != null ? entry.content().getDocument(PARENTS) : null;
+            if (parents != null) {
+                for (String parentKey : parents.keySet()) {
+                    stampsByParent.put(parentKey, parents.getLong(parentKey, 0L));
+                }
+            }
+        }
+        DocumentOperationResults results = new DocumentOperationResults();
+        if (stampsByParent.isEmpty()) {
+            return results;
+        }
+
+        final ConcurrentLinkedQueue<String> remaining = new ConcurrentLinkedQueue<>(stampsByParent.keySet());
+        final ConcurrentMap<String, Long> optimized = new ConcurrentHashMap<>();
+        final DocumentOptimizer optimizer = new DocumentOptimizer(documentStore);
+        final Throttle throttle = new Throttle(maxParentsPerSecond);
+        List<Future<DocumentOperationResults>> futures = new ArrayList<>(workers);
+        for (int i = 0; i != workers; ++i) {
+            futures.add(executor.submit(() -> optimizeEach(documentStore, optimizer, throttle, remaining, stampsByParent,
+                                                           optimized)));
+        }
+        for (Future<DocumentOperationResults> future : futures) {
+            try {
+                results.combine(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                LOGGER.debug(e.getCause(), "Error while optimizing the children of dirty parents");
+                results.recordFailure();
+            }
+        }
+        unmark(documentStore, optimized);
+        return results;
+    }
+
+    private DocumentOperationResults optimizeEach( LocalDocumentStore documentStore,
+                                                   DocumentOptimizer optimizer,
+                                                   Throttle throttle,
+                                                   ConcurrentLinkedQueue<String> remaining,
+                                                   Map<String, Long> stampsByParent,
+                                                   ConcurrentMap<String, Long> optimized ) {
+        DocumentOperationResults results = new DocumentOperationResults();
+        String parentKey = null;
+        while ((parentKey = remaining.poll()) != null) {
+            if (!throttle.acquire()) {
+                break;
+            }
+            // Forget the mark first, so that any change made while optimizing marks the parent again ...
+            knownDirty.remove(parentKey);
+            final NodeKey key = new NodeKey(parentKey);
+            try {
+                Boolean changed = documentStore.runInTransaction(() -> optimizer.optimizeChildrenBlocks(key, null,
+                                                                                                        targetCountPerBlock,
+                                                                                                        tolerance), 1);
+                if (Boolean.TRUE.equals(changed)) {
+                    results.recordModified();
+                } else {
+                    results.recordUnmodified();
+                }
+                // Merging blocks may have produced a block that is too large, which is split by the next optimization ...
+                SchematicEntry entry = documentStore.get(parentKey);
+                if (entry == null || !needsOptimization(entry.content(), false, documentStore)) {
+                    optimized.put(parentKey, stampsByParent.get(parentKey));
+                }
+            } catch (Throwable t) {
+                LOGGER.debug(t, "Error while optimizing the children of '{0}'", parentKey);
+                results.recordFailure();
+            }
+        }
+        return results;
+    }
+
+    private void unmark( LocalDocumentStore documentStore,
+                         Map<String, Long> stampsByParent ) {
+        Map<String, Set<String>> parentsByShard = new TreeMap<>();
+        for (String parentKey : stampsByParent.keySet()) {
+            parentsByShard.computeIfAbsent(shardKey(parentKey), shard -> new TreeSet<>()).add(parentKey);
+        }
+        for (Map.Entry<String, Set<String>> entry : parentsByShard.entrySet()) {
+            final String shardKey = entry.getKey();
+            final Set<String> parentKeys = entry.getValue();
+            documentStore.runInTransaction(() -> {
+                EditableDocument shard = documentStore.edit(shardKey, false);
+                EditableDocument parents = shard != null ? shard.getDocument(PARENTS) : null;
+                if (parents != null) {
+                    for (String parentKey : parentKeys) {
+                        // Only remove the parents which were not marked again in the meantime ...
+                        if (parents.getLong(parentKey, 0L) == stampsByParent.get(parentKey).longValue()) {
+                            parents.remove(parentKey);
+                        }
+                    }
+                }
+                return null;
+            }, 1, shardKey);
+        }
+    }
+
+    protected static String shardKey( String parentKey ) {
+        return KEY_PREFIX + ((parentKey.hashCode() & Integer.MAX_VALUE) % SHARD_COUNT);
+    }
+
+    /**
+     * Spaces out the optimization of the parents, shared by all the workers.
+     */
+    protected static final class Throttle {
+        private final long intervalInNanos;
+        private final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+
+        protected Throttle( int maxPerSecond ) {
+            this.intervalInNanos = maxPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxPerSecond : 0L;
+        }
+
+        /**
+         * Wait until the next parent can be optimized.
+         *
+         * @return true if the parent can be optimized, or false if the thread was interrupted
+         */
+        protected boolean acquire() {
+            if (intervalInNanos == 0L) {
+                return true;
+            }
+            long slot = nextSlot.getAndUpdate(next -> Math.max(next, System.nanoTime()) + intervalInNanos);
+            long delay = slot - System.nanoTime();
+            if (delay > 0L) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 import org.modeshape.common.annotation.Immutable;
@@ -82,6 +83,17 @@ import org.modeshape.schematic.document.Null;
  */
 public class DocumentTranslator implements DocumentConstants {
 
+    /**
+     * The default maximum number of referrers which are stored in the document of the referenced node. Nodes with more
+     * referrers store them in separate bucket documents.
+     */
+    public static final int DEFAULT_MAX_INLINE_REFERRERS = 1000;
+
+    /**
+     * The length of the IDs of the buckets in which the referrers of heavily-referenced nodes are stored, as a power of 16.
+     */
+    private static final int REFERRER_BUCKET_ID_LENGTH = 2;
+
     private final DocumentStore documentStore;
     private final AtomicLong largeStringSize = new AtomicLong();
     private final ExecutionContext context;
@@ -101,6 +113,7 @@ public class DocumentTranslator implements DocumentConstants {
     private final ReferenceFactory simplerefs;
     private final TextEncoder encoder = NoOpEncoder.getInstance();
     private final TextDecoder decoder = NoOpEncoder.getInstance();
+    private volatile int maxInlineReferrers = DEFAULT_MAX_INLINE_REFERRERS;
 
     public DocumentTranslator( ExecutionContext context,
                                DocumentStore documentStore,
@@ -126,7 +139,9 @@ public class DocumentTranslator implements DocumentConstants {
     }
 
     public DocumentTranslator withLargeStringSize( long largeStringSize ) {
-        return new DocumentTranslator(context, documentStore, largeStringSize);
+        DocumentTranslator translator = new DocumentTranslator(context, documentStore, largeStringSize);
+        translator.maxInlineReferrers = this.maxInlineReferrers;
+        return translator;
     }
 
     public final ValueFactory<String> getStringFactory() {
@@ -253,6 +268,34 @@ public class DocumentTranslator implements DocumentConstants {
         }
     }
 
+    /**
+     * Get the names of the properties in the supplied document, without converting any of the property values.
+     *
+     * @param document the node document; may not be null
+     * @return the names of the properties; never null but possibly empty
+     */
+    public Iterator<Name> getPropertyNames( Document document ) {
+        // Get the properties container ...
+        Document properties = document.getDocument(PROPERTIES);
+        if (properties == null) {
+            return Collections.<Name>emptyIterator();
+        }
+
+        List<Name> result = new ArrayList<>();
+        for (Field nsField : properties.fields()) {
+            String namespaceUri = nsField.getName();
+            Document urlProps = nsField.getValueAsDocument();
+            if (urlProps != null) {
+                for (Field propField : urlProps.fields()) {
+                    if (!Null.matches(propField.getValue())) {
+                        result.add(names.create(namespaceUri, propField.getName()));
+                    }
+                }
+            }
+        }
+        return result.iterator();
+    }
+
     public int countProperties( Document document ) {
         // Get the properties container ...
         Document properties = document.getDocument(PROPERTIES);
@@ -988,6 +1031,21 @@ public class DocumentTranslator implements DocumentConstants {
 
         // Get the NodeKeys in the respective arrays ...
         Set<NodeKey> result = new HashSet<NodeKey>();
+        Integer bucketIdLength = referrers.getInteger(BUCKET_ID_LENGTH);
+        if (bucketIdLength == null) {
+            collectReferrers(referrers, type, result);
+            return result;
+        }
+        // The referrers are stored in buckets ...
+        for (Document bucket : referrerBuckets(referrers.getString(KEY))) {
+            collectReferrers(bucket, type, result);
+        }
+        return result;
+    }
+
+    private void collectReferrers( Document referrers,
+                                   ReferenceType type,
+                                   Set<NodeKey> result ) {
         if (type != ReferenceType.WEAK) {
             Document strong = referrers.getDocument(STRONG);
             if (strong != null) {
@@ -1004,7 +1062,6 @@ public class DocumentTranslator implements DocumentConstants {
                 }
             }
         }
-        return result;
     }
 
     public Map<NodeKey, Integer> getReferrerCounts( Document document,
@@ -1017,6 +1074,21 @@ public class DocumentTranslator implements DocumentConstants {
 
         // Get the NodeKeys in the respective arrays ...
         Map<NodeKey, Integer> result = new HashMap<>();
+        Integer bucketIdLength = referrers.getInteger(BUCKET_ID_LENGTH);
+        if (bucketIdLength == null) {
+            collectReferrerCounts(referrers, type, result);
+            return result;
+        }
+        // The referrers are stored in buckets ...
+        for (Document bucket : referrerBuckets(referrers.getString(KEY))) {
+            collectReferrerCounts(bucket, type, result);
+        }
+        return result;
+    }
+
+    private void collectReferrerCounts( Document referrers,
+                                        ReferenceType type,
+                                        Map<NodeKey, Integer> result ) {
         if (type == ReferenceType.STRONG || type == ReferenceType.BOTH) {
             Document strong = referrers.getDocument(STRONG);
             if (strong != null) {
@@ -1033,10 +1105,178 @@ public class DocumentTranslator implements DocumentConstants {
                 }
             }
         }
-        return result;
     }
 
+    /**
+     * Determine whether the referrers of the node with the given document are stored in separate bucket documents rather than
+     * in the node's document.
+     *
+     * @param document the document of the node; may not be null
+     * @return true if the referrers are stored in buckets, or false otherwise
+     */
+    public boolean hasBucketedReferrers( Document document ) {
+        Document referrers = document.getDocument(REFERRERS);
+        return referrers != null && referrers.containsField(BUCKET_ID_LENGTH);
+    }
+
+    /**
+     * Get the keys of the bucket documents which hold (or would hold, once the node's referrers are stored in buckets) the
+     * referrers that are changed by the supplied changes.
+     *
+     * @param nodeKey the key of the referenced node; may not be null
+     * @param changes the referrer changes; may not be null
+     * @return the keys of the bucket documents; never null
+     */
+    protected Set<String> referrerBucketKeys( NodeKey nodeKey,
+                                              ReferrerChanges changes ) {
+        Set<String> referrerKeys = new HashSet<>();
+        for (NodeKey referrer : changes.getAddedReferrers(ReferenceType.BOTH)) {
+            referrerKeys.add(referrer.toString());
+        }
+        for (NodeKey referrer : changes.getRemovedReferrers(ReferenceType.BOTH)) {
+            referrerKeys.add(referrer.toString());
+        }
+        return referrerBucketKeys(nodeKey.toString(), referrerKeys);
+    }
+
+    /**
+     * Get the keys of the bucket documents which hold (or would hold, once the node's referrers are stored in buckets) the
+     * supplied referrers, plus the key of the document listing the node's buckets if any of those buckets does not exist yet
+     * (and would therefore have to be added to that list).
+     *
+     * @param nodeKey the key of the referenced node; may not be null
+     * @param referrerKeys the keys of the referrers; may not be null
+     * @return the keys of the documents; never null
+     */
+    protected Set<String> referrerBucketKeys( String nodeKey,
+                                              Collection<String> referrerKeys ) {
+        Set<String> keys = new TreeSet<>();
+        for (String referrerKey : referrerKeys) {
+            keys.add(referrerBucketKey(nodeKey, referrerKey));
+        }
+        // buckets are never removed while the node exists, so a bucket which exists now will still exist once locked ...
+        boolean newBuckets = false;
+        for (String bucketKey : keys) {
+            if (!documentStore.containsKey(bucketKey)) {
+                newBuckets = true;
+                break;
+            }
+        }
+        if (newBuckets) {
+            keys.add(referrerBucketIndexKey(nodeKey));
+        }
+        return keys;
+    }
+
+    protected String referrerBucketKey( String nodeKey,
+                                        String referrerKey ) {
+        return referrerBucketKey(nodeKey, new BucketId(referrerKey, REFERRER_BUCKET_ID_LENGTH));
+    }
+
+    private String referrerBucketKey( String nodeKey,
+                                      BucketId bucketId ) {
+        return nodeKey + "/" + REFERRERS + "/" + bucketId;
+    }
+
+    /**
+     * Get the key of the document which lists the IDs of the existing buckets holding the referrers of a node. The list is not
+     * stored in the node's document, so that adding a bucket never requires changing (and locking) the node.
+     *
+     * @param nodeKey the key of the referenced node; may not be null
+     * @return the key of the document listing the node's buckets; never null
+     */
+    protected String referrerBucketIndexKey( String nodeKey ) {
+        return nodeKey + "/" + REFERRERS;
+    }
+
+    private List<String> existingReferrerBucketKeys( String nodeKey ) {
+        List<String> bucketKeys = new ArrayList<>();
+        SchematicEntry index = documentStore.get(referrerBucketIndexKey(nodeKey));
+        List<?> bucketIds = index != null ? index.content().getArray(BUCKETS) : null;
+        if (bucketIds != null) {
+            for (Object bucketId : bucketIds) {
+                bucketKeys.add(referrerBucketKey(nodeKey, new BucketId(bucketId.toString())));
+            }
+        }
+        return bucketKeys;
+    }
+
+    /**
+     * Get the bucket documents which hold the referrers of a node whose referrers are
+     * {@link #hasBucketedReferrers(Document) bucketed}.
+     *
+     * @param nodeKey the key of the referenced node; may not be null
+     * @return the existing buckets; never null
+     */
+    protected List<Document> referrerBuckets( String nodeKey ) {
+        List<String> bucketKeys = existingReferrerBucketKeys(nodeKey);
+        if (bucketKeys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Document> buckets = new ArrayList<>(bucketKeys.size());
+        for (SchematicEntry entry : documentStore.load(bucketKeys)) {
+            buckets.add(entry.content());
+        }
+        return buckets;
+    }
+
+    /**
+     * Record in the bucket index of the supplied node that the bucket with the given key has been created.
+     *
+     * @param nodeKey the key of the referenced node; may not be null
+     * @param bucketKey the key of the new bucket; may not be null
+     */
+    protected void addReferrerBucketToIndex( String nodeKey,
+                                             String bucketKey ) {
+        documentStore.edit(referrerBucketIndexKey(nodeKey), true).getOrCreateArray(BUCKETS).add(referrerBucketId(bucketKey));
+    }
+
+    /**
+     * Get the ID of the referrer bucket with the supplied key, as recorded in the node's bucket index.
+     *
+     * @param bucketKey the key of the bucket; may not be null
+     * @return the ID of the bucket; never null
+     */
+    protected String referrerBucketId( String bucketKey ) {
+        return bucketKey.substring(bucketKey.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Remove all of the bucket documents which hold the referrers of the node with the given document. This does nothing if
+     * the node's referrers are not stored in buckets.
+     *
+     * @param document the document of the node which is being removed; may not be null
+     */
+    protected void removeReferrerBuckets( Document document ) {
+        Document referrers = document.getDocument(REFERRERS);
+        Integer bucketIdLength = referrers != null ? referrers.getInteger(BUCKET_ID_LENGTH) : null;
+        if (bucketIdLength == null) {
+            return;
+        }
+        String nodeKey = referrers.getString(KEY);
+        for (String bucketKey : existingReferrerBucketKeys(nodeKey)) {
+            documentStore.remove(bucketKey);
+        }
+        documentStore.remove(referrerBucketIndexKey(nodeKey));
+    }
+
+    void setMaxInlineReferrers( int maxInlineReferrers ) {
+        assert maxInlineReferrers > 0;
+        this.maxInlineReferrers = maxInlineReferrers;
+    }
+
+    /**
+     * Apply the referrer changes to the node with the supplied document. The referrers are stored in the node's document until
+     * there are more than {@link #DEFAULT_MAX_INLINE_REFERRERS} (by default) of them, after which they are moved into separate bucket
+     * documents (based on the SHA-1 of each referrer's key) so that adding or removing a referrer only changes a small bucket.
+     * Once the referrers are bucketed, this method does not change the supplied document at all.
+     *
+     * @param document the document of the referenced node; may not be null
+     * @param nodeKey the key of the referenced node; may not be null
+     * @param changes the referrer changes; may not be null
+     */
     public void changeReferrers( EditableDocument document,
+                                 String nodeKey,
                                  ReferrerChanges changes ) {
         if (changes.isEmpty()) {
             // There are no changes requested ...
@@ -1045,6 +1285,11 @@ public class DocumentTranslator implements DocumentConstants {
 
         // Get the properties container ...
         EditableDocument referrers = document.getDocument(REFERRERS);
+        if (referrers != null && referrers.containsField(BUCKET_ID_LENGTH)) {
+            changeBucketedReferrers(nodeKey, changes);
+            return;
+        }
+
         List<NodeKey> strongAdded = changes.getAddedReferrers(ReferenceType.STRONG);
         List<NodeKey> weakAdded = changes.getAddedReferrers(ReferenceType.WEAK);
 
@@ -1065,23 +1310,106 @@ public class DocumentTranslator implements DocumentConstants {
                     weak.set(key.toString(), Collections.frequency(weakAdded, key));
                 }
             }
-            return;
+        } else {
+            // There are already some references, so update them
+            List<NodeKey> strongRemoved = changes.getRemovedReferrers(ReferenceType.STRONG);
+            Map<NodeKey, Integer> strongCount = computeReferrersCountDelta(strongAdded, strongRemoved);
+            if (!strongCount.isEmpty()) {
+                EditableDocument strong = referrers.getOrCreateDocument(STRONG);
+                updateReferrers(strong, strongCount);
+            }
+
+            List<NodeKey> weakRemoved = changes.getRemovedReferrers(ReferenceType.WEAK);
+            Map<NodeKey, Integer> weakCount = computeReferrersCountDelta(weakAdded, weakRemoved);
+            if (!weakCount.isEmpty()) {
+                EditableDocument weak = referrers.getOrCreateDocument(WEAK);
+                updateReferrers(weak, weakCount);
+            }
         }
 
-        // There are already some references, so update them
-        List<NodeKey> strongRemoved = changes.getRemovedReferrers(ReferenceType.STRONG);
-        Map<NodeKey, Integer> strongCount = computeReferrersCountDelta(strongAdded, strongRemoved);
-        if (!strongCount.isEmpty()) {
-            EditableDocument strong = referrers.getOrCreateDocument(STRONG);
-            updateReferrers(strong, strongCount);
+        if (inlineReferrersCount(referrers) > maxInlineReferrers) {
+            moveReferrersToBuckets(document, nodeKey, referrers);
         }
+    }
+
+    private int inlineReferrersCount( Document referrers ) {
+        Document strong = referrers.getDocument(STRONG);
+        Document weak = referrers.getDocument(WEAK);
+        return (strong != null ? strong.size() : 0) + (weak != null ? weak.size() : 0);
+    }
 
-        List<NodeKey> weakRemoved = changes.getRemovedReferrers(ReferenceType.WEAK);
-        Map<NodeKey, Integer> weakCount = computeReferrersCountDelta(weakAdded, weakRemoved);
-        if (!weakCount.isEmpty()) {
-            EditableDocument weak = referrers.getOrCreateDocument(WEAK);
-            updateReferrers(weak, weakCount);
+    private void moveReferrersToBuckets( EditableDocument document,
+                                         String nodeKey,
+                                         EditableDocument referrers ) {
+        // the node is locked, and no other session can be writing into the buckets until this change is committed ...
+        Map<String, EditableDocument> bucketsByKey = new HashMap<>();
+        for (String type : new String[] {STRONG, WEAK}) {
+            Document referrersOfType = referrers.getDocument(type);
+            if (referrersOfType == null) {
+                continue;
+            }
+            for (Field field : referrersOfType.fields()) {
+                String bucketKey = referrerBucketKey(nodeKey, field.getName());
+                EditableDocument bucket = bucketsByKey.get(bucketKey);
+                if (bucket == null) {
+                    bucket = documentStore.edit(bucketKey, true);
+                    bucketsByKey.put(bucketKey, bucket);
+                    addReferrerBucketToIndex(nodeKey, bucketKey);
+                }
+                bucket.getOrCreateDocument(type).set(field.getName(), field.getValue());
+            }
+        }
+        // the node's key is recorded so that the buckets can be found given only the node's document ...
+        document.setDocument(REFERRERS, Schematic.newDocument(BUCKET_ID_LENGTH, REFERRER_BUCKET_ID_LENGTH, KEY, nodeKey));
+    }
+
+    /**
+     * Apply the referrer changes to the buckets of a node whose referrers are {@link #hasBucketedReferrers(Document) bucketed}.
+     *
+     * @param nodeKey the key of the referenced node; may not be null
+     * @param changes the referrer changes; may not be null
+     */
+    protected void changeBucketedReferrers( String nodeKey,
+                                            ReferrerChanges changes ) {
+        Map<String, Map<NodeKey, Integer>> strongCountsByBucket = countDeltasByBucket(nodeKey,
+                                                                                      changes.getAddedReferrers(ReferenceType.STRONG),
+                                                                                      changes.getRemovedReferrers(ReferenceType.STRONG));
+        Map<String, Map<NodeKey, Integer>> weakCountsByBucket = countDeltasByBucket(nodeKey,
+                                                                                    changes.getAddedReferrers(ReferenceType.WEAK),
+                                                                                    changes.getRemovedReferrers(ReferenceType.WEAK));
+        Set<String> bucketKeys = new TreeSet<>(strongCountsByBucket.keySet());
+        bucketKeys.addAll(weakCountsByBucket.keySet());
+        for (String bucketKey : bucketKeys) {
+            // don't acquire a lock since we've already done this at the beginning of the #save
+            if (!documentStore.containsKey(bucketKey)) {
+                addReferrerBucketToIndex(nodeKey, bucketKey);
+            }
+            EditableDocument bucket = documentStore.edit(bucketKey, true);
+            Map<NodeKey, Integer> strongCount = strongCountsByBucket.get(bucketKey);
+            if (strongCount != null) {
+                updateReferrers(bucket.getOrCreateDocument(STRONG), strongCount);
+            }
+            Map<NodeKey, Integer> weakCount = weakCountsByBucket.get(bucketKey);
+            if (weakCount != null) {
+                updateReferrers(bucket.getOrCreateDocument(WEAK), weakCount);
+            }
+        }
+    }
+
+    private Map<String, Map<NodeKey, Integer>> countDeltasByBucket( String nodeKey,
+                                                                    List<NodeKey> addedReferrers,
+                                                                    List<NodeKey> removedReferrers ) {
+        Map<String, Map<NodeKey, Integer>> result = new HashMap<>();
+        for (Map.Entry<NodeKey, Integer> entry : computeReferrersCountDelta(addedReferrers, removedReferrers).entrySet()) {
+            String bucketKey = referrerBucketKey(nodeKey, entry.getKey().toString());
+            Map<NodeKey, Integer> counts = result.get(bucketKey);
+            if (counts == null) {
+                counts = new HashMap<>();
+                result.put(bucketKey, counts);
+            }
+            counts.put(entry.getKey(), entry.getValue());
         }
+        return result;
     }
 
     private void updateReferrers( EditableDocument owningDocument,
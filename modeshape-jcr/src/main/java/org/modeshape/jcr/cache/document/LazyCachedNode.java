@@ -260,12 +260,12 @@ public class LazyCachedNode implements CachedNode {
 
     @Override
     public Name getName( NodeCache cache ) {
-        return parentReferenceToSelf(workspaceCache(cache)).getName();
+        return getSegment(workspaceCache(cache)).getName();
     }
 
     @Override
     public Segment getSegment( NodeCache cache ) {
-        return parentReferenceToSelf(workspaceCache(cache)).getSegment();
+        return getSegment(workspaceCache(cache));
     }
 
     /**
@@ -279,16 +279,24 @@ public class LazyCachedNode implements CachedNode {
      * @see #getPath(NodeCache)
      */
     protected Segment getSegment( WorkspaceCache cache ) {
+        // The last segment of the shared path doesn't require finding our parent's reference to us ...
+        Path path = cache.cachedPath(key);
+        if (path != null) return path.getLastSegment();
         return parentReferenceToSelf(cache).getSegment();
     }
 
     @Override
     public Path getPath( NodeCache cache ) {
         WorkspaceCache wsCache = workspaceCache(cache);
+        Path path = wsCache.cachedPath(key);
+        if (path != null) return path;
+        long stamp = wsCache.pathStamp();
         CachedNode parent = parent(wsCache);
         if (parent != null) {
             Path parentPath = parent.getPath(wsCache);
-            return wsCache.pathFactory().create(parentPath, getSegment(wsCache));
+            path = wsCache.pathFactory().create(parentPath, getSegment(wsCache));
+            wsCache.cachePath(this, stamp, path);
+            return path;
         }
         // check that the node hasn't been removed in the meantime
         if (wsCache.getNode(key) == null) {
@@ -302,10 +310,15 @@ public class LazyCachedNode implements CachedNode {
     public Path getPath( PathCache pathCache ) throws NodeNotFoundException {
         NodeCache cache = pathCache.getCache();
         WorkspaceCache wsCache = workspaceCache(cache);
+        Path path = wsCache.cachedPath(key);
+        if (path != null) return path;
+        long stamp = wsCache.pathStamp();
         CachedNode parent = parent(wsCache);
         if (parent != null) {
             Path parentPath = pathCache.getPath(parent);
-            return wsCache.pathFactory().create(parentPath, getSegment(wsCache));
+            path = wsCache.pathFactory().create(parentPath, getSegment(wsCache));
+            wsCache.cachePath(this, stamp, path);
+            return path;
         }
         // check that the node hasn't been removed in the meantime
         if (wsCache.getNode(key) == null) {
@@ -318,6 +331,8 @@ public class LazyCachedNode implements CachedNode {
     @Override
     public int getDepth( NodeCache cache ) throws NodeNotFoundException {
         WorkspaceCache wsCache = workspaceCache(cache);
+        Path path = wsCache.cachedPath(key);
+        if (path != null) return path.size();
         CachedNode parent = parent(wsCache);
         if (parent != null) {
             // This is not the root, so get our parent's depth and add 1 ...
@@ -399,21 +414,17 @@ public class LazyCachedNode implements CachedNode {
     }
 
     @Override
-    public Properties getPropertiesByName( NodeCache cache ) {
-        if (!propertiesFullyLoaded) {
-            WorkspaceCache wsCache = workspaceCache(cache);
-            wsCache.translator().getProperties(document(), properties());
-            this.propertiesFullyLoaded = true;
-        }
+    public Properties getPropertiesByName( final NodeCache cache ) {
+        // Don't load all the properties, since callers often only look up a few of them ...
         return new Properties() {
             @Override
             public Property getProperty( Name name ) {
-                return properties().get(name);
+                return LazyCachedNode.this.getProperty(name, cache);
             }
 
             @Override
             public Iterator<Property> iterator() {
-                return properties().values().iterator();
+                return getProperties(cache);
             }
         };
     }
@@ -428,15 +439,39 @@ public class LazyCachedNode implements CachedNode {
         return properties().values().iterator();
     }
 
+    @Override
+    public Iterator<Name> getPropertyNames( NodeCache cache ) {
+        if (propertiesFullyLoaded) return properties().keySet().iterator();
+        WorkspaceCache wsCache = workspaceCache(cache);
+        return wsCache.translator().getPropertyNames(document());
+    }
+
     @Override
     public Iterator<Property> getProperties( Collection<?> namePatterns,
                                              NodeCache cache ) {
-        WorkspaceCache wsCache = workspaceCache(cache);
+        final WorkspaceCache wsCache = workspaceCache(cache);
         final NamespaceRegistry registry = wsCache.context().getNamespaceRegistry();
-        return new PatternIterator<Property>(getProperties(wsCache), namePatterns) {
+        // Match the names first, so that only the values of the matching properties are loaded ...
+        final Iterator<Name> names = new PatternIterator<Name>(getPropertyNames(wsCache), namePatterns) {
+            @Override
+            protected String matchable( Name value ) {
+                return value.getString(registry);
+            }
+        };
+        return new Iterator<Property>() {
+            @Override
+            public boolean hasNext() {
+                return names.hasNext();
+            }
+
+            @Override
+            public Property next() {
+                return getProperty(names.next(), wsCache);
+            }
+
             @Override
-            protected String matchable( Property value ) {
-                return value.getName().getString(registry);
+            public void remove() {
+                throw new UnsupportedOperationException();
             }
         };
     }
@@ -378,6 +378,32 @@ public class SessionNode implements MutableCachedNode {
         return false;
     }
 
+    /**
+     * Determine whether the only changes to this node are the additions or removals of referrers, which may not require
+     * changing the node's document at all.
+     *
+     * @return true if this node has referrer changes and no other changes, or false otherwise
+     */
+    public boolean hasOnlyReferrerChanges() {
+        if (isNew) return false;
+        if (newParent != null) return false;
+        if (!changedProperties.isEmpty()) return false;
+        if (!removedProperties.isEmpty()) return false;
+        ChangedChildren changedChildren = changedChildren();
+        if (changedChildren != null && !changedChildren.isEmpty()) return false;
+        MutableChildReferences childRefChanges = appended(false);
+        if (childRefChanges != null && !childRefChanges.isEmpty()) return false;
+        ChangedAdditionalParents additionalParents = additionalParents();
+        if (additionalParents != null && !additionalParents.isEmpty()) return false;
+        MixinChanges mixinChanges = mixinChanges(false);
+        if (mixinChanges != null && !mixinChanges.isEmpty()) return false;
+        if (federatedSegments.get() != null) return false;
+        if (lockChange != null || excludeFromSearch.get() != null || permissionChanges.get() != null) return false;
+        if (!addedInternalProperties.isEmpty() || !removedInternalProperties.isEmpty()) return false;
+        ReferrerChanges referrerChanges = referrerChanges(false);
+        return referrerChanges != null && !referrerChanges.isEmpty();
+    }
+
     @Override
     public boolean isAtOrBelow( NodeCache cache,
                                 Path path ) {
@@ -784,13 +810,18 @@ public class SessionNode implements MutableCachedNode {
             @Override
             public Iterator<Property> iterator() {
                 List<Property> values = new LinkedList<Property>();
-                for (Iterator<Property> iter = raw.getProperties(workspace(cache)); iter.hasNext();) {
-                    Property prop = iter.next();
+                WorkspaceCache workspace = workspace(cache);
+                for (Iterator<Name> iter = raw.getPropertyNames(workspace); iter.hasNext();) {
+                    Name name = iter.next();
                     // we need to reflect transient state, so ignore removed and changed properties from the raw values
-                    if (isPropertyRemoved(prop.getName()) || changedProperties.containsKey(prop.getName())) {
+                    // (without even loading their persisted values)
+                    if (isPropertyRemoved(name) || changedProperties.containsKey(name)) {
                         continue;
                     }
-                    values.add(prop);
+                    Property prop = raw.getProperty(name, workspace);
+                    if (prop != null) {
+                        values.add(prop);
+                    }
                 }
                 return values.iterator();
             }
@@ -799,6 +830,22 @@ public class SessionNode implements MutableCachedNode {
         return new UnionIterator<Property>(changedProperties.values().iterator(), rawProps);
     }
 
+    @Override
+    public Iterator<Name> getPropertyNames( final NodeCache cache ) {
+        final AbstractSessionCache session = session(cache);
+        final CachedNode raw = nodeInWorkspace(session);
+        List<Name> names = new ArrayList<Name>(changedProperties.keySet());
+        if (raw != null) {
+            for (Iterator<Name> iter = raw.getPropertyNames(workspace(cache)); iter.hasNext();) {
+                Name name = iter.next();
+                if (!isPropertyRemoved(name) && !changedProperties.containsKey(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        return names.iterator();
+    }
+
     @Override
     public Iterator<Property> getProperties( Collection<?> namePatterns,
                                              NodeCache cache ) {
@@ -15,13 +15,20 @@
  */
 package org.modeshape.jcr.cache.document;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.RepositoryEnvironment;
+import org.modeshape.jcr.RepositoryStatistics;
+import org.modeshape.jcr.api.monitor.DurationMetric;
+import org.modeshape.jcr.api.monitor.ValueMetric;
 import org.modeshape.jcr.bus.ChangeBus;
 import org.modeshape.jcr.cache.CachedNode;
 import org.modeshape.jcr.cache.ChildReference;
@@ -48,6 +55,9 @@ public class WorkspaceCache implements DocumentCache {
     private final ExecutionContext context;
     private final DocumentStore documentStore;
     private final ConcurrentMap<NodeKey, CachedNode> nodesByKey;
+    // incremented before nodes are evicted, so that nodes read while an eviction takes place are not kept (see prefetch)
+    private final AtomicLong evictions = new AtomicLong();
+    private final WorkspacePathCache pathsByKey;
     private final NodeKey rootKey;
     private final ChildReference childReferenceForRoot;
     private final String repositoryKey;
@@ -60,6 +70,7 @@ public class WorkspaceCache implements DocumentCache {
     private final ChangeSetListener systemChangeNotifier;
     private final ChangeSetListener nonSystemChangeNotifier;
     private final RepositoryEnvironment repositoryEnvironment;
+    private final RepositoryStatistics statistics;
     private volatile boolean closed = false;
 
     public WorkspaceCache( ExecutionContext context,
@@ -93,7 +104,9 @@ public class WorkspaceCache implements DocumentCache {
         this.pathFactory = context.getValueFactories().getPathFactory();
         this.nameFactory = context.getValueFactories().getNameFactory();
         this.nodesByKey = cache;
+        this.pathsByKey = new WorkspacePathCache(WorkspacePathCache.DEFAULT_MAXIMUM_SIZE);
         this.repositoryEnvironment = repositoryEnvironment;
+        this.statistics = repositoryEnvironment != null ? repositoryEnvironment.statistics() : null;
         if (systemWorkspace != null) {
             // This is not the system workspace, so we have to listen both asynchronously and synchronously ...
             this.systemChangeNotifier = new SystemChangeNotifier(systemWorkspace.getWorkspaceName());
@@ -122,7 +135,10 @@ public class WorkspaceCache implements DocumentCache {
         this.pathFactory = original.pathFactory;
         this.nameFactory = original.nameFactory;
         this.repositoryEnvironment = original.repositoryEnvironment;
+        this.statistics = original.statistics;
         this.nodesByKey = cache;
+        // the paths are only shared between the sessions that see the same persisted (and committed) nodes ...
+        this.pathsByKey = null;
         this.systemChangeNotifier = null;
         this.nonSystemChangeNotifier = null;
         //the change bus is not copied on purpose because this ctr should only be used for creating lightweight, "transient" instances
@@ -181,7 +197,14 @@ public class WorkspaceCache implements DocumentCache {
 
     final Document documentFor( String key ) {
         // Look up the information in the database ...
-        SchematicEntry entry = documentStore.get(key);
+        SchematicEntry entry;
+        if (statistics != null) {
+            long start = System.nanoTime();
+            entry = documentStore.get(key);
+            statistics.recordLatency(DurationMetric.DOCUMENT_STORE_READ_TIME, System.nanoTime() - start);
+        } else {
+            entry = documentStore.get(key);
+        }
         if (entry == null) {
             // There is no such node ...
             return null;
@@ -212,13 +235,56 @@ public class WorkspaceCache implements DocumentCache {
     }
 
     final void purge( Iterable<NodeKey> nodeKeys ) {
+        evictions.incrementAndGet();
         for (NodeKey nodeKey : nodeKeys) {
             this.nodesByKey.remove(nodeKey);
+            if (pathsByKey != null) pathsByKey.remove(nodeKey);
         }
     }
     
     final void purge(NodeKey key) {
+        evictions.incrementAndGet();
         this.nodesByKey.remove(key);
+        if (pathsByKey != null) pathsByKey.remove(key);
+    }
+
+    /**
+     * Get the cached path of the persisted node with the supplied key.
+     *
+     * @param key the node key; may not be null
+     * @return the path of the node, or null if it is not cached
+     */
+    final Path cachedPath( NodeKey key ) {
+        return pathsByKey != null ? pathsByKey.get(key) : null;
+    }
+
+    /**
+     * Get the stamp that must be passed to {@link #cachePath(CachedNode, long, Path)} for a path computed after this call.
+     *
+     * @return the stamp
+     */
+    final long pathStamp() {
+        return pathsByKey != null ? pathsByKey.stamp() : 0L;
+    }
+
+    /**
+     * Cache the path of the supplied persisted node, so that it can be shared by all sessions. The path is not cached if this
+     * cache has been changed since the supplied stamp was obtained, if the node is no longer the one held by this cache (and thus
+     * may be out of date), or if the node is not stored in this workspace's source (e.g., is federated), since the paths of such
+     * nodes can change without any events.
+     *
+     * @param node the node whose path was computed; may not be null
+     * @param stamp the {@link #pathStamp() stamp} obtained before the path was computed
+     * @param path the path; may not be null
+     */
+    final void cachePath( CachedNode node,
+                          long stamp,
+                          Path path ) {
+        if (pathsByKey == null || path.isRoot()) return;
+        NodeKey key = node.getKey();
+        if (sourceKey.equals(key.getSourceKey()) && nodesByKey.get(key) == node) {
+            pathsByKey.put(key, stamp, path);
+        }
     }
 
     @Override
@@ -231,6 +297,9 @@ public class WorkspaceCache implements DocumentCache {
     public CachedNode getNode( NodeKey key ) {
         checkNotClosed();
         CachedNode node = nodesByKey.get(key);
+        if (statistics != null) {
+            statistics.increment(node != null ? ValueMetric.WORKSPACE_CACHE_HITS : ValueMetric.WORKSPACE_CACHE_MISSES);
+        }
         if (node == null) {
             // Load the node from the database ...
             if (LOGGER.isTraceEnabled()) {
@@ -255,6 +324,59 @@ public class WorkspaceCache implements DocumentCache {
         return node;
     }
 
+    /**
+     * Load into this cache those of the supplied nodes that are not already cached, reading them from the document store with a
+     * single request rather than one request per node. Nodes that do not exist are ignored.
+     * <p>
+     * Since the nodes are typically loaded in the background, nodes might be changed and evicted from this cache while they are
+     * being read. The loaded nodes are therefore not kept if any node has been evicted since before they were read.
+     * </p>
+     *
+     * @param keys the keys of the nodes that are expected to be needed soon; may not be null
+     */
+    public void prefetch( Collection<NodeKey> keys ) {
+        checkNotClosed();
+        List<String> missing = new ArrayList<>(keys.size());
+        for (NodeKey key : keys) {
+            if (!nodesByKey.containsKey(key)) missing.add(key.toString());
+        }
+        if (missing.isEmpty()) return;
+        long stamp = evictions.get();
+        List<SchematicEntry> entries;
+        if (statistics != null) {
+            long start = System.nanoTime();
+            entries = documentStore.load(missing);
+            statistics.recordLatency(DurationMetric.DOCUMENT_STORE_READ_TIME, System.nanoTime() - start);
+        } else {
+            entries = documentStore.load(missing);
+        }
+        if (evictions.get() != stamp) {
+            LOGGER.trace("Discarding the nodes prefetched into the '{0}' workspace cache, since nodes were evicted meanwhile",
+                         workspaceName);
+            return;
+        }
+        List<CachedNode> added = new ArrayList<>(entries.size());
+        for (SchematicEntry entry : entries) {
+            Document doc = entry.content();
+            if (translator.isCacheable(doc)) {
+                NodeKey key = new NodeKey(entry.id());
+                CachedNode node = new LazyCachedNode(key, doc);
+                if (nodesByKey.putIfAbsent(key, node) == null) added.add(node);
+            }
+        }
+        if (evictions.get() != stamp) {
+            // the eviction might have missed the nodes we just added ...
+            for (CachedNode node : added) {
+                nodesByKey.remove(node.getKey(), node);
+            }
+            return;
+        }
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Prefetched {0} of {1} requested nodes into the '{2}' workspace cache", entries.size(), missing.size(),
+                         workspaceName);
+        }
+    }
+
     @Override
     public CachedNode getNode( ChildReference reference ) {
         checkNotClosed();
@@ -281,7 +403,9 @@ public class WorkspaceCache implements DocumentCache {
 
     @Override
     public void clear() {
+        evictions.incrementAndGet();
         nodesByKey.clear();
+        if (pathsByKey != null) pathsByKey.clear();
     }
 
     protected void evictChangedNodes( ChangeSet changes ) {
@@ -291,10 +415,12 @@ public class WorkspaceCache implements DocumentCache {
                              changes.size(), changes);
             }
             // Clear this workspace's cached nodes (iteratively is okay since it's a ConcurrentMap) ...
+            evictions.incrementAndGet();
             for (NodeKey key : changes.changedNodes()) {
                 if (closed) break;
                 nodesByKey.remove(key);
             }
+            if (pathsByKey != null) pathsByKey.invalidate(changes);
         }
     }
 
@@ -311,10 +437,12 @@ public class WorkspaceCache implements DocumentCache {
                          changes.size(), changes);
         }
         // Clear this workspace's cached nodes (iteratively is okay since it's a ConcurrentMap) ...
+        evictions.incrementAndGet();
         for (NodeKey key : changes.changedNodes()) {
             if (closed) break;
             nodesByKey.remove(key);
         }
+        if (pathsByKey != null) pathsByKey.invalidate(changes);
 
         // Send the changes to the change bus so that others can see them ...
         if (changeBus != null) changeBus.notify(changes);
@@ -0,0 +1,591 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.cache.document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.schematic.DocumentFactory;
+import org.modeshape.schematic.SchematicEntry;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableArray;
+import org.modeshape.schematic.document.EditableDocument;
+
+/**
+ * A component that clones the entire content of a workspace into another, newly-created workspace by copying the persisted
+ * node documents directly within the {@link LocalDocumentStore}, without materializing any of the nodes in a session.
+ * <p>
+ * The source tree is walked from the root in batches of keys. Each batch of documents is read with a single
+ * {@link LocalDocumentStore#load(java.util.Collection) bulk load}, rewritten so that every key belonging to the source workspace
+ * (node keys, parent keys, child references, children blocks, buckets, referrers and reference values) points to the target
+ * workspace, and written in its own transaction. Batches are processed in parallel by the supplied executor. Since a clone
+ * preserves the identifiers of the nodes, the correspondence between a source key and a target key is simply a change of the
+ * workspace key and does not need to be recorded.
+ * </p>
+ * <p>
+ * Documents which are shared with other workspaces (e.g. the version histories in the system workspace) are not copied, but
+ * the cloned nodes are recorded as their referrers. Likewise, the usage counts of all binary values are incremented. These
+ * shared documents and the target root document are written last, so that a clone which fails part way through leaves the
+ * target workspace looking empty.
+ * </p>
+ */
+public class WorkspaceCloner implements DocumentConstants {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceCloner.class);
+
+    private final LocalDocumentStore documentStore;
+    private final DocumentTranslator translator;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final NodeKey sourceRootKey;
+    private final NodeKey targetRootKey;
+    private final String sourceWorkspaceKey;
+    private final String targetWorkspaceKey;
+    private final String systemWorkspaceKey;
+
+    private final AtomicLong nodeCount = new AtomicLong();
+    private final AtomicLong pendingBatches = new AtomicLong();
+    private final CountDownLatch batchesCompleted = new CountDownLatch(1);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final ConcurrentMap<String, AtomicLong> binaryUsages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Map<String, Integer>> strongReferrers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Map<String, Integer>> weakReferrers = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new cloner for a single clone operation.
+     *
+     * @param documentStore the local store holding the documents of both workspaces; may not be null
+     * @param translator the document translator; may not be null
+     * @param executor the executor used to process the batches in parallel; may not be null
+     * @param batchSize the maximum number of nodes read and written in a single transaction; must be positive
+     * @param sourceRootKey the key of the root node in the source workspace; may not be null
+     * @param targetRootKey the key of the root node in the target workspace; may not be null
+     * @param systemWorkspaceKey the key of the system workspace; may not be null
+     */
+    public WorkspaceCloner( LocalDocumentStore documentStore,
+                            DocumentTranslator translator,
+                            ExecutorService executor,
+                            int batchSize,
+                            NodeKey sourceRootKey,
+                            NodeKey targetRootKey,
+                            String systemWorkspaceKey ) {
+        CheckArg.isPositive(batchSize, "batchSize");
+        this.documentStore = documentStore;
+        this.translator = translator;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.sourceRootKey = sourceRootKey;
+        this.targetRootKey = targetRootKey;
+        this.sourceWorkspaceKey = sourceRootKey.getWorkspaceKey();
+        this.targetWorkspaceKey = targetRootKey.getWorkspaceKey();
+        this.systemWorkspaceKey = systemWorkspaceKey;
+    }
+
+    /**
+     * Determine whether the target workspace is empty, meaning its root node has no children other than the supplied system
+     * node. Only an empty workspace can be the target of a clone.
+     *
+     * @param systemKey the key of the "jcr:system" node; may not be null
+     * @return true if the target workspace is empty, or false otherwise
+     */
+    public boolean isTargetEmpty( NodeKey systemKey ) {
+        Document targetRoot = content(targetRootKey.toString());
+        if (targetRoot == null || targetRoot.containsField(BUCKETS) || hasNextBlock(targetRoot)) {
+            return false;
+        }
+        List<?> children = targetRoot.getArray(CHILDREN);
+        if (children == null) {
+            return true;
+        }
+        String systemKeyString = systemKey.toString();
+        for (Object child : children) {
+            if (!systemKeyString.equals(((Document)child).getString(KEY))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clone the content of the source workspace into the target workspace.
+     *
+     * @return the keys of the documents outside of the target workspace which were changed during the clone (e.g. the version
+     *         histories to which the cloned nodes refer); never null
+     * @throws RuntimeException if any of the documents could not be cloned
+     */
+    public Set<NodeKey> cloneContent() {
+        final Document sourceRoot = content(sourceRootKey.toString());
+        assert sourceRoot != null;
+        pendingBatches.incrementAndGet();
+        try {
+            documentStore.runInTransaction(() -> {
+                processChildren(sourceRootKey.toString(), sourceRoot);
+                return null;
+            }, 0);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            batchCompleted();
+        }
+        try {
+            batchesCompleted.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException)error;
+        } else if (error != null) {
+            throw new RuntimeException(error);
+        }
+
+        Set<NodeKey> changedKeys = new HashSet<>();
+        changedKeys.addAll(updateReferrers(strongReferrers, STRONG));
+        changedKeys.addAll(updateReferrers(weakReferrers, WEAK));
+        updateBinaryUsages();
+
+        // Finally write the root, which makes all the cloned content reachable ...
+        String targetRootKeyString = targetRootKey.toString();
+        documentStore.runInTransaction(() -> {
+            cloneReferrerBuckets(sourceRootKey.toString(), sourceRoot);
+            documentStore.put(targetRootKeyString, rewriteNode(sourceRoot));
+            return null;
+        }, 1, targetRootKeyString);
+        nodeCount.incrementAndGet();
+        return changedKeys;
+    }
+
+    /**
+     * Get the number of nodes that were cloned.
+     *
+     * @return the number of cloned nodes
+     */
+    public long getNodeCount() {
+        return nodeCount.get();
+    }
+
+    protected void submit( final Map<String, String> parentKeysByChildKey ) {
+        pendingBatches.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                if (failure.get() == null) {
+                    documentStore.runInTransaction(() -> {
+                        cloneBatch(parentKeysByChildKey);
+                        return null;
+                    }, 0);
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                batchCompleted();
+            }
+        });
+    }
+
+    private void batchCompleted() {
+        if (pendingBatches.decrementAndGet() == 0) {
+            batchesCompleted.countDown();
+        }
+    }
+
+    protected void cloneBatch( Map<String, String> parentKeysByChildKey ) {
+        for (SchematicEntry entry : documentStore.load(parentKeysByChildKey.keySet())) {
+            Document document = entry.content();
+            String key = entry.id();
+            NodeKey primaryParent = translator.getParentKey(document, sourceWorkspaceKey, null);
+            if (primaryParent == null || !primaryParent.toString().equals(parentKeysByChildKey.get(key))) {
+                // This is a shared node which is cloned only when found under its primary parent ...
+                continue;
+            }
+            documentStore.put(targetKey(key), rewriteNode(document));
+            cloneReferrerBuckets(key, document);
+            processChildren(key, document);
+            if (nodeCount.incrementAndGet() % 10000 == 0) {
+                LOGGER.debug("Cloned {0} nodes from workspace with key {1}", nodeCount.get(), sourceWorkspaceKey);
+            }
+        }
+    }
+
+    /**
+     * Copy the additional children blocks and buckets of the supplied node, and submit batches for all of its children.
+     *
+     * @param key the key of the node in the source workspace; may not be null
+     * @param document the document of the node in the source workspace; may not be null
+     */
+    protected void processChildren( String key,
+                                    Document document ) {
+        Map<String, String> batch = new LinkedHashMap<>();
+        Document block = document;
+        while (block != null) {
+            batch = addChildren(key, block.getArray(CHILDREN), batch);
+            String nextBlockKey = nextBlock(block);
+            block = nextBlockKey != null ? content(nextBlockKey) : null;
+            if (block != null) {
+                documentStore.put(targetKey(nextBlockKey), rewriteNode(block));
+            }
+        }
+        List<?> bucketIds = document.getArray(BUCKETS);
+        if (bucketIds != null) {
+            String targetKey = targetKey(key);
+            for (Object bucketId : bucketIds) {
+                Document bucket = content(translator.bucketKey(key, bucketId.toString()));
+                if (bucket == null) {
+                    continue;
+                }
+                EditableDocument targetBucket = DocumentFactory.newDocument();
+                List<String> childKeys = new ArrayList<>(bucket.size());
+                for (Document.Field field : bucket.fields()) {
+                    targetBucket.set(targetKey(field.getName()), field.getValue());
+                    childKeys.add(field.getName());
+                }
+                documentStore.put(translator.bucketKey(targetKey, bucketId.toString()), targetBucket);
+                for (String childKey : childKeys) {
+                    batch = addChild(key, childKey, batch);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    private Map<String, String> addChildren( String parentKey,
+                                             List<?> children,
+                                             Map<String, String> batch ) {
+        if (children != null) {
+            for (Object child : children) {
+                batch = addChild(parentKey, ((Document)child).getString(KEY), batch);
+            }
+        }
+        return batch;
+    }
+
+    private Map<String, String> addChild( String parentKey,
+                                          String childKey,
+                                          Map<String, String> batch ) {
+        if (!isInSourceWorkspace(childKey)) {
+            // e.g. the "jcr:system" node, which is already linked into the target workspace ...
+            return batch;
+        }
+        batch.put(childKey, parentKey);
+        if (batch.size() < batchSize) {
+            return batch;
+        }
+        submit(batch);
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * Create a copy of the supplied node (or children block) document where all the keys from the source workspace are replaced
+     * with the corresponding keys from the target workspace.
+     *
+     * @param source the document in the source workspace; may not be null
+     * @return the document for the target workspace; never null
+     */
+    protected EditableDocument rewriteNode( Document source ) {
+        String targetKey = targetKey(source.getString(KEY));
+        EditableDocument target = DocumentFactory.newDocument();
+        for (Document.Field field : source.fields()) {
+            String name = field.getName();
+            Object value = field.getValue();
+            switch (name) {
+                case KEY:
+                    target.setString(KEY, targetKey);
+                    break;
+                case PARENT:
+                    target.set(PARENT, value instanceof List<?> ? rewriteKeys((List<?>)value) : targetKey(value.toString()));
+                    break;
+                case PROPERTIES:
+                    target.set(PROPERTIES, rewriteValue(value, targetKey));
+                    break;
+                case CHILDREN:
+                    EditableArray children = target.setArray(CHILDREN);
+                    for (Object child : (List<?>)value) {
+                        Document childRef = (Document)child;
+                        children.add(DocumentFactory.newDocument(KEY, targetKey(childRef.getString(KEY)),
+                                                                 NAME, childRef.get(NAME)));
+                    }
+                    break;
+                case CHILDREN_INFO:
+                    EditableDocument info = DocumentFactory.newDocument((Document)value);
+                    for (String blockField : new String[] {NEXT_BLOCK, LAST_BLOCK}) {
+                        String blockKey = info.getString(blockField);
+                        if (blockKey != null) {
+                            info.setString(blockField, targetKey(blockKey));
+                        }
+                    }
+                    target.setDocument(CHILDREN_INFO, info);
+                    break;
+                case REFERRERS:
+                    target.setDocument(REFERRERS, rewriteReferrers((Document)value, targetKey));
+                    break;
+                default:
+                    target.set(name, value);
+            }
+        }
+        return target;
+    }
+
+    private EditableArray rewriteKeys( List<?> keys ) {
+        EditableArray result = DocumentFactory.newArray(keys.size());
+        for (Object key : keys) {
+            result.add(key != null ? targetKey(key.toString()) : null);
+        }
+        return result;
+    }
+
+    private EditableDocument rewriteReferrers( Document referrers,
+                                               String targetNodeKey ) {
+        EditableDocument result = DocumentFactory.newDocument();
+        if (referrers.containsField(BUCKET_ID_LENGTH)) {
+            // The referrers themselves are in the buckets, which are cloned separately ...
+            result.set(BUCKET_ID_LENGTH, referrers.get(BUCKET_ID_LENGTH));
+            result.setString(KEY, targetNodeKey);
+        }
+        for (String type : new String[] {STRONG, WEAK}) {
+            Document referrersOfType = referrers.getDocument(type);
+            if (referrersOfType == null) {
+                continue;
+            }
+            EditableDocument targetReferrers = result.setDocument(type);
+            for (Document.Field field : referrersOfType.fields()) {
+                // Referrers from outside the source workspace (e.g. the system workspace) don't refer to the clone ...
+                if (isInSourceWorkspace(field.getName())) {
+                    targetReferrers.set(targetKey(field.getName()), field.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copy the buckets holding the referrers of the supplied node, if its referrers are stored in buckets. The bucket of a
+     * referrer is derived from the referrer's key, so the rewritten referrers are redistributed into new buckets rather than
+     * copied bucket by bucket.
+     *
+     * @param key the key of the node in the source workspace; may not be null
+     * @param document the document of the node in the source workspace; may not be null
+     */
+    protected void cloneReferrerBuckets( String key,
+                                         Document document ) {
+        if (!translator.hasBucketedReferrers(document)) {
+            return;
+        }
+        String targetNodeKey = targetKey(key);
+        Map<String, EditableDocument> targetBuckets = new LinkedHashMap<>();
+        for (Document bucket : translator.referrerBuckets(key)) {
+            for (String type : new String[] {STRONG, WEAK}) {
+                Document referrersOfType = bucket.getDocument(type);
+                if (referrersOfType == null) {
+                    continue;
+                }
+                for (Document.Field field : referrersOfType.fields()) {
+                    if (!isInSourceWorkspace(field.getName())) {
+                        continue;
+                    }
+                    String referrerKey = targetKey(field.getName());
+                    String bucketKey = translator.referrerBucketKey(targetNodeKey, referrerKey);
+                    targetBuckets.computeIfAbsent(bucketKey, k -> DocumentFactory.newDocument())
+                                 .getOrCreateDocument(type)
+                                 .set(referrerKey, field.getValue());
+                }
+            }
+        }
+        EditableArray bucketIds = DocumentFactory.newArray(targetBuckets.size());
+        for (Map.Entry<String, EditableDocument> bucket : targetBuckets.entrySet()) {
+            documentStore.put(bucket.getKey(), bucket.getValue());
+            bucketIds.add(translator.referrerBucketId(bucket.getKey()));
+        }
+        documentStore.put(translator.referrerBucketIndexKey(targetNodeKey), DocumentFactory.newDocument(BUCKETS, bucketIds));
+    }
+
+    private Object rewriteValue( Object value,
+                                 String targetNodeKey ) {
+        if (value instanceof List<?>) {
+            List<?> values = (List<?>)value;
+            EditableArray result = DocumentFactory.newArray(values.size());
+            for (Object v : values) {
+                result.add(rewriteValue(v, targetNodeKey));
+            }
+            return result;
+        }
+        if (!(value instanceof Document)) {
+            return value;
+        }
+        Document doc = (Document)value;
+        String sha1 = doc.getString(SHA1_FIELD);
+        if (sha1 != null) {
+            binaryUsages.computeIfAbsent(sha1, k -> new AtomicLong()).incrementAndGet();
+            return doc;
+        }
+        for (String referenceField : new String[] {REFERENCE_FIELD, WEAK_REFERENCE_FIELD, SIMPLE_REFERENCE_FIELD}) {
+            String referencedKey = doc.getString(referenceField);
+            if (referencedKey == null) {
+                continue;
+            }
+            if (isInSourceWorkspace(referencedKey)) {
+                EditableDocument reference = DocumentFactory.newDocument(doc);
+                reference.setString(referenceField, targetKey(referencedKey));
+                return reference;
+            }
+            if (!SIMPLE_REFERENCE_FIELD.equals(referenceField) && isInSystemWorkspace(referencedKey)) {
+                // The clone is a new referrer of the shared node ...
+                addReferrer(REFERENCE_FIELD.equals(referenceField) ? strongReferrers : weakReferrers, referencedKey,
+                            targetNodeKey);
+            }
+            return doc;
+        }
+        EditableDocument result = DocumentFactory.newDocument();
+        for (Document.Field field : doc.fields()) {
+            result.set(field.getName(), rewriteValue(field.getValue(), targetNodeKey));
+        }
+        return result;
+    }
+
+    private void addReferrer( ConcurrentMap<String, Map<String, Integer>> referrers,
+                              String referencedKey,
+                              String referrerKey ) {
+        Map<String, Integer> counts = referrers.computeIfAbsent(referencedKey,
+                                                                k -> Collections.synchronizedMap(new LinkedHashMap<>()));
+        counts.merge(referrerKey, 1, Integer::sum);
+    }
+
+    private Set<NodeKey> updateReferrers( Map<String, Map<String, Integer>> referrersByKey,
+                                          String type ) {
+        Set<NodeKey> changedKeys = new HashSet<>();
+        for (List<String> keys : partition(referrersByKey.keySet())) {
+            Set<String> lockKeys = new LinkedHashSet<>(keys);
+            for (String key : keys) {
+                Document document = content(key);
+                if (document != null && translator.hasBucketedReferrers(document)) {
+                    lockKeys.addAll(translator.referrerBucketKeys(key, referrersByKey.get(key).keySet()));
+                }
+            }
+            documentStore.runInTransaction(() -> {
+                for (String key : keys) {
+                    EditableDocument document = documentStore.edit(key, false);
+                    if (document == null) {
+                        continue;
+                    }
+                    boolean bucketed = translator.hasBucketedReferrers(document);
+                    EditableDocument referrers = bucketed ? null : document.getOrCreateDocument(REFERRERS)
+                                                                           .getOrCreateDocument(type);
+                    for (Map.Entry<String, Integer> referrer : referrersByKey.get(key).entrySet()) {
+                        if (bucketed) {
+                            String bucketKey = translator.referrerBucketKey(key, referrer.getKey());
+                            if (!documentStore.containsKey(bucketKey)) {
+                                translator.addReferrerBucketToIndex(key, bucketKey);
+                            }
+                            documentStore.edit(bucketKey, true).getOrCreateDocument(type).set(referrer.getKey(),
+                                                                                              referrer.getValue());
+                        } else {
+                            referrers.set(referrer.getKey(), referrer.getValue());
+                        }
+                    }
+                }
+                return null;
+            }, 1, lockKeys.toArray(new String[lockKeys.size()]));
+            for (String key : keys) {
+                changedKeys.add(new NodeKey(key));
+            }
+        }
+        return changedKeys;
+    }
+
+    private void updateBinaryUsages() {
+        for (List<String> sha1s : partition(binaryUsages.keySet())) {
+            String[] keys = new String[sha1s.size()];
+            for (int i = 0; i != keys.length; ++i) {
+                keys[i] = translator.keyForBinaryReferenceDocument(sha1s.get(i));
+            }
+            documentStore.runInTransaction(() -> {
+                for (int i = 0; i != keys.length; ++i) {
+                    String sha1 = sha1s.get(i);
+                    long usages = binaryUsages.get(sha1).get();
+                    EditableDocument entry = documentStore.edit(keys[i], false);
+                    if (entry == null) {
+                        documentStore.put(keys[i], DocumentFactory.newDocument(SHA1, sha1, REFERENCE_COUNT, usages));
+                    } else {
+                        Long count = entry.getLong(REFERENCE_COUNT);
+                        entry.setNumber(REFERENCE_COUNT, count != null ? count + usages : usages);
+                    }
+                }
+                return null;
+            }, 1, keys);
+        }
+    }
+
+    private List<List<String>> partition( Set<String> keys ) {
+        List<List<String>> partitions = new ArrayList<>();
+        List<String> partition = new ArrayList<>();
+        for (String key : keys) {
+            partition.add(key);
+            if (partition.size() == batchSize) {
+                partitions.add(partition);
+                partition = new ArrayList<>();
+            }
+        }
+        if (!partition.isEmpty()) {
+            partitions.add(partition);
+        }
+        return partitions;
+    }
+
+    private String targetKey( String key ) {
+        return isInSourceWorkspace(key) ? new NodeKey(key).withWorkspaceKey(targetWorkspaceKey).toString() : key;
+    }
+
+    private boolean isInSourceWorkspace( String key ) {
+        if (!NodeKey.isValidFormat(key)) {
+            return false;
+        }
+        NodeKey nodeKey = new NodeKey(key);
+        return sourceWorkspaceKey.equals(nodeKey.getWorkspaceKey()) && sourceRootKey.getSourceKey().equals(nodeKey.getSourceKey());
+    }
+
+    private boolean isInSystemWorkspace( String key ) {
+        return NodeKey.isValidFormat(key) && systemWorkspaceKey.equals(new NodeKey(key).getWorkspaceKey());
+    }
+
+    private String nextBlock( Document document ) {
+        Document info = document.getDocument(CHILDREN_INFO);
+        return info != null ? info.getString(NEXT_BLOCK) : null;
+    }
+
+    private boolean hasNextBlock( Document document ) {
+        return nextBlock(document) != null;
+    }
+
+    private Document content( String key ) {
+        SchematicEntry entry = documentStore.get(key);
+        return entry != null ? entry.content() : null;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.cache.document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.change.Change;
+import org.modeshape.jcr.cache.change.ChangeSet;
+import org.modeshape.jcr.cache.change.NodeMoved;
+import org.modeshape.jcr.cache.change.NodeRemoved;
+import org.modeshape.jcr.cache.change.NodeRenamed;
+import org.modeshape.jcr.cache.change.NodeReordered;
+import org.modeshape.jcr.value.Name;
+import org.modeshape.jcr.value.Path;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * A bounded cache of the persisted paths of the nodes in a {@link WorkspaceCache workspace}, shared by all of the sessions using
+ * that workspace. Once the path of a node is known, the path of that node (and its name and SNS index) can be obtained without
+ * walking up the ancestors or looking for the node within its parent's child references.
+ * <p>
+ * A node's path changes only when the node or one of its ancestors is moved, renamed or removed, or when one of the same-name
+ * siblings of the node or of one of its ancestors is moved, renamed, reordered or removed. The {@link #invalidate(ChangeSet)
+ * invalidation} therefore removes the paths of all nodes at or below the changed nodes and of the same-name siblings (and their
+ * descendants) of the changed nodes, using the paths recorded in the change events.
+ * </p>
+ * <p>
+ * A path that is being computed while the cache is invalidated might have been computed from out-of-date nodes, so such a path is
+ * not {@link #put(NodeKey, long, Path) kept} unless no invalidation took place since the {@link #stamp() stamp} obtained before
+ * it was computed.
+ * </p>
+ */
+@ThreadSafe
+final class WorkspacePathCache {
+
+    /**
+     * The default maximum number of paths that are cached per workspace.
+     */
+    static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    /**
+     * The number of changed locations above which it is cheaper to clear the whole cache than to check each cached path.
+     */
+    private static final int MAX_CHANGED_LOCATIONS = 64;
+
+    private final ConcurrentMap<NodeKey, Path> pathsByKey;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    WorkspacePathCache( int maximumSize ) {
+        assert maximumSize > 0;
+        // make sure eviction runs in the same thread
+        this.pathsByKey = Caffeine.newBuilder().maximumSize(maximumSize).executor(Runnable::run).<NodeKey, Path>build().asMap();
+    }
+
+    /**
+     * Get the cached path of the node with the supplied key.
+     *
+     * @param key the node key; may not be null
+     * @return the cached path, or null if the path of the node is not cached
+     */
+    Path get( NodeKey key ) {
+        return pathsByKey.get(key);
+    }
+
+    /**
+     * Get the stamp that has to be supplied when {@link #put(NodeKey, long, Path) caching} a path computed after this call.
+     *
+     * @return the current stamp
+     */
+    long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Cache the path of the node with the supplied key, unless the cache has been invalidated since the path was computed.
+     *
+     * @param key the node key; may not be null
+     * @param stamp the {@link #stamp() stamp} obtained before the path was computed
+     * @param path the path of the node; may not be null
+     */
+    void put( NodeKey key,
+              long stamp,
+              Path path ) {
+        if (invalidations.get() != stamp) return;
+        pathsByKey.put(key, path);
+        if (invalidations.get() != stamp) {
+            // the invalidation might have missed our path ...
+            pathsByKey.remove(key, path);
+        }
+    }
+
+    /**
+     * Remove the cached path of the node with the supplied key.
+     *
+     * @param key the node key; may not be null
+     */
+    void remove( NodeKey key ) {
+        invalidations.incrementAndGet();
+        pathsByKey.remove(key);
+    }
+
+    /**
+     * Remove all cached paths.
+     */
+    void clear() {
+        invalidations.incrementAndGet();
+        pathsByKey.clear();
+    }
+
+    /**
+     * Remove the cached paths of the nodes whose paths may have been changed by the supplied changes.
+     *
+     * @param changes the changes that were persisted; may not be null
+     */
+    void invalidate( ChangeSet changes ) {
+        List<Path> subtrees = new ArrayList<>();
+        List<SameNameSiblings> siblings = new ArrayList<>();
+        for (Change change : changes) {
+            if (change instanceof NodeMoved) {
+                NodeMoved moved = (NodeMoved)change;
+                addChangedLocation(moved.getOldPath(), subtrees, siblings);
+                addChangedLocation(moved.getNewPath(), subtrees, siblings);
+            } else if (change instanceof NodeRenamed) {
+                NodeRenamed renamed = (NodeRenamed)change;
+                Path path = renamed.getPath();
+                addChangedLocation(path, subtrees, siblings);
+                if (path != null && !path.isRoot()) {
+                    siblings.add(new SameNameSiblings(path.getParent(), renamed.getOldSegment().getName()));
+                }
+            } else if (change instanceof NodeReordered) {
+                NodeReordered reordered = (NodeReordered)change;
+                addChangedLocation(reordered.getOldPath(), subtrees, siblings);
+                addChangedLocation(reordered.getPath(), subtrees, siblings);
+                addChangedLocation(reordered.getReorderedBeforePath(), subtrees, siblings);
+            } else if (change instanceof NodeRemoved) {
+                addChangedLocation(((NodeRemoved)change).getPath(), subtrees, siblings);
+            } else {
+                continue;
+            }
+            if (subtrees.size() + siblings.size() > MAX_CHANGED_LOCATIONS) {
+                clear();
+                return;
+            }
+        }
+        invalidations.incrementAndGet();
+        // the changed nodes themselves are removed even if no event describes how their paths changed ...
+        for (NodeKey key : changes.changedNodes()) {
+            pathsByKey.remove(key);
+        }
+        if (subtrees.isEmpty() && siblings.isEmpty()) return;
+        pathsByKey.values().removeIf(path -> isAffected(path, subtrees, siblings));
+    }
+
+    private static void addChangedLocation( Path path,
+                                            List<Path> subtrees,
+                                            List<SameNameSiblings> siblings ) {
+        if (path == null) return;
+        subtrees.add(path);
+        if (!path.isRoot()) siblings.add(new SameNameSiblings(path.getParent(), path.getLastSegment().getName()));
+    }
+
+    private static boolean isAffected( Path path,
+                                       List<Path> subtrees,
+                                       List<SameNameSiblings> siblings ) {
+        for (Path changed : subtrees) {
+            if (path.isAtOrBelow(changed)) return true;
+        }
+        for (SameNameSiblings changed : siblings) {
+            if (changed.contain(path)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The children of a parent that have a given name, whose SNS indexes may change when one of them is changed.
+     */
+    private static final class SameNameSiblings {
+        private final Path parent;
+        private final Name name;
+
+        protected SameNameSiblings( Path parent,
+                                    Name name ) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        /**
+         * Determine whether the supplied path is the path of one of these siblings or one of their descendants.
+         *
+         * @param path the path; may not be null
+         * @return true if the path is at or below one of these siblings
+         */
+        protected boolean contain( Path path ) {
+            int depth = parent.size();
+            return path.size() > depth && path.getSegment(depth).getName().equals(name) && path.isDescendantOf(parent);
+        }
+    }
+}
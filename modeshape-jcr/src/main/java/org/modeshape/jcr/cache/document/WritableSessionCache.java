@@ -48,8 +48,10 @@ import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.jcr.NodeTypes;
 import org.modeshape.jcr.RepositoryEnvironment;
+import org.modeshape.jcr.RepositoryStatistics;
 import org.modeshape.jcr.TimeoutException;
 import org.modeshape.jcr.api.Binary;
+import org.modeshape.jcr.api.monitor.DurationMetric;
 import org.modeshape.jcr.api.value.DateTime;
 import org.modeshape.jcr.cache.AllPathsCache;
 import org.modeshape.jcr.cache.CachedNode;
@@ -75,6 +77,7 @@ import org.modeshape.jcr.cache.document.SessionNode.ChangedChildren;
 import org.modeshape.jcr.cache.document.SessionNode.LockChange;
 import org.modeshape.jcr.cache.document.SessionNode.MixinChanges;
 import org.modeshape.jcr.cache.document.SessionNode.ReferrerChanges;
+import org.modeshape.jcr.txn.GroupCommitter;
 import org.modeshape.jcr.txn.Transactions;
 import org.modeshape.jcr.txn.Transactions.Transaction;
 import org.modeshape.jcr.value.BinaryKey;
@@ -85,6 +88,7 @@ import org.modeshape.jcr.value.Property;
 import org.modeshape.jcr.value.binary.AbstractBinary;
 import org.modeshape.jcr.value.binary.BinaryStore;
 import org.modeshape.jcr.value.binary.BinaryStoreException;
+import org.modeshape.jcr.value.binary.BinaryUsageLedger;
 import org.modeshape.schematic.Schematic;
 import org.modeshape.schematic.SchematicEntry;
 import org.modeshape.schematic.document.Document;
@@ -523,7 +527,20 @@ public class WritableSessionCache extends AbstractSessionCache {
 
             final int numNodes = this.changedNodes.size();
 
-            int repeat = txns.isCurrentlyInTransaction() ? 1 : MAX_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT;
+            boolean inTransaction = txns.isCurrentlyInTransaction();
+            GroupCommitter groupCommitter = repositoryEnvironment.groupCommitter();
+            if (groupCommitter != null && !inTransaction) {
+                GroupCommitter.Outcome<ChangeSet[]> outcome = commitInGroup(groupCommitter, null, preSaveOperation, lock);
+                if (outcome.isCommitted()) {
+                    events = outcome.result()[0];
+                    txn = outcome.transaction();
+                    LOGGER.debug("Altered {0} node(s)", numNodes);
+                    clearState();
+                }
+            }
+
+            // If the changes were not committed as part of a group, save them in a transaction of their own ...
+            int repeat = txn != null ? 0 : inTransaction ? 1 : MAX_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT;
             while (--repeat >= 0) {
                 // Start a ModeShape transaction (which may be a part of a larger JTA transaction) ...
                 txn = txns.begin();
@@ -668,7 +685,23 @@ public class WritableSessionCache extends AbstractSessionCache {
 
             final int numNodes = this.changedNodes.size() + that.changedNodes.size();
 
-            int repeat = txns.isCurrentlyInTransaction() ? 1 : MAX_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT;
+            boolean inTransaction = txns.isCurrentlyInTransaction();
+            GroupCommitter groupCommitter = repositoryEnvironment.groupCommitter();
+            if (groupCommitter != null && !inTransaction) {
+                GroupCommitter.Outcome<ChangeSet[]> outcome = commitInGroup(groupCommitter, that, preSaveOperation, thisLock,
+                                                                            thatLock);
+                if (outcome.isCommitted()) {
+                    events1 = outcome.result()[0];
+                    events2 = outcome.result()[1];
+                    txn = outcome.transaction();
+                    LOGGER.debug("Altered {0} node(s)", numNodes);
+                    this.clearState();
+                    that.clearState();
+                }
+            }
+
+            // If the changes were not committed as part of a group, save them in a transaction of their own ...
+            int repeat = txn != null ? 0 : inTransaction ? 1 : MAX_REPEAT_FOR_LOCK_ACQUISITION_TIMEOUT;
             while (--repeat >= 0) {
                 // Start a ModeShape transaction (which may be a part of a larger JTA transaction) ...
                 txn = txns.begin();
@@ -749,6 +782,86 @@ public class WritableSessionCache extends AbstractSessionCache {
         txns.updateCache(that.workspaceCache(), events2, txn);
     }
 
+    /**
+     * Submits the changes of this session and, optionally, of another session to the {@link GroupCommitter}, so that they're
+     * committed together with the changes of other concurrent saves. The locks held on the sessions are released while waiting,
+     * since the changes may be persisted by another thread, and are re-acquired before this method returns.
+     *
+     * @param groupCommitter the group committer; may not be null
+     * @param that the other session whose changes should be saved; may be null
+     * @param preSaveOperation the pre-save operation
+     * @param locks the session locks held by the current thread, in the order in which they were acquired
+     * @return the outcome of the save, with the events of this session and of the other session if the changes were committed;
+     *         never null
+     * @throws Exception if the outcome of the group's transaction is unknown
+     */
+    private GroupCommitter.Outcome<ChangeSet[]> commitInGroup( GroupCommitter groupCommitter,
+                                                              WritableSessionCache that,
+                                                              PreSave preSaveOperation,
+                                                              Lock... locks ) throws Exception {
+        Set<NodeKey> keys = new HashSet<>(this.changedNodesInOrder);
+        if (that != null) {
+            keys.addAll(that.changedNodesInOrder);
+        }
+        for (int i = locks.length - 1; i >= 0; --i) {
+            locks[i].unlock();
+        }
+        GroupCommitter.Outcome<ChangeSet[]> outcome;
+        try {
+            outcome = groupCommitter.commit(keys, txn -> persistInGroup(that, preSaveOperation, txn));
+        } finally {
+            for (Lock lock : locks) {
+                lock.lock();
+            }
+        }
+        // The group's transaction has completed, but only the first session of each workspace was switched back to the shared
+        // workspace cache upon completion, so stop using the transactional workspace caches of the group (if any) ...
+        this.checkForTransaction();
+        if (that != null) {
+            that.checkForTransaction();
+        }
+        if (!outcome.isCommitted()) {
+            Throwable failure = outcome.failure();
+            if (failure instanceof Exception) {
+                throw (Exception)failure;
+            } else if (failure != null) {
+                throw (Error)failure;
+            }
+        }
+        return outcome;
+    }
+
+    private ChangeSet[] persistInGroup( WritableSessionCache that,
+                                        PreSave preSaveOperation,
+                                        Transaction txn ) throws Exception {
+        this.checkForTransaction();
+        if (that != null) {
+            that.checkForTransaction();
+        }
+
+        // Lock the nodes and bring the latest version of these nodes in the transactional workspace cache
+        lockNodes(this.changedNodesInOrder);
+        if (that != null) {
+            that.lockNodes(that.changedNodesInOrder);
+        }
+        runAfterLocking(preSaveOperation);
+
+        // Now persist the changes ...
+        logChangesBeingSaved(this.changedNodesInOrder, that != null ? that.changedNodesInOrder : null);
+        ChangeSet events1 = persistChanges(this.changedNodesInOrder);
+        if (events1.hasBinaryChanges()) {
+            txn.uponCommit(binaryUsageUpdateFunction(events1.usedBinaries(), events1.unusedBinaries()));
+        }
+        ChangeSet events2 = null;
+        if (that != null) {
+            events2 = that.persistChanges(that.changedNodesInOrder);
+            if (events2.hasBinaryChanges()) {
+                txn.uponCommit(binaryUsageUpdateFunction(events2.usedBinaries(), events2.unusedBinaries()));
+            }
+        }
+        return new ChangeSet[] {events1, events2};
+    }
+
     private void checkNodeNotRemovedByAnotherTransaction( MutableCachedNode node ) {
         String keyString = node.getKey().toString();
         // if the node is not new and also missing from the document, another transaction has deleted it
@@ -897,6 +1010,16 @@ public class WritableSessionCache extends AbstractSessionCache {
      */
     @GuardedBy( "lock" )
     protected ChangeSet persistChanges(Iterable<NodeKey> changedNodesInOrder) {
+        long start = System.nanoTime();
+        try {
+            return writeChanges(changedNodesInOrder);
+        } finally {
+            recordLatency(DurationMetric.SAVE_PERSIST_TIME, start);
+        }
+    }
+
+    @GuardedBy( "lock" )
+    private ChangeSet writeChanges(Iterable<NodeKey> changedNodesInOrder) {
         
         // Compute the save meta-info ...
         WorkspaceCache persistedCache = workspaceCache();
@@ -922,6 +1045,8 @@ public class WritableSessionCache extends AbstractSessionCache {
         Set<BinaryKey> usedBinaryKeys = new HashSet<>();
         Set<NodeKey> renamedExternalNodes = new HashSet<>();
         Map<NodeKey, Map<BucketId, Set<NodeKey>>> unorderedCollectionBucketRemovals = null;
+        DirtyChildBlocks dirtyChildBlocks = repositoryEnvironment.dirtyChildBlocks();
+        Set<String> parentsWithDirtyChildBlocks = new HashSet<>();
         
         NodeTypes nodeTypes = nodeTypes();
         for (NodeKey key : changedNodesInOrder) {
@@ -968,7 +1093,7 @@ public class WritableSessionCache extends AbstractSessionCache {
                     ReferrerChanges referrerChanges = referrerChangesForRemovedNodes.get(key);
                     if (referrerChanges != null) {
                         EditableDocument doc = documentStore.edit(keyStr, false);
-                        if (doc != null) translator.changeReferrers(doc, referrerChanges);
+                        if (doc != null) translator.changeReferrers(doc, keyStr, referrerChanges);
                     }
 
                     // if the node had any binary properties, make sure we decrement the ref count of each
@@ -991,6 +1116,13 @@ public class WritableSessionCache extends AbstractSessionCache {
                 Set<Name> mixinTypes = node.getMixinTypes(this);
                 boolean isUnorderedCollection = nodeTypes != null && nodeTypes.isUnorderedCollection(primaryType, mixinTypes);
                
+                if (hasOnlyBucketedReferrerChanges(node)) {
+                    // Only the buckets holding the referrers are changed, not the node's document ...
+                    translator.changeBucketedReferrers(keyStr, node.getReferrerChanges());
+                    changes.nodeChanged(key, sessionPaths.getPath(node), primaryType, mixinTypes);
+                    continue;
+                }
+
                 CachedNode persisted = null;
                 Path newPath = null;
                 NodeKey newParent = node.newParent();
@@ -1159,6 +1291,10 @@ public class WritableSessionCache extends AbstractSessionCache {
                     // Just appended children ...  
                     if (!isUnorderedCollection) {
                         translator.changeChildren(doc, changedChildren, appended);
+                        if (dirtyChildBlocks != null && !isExternal
+                            && dirtyChildBlocks.needsOptimization(doc, false, documentStore)) {
+                            parentsWithDirtyChildBlocks.add(keyStr);
+                        }
                     } else {
                         translator.addChildrenToBuckets(doc, appended);
                     }
@@ -1192,6 +1328,11 @@ public class WritableSessionCache extends AbstractSessionCache {
                     if (!isUnorderedCollection) {
                         // this is a regular node
                         translator.changeChildren(doc, changedChildren, appended);
+                        boolean childrenRemoved = !changedChildren.getRemovals().isEmpty();
+                        if (dirtyChildBlocks != null && !isExternal
+                            && dirtyChildBlocks.needsOptimization(doc, childrenRemoved, documentStore)) {
+                            parentsWithDirtyChildBlocks.add(keyStr);
+                        }
                     } else {
                         // there are both added & removed children for this collection
                         if (appended != null && !appended.isEmpty()) {
@@ -1282,7 +1423,7 @@ public class WritableSessionCache extends AbstractSessionCache {
                 ReferrerChanges referrerChanges = node.getReferrerChanges();
                 boolean nodeChanged = false;
                 if (referrerChanges != null && !referrerChanges.isEmpty()) {
-                    translator.changeReferrers(doc, referrerChanges);
+                    translator.changeReferrers(doc, keyStr, referrerChanges);
                     changes.nodeChanged(key, newPath, primaryType, mixinTypes);
                     nodeChanged = true;
                 }
@@ -1403,6 +1544,7 @@ public class WritableSessionCache extends AbstractSessionCache {
             assert !removedNodes.isEmpty();
             // we need to collect the referrers at the end only, so that other potential changes in references have been computed
             Map<NodeKey, Set<NodeKey>> referrersByRemovedNodes = new HashMap<>();
+            List<Document> removedDocsWithReferrerBuckets = null;
          
             for (NodeKey removedKey : removedNodes) {
                 // we need the current document from the documentStore, because may differs from what's persisted (i.e. the latest
@@ -1411,6 +1553,12 @@ public class WritableSessionCache extends AbstractSessionCache {
                 if (entry != null) {
                     // The entry hasn't yet been removed by another (concurrent) session ...
                     Document doc = entry.content();
+                    if (translator.hasBucketedReferrers(doc)) {
+                        if (removedDocsWithReferrerBuckets == null) {
+                            removedDocsWithReferrerBuckets = new ArrayList<>();
+                        }
+                        removedDocsWithReferrerBuckets.add(doc);
+                    }
                     Set<NodeKey> strongReferrers = translator.getReferrers(doc, ReferenceType.STRONG);
                     strongReferrers.removeAll(removedNodes);
                     if (!strongReferrers.isEmpty()) {
@@ -1439,6 +1587,11 @@ public class WritableSessionCache extends AbstractSessionCache {
             for (NodeKey removedKey : removedNodes) {
                 documentStore.remove(removedKey.toString());
             }
+            if (removedDocsWithReferrerBuckets != null) {
+                for (Document doc : removedDocsWithReferrerBuckets) {
+                    translator.removeReferrerBuckets(doc);
+                }
+            }
         }
 
         if (!unusedBinaryKeys.isEmpty()) {
@@ -1455,6 +1608,11 @@ public class WritableSessionCache extends AbstractSessionCache {
             }
         }
 
+        if (!parentsWithDirtyChildBlocks.isEmpty()) {
+            // Record the parents whose blocks of children are now too large or too small, so that they are optimized later ...
+            dirtyChildBlocks.markDirty(documentStore.localStore(), txns.currentTransaction(), parentsWithDirtyChildBlocks);
+        }
+
         changes.setChangedNodes(changedNodes.keySet()); // don't need to make a copy
         changes.freeze(userId, userData, timestamp);
         return changes;
@@ -1491,6 +1649,22 @@ public class WritableSessionCache extends AbstractSessionCache {
     }
 
     private void lockNodes(Collection<NodeKey> changedNodesInOrder) {
+        long start = System.nanoTime();
+        try {
+            acquireLocks(changedNodesInOrder);
+        } finally {
+            recordLatency(DurationMetric.SAVE_LOCK_TIME, start);
+        }
+    }
+
+    private void recordLatency(DurationMetric metric, long start) {
+        RepositoryStatistics statistics = repositoryEnvironment.statistics();
+        if (statistics != null) {
+            statistics.recordLatency(metric, System.nanoTime() - start);
+        }
+    }
+
+    private void acquireLocks(Collection<NodeKey> changedNodesInOrder) {
         WorkspaceCache workspaceCache = workspaceCache();
         // this should be a transactional ws cache always since we've already started a tx by now
         assert workspaceCache instanceof TransactionalWorkspaceCache;
@@ -1554,8 +1728,16 @@ public class WritableSessionCache extends AbstractSessionCache {
     
     private Set<String> keysToLockForNode(NodeKey key) {
         Set<String> keys = new TreeSet<>();
-        //always the node itself
-        keys.add(key.toString());
+        SessionNode node = changedNodes.get(key);
+        ReferrerChanges referrerChanges = node != null && node != REMOVED ? node.getReferrerChanges() : null;
+        if (referrerChanges != null && !referrerChanges.isEmpty()) {
+            // the referrers may be stored in buckets, so lock the buckets which would be changed ...
+            keys.addAll(translator().referrerBucketKeys(key, referrerChanges));
+        }
+        if (!hasOnlyBucketedReferrerChanges(node)) {
+            // the node itself
+            keys.add(key.toString());
+        }
         Set<BinaryKey> binaryReferencesForNode = binaryReferencesByNodeKey.get(key);
         if (binaryReferencesForNode == null || binaryReferencesForNode.isEmpty()) {
             return keys;
@@ -1567,9 +1749,27 @@ public class WritableSessionCache extends AbstractSessionCache {
         return keys;
     }
    
+    /**
+     * Determine whether the supplied node has no other changes than referrer changes and the node's referrers are stored in
+     * buckets, in which case saving the node only changes the buckets and the node's document doesn't need to be locked.
+     * Once a node's referrers are bucketed they remain so, which means that it's safe to look at any persisted version of the
+     * node's document.
+     *
+     * @param node the changed node; may be null
+     * @return true if only the referrer buckets need to be changed, or false otherwise
+     */
+    private boolean hasOnlyBucketedReferrerChanges( SessionNode node ) {
+        if (node == null || node == REMOVED || !node.hasOnlyReferrerChanges()) {
+            return false;
+        }
+        SchematicEntry entry = workspaceCache().documentStore().get(node.getKey().toString());
+        return entry != null && translator().hasBucketedReferrers(entry.content());
+    }
+
     private Transactions.TransactionFunction binaryUsageUpdateFunction( final Set<BinaryKey> usedBinaries,
                                                                         final Set<BinaryKey> unusedBinaries ) {
         final BinaryStore binaryStore = getContext().getBinaryStore();
+        final BinaryUsageLedger binaryUsageLedger = repositoryEnvironment.binaryUsageLedger();
         return () -> {
             if (!usedBinaries.isEmpty()) {
                 if (LOGGER.isDebugEnabled()) {
@@ -1577,6 +1777,9 @@ public class WritableSessionCache extends AbstractSessionCache {
                 }
                 try {
                     binaryStore.markAsUsed(usedBinaries);
+                    if (binaryUsageLedger != null) {
+                        binaryUsageLedger.recordUsed(usedBinaries);
+                    }
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug("Finished marking binary values as used: {0}", usedBinaries);
                     }
@@ -1591,6 +1794,10 @@ public class WritableSessionCache extends AbstractSessionCache {
                 }
                 try {
                     binaryStore.markAsUnused(unusedBinaries);
+                    if (binaryUsageLedger != null) {
+                        // only after the store has marked them, so that the store will agree they can be removed ...
+                        binaryUsageLedger.recordUnused(unusedBinaries);
+                    }
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug("Finished marking binary values as unused: {0}", unusedBinaries);
                     }
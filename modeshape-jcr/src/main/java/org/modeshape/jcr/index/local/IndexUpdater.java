@@ -31,12 +31,22 @@ public final class IndexUpdater {
     private static final String LAST_SUCCESSFUL_UPDATE = "$lastSuccessfulUpdateAt";
     
     private final DB db;
+    private final MappedIndexStore store;
 
     protected IndexUpdater( DB db ) {
+        this(db, null);
+    }
+
+    protected IndexUpdater( DB db, MappedIndexStore store ) {
         this.db = db;
+        this.store = store;
     }
     
     protected void commit() {
+        if (store != null) {
+            // the index entries must be durable before the update time is recorded
+            store.commit();
+        }
         writeLatestUpdateTime(System.currentTimeMillis());
         db.commit();
     }
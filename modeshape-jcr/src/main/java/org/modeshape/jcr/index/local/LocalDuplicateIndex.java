@@ -20,7 +20,6 @@ import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.jcr.query.qom.StaticOperand;
 import org.mapdb.DB;
-import org.mapdb.Fun;
 import org.mapdb.Serializer;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.jcr.cache.NodeKey;
@@ -43,6 +42,7 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
      * @param name the name of the index; may not be null or empty
      * @param workspaceName the name of the workspace; may not be null
      * @param db the database in which the index information is to be stored; may not be null
+     * @param store the store in which the index entries are to be kept off-heap, or null if they are to be stored in the database
      * @param converter the converter from {@link StaticOperand} to values being indexed; may not be null
      * @param valueSerializer the serializer for the type of value being indexed
      * @param comparator the comparator for the values; may not be null
@@ -51,10 +51,11 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
     static <T> LocalDuplicateIndex<T> create( String name,
                                               String workspaceName,
                                               DB db,
+                                              MappedIndexStore store,
                                               Converter<T> converter,
                                               Serializer<T> valueSerializer,
                                               Comparator<T> comparator ) {
-        return new LocalDuplicateIndex<>(name, workspaceName, db, converter, valueSerializer, comparator);
+        return new LocalDuplicateIndex<>(name, workspaceName, db, store, converter, valueSerializer, comparator);
     }
 
     private static final String NEXT_COUNTER = "next-counter";
@@ -65,10 +66,11 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
     protected LocalDuplicateIndex( String name,
                                    String workspaceName,
                                    DB db,
+                                   MappedIndexStore store,
                                    Converter<T> converter,
                                    Serializer<T> valueSerializer,
                                    Comparator<T> comparator ) {
-        super(name, workspaceName, db, IndexValues.uniqueKeyConverter(converter), MapDB.uniqueKeyBTreeSerializer(valueSerializer,
+        super(name, workspaceName, db, store, IndexValues.uniqueKeyConverter(converter), MapDB.uniqueKeyBTreeSerializer(valueSerializer,
                                                                                                                  comparator),
               MapDB.uniqueKeySerializer(valueSerializer, comparator));
         Long nextCounter = (Long)options.get(NEXT_COUNTER);
@@ -87,7 +89,7 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
                      String propertyName, 
                      T value ) {
         logger.trace("Adding node '{0}' to '{1}' index with value '{2}'", nodeKey, name, value);
-        keysByValue.put(new UniqueKey<T>(value, counter.getAndIncrement()), nodeKey);
+        putEntry(new UniqueKey<T>(value, counter.getAndIncrement()), nodeKey);
     }
 
     @Override
@@ -95,10 +97,10 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
                         String propertyName, 
                         T value ) {
         // Find all of the T values (entry keys) for the given node key (entry values) and remove those which have value 'value'
-        for (UniqueKey<T> key : Fun.filter(valuesByKey, nodeKey)) {
+        for (UniqueKey<T> key : valuesFor(nodeKey)) {
             if (key.actualKey.equals(value)) {
                 logger.trace("Removing node '{0}' from '{1}' index with value '{2}'", nodeKey, name, key.actualKey);
-                keysByValue.remove(key);
+                removeEntry(key, nodeKey);
             }
         }
     }
@@ -106,9 +108,9 @@ final class LocalDuplicateIndex<T> extends LocalMapIndex<UniqueKey<T>, T> {
     @Override
     public void remove( String nodeKey ) {
         // Find all of the T values (entry keys) for the given node key (entry values) ...
-        for (UniqueKey<T> key : Fun.filter(valuesByKey, nodeKey)) {
+        for (UniqueKey<T> key : valuesFor(nodeKey)) {
             logger.trace("Removing node '{0}' from '{1}' index with value '{2}'", nodeKey, name, key.actualKey);
-            keysByValue.remove(key);
+            removeEntry(key, nodeKey);
         }
     }
 }
@@ -27,6 +27,7 @@ import org.mapdb.BTreeKeySerializer;
 import org.mapdb.DB;
 import org.modeshape.jcr.index.local.IndexValues.Converter;
 import org.modeshape.jcr.spi.index.IndexConstraints;
+import org.modeshape.jcr.value.ValueComparators;
 
 /**
  * An index for enumerated values. This index only supports string-based values, since all enumerated values are discrete.
@@ -38,18 +39,20 @@ final class LocalEnumeratedIndex extends LocalIndex<String> {
     static LocalEnumeratedIndex create( String name,
                                         String workspaceName,
                                         DB db,
+                                        MappedIndexStore store,
                                         Converter<String> converter,
                                         BTreeKeySerializer<String> valueSerializer,
                                         Set<String> enumeratedValues ) {
-        return new LocalEnumeratedIndex(name, workspaceName, db, converter, valueSerializer, enumeratedValues);
+        return new LocalEnumeratedIndex(name, workspaceName, db, store, converter, valueSerializer, enumeratedValues);
     }
 
     static LocalEnumeratedIndex create( String name,
                                         String workspaceName,
                                         DB db,
+                                        MappedIndexStore store,
                                         Converter<String> converter,
                                         BTreeKeySerializer<String> valueSerializer ) {
-        return new LocalEnumeratedIndex(name, workspaceName, db, converter, valueSerializer, null);
+        return new LocalEnumeratedIndex(name, workspaceName, db, store, converter, valueSerializer, null);
     }
 
     protected final ConcurrentNavigableMap<String, Set<String>> nodeKeySetsByValue;
@@ -60,17 +63,18 @@ final class LocalEnumeratedIndex extends LocalIndex<String> {
     LocalEnumeratedIndex( String name,
                           String workspaceName,
                           DB db,
+                          MappedIndexStore store,
                           Converter<String> converter,
                           BTreeKeySerializer<String> valueSerializer,
                           Set<String> possibleValues ) {
-        super(name, workspaceName, db);
+        super(name, workspaceName, db, store);
 
         this.converter = converter;
         this.possibleValues = possibleValues != null ? new HashSet<String>(possibleValues) : new HashSet<String>();
         this.nodeKeySetsByValue = new ConcurrentSkipListMap<>();
         // Read all of the existing collections ...
         boolean foundContent = false;
-        for (String collectionName : db.getAll().keySet()) {
+        for (String collectionName : store != null ? store.names() : db.getAll().keySet()) {
             String prefix = this.name + "/enumerated/";
             if (collectionName.startsWith(prefix)) {
                 foundContent = true;
@@ -94,7 +98,7 @@ final class LocalEnumeratedIndex extends LocalIndex<String> {
     private Set<String> createOrGetKeySet( String value ) {
         String collectionName = collectionName(value);
         if (logger.isDebugEnabled()) {
-            if (db.exists(collectionName)) {
+            if (exists(collectionName)) {
                 logger.debug("Reopening enum storage '{0}' for '{1}' index in workspace '{2}'", collectionName, name,
                              workspace);
             } else {
@@ -102,7 +106,9 @@ final class LocalEnumeratedIndex extends LocalIndex<String> {
             }
         }
         // Try to create the set ...
-        Set<String> keySet = db.getHashSet(collectionName); // make sure this is ATOMIC !
+        // make sure this is ATOMIC !
+        Set<String> keySet = store != null ? store.map(collectionName, MappedIndexStore.STRING_SERIALIZER,
+                                                       ValueComparators.STRING_COMPARATOR).asSet() : db.getHashSet(collectionName);
         Set<String> previous = nodeKeySetsByValue.putIfAbsent(value, keySet);
         if (previous != null) keySet = previous;
         return keySet;
@@ -112,6 +118,18 @@ final class LocalEnumeratedIndex extends LocalIndex<String> {
         return name + "/enumerated/" + value;
     }
 
+    private boolean exists( String collectionName ) {
+        return store != null ? store.exists(collectionName) : db.exists(collectionName);
+    }
+
+    private void delete( String collectionName ) {
+        if (store != null) {
+            store.delete(collectionName);
+        } else if (db.exists(collectionName)) {
+            db.delete(collectionName);
+        }
+    }
+
     @Override
     public String getName() {
         return name;
@@ -187,9 +205,7 @@ final class LocalEnumeratedIndex extends LocalIndex<String> {
         for (Map.Entry<String, Set<String>> entry : nodeKeySetsByValue.entrySet()) {
             entry.getValue().clear();
             String collectionName = collectionName(entry.getKey());
-            if (db.exists(collectionName)) {
-                db.delete(collectionName);
-            }
+            delete(collectionName);
         }
         nodeKeySetsByValue.clear();
     }
@@ -200,9 +216,7 @@ final class LocalEnumeratedIndex extends LocalIndex<String> {
             // Remove the database since the index was destroyed ...
             for (String value : nodeKeySetsByValue.keySet()) {
                 String collectionName = collectionName(value);
-                if (db.exists(collectionName)) {
-                    db.delete(collectionName);
-                }
+                delete(collectionName);
             }
             nodeKeySetsByValue.clear();
         }
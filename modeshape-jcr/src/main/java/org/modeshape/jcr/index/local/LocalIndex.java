@@ -35,15 +35,17 @@ public abstract class LocalIndex<T> implements ProvidedIndex<T> {
     protected final String workspace;
     protected final IndexUpdater indexUpdater;
     protected final DB db;
+    protected final MappedIndexStore store;
 
-    protected LocalIndex( String name, String workspace, DB db ) {
+    protected LocalIndex( String name, String workspace, DB db, MappedIndexStore store ) {
         assert name != null;
         assert workspace != null;
         
         this.name = name;
         this.workspace = workspace;
         this.db = db;
-        this.indexUpdater = new IndexUpdater(db);
+        this.store = store;
+        this.indexUpdater = new IndexUpdater(db, store);
     }
 
     @Override
@@ -54,6 +54,7 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
      * @param workspaceName the name of the workspace for which to build the index; may not be null
      * @param matcher the node type matcher used to determine which nodes should be included in the index; may not be null
      * @param db the MapDB DB instance; may not be null
+     * @param store the store in which the index entries are to be kept off-heap, or null if they are to be stored in {@code db}
      * @return the index builder; never null
      */
     public static <T> LocalIndexBuilder<T> create( ExecutionContext context,
@@ -61,14 +62,15 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
                                                    Supplier nodeTypesSupplier,
                                                    String workspaceName,
                                                    NodeTypePredicate matcher,
-                                                   DB db) {
+                                                   DB db,
+                                                   MappedIndexStore store ) {
         SimpleProblems problems = new SimpleProblems();
         validate(defn, problems);
         if (problems.hasErrors()) {
             throw new LocalIndexException(problems.toString());
         }
         PropertyType actualPropertyType = determineActualPropertyType(defn.getColumnDefinition(0));
-        return new SingleColumnIndexBuilder<>(context, defn, nodeTypesSupplier,workspaceName, matcher, actualPropertyType, db);
+        return new SingleColumnIndexBuilder<>(context, defn, nodeTypesSupplier,workspaceName, matcher, actualPropertyType, db, store);
     }
 
     protected final Serializers serializers;
@@ -120,6 +122,7 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
         private final ValueFactory<T> factory;
         private final ValueFactory<String> stringFactory;
         private final DB db;
+        private final MappedIndexStore store;
 
         @SuppressWarnings( "unchecked" )
         protected SingleColumnIndexBuilder( ExecutionContext context,
@@ -128,12 +131,18 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
                                             String workspaceName,
                                             NodeTypePredicate matcher,
                                             PropertyType actualPropertyType, 
-                                            DB db ) {
+                                            DB db,
+                                            MappedIndexStore store ) {
             super(context, defn, nodeTypesSupplier, workspaceName, matcher);
             assert defn.hasSingleColumn();
             type = actualPropertyType;
             clazz = (Class<T>)type.getValueClass();
-            serializer = (Serializer<T>)serializers.serializerFor(clazz);
+            if (store != null && clazz == String.class) {
+                // the mapped store compresses common prefixes, which are more frequent with this encoding ...
+                serializer = (Serializer<T>)MappedIndexStore.STRING_SERIALIZER;
+            } else {
+                serializer = (Serializer<T>)serializers.serializerFor(clazz);
+            }
             comparator = (Comparator<T>)type.getComparator();
             btreeKeySerializer = (BTreeKeySerializer<T>)serializers.bTreeKeySerializerFor(clazz, comparator, false);
             factory = (ValueFactory<T>)this.context.getValueFactories().getValueFactory(type);
@@ -144,6 +153,7 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
                                                                                                   false);
             stringConverter = IndexValues.converter(stringFactory);
             this.db = db;
+            this.store = store;
         }
 
         @Override
@@ -172,21 +182,21 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
         protected ProvidedIndex<?> buildMultiValueIndex( ExecutionContext context, IndexDefinition defn, String workspaceName,
                                                          Supplier nodeTypesSupplier,
                                                          NodeTypePredicate matcher ) {
-            return LocalDuplicateIndex.create(indexName(), workspaceName, db, getConverter(), getSerializer(), getComparator());
+            return LocalDuplicateIndex.create(indexName(), workspaceName, db, store, getConverter(), getSerializer(), getComparator());
         }
 
         @Override
         protected ProvidedIndex<?> buildUniqueValueIndex( ExecutionContext context, IndexDefinition defn, String workspaceName,
                                                           Supplier nodeTypesSupplier,
                                                           NodeTypePredicate matcher ) {
-            return LocalUniqueIndex.create(indexName(), workspaceName, db, getConverter(), getBTreeKeySerializer(), getSerializer());
+            return LocalUniqueIndex.create(indexName(), workspaceName, db, store, getConverter(), getBTreeKeySerializer(), getSerializer());
         }
 
         @Override
         protected ProvidedIndex<?> buildEnumeratedIndex( ExecutionContext context, IndexDefinition defn, String workspaceName,
                                                          Supplier nodeTypesSupplier,
                                                          NodeTypePredicate matcher ) {
-            return LocalEnumeratedIndex.create(defn.getName(), workspaceName, db, stringConverter, stringBtreeSerializer);
+            return LocalEnumeratedIndex.create(defn.getName(), workspaceName, db, store, stringConverter, stringBtreeSerializer);
         }
 
         @Override
@@ -200,7 +210,7 @@ public abstract class LocalIndexBuilder<T> extends ManagedIndexBuilder {
         protected ProvidedIndex<?> buildNodeTypeIndex( ExecutionContext context, IndexDefinition defn, String workspaceName,
                                                        Supplier nodeTypesSupplier,
                                                        NodeTypePredicate matcher ) {
-            return LocalEnumeratedIndex.create(defn.getName(), workspaceName, db, stringConverter, stringBtreeSerializer);
+            return LocalEnumeratedIndex.create(defn.getName(), workspaceName, db, store, stringConverter, stringBtreeSerializer);
         }
     }
 }
@@ -17,6 +17,7 @@
 package org.modeshape.jcr.index.local;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Paths;
 import javax.jcr.RepositoryException;
 import org.mapdb.DB;
@@ -46,12 +47,27 @@ import org.modeshape.jcr.spi.index.provider.ManagedIndexBuilder;
  * <li>an {@code directory} attribute, or</li>
  * <li>an {@code path} attribute <i>and</i> an {@code relativeTo} attribute</li>
  * </ul>
+ * The index entries are stored in the MapDB database unless the {@code storageEngine} attribute is set to
+ * {@value #MMAP_STORAGE_ENGINE}, in which case they are kept off-heap in memory-mapped files.
+ * </p>
  *
  * @author Randall Hauch (rhauch@redhat.com)
  */
 public class LocalIndexProvider extends IndexProvider {
     
+    /**
+     * The name of the storage engine which stores all index entries in the MapDB database.
+     */
+    public static final String MAPDB_STORAGE_ENGINE = "mapdb";
+
+    /**
+     * The name of the storage engine which stores the index entries off-heap, in memory-mapped files. Only the metadata of the
+     * indexes is stored in the MapDB database.
+     */
+    public static final String MMAP_STORAGE_ENGINE = "mmap";
+
     private static final String DB_FILENAME = "local-indexes.db";
+    private static final String MMAP_DIRNAME = "local-indexes.mmap";
     
     /**
      * The directory in which the indexes are to be stored. This needs to be set, or the {@link #path} and {@link #relativeTo}
@@ -69,8 +85,19 @@ public class LocalIndexProvider extends IndexProvider {
      */
     private String relativeTo;
     private DB db;
+    private MappedIndexStore store;
     private IndexUpdater indexUpdater;
 
+    /**
+     * The engine used to store the index entries, either {@link #MAPDB_STORAGE_ENGINE} or {@link #MMAP_STORAGE_ENGINE}.
+     */
+    private String storageEngine = MAPDB_STORAGE_ENGINE;
+    /**
+     * The maximum number of changes buffered in memory by each index before they are written to a memory-mapped file; only
+     * used by the {@link #MMAP_STORAGE_ENGINE} engine.
+     */
+    private Integer maxBufferedEntries;
+
     /**
      * A bunch of MapDB specific options which can be used to further tweak this provider
      */
@@ -108,6 +135,11 @@ public class LocalIndexProvider extends IndexProvider {
         if (directory == null) {
             throw new RepositoryException(JcrI18n.localIndexProviderMustHaveDirectory.text(getRepositoryName()));
         }
+        if (!MAPDB_STORAGE_ENGINE.equals(storageEngine) && !MMAP_STORAGE_ENGINE.equals(storageEngine)) {
+            throw new RepositoryException(JcrI18n.localIndexProviderUnknownStorageEngine.text(getName(), getRepositoryName(),
+                                                                                              storageEngine, MAPDB_STORAGE_ENGINE,
+                                                                                              MMAP_STORAGE_ENGINE));
+        }
         logger().debug("Initializing the local index provider '{0}' in repository '{1}' at: {2}", getName(), getRepositoryName(),
                        directory);
 
@@ -169,7 +201,23 @@ public class LocalIndexProvider extends IndexProvider {
         // we always want to have the close via the shutdown hook; it should be idempotent
         dbMaker.closeOnJvmShutdown();
         this.db = dbMaker.make();
-        this.indexUpdater = new IndexUpdater(db);
+        if (MMAP_STORAGE_ENGINE.equals(storageEngine)) {
+            File mmapDir = new File(dir, MMAP_DIRNAME);
+            int maxBuffered = maxBufferedEntries != null ? maxBufferedEntries : MappedIndexStore.DEFAULT_MAX_BUFFERED_ENTRIES;
+            try {
+                this.store = MappedIndexStore.open(mmapDir, maxBuffered);
+            } catch (IOException e) {
+                db.close();
+                db = null;
+                throw new RepositoryException(JcrI18n.localIndexProviderUnableToOpenMappedStorage.text(getName(),
+                                                                                                       getRepositoryName(),
+                                                                                                       mmapDir.getAbsolutePath(),
+                                                                                                       e.getMessage()), e);
+            }
+            logger().debug("Index entries of index provider {0} are stored off-heap at: {1}", getName(),
+                           mmapDir.getAbsolutePath());
+        }
+        this.indexUpdater = new IndexUpdater(db, store);
         
         logger().trace("Found the index files {0} in index database for repository '{1}' at: {2}", db.getCatalog(),
                        getRepositoryName(), file.getAbsolutePath());
@@ -178,6 +226,13 @@ public class LocalIndexProvider extends IndexProvider {
     @Override
     protected void postShutdown() {
         logger().debug("Shutting down the local index provider '{0}' in repository '{1}'", getName(), getRepositoryName());
+        if (store != null) {
+            try {
+                store.close();
+            } finally {
+                store = null;
+            }
+        }
         if (db != null && !db.isClosed()) {
             try {
                 db.commit();
@@ -207,7 +262,7 @@ public class LocalIndexProvider extends IndexProvider {
                                                    String workspaceName,
                                                    Supplier nodeTypesSupplier,
                                                    NodeTypePredicate matcher ) {
-        return LocalIndexBuilder.create(context(), defn, nodeTypesSupplier, workspaceName, matcher, db);
+        return LocalIndexBuilder.create(context(), defn, nodeTypesSupplier, workspaceName, matcher, db, store);
     }
 
     @Override
@@ -17,9 +17,12 @@
 package org.modeshape.jcr.index.local;
 
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.NavigableSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import javax.jcr.query.qom.Constraint;
 import org.mapdb.BTreeKeySerializer;
@@ -41,10 +44,11 @@ import org.modeshape.jcr.value.ValueComparators;
  */
 abstract class LocalMapIndex<T, V> extends LocalIndex<V> {
 
-    protected final BTreeMap<T, String> keysByValue;
+    protected final NavigableMap<T, String> keysByValue;
     protected final NavigableSet<Fun.Tuple2<String, T>> valuesByKey;
     protected final ConcurrentMap<String, Object> options;
     private final Converter<T> converter;
+    private final MappedSortedMap<Fun.Tuple2<String, T>> mappedValuesByKey;
    
     protected final Comparator<T> comparator;
     private final boolean isNew;
@@ -52,42 +56,127 @@ abstract class LocalMapIndex<T, V> extends LocalIndex<V> {
     LocalMapIndex( String name,
                    String workspaceName,
                    DB db,
+                   MappedIndexStore store,
                    Converter<T> converter,
                    BTreeKeySerializer<T> valueSerializer,
                    Serializer<T> valueRawSerializer ) {
-        super(name, workspaceName, db);
+        super(name, workspaceName, db, store);
 
         assert converter != null;
         assert valueSerializer != null;
         this.converter = converter;
+        this.comparator = valueSerializer.getComparator();
+        final Comparator<String> strComparator = ValueComparators.STRING_COMPARATOR;
+        final Comparator<Fun.Tuple2<String, T>> revComparator = MapDB.tupleComparator(strComparator, comparator);
+        if (store != null) {
+            // The entries are kept by the mapped store, and only the options are kept in MapDB ...
+            this.isNew = !store.exists(name);
+            if (isNew) {
+                logger.debug("Creating mapped storage for '{0}' index in workspace '{1}'", name, workspaceName);
+            } else {
+                logger.debug("Reopening mapped storage for '{0}' index in workspace '{1}'", name, workspaceName);
+            }
+            this.options = db.createHashMap(name + "/options").makeOrGet();
+            this.keysByValue = store.map(name, valueRawSerializer, comparator);
+            this.mappedValuesByKey = store.map(name + "/inverse",
+                                               MapDB.tupleSerializer(MappedIndexStore.STRING_SERIALIZER, valueRawSerializer),
+                                               revComparator);
+            this.valuesByKey = null;
+            return;
+        }
+        this.mappedValuesByKey = null;
+        BTreeMap<T, String> keysByValue;
         if (db.exists(name)) {
             logger.debug("Reopening storage for '{0}' index in workspace '{1}'", name, workspaceName);
             this.options = db.getHashMap(name + "/options");
-            this.keysByValue = db.getTreeMap(name);
+            keysByValue = db.getTreeMap(name);
             this.valuesByKey = db.getTreeSet(name + "/inverse");
             this.isNew = false;
         } else {
             logger.debug("Creating storage for '{0}' index in workspace '{1}'", name, workspaceName);
             this.isNew = true;
             this.options = db.createHashMap(name + "/options").makeOrGet();
-            this.keysByValue = db.createTreeMap(name).counterEnable().comparator(valueSerializer.getComparator())
-                                 .keySerializer(valueSerializer).makeOrGet();
+            keysByValue = db.createTreeMap(name).counterEnable().comparator(valueSerializer.getComparator())
+                            .keySerializer(valueSerializer).makeOrGet();
             // Create the TreeSet used in the reverse mapping, but we have to set a comparator that works in terms of the
             // Fun.Tuple2<String,T> ...
-            final Comparator<String> strComparator = ValueComparators.STRING_COMPARATOR;
             final Serializer<String> strSerializer = Serializer.STRING;
-            final Comparator<T> valueComparator = valueSerializer.getComparator();
-            final Comparator<Fun.Tuple2<String, T>> revComparator = MapDB.tupleComparator(strComparator, valueComparator);
             final BTreeKeySerializer<Fun.Tuple2<String, T>> revSerializer = MapDB.tupleBTreeSerializer(strComparator,
                                                                                                        strSerializer,
                                                                                                        valueRawSerializer,
                                                                                                        revComparator);
             this.valuesByKey = db.createTreeSet(name + "/inverse").comparator(revComparator).serializer(revSerializer).makeOrGet();
         }
-        this.comparator = valueSerializer.getComparator();
+        this.keysByValue = keysByValue;
 
         // Bind the map and the set together so the set is auto-updated as the map is changed ...
-        Bind.mapInverse(this.keysByValue, this.valuesByKey);
+        Bind.mapInverse(keysByValue, this.valuesByKey);
+    }
+
+    /**
+     * Get the values which are mapped to the given node key.
+     *
+     * @param nodeKey the node key
+     * @return the values; never null
+     */
+    protected final Iterable<T> valuesFor( String nodeKey ) {
+        if (mappedValuesByKey == null) {
+            return Fun.filter(valuesByKey, nodeKey);
+        }
+        @SuppressWarnings( "unchecked" )
+        final Set<Fun.Tuple2<String, T>> tuples = mappedValuesByKey.subMap(Fun.t2(nodeKey, (T)null), true,
+                                                                           Fun.t2(nodeKey, (T)Fun.HI), true).keySet();
+        return () -> {
+            final Iterator<Fun.Tuple2<String, T>> iter = tuples.iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return iter.next().b;
+                }
+
+                @Override
+                public void remove() {
+                    iter.remove();
+                }
+            };
+        };
+    }
+
+    /**
+     * Map the given value to the given node key.
+     *
+     * @param value the value
+     * @param nodeKey the node key
+     */
+    protected final void putEntry( T value,
+                                   String nodeKey ) {
+        String previous = keysByValue.put(value, nodeKey);
+        if (mappedValuesByKey != null) {
+            // the inverse is only bound to the map when using MapDB ...
+            if (previous != null && !previous.equals(nodeKey)) {
+                mappedValuesByKey.remove(Fun.t2(previous, value));
+            }
+            mappedValuesByKey.put(Fun.t2(nodeKey, value), "");
+        }
+    }
+
+    /**
+     * Remove the given value, which is mapped to the given node key.
+     *
+     * @param value the value
+     * @param nodeKey the node key
+     */
+    protected final void removeEntry( T value,
+                                      String nodeKey ) {
+        keysByValue.remove(value);
+        if (mappedValuesByKey != null) {
+            mappedValuesByKey.remove(Fun.t2(nodeKey, value));
+        }
     }
 
     @Override
@@ -106,7 +195,10 @@ abstract class LocalMapIndex<T, V> extends LocalIndex<V> {
 
     @Override
     public long estimateTotalCount() {
-        return keysByValue.sizeLong();
+        if (keysByValue instanceof MappedSortedMap) {
+            return ((MappedSortedMap<T>)keysByValue).sizeLong();
+        }
+        return ((BTreeMap<T, String>)keysByValue).sizeLong();
     }
 
     protected final Converter<T> converter() {
@@ -127,13 +219,21 @@ abstract class LocalMapIndex<T, V> extends LocalIndex<V> {
     @Override
     public void clearAllData() {
         keysByValue.clear();
+        if (mappedValuesByKey != null) {
+            mappedValuesByKey.clear();
+        }
     }
 
     @Override
     public void shutdown( boolean destroyed ) {
         if (destroyed) {
             // Remove the database since the index was destroyed ...
-            db.delete(name);
+            if (store != null) {
+                store.delete(name);
+                store.delete(name + "/inverse");
+            } else {
+                db.delete(name);
+            }
         }
     }
 
@@ -19,7 +19,6 @@ package org.modeshape.jcr.index.local;
 import javax.jcr.query.qom.StaticOperand;
 import org.mapdb.BTreeKeySerializer;
 import org.mapdb.DB;
-import org.mapdb.Fun;
 import org.mapdb.Serializer;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.index.local.IndexValues.Converter;
@@ -40,6 +39,7 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
      * @param name the name of the index; may not be null or empty
      * @param workspaceName the name of the workspace; may not be null
      * @param db the database in which the index information is to be stored; may not be null
+     * @param store the store in which the index entries are to be kept off-heap, or null if they are to be stored in the database
      * @param converter the converter from {@link StaticOperand} to values being indexed; may not be null
      * @param valueSerializer the serializer for the type of value being indexed; may not be null
      * @param rawSerializer the raw value serializer for the type of value being indexed; may not be null
@@ -48,10 +48,11 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
     static <T> LocalUniqueIndex<T> create( String name,
                                            String workspaceName,
                                            DB db,
+                                           MappedIndexStore store,
                                            Converter<T> converter,
                                            BTreeKeySerializer<T> valueSerializer,
                                            Serializer<T> rawSerializer ) {
-        return new LocalUniqueIndex<>(name, workspaceName, db, converter, valueSerializer, rawSerializer);
+        return new LocalUniqueIndex<>(name, workspaceName, db, store, converter, valueSerializer, rawSerializer);
     }
 
     /**
@@ -60,6 +61,7 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
      * @param name the name of the index; may not be null or empty
      * @param workspaceName the name of the workspace; may not be null
      * @param db the database in which the index information is to be stored; may not be null
+     * @param store the store in which the index entries are to be kept off-heap, or null if they are to be stored in the database
      * @param converter the converter from {@link StaticOperand} to values being indexed; may not be null
      * @param valueSerializer the serializer for the type of value being indexed; may not be null
      * @param rawSerializer the raw value serializer for the type of value being indexed; may not be null
@@ -67,10 +69,11 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
     protected LocalUniqueIndex( String name,
                                 String workspaceName,
                                 DB db,
+                                MappedIndexStore store,
                                 Converter<T> converter,
                                 BTreeKeySerializer<T> valueSerializer,
                                 Serializer<T> rawSerializer ) {
-        super(name, workspaceName, db, converter, valueSerializer, rawSerializer);
+        super(name, workspaceName, db, store, converter, valueSerializer, rawSerializer);
 
     }
 
@@ -79,7 +82,7 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
                      String propertyName, 
                      T value ) {
         logger.trace("Adding node '{0}' to '{1}' index with value '{2}'", nodeKey, name, value);
-        keysByValue.put(value, nodeKey);
+        putEntry(value, nodeKey);
     }
 
     @Override
@@ -87,10 +90,10 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
                         String propertyName, 
                         T value ) {
         // Find all of the T values (entry keys) for the given node key (entry values) ...
-        for (T key : Fun.filter(valuesByKey, nodeKey)) {
+        for (T key : valuesFor(nodeKey)) {
             if (comparator.compare(value, key) == 0) {
                 logger.trace("Removing node '{0}' from '{1}' index with value '{2}'", nodeKey, name, value);
-                keysByValue.remove(key);
+                removeEntry(key, nodeKey);
             }
         }
     }
@@ -98,9 +101,9 @@ class LocalUniqueIndex<T> extends LocalMapIndex<T, T> {
     @Override
     public void remove( String nodeKey ) {
         // Find all of the T values (entry keys) for the given node key (entry values) ...
-        for (T key : Fun.filter(valuesByKey, nodeKey)) {
+        for (T key : valuesFor(nodeKey)) {
             logger.trace("Removing node '{0}' from '{1}' index with value '{2}'", nodeKey, name, key);
-            keysByValue.remove(key);
+            removeEntry(key, nodeKey);
         }
     }
 
@@ -309,6 +309,11 @@ public class MapDB {
         return new LocalTuple2KeySerializer<>(aComparator, aSerializer, bSerializer, tupleComparator);
     }
 
+    public static <A, B> Serializer<Fun.Tuple2<A, B>> tupleSerializer( Serializer<A> aSerializer,
+                                                                       Serializer<B> bSerializer ) {
+        return new Tuple2Serializer<>(aSerializer, bSerializer);
+    }
+
     public static final class UniqueKey<K> implements Serializable {
         private static final long serialVersionUID = 1L;
 
@@ -793,6 +798,61 @@ public class MapDB {
         }
     }
 
+    /**
+     * Serializes single tuples, by serializing the first and then the second value.
+     *
+     * @param <A> first tuple value
+     * @param <B> second tuple value
+     */
+    protected final static class Tuple2Serializer<A, B> implements Serializer<Fun.Tuple2<A, B>>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        protected final Serializer<A> aSerializer;
+        protected final Serializer<B> bSerializer;
+
+        protected Tuple2Serializer( Serializer<A> aSerializer,
+                                    Serializer<B> bSerializer ) {
+            this.aSerializer = aSerializer;
+            this.bSerializer = bSerializer;
+        }
+
+        @Override
+        public void serialize( DataOutput out,
+                               Tuple2<A, B> value ) throws IOException {
+            aSerializer.serialize(out, value.a);
+            bSerializer.serialize(out, value.b);
+        }
+
+        @Override
+        public Tuple2<A, B> deserialize( DataInput in,
+                                         int available ) throws IOException {
+            A a = aSerializer.deserialize(in, -1);
+            B b = bSerializer.deserialize(in, -1);
+            return Fun.t2(a, b);
+        }
+
+        @Override
+        public int fixedSize() {
+            return -1;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if (obj == this) return true;
+            if (obj instanceof Tuple2Serializer) {
+                @SuppressWarnings( "unchecked" )
+                Tuple2Serializer<A, B> that = (Tuple2Serializer<A, B>)obj;
+                return aSerializer.equals(that.aSerializer) && bSerializer.equals(that.bSerializer);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+    }
+
     protected final static class TupleComparator<A, B> implements Comparator<Fun.Tuple2<A, B>>, Serializable {
         private static final long serialVersionUID = 1L;
 
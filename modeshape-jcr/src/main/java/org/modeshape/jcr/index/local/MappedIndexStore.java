@@ -0,0 +1,746 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.local;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.index.local.MappedSortedMap.Tree;
+
+/**
+ * A store of {@link MappedSortedMap sorted maps} which keeps the index entries off the heap, in memory-mapped segment files
+ * within a single directory.
+ * <p>
+ * All changes made to the maps are appended to a log, which is written and forced to disk upon {@link #commit()}. The changes are
+ * also buffered in memory by each map, until enough changes have been buffered for them to be written into a new segment. Once
+ * the log grows large enough, all buffers are written into segments and a new manifest is written, listing the maps along with
+ * their segments and recording which part of the log is already contained in the segments (a checkpoint). When the store is
+ * opened, the manifest is read and the log entries written after the checkpoint are replayed.
+ * </p>
+ */
+@ThreadSafe
+final class MappedIndexStore {
+
+    /**
+     * The default maximum number of changes which are buffered by each map before they are written into a segment.
+     */
+    static final int DEFAULT_MAX_BUFFERED_ENTRIES = 16 * 1024;
+
+    /**
+     * The serializer of strings used for the keys of the maps. Strings are written as modified UTF-8 followed by a 0 byte, so
+     * that strings with a common prefix have serialized forms with a common prefix, which segments compress well.
+     */
+    static final Serializer<String> STRING_SERIALIZER = new TerminatedStringSerializer();
+
+    static final byte CREATE = 1;
+    static final byte DROP = 2;
+    static final byte CLEAR = 3;
+    static final byte PUT = 4;
+    static final byte REMOVE = 5;
+
+    private static final Logger LOGGER = Logger.getLogger(MappedIndexStore.class);
+    private static final int MAGIC = 0x4d494458; // "MIDX"
+    private static final int VERSION = 1;
+    private static final String MANIFEST = "MANIFEST";
+    private static final String LOG_EXTENSION = ".log";
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final long MAX_LOG_SIZE = 32L * 1024 * 1024;
+
+    /**
+     * Open the store in the given directory, creating the directory and an empty store if required.
+     *
+     * @param directory the directory; may not be null
+     * @param maxBufferedEntries the maximum number of changes buffered by each map before they are written into a segment
+     * @return the store; never null
+     * @throws IOException if the store cannot be read or created
+     */
+    static MappedIndexStore open( File directory,
+                                  int maxBufferedEntries ) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the directory '" + directory + "'");
+        }
+        MappedIndexStore store = new MappedIndexStore(directory, maxBufferedEntries);
+        store.recover();
+        return store;
+    }
+
+    private final File directory;
+    private final int maxBufferedEntries;
+    private final AtomicLong nextSegmentId = new AtomicLong();
+    private final ConcurrentLinkedQueue<Long> obsoleteSegmentIds = new ConcurrentLinkedQueue<>();
+    private final Object logLock = new Object();
+
+    @GuardedBy( "this" )
+    private final Map<String, Tree<?>> trees = new HashMap<>();
+    @GuardedBy( "this" )
+    private final Map<String, Descriptor> unopened = new HashMap<>();
+    @GuardedBy( "this" )
+    private final List<File> obsoleteLogs = new ArrayList<>();
+    @GuardedBy( "this" )
+    private long nextCollectionId;
+    @GuardedBy( "this" )
+    private boolean closed;
+
+    @GuardedBy( "logLock" )
+    private final DataOutput2 pending = new DataOutput2();
+    @GuardedBy( "logLock" )
+    private long nextLsn;
+    @GuardedBy( "logLock" )
+    private long logNumber;
+    @GuardedBy( "logLock" )
+    private FileChannel log;
+
+    private MappedIndexStore( File directory,
+                              int maxBufferedEntries ) {
+        this.directory = directory;
+        this.maxBufferedEntries = maxBufferedEntries;
+    }
+
+    /**
+     * Determine whether there is a map with the given name.
+     *
+     * @param name the name of the map
+     * @return true if the map exists, or false otherwise
+     */
+    synchronized boolean exists( String name ) {
+        return trees.containsKey(name) || unopened.containsKey(name);
+    }
+
+    /**
+     * Get the names of all the maps in this store.
+     *
+     * @return the names; never null
+     */
+    synchronized Set<String> names() {
+        Set<String> names = new TreeSet<>(trees.keySet());
+        names.addAll(unopened.keySet());
+        return names;
+    }
+
+    /**
+     * Get the map with the given name, creating it if it does not exist.
+     *
+     * @param name the name of the map; may not be null
+     * @param serializer the serializer for the keys, which must be the same every time the map is used
+     * @param comparator the comparator for the keys, which must be the same every time the map is used
+     * @return the map; never null
+     */
+    @SuppressWarnings( "unchecked" )
+    synchronized <K> MappedSortedMap<K> map( String name,
+                                             Serializer<K> serializer,
+                                             Comparator<K> comparator ) {
+        checkOpen();
+        Tree<K> tree = (Tree<K>)trees.get(name);
+        if (tree != null) {
+            return new MappedSortedMap<>(tree);
+        }
+        Descriptor descriptor = unopened.remove(name);
+        if (descriptor == null) {
+            long id = nextCollectionId++;
+            long lsn = log(CREATE, id, name, null, null);
+            descriptor = new Descriptor(name, id, lsn, 0L);
+        }
+        List<MappedSegment> segments = new ArrayList<>(descriptor.segmentIds.size());
+        try {
+            for (Long segmentId : descriptor.segmentIds) {
+                segments.add(new MappedSegment(segmentFile(segmentId), segmentId));
+            }
+        } catch (IOException e) {
+            throw new LocalIndexException("Unable to open the index storage '" + name + "'", e);
+        }
+        tree = new Tree<>(this, name, descriptor.id, serializer, comparator, maxBufferedEntries, segments, descriptor.size,
+                          descriptor.flushedLsn);
+        for (Record record : descriptor.pending) {
+            tree.replay(record.op, record.key, record.value);
+        }
+        trees.put(name, tree);
+        return new MappedSortedMap<>(tree);
+    }
+
+    /**
+     * Remove the map with the given name, if it exists.
+     *
+     * @param name the name of the map
+     */
+    synchronized void delete( String name ) {
+        checkOpen();
+        Tree<?> tree = trees.remove(name);
+        if (tree != null) {
+            tree.drop();
+            return;
+        }
+        Descriptor descriptor = unopened.remove(name);
+        if (descriptor != null) {
+            log(DROP, descriptor.id, null, null, null);
+            obsoleteSegmentIds.addAll(descriptor.segmentIds);
+        }
+    }
+
+    /**
+     * Durably write all changes made so far to the log, and write a checkpoint if the log has grown too large.
+     */
+    void commit() {
+        boolean checkpoint;
+        synchronized (logLock) {
+            if (log == null) {
+                return;
+            }
+            try {
+                writePending();
+                checkpoint = log.size() >= MAX_LOG_SIZE;
+            } catch (IOException e) {
+                throw new LocalIndexException("Unable to write the log of the index storage in '" + directory + "'", e);
+            }
+        }
+        if (checkpoint) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Write all the buffered changes into segments, record the state of all the maps in the manifest, and remove the log files
+     * and segments which are no longer needed.
+     */
+    synchronized void checkpoint() {
+        checkOpen();
+        try {
+            synchronized (logLock) {
+                // the changes which have been committed are in the current log; start a new log ...
+                writePending();
+                log.close();
+                obsoleteLogs.add(logFile(logNumber));
+                ++logNumber;
+                log = createLog(logNumber);
+                // the changes of the maps which have not been opened are only in the old logs ...
+                for (Descriptor descriptor : unopened.values()) {
+                    for (Record record : descriptor.pending) {
+                        appendRecord(record.op, descriptor.id, null, record.key, record.value);
+                    }
+                }
+                writePending();
+            }
+            List<Descriptor> descriptors = new ArrayList<>(unopened.values());
+            for (Tree<?> tree : trees.values()) {
+                tree.flush();
+                descriptors.add(tree.descriptor());
+            }
+            long lsn;
+            synchronized (logLock) {
+                lsn = nextLsn;
+            }
+            writeManifest(descriptors, lsn);
+            for (File logFile : obsoleteLogs) {
+                Files.deleteIfExists(logFile.toPath());
+            }
+            obsoleteLogs.clear();
+            deleteObsoleteSegments(descriptors);
+        } catch (IOException e) {
+            throw new LocalIndexException("Unable to write a checkpoint of the index storage in '" + directory + "'", e);
+        }
+    }
+
+    /**
+     * Commit all changes, write a checkpoint and close the store.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        commit();
+        checkpoint();
+        synchronized (logLock) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                LOGGER.debug(e, "Unable to close the log of the index storage in ''{0}''", directory);
+            }
+            log = null;
+        }
+        trees.clear();
+        unopened.clear();
+        closed = true;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The index storage in '" + directory + "' has been closed");
+        }
+    }
+
+    /**
+     * Append a change of a map to the log. The change is only written to disk upon the next {@link #commit()}.
+     *
+     * @param op the operation
+     * @param collectionId the identifier of the map
+     * @param key the key of the change, or null if the operation does not have a key
+     * @param value the value of the change, or null if the operation does not have a value
+     * @return the log sequence number of the change
+     */
+    long log( byte op,
+              long collectionId,
+              byte[] key,
+              byte[] value ) {
+        return log(op, collectionId, null, key, value);
+    }
+
+    private long log( byte op,
+                      long collectionId,
+                      String name,
+                      byte[] key,
+                      byte[] value ) {
+        synchronized (logLock) {
+            try {
+                return appendRecord(op, collectionId, name, key, value);
+            } catch (IOException e) {
+                throw new LocalIndexException("Unable to log a change to the index storage in '" + directory + "'", e);
+            }
+        }
+    }
+
+    @GuardedBy( "logLock" )
+    private long appendRecord( byte op,
+                               long collectionId,
+                               String name,
+                               byte[] key,
+                               byte[] value ) throws IOException {
+        long lsn = nextLsn++;
+        pending.writeLong(lsn);
+        pending.writeByte(op);
+        DataOutput2.packLong(pending, collectionId);
+        if (op == CREATE) {
+            pending.writeUTF(name);
+        }
+        if (key != null) {
+            DataOutput2.packInt(pending, key.length);
+            pending.write(key);
+        }
+        if (value != null) {
+            DataOutput2.packInt(pending, value.length);
+            pending.write(value);
+        }
+        return lsn;
+    }
+
+    @GuardedBy( "logLock" )
+    private void writePending() throws IOException {
+        if (pending.pos == 0) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(pending.buf, 0, pending.pos);
+        ByteBuffer batch = ByteBuffer.allocate(8 + pending.pos);
+        batch.putInt(pending.pos).putInt((int)crc.getValue()).put(pending.buf, 0, pending.pos);
+        batch.flip();
+        while (batch.hasRemaining()) {
+            log.write(batch);
+        }
+        log.force(false);
+        pending.pos = 0;
+    }
+
+    /**
+     * Get the log sequence number which will be assigned to the next change.
+     *
+     * @return the log sequence number
+     */
+    long nextLsn() {
+        synchronized (logLock) {
+            return nextLsn;
+        }
+    }
+
+    /**
+     * Allocate the identifier of a new segment.
+     *
+     * @return the identifier
+     */
+    long nextSegmentId() {
+        return nextSegmentId.getAndIncrement();
+    }
+
+    /**
+     * Get the file of the segment with the given identifier.
+     *
+     * @param segmentId the identifier of the segment
+     * @return the file; never null
+     */
+    File segmentFile( long segmentId ) {
+        return new File(directory, String.format("%016d", segmentId) + SEGMENT_EXTENSION);
+    }
+
+    /**
+     * Record that a segment is no longer used, so that it can be removed once the manifest no longer refers to it.
+     *
+     * @param segmentId the identifier of the segment
+     */
+    void obsolete( long segmentId ) {
+        obsoleteSegmentIds.add(segmentId);
+    }
+
+    private void deleteObsoleteSegments( List<Descriptor> descriptors ) throws IOException {
+        Set<Long> referenced = new HashSet<>();
+        for (Descriptor descriptor : descriptors) {
+            referenced.addAll(descriptor.segmentIds);
+        }
+        List<Long> stillReferenced = new ArrayList<>();
+        for (Long segmentId = obsoleteSegmentIds.poll(); segmentId != null; segmentId = obsoleteSegmentIds.poll()) {
+            if (referenced.contains(segmentId)) {
+                stillReferenced.add(segmentId);
+            } else {
+                Files.deleteIfExists(segmentFile(segmentId).toPath());
+            }
+        }
+        obsoleteSegmentIds.addAll(stillReferenced);
+    }
+
+    private File logFile( long number ) {
+        return new File(directory, String.format("%016d", number) + LOG_EXTENSION);
+    }
+
+    private FileChannel createLog( long number ) throws IOException {
+        return FileChannel.open(logFile(number).toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private synchronized void recover() throws IOException {
+        Map<Long, Descriptor> descriptors = readManifest();
+        Set<Long> referenced = new HashSet<>();
+        for (Descriptor descriptor : descriptors.values()) {
+            referenced.addAll(descriptor.segmentIds);
+        }
+
+        // replay the logs in the order in which they were written ...
+        TreeMap<Long, File> logFiles = new TreeMap<>();
+        Map<Long, File> segmentFiles = new HashMap<>();
+        File[] files = directory.listFiles();
+        for (File file : files != null ? files : new File[0]) {
+            String filename = file.getName();
+            if (filename.endsWith(LOG_EXTENSION)) {
+                logFiles.put(parseNumber(filename, LOG_EXTENSION), file);
+            } else if (filename.endsWith(SEGMENT_EXTENSION)) {
+                segmentFiles.put(parseNumber(filename, SEGMENT_EXTENSION), file);
+            }
+        }
+        for (File logFile : logFiles.values()) {
+            replay(logFile, descriptors);
+        }
+
+        for (Descriptor descriptor : descriptors.values()) {
+            unopened.put(descriptor.name, descriptor);
+            for (Long segmentId : descriptor.segmentIds) {
+                if (!segmentFiles.containsKey(segmentId)) {
+                    throw new IOException("The index storage in '" + directory + "' is missing the segment " + segmentId);
+                }
+            }
+        }
+        // segments which were being written when the store was last used are not needed ...
+        for (Map.Entry<Long, File> entry : segmentFiles.entrySet()) {
+            long segmentId = entry.getKey();
+            nextSegmentId.set(Math.max(nextSegmentId.get(), segmentId + 1));
+            if (!referenced.contains(segmentId)) {
+                Files.deleteIfExists(entry.getValue().toPath());
+            } else if (!isUsed(segmentId, descriptors)) {
+                // removed by a change in the log, but still in the manifest ...
+                obsoleteSegmentIds.add(segmentId);
+            }
+        }
+        obsoleteLogs.addAll(logFiles.values());
+        synchronized (logLock) {
+            logNumber = logFiles.isEmpty() ? 0L : logFiles.lastKey() + 1;
+            log = createLog(logNumber);
+        }
+        LOGGER.debug("Opened the index storage in ''{0}'' with {1} indexes", directory, unopened.size());
+    }
+
+    private static boolean isUsed( long segmentId,
+                                   Map<Long, Descriptor> descriptors ) {
+        for (Descriptor descriptor : descriptors.values()) {
+            if (descriptor.segmentIds.contains(segmentId)) return true;
+        }
+        return false;
+    }
+
+    private long parseNumber( String filename,
+                              String extension ) throws IOException {
+        try {
+            return Long.parseLong(filename.substring(0, filename.length() - extension.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file '" + filename + "' in the index storage in '" + directory + "'", e);
+        }
+    }
+
+    private void replay( File logFile,
+                         Map<Long, Descriptor> descriptors ) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+            while (true) {
+                byte[] batch;
+                int crc;
+                try {
+                    batch = new byte[in.readInt()];
+                    crc = in.readInt();
+                    in.readFully(batch);
+                } catch (EOFException e) {
+                    // the end of the log, or a batch which was not completely written ...
+                    return;
+                }
+                CRC32 actual = new CRC32();
+                actual.update(batch);
+                if ((int)actual.getValue() != crc) {
+                    LOGGER.debug("Ignoring the corrupt end of the log ''{0}''", logFile);
+                    return;
+                }
+                DataInput2 records = new DataInput2(batch);
+                while (records.pos < batch.length) {
+                    replay(records, descriptors);
+                }
+            }
+        }
+    }
+
+    private void replay( DataInput2 in,
+                         Map<Long, Descriptor> descriptors ) throws IOException {
+        long lsn = in.readLong();
+        byte op = in.readByte();
+        long collectionId = DataInput2.unpackLong(in);
+        String name = op == CREATE ? in.readUTF() : null;
+        byte[] key = op == PUT || op == REMOVE ? readBytes(in) : null;
+        byte[] value = op == PUT ? readBytes(in) : null;
+        synchronized (logLock) {
+            nextLsn = Math.max(nextLsn, lsn + 1);
+        }
+        nextCollectionId = Math.max(nextCollectionId, collectionId + 1);
+
+        Descriptor descriptor = descriptors.get(collectionId);
+        if (op == CREATE) {
+            if (descriptor == null) {
+                descriptors.put(collectionId, new Descriptor(name, collectionId, lsn, 0L));
+            }
+            return;
+        }
+        if (descriptor == null || lsn < descriptor.flushedLsn) {
+            // the change is already in the segments, or the map has been removed ...
+            return;
+        }
+        switch (op) {
+            case DROP:
+                descriptors.remove(collectionId);
+                break;
+            case CLEAR:
+                descriptor.segmentIds.clear();
+                descriptor.size = 0L;
+                descriptor.pending.clear();
+                break;
+            default:
+                descriptor.pending.add(new Record(op, key, value));
+        }
+    }
+
+    private static byte[] readBytes( DataInput2 in ) throws IOException {
+        byte[] bytes = new byte[DataInput2.unpackInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private Map<Long, Descriptor> readManifest() throws IOException {
+        Map<Long, Descriptor> descriptors = new HashMap<>();
+        File manifest = new File(directory, MANIFEST);
+        if (!manifest.exists()) {
+            return descriptors;
+        }
+        byte[] content = Files.readAllBytes(manifest.toPath());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        if (content.length < 16 || in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("The manifest of the index storage in '" + directory + "' is not valid");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - 8);
+        if (ByteBuffer.wrap(content).getLong(content.length - 8) != crc.getValue()) {
+            throw new IOException("The manifest of the index storage in '" + directory + "' is corrupt");
+        }
+        nextCollectionId = in.readLong();
+        nextSegmentId.set(in.readLong());
+        nextLsn = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i != count; ++i) {
+            Descriptor descriptor = new Descriptor(in.readUTF(), in.readLong(), in.readLong(), in.readLong());
+            int numSegments = in.readInt();
+            for (int j = 0; j != numSegments; ++j) {
+                descriptor.segmentIds.add(in.readLong());
+            }
+            descriptors.put(descriptor.id, descriptor);
+        }
+        return descriptors;
+    }
+
+    private void writeManifest( List<Descriptor> descriptors,
+                                long lsn ) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(nextCollectionId);
+        out.writeLong(nextSegmentId.get());
+        out.writeLong(lsn);
+        out.writeInt(descriptors.size());
+        for (Descriptor descriptor : descriptors) {
+            out.writeUTF(descriptor.name);
+            out.writeLong(descriptor.id);
+            out.writeLong(descriptor.flushedLsn);
+            out.writeLong(descriptor.size);
+            out.writeInt(descriptor.segmentIds.size());
+            for (Long segmentId : descriptor.segmentIds) {
+                out.writeLong(segmentId);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        // replace the manifest atomically ...
+        File tmp = new File(directory, MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp.toPath(), new File(directory, MANIFEST).toPath(), StandardCopyOption.ATOMIC_MOVE,
+                   StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public String toString() {
+        return "Mapped index storage in '" + directory + "'";
+    }
+
+    /**
+     * The persistent state of a map, as recorded in the manifest.
+     */
+    static final class Descriptor {
+        protected final String name;
+        protected final long id;
+        protected final long flushedLsn;
+        protected final List<Long> segmentIds = new ArrayList<>();
+        protected final List<Record> pending = new ArrayList<>();
+        protected long size;
+
+        protected Descriptor( String name,
+                              long id,
+                              long flushedLsn,
+                              long size ) {
+            this.name = name;
+            this.id = id;
+            this.flushedLsn = flushedLsn;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A change of a map which was read from the log but has not yet been applied to the map.
+     */
+    private static final class Record {
+        protected final byte op;
+        protected final byte[] key;
+        protected final byte[] value;
+
+        protected Record( byte op,
+                          byte[] key,
+                          byte[] value ) {
+            this.op = op;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class TerminatedStringSerializer implements Serializer<String>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void serialize( java.io.DataOutput out,
+                               String value ) throws IOException {
+            for (int i = 0; i != value.length(); ++i) {
+                char c = value.charAt(i);
+                if (c >= 0x0001 && c <= 0x007F) {
+                    out.write(c);
+                } else if (c <= 0x07FF) {
+                    // including the null character, so that the bytes never contain the terminator ...
+                    out.write(0xC0 | ((c >> 6) & 0x1F));
+                    out.write(0x80 | (c & 0x3F));
+                } else {
+                    out.write(0xE0 | ((c >> 12) & 0x0F));
+                    out.write(0x80 | ((c >> 6) & 0x3F));
+                    out.write(0x80 | (c & 0x3F));
+                }
+            }
+            out.write(0);
+        }
+
+        @Override
+        public String deserialize( java.io.DataInput in,
+                                   int available ) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            for (int b = in.readUnsignedByte(); b != 0; b = in.readUnsignedByte()) {
+                if ((b & 0x80) == 0) {
+                    sb.append((char)b);
+                } else if ((b & 0xE0) == 0xC0) {
+                    sb.append((char)(((b & 0x1F) << 6) | (in.readUnsignedByte() & 0x3F)));
+                } else {
+                    int b2 = in.readUnsignedByte();
+                    int b3 = in.readUnsignedByte();
+                    sb.append((char)(((b & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F)));
+                }
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public int fixedSize() {
+            return -1;
+        }
+    }
+}
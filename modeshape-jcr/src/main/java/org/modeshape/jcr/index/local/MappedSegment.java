@@ -0,0 +1,381 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.local;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import org.mapdb.DataOutput2;
+import org.modeshape.common.annotation.Immutable;
+import org.modeshape.common.annotation.NotThreadSafe;
+
+/**
+ * An immutable file of entries sorted by key, which is read through memory mappings and thus does not use any heap besides the
+ * entries which are being read. Segments are the unit of storage of a {@link MappedSortedMap}.
+ * <p>
+ * Keys and values are stored as bytes. The entries are grouped in blocks of up to {@link #BLOCK_SIZE} entries, and within a
+ * block each key and each value only stores the bytes by which it differs from the previous one (prefix compression). The
+ * first entry of each block is stored completely, so that the offsets of the blocks, which are stored at the end of the file,
+ * can be used to binary search for a key. The file is mapped in chunks of up to 1GB, and a block never spans two chunks.
+ * </p>
+ * <p>
+ * An entry without a value is a tombstone: it records that the key has been removed, hiding any entry with the same key in an
+ * older segment.
+ * </p>
+ */
+@Immutable
+final class MappedSegment {
+
+    /**
+     * The maximum number of entries in a block.
+     */
+    static final int BLOCK_SIZE = 16;
+
+    private static final int MAGIC = 0x4d534547; // "MSEG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final int DELETED = 1;
+
+    /**
+     * Write the supplied entries into a new segment file.
+     *
+     * @param file the file which is to be created; may not exist
+     * @param id the identifier of the segment
+     * @param entries the entries, sorted by key and with unique keys; may not be null
+     * @return the new segment, or null if there were no entries
+     * @throws IOException if the file cannot be written
+     */
+    static MappedSegment write( File file,
+                                long id,
+                                Iterator<Entry> entries ) throws IOException {
+        if (!entries.hasNext()) {
+            return null;
+        }
+        long entryCount = 0L;
+        long position = HEADER_SIZE;
+        DataOutput2 offsets = new DataOutput2();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            out.write(new byte[HEADER_SIZE]);
+            DataOutput2 block = new DataOutput2();
+            int entriesInBlock = 0;
+            byte[] previousKey = null;
+            byte[] previousValue = null;
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (entriesInBlock == 0) {
+                    // the first entry of each block doesn't share anything ...
+                    previousKey = null;
+                    previousValue = null;
+                }
+                block.writeByte(entry.isDeleted() ? DELETED : 0);
+                writeWithPrefix(block, previousKey, entry.key);
+                if (!entry.isDeleted()) {
+                    writeWithPrefix(block, previousValue, entry.value);
+                    previousValue = entry.value;
+                }
+                previousKey = entry.key;
+                ++entryCount;
+                if (++entriesInBlock == BLOCK_SIZE) {
+                    position = writeBlock(out, block, position, offsets);
+                    entriesInBlock = 0;
+                }
+            }
+            if (entriesInBlock != 0) {
+                position = writeBlock(out, block, position, offsets);
+            }
+            // the offsets of the blocks are aligned so that they never span chunks ...
+            int padding = (int)((8 - position % 8) % 8);
+            out.write(new byte[padding]);
+            long indexOffset = position + padding;
+            out.write(offsets.buf, 0, offsets.pos);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(entryCount).putInt(offsets.pos / 8).putLong(indexOffset);
+            header.flip();
+            channel.write(header, 0L);
+            channel.force(true);
+        }
+        return new MappedSegment(file, id);
+    }
+
+    private static void writeWithPrefix( DataOutput2 out,
+                                         byte[] previous,
+                                         byte[] bytes ) throws IOException {
+        int shared = 0;
+        if (previous != null) {
+            int max = Math.min(previous.length, bytes.length);
+            while (shared < max && previous[shared] == bytes[shared]) {
+                ++shared;
+            }
+        }
+        DataOutput2.packInt(out, shared);
+        DataOutput2.packInt(out, bytes.length - shared);
+        out.write(bytes, shared, bytes.length - shared);
+    }
+
+    private static long writeBlock( OutputStream out,
+                                    DataOutput2 block,
+                                    long position,
+                                    DataOutput2 offsets ) throws IOException {
+        if (block.pos > CHUNK_SIZE) {
+            throw new IOException("The entries of a block exceed the maximum size of " + CHUNK_SIZE + " bytes");
+        }
+        long remainingInChunk = CHUNK_SIZE - position % CHUNK_SIZE;
+        if (block.pos > remainingInChunk) {
+            // start the block in the next chunk ...
+            for (long i = 0; i != remainingInChunk; ++i) {
+                out.write(0);
+            }
+            position += remainingInChunk;
+        }
+        offsets.writeLong(position);
+        out.write(block.buf, 0, block.pos);
+        position += block.pos;
+        block.pos = 0;
+        return position;
+    }
+
+    private final File file;
+    private final long id;
+    private final MappedByteBuffer[] chunks;
+    private final long entryCount;
+    private final int blockCount;
+    private final long indexOffset;
+
+    /**
+     * Open an existing segment file.
+     *
+     * @param file the segment file; must exist
+     * @param id the identifier of the segment
+     * @throws IOException if the file cannot be read or is not a segment file
+     */
+    MappedSegment( File file,
+                   long id ) throws IOException {
+        this.file = file;
+        this.id = id;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("The file '" + file + "' is not a valid index segment");
+            }
+            int numChunks = (int)((size + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+            this.chunks = new MappedByteBuffer[numChunks];
+            for (int i = 0; i != numChunks; ++i) {
+                long start = (long)i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+            }
+        }
+        ByteBuffer header = chunks[0];
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("The file '" + file + "' is not a valid index segment");
+        }
+        this.entryCount = header.getLong(8);
+        this.blockCount = header.getInt(16);
+        this.indexOffset = header.getLong(20);
+    }
+
+    /**
+     * Get the identifier of this segment.
+     *
+     * @return the identifier
+     */
+    long id() {
+        return id;
+    }
+
+    /**
+     * Get the number of entries in this segment, including tombstones.
+     *
+     * @return the number of entries
+     */
+    long entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Get the number of blocks in this segment.
+     *
+     * @return the number of blocks; always positive
+     */
+    int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Get the key of the first entry in the given block.
+     *
+     * @param block the block number
+     * @return the key; never null
+     */
+    byte[] firstKey( int block ) {
+        ByteBuffer buffer = buffer(blockOffset(block));
+        buffer.get(); // flags
+        unpackInt(buffer); // shared, always 0
+        byte[] key = new byte[unpackInt(buffer)];
+        buffer.get(key);
+        return key;
+    }
+
+    /**
+     * Get a cursor positioned before the first entry of the given block.
+     *
+     * @param block the block number
+     * @return the cursor; never null
+     */
+    Cursor cursor( int block ) {
+        return new Cursor(block);
+    }
+
+    /**
+     * Remove the file of this segment. Readers which are still using this segment are not affected, since the file remains
+     * mapped until the segment is garbage collected.
+     */
+    void delete() {
+        if (!file.delete() && file.exists()) {
+            // some platforms don't allow removing files which are mapped ...
+            file.deleteOnExit();
+        }
+    }
+
+    private long blockOffset( int block ) {
+        long offset = indexOffset + 8L * block;
+        return chunks[(int)(offset >>> CHUNK_BITS)].getLong((int)(offset & (CHUNK_SIZE - 1)));
+    }
+
+    private ByteBuffer buffer( long offset ) {
+        ByteBuffer buffer = chunks[(int)(offset >>> CHUNK_BITS)].duplicate();
+        buffer.position((int)(offset & (CHUNK_SIZE - 1)));
+        return buffer;
+    }
+
+    private static int unpackInt( ByteBuffer buffer ) {
+        int result = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+    }
+
+    private static byte[] readWithPrefix( ByteBuffer buffer,
+                                          byte[] previous ) {
+        int shared = unpackInt(buffer);
+        int unshared = unpackInt(buffer);
+        byte[] result = new byte[shared + unshared];
+        if (shared != 0) {
+            System.arraycopy(previous, 0, result, 0, shared);
+        }
+        buffer.get(result, shared, unshared);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return file.getName() + " (" + entryCount + " entries)";
+    }
+
+    /**
+     * A key and value, where a null value denotes a removed key.
+     */
+    @Immutable
+    static final class Entry {
+        protected final byte[] key;
+        protected final byte[] value;
+
+        Entry( byte[] key,
+               byte[] value ) {
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean isDeleted() {
+            return value == null;
+        }
+
+        String valueAsString() {
+            return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+        }
+    }
+
+    /**
+     * A forward-only cursor over the entries of a segment.
+     */
+    @NotThreadSafe
+    final class Cursor {
+        private int block;
+        private int remainingInBlock;
+        private ByteBuffer buffer;
+        private byte[] key;
+        private byte[] value;
+        private Entry entry;
+
+        protected Cursor( int block ) {
+            this.block = block - 1;
+        }
+
+        /**
+         * Advance to the next entry.
+         *
+         * @return the entry, or null if there are no more entries
+         */
+        Entry next() {
+            if (remainingInBlock == 0) {
+                if (block + 1 >= blockCount) {
+                    entry = null;
+                    return null;
+                }
+                ++block;
+                buffer = buffer(blockOffset(block));
+                remainingInBlock = (int)Math.min(BLOCK_SIZE, entryCount - (long)block * BLOCK_SIZE);
+                key = null;
+                value = null;
+            }
+            --remainingInBlock;
+            boolean deleted = (buffer.get() & DELETED) != 0;
+            key = readWithPrefix(buffer, key);
+            if (deleted) {
+                entry = new Entry(key, null);
+            } else {
+                value = readWithPrefix(buffer, value);
+                entry = new Entry(key, value);
+            }
+            return entry;
+        }
+
+        /**
+         * Get the entry at which the cursor is positioned.
+         *
+         * @return the current entry, or null if the cursor is not positioned on an entry
+         */
+        Entry current() {
+            return entry;
+        }
+    }
+}
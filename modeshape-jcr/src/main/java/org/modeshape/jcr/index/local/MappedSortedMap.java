@@ -0,0 +1,1277 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.local;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.Immutable;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.jcr.index.local.MappedSegment.Cursor;
+
+/**
+ * A persistent, sorted map of keys to (node key) strings which is stored in a {@link MappedIndexStore}. The map is
+ * log-structured: changes are buffered in memory and written to the store's log upon commit, and once enough changes have been
+ * buffered they are written into a new, immutable {@link MappedSegment segment}. Segments are merged in the background of
+ * writes, so that the number of segments only grows logarithmically with the number of entries. Reads merge the buffer and the
+ * segments, with newer entries hiding older ones; since the segments are memory-mapped, the entries are not kept on the heap.
+ * <p>
+ * Instances are views over a range of the map's keys, as returned by {@link #subMap}, {@link #headMap} and {@link #tailMap},
+ * in either ascending or {@link #descendingMap() descending} order. Descending traversal reads each block of the segments
+ * forward and returns its entries in reverse, so it costs about the same as ascending traversal.
+ * </p>
+ *
+ * @param <K> the type of key
+ */
+@ThreadSafe
+final class MappedSortedMap<K> extends AbstractMap<K, String> implements NavigableMap<K, String> {
+
+    private final Tree<K> tree;
+    private final K lo;
+    private final boolean loInclusive;
+    private final K hi;
+    private final boolean hiInclusive;
+    private final boolean descending;
+
+    MappedSortedMap( Tree<K> tree ) {
+        this(tree, null, false, null, false, false);
+    }
+
+    private MappedSortedMap( Tree<K> tree,
+                             K lo,
+                             boolean loInclusive,
+                             K hi,
+                             boolean hiInclusive,
+                             boolean descending ) {
+        this.tree = tree;
+        this.lo = lo;
+        this.loInclusive = loInclusive;
+        this.hi = hi;
+        this.hiInclusive = hiInclusive;
+        this.descending = descending;
+    }
+
+    /**
+     * Get the total number of entries in the map, regardless of the range of this view.
+     *
+     * @return the number of entries
+     */
+    long sizeLong() {
+        return tree.size();
+    }
+
+    /**
+     * Get a view of the keys in this map as a set, to which keys can be added. Adding a key to the set maps it to an empty string.
+     *
+     * @return the set view; never null
+     */
+    Set<K> asSet() {
+        return new AbstractSet<K>() {
+            @Override
+            public boolean add( K key ) {
+                return put(key, "") == null;
+            }
+
+            @Override
+            public boolean remove( Object key ) {
+                return MappedSortedMap.this.remove(key) != null;
+            }
+
+            @Override
+            public boolean contains( Object key ) {
+                return containsKey(key);
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return keySet().iterator();
+            }
+
+            @Override
+            public int size() {
+                return MappedSortedMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return MappedSortedMap.this.isEmpty();
+            }
+
+            @Override
+            public void clear() {
+                MappedSortedMap.this.clear();
+            }
+        };
+    }
+
+    private boolean isUnbounded() {
+        return lo == null && hi == null;
+    }
+
+    protected boolean tooLow( K key ) {
+        if (lo == null) return false;
+        int diff = tree.comparator.compare(key, lo);
+        return diff < 0 || (diff == 0 && !loInclusive);
+    }
+
+    protected boolean tooHigh( K key ) {
+        if (hi == null) return false;
+        int diff = tree.comparator.compare(key, hi);
+        return diff > 0 || (diff == 0 && !hiInclusive);
+    }
+
+    private boolean inRange( K key ) {
+        return !tooLow(key) && !tooHigh(key);
+    }
+
+    /**
+     * Determine whether the given key comes before the range of this view, in the order of this view.
+     *
+     * @param key the key
+     * @return true if the key precedes the first key of the range
+     */
+    protected boolean beforeStart( K key ) {
+        return descending ? tooHigh(key) : tooLow(key);
+    }
+
+    /**
+     * Determine whether the given key comes after the range of this view, in the order of this view.
+     *
+     * @param key the key
+     * @return true if the key follows the last key of the range
+     */
+    protected boolean afterEnd( K key ) {
+        return descending ? tooLow(key) : tooHigh(key);
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private K checkKey( Object key ) {
+        if (key == null) throw new NullPointerException();
+        return (K)key;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return descending ? Collections.reverseOrder(tree.comparator) : tree.comparator;
+    }
+
+    @Override
+    public String get( Object key ) {
+        K k = checkKey(key);
+        return inRange(k) ? tree.get(k) : null;
+    }
+
+    @Override
+    public boolean containsKey( Object key ) {
+        return get(key) != null;
+    }
+
+    @Override
+    public String put( K key,
+                       String value ) {
+        checkKey(key);
+        if (value == null) throw new NullPointerException();
+        if (!inRange(key)) throw new IllegalArgumentException("The key is out of the range of this map");
+        return tree.put(key, value);
+    }
+
+    @Override
+    public String remove( Object key ) {
+        K k = checkKey(key);
+        return inRange(k) ? tree.remove(k) : null;
+    }
+
+    @Override
+    public void clear() {
+        if (isUnbounded()) {
+            tree.clear();
+            return;
+        }
+        for (Iterator<Map.Entry<K, String>> iter = entrySet().iterator(); iter.hasNext();) {
+            iter.next();
+            iter.remove();
+        }
+    }
+
+    @Override
+    public int size() {
+        if (isUnbounded()) {
+            return (int)Math.min(tree.size(), Integer.MAX_VALUE);
+        }
+        int count = 0;
+        for (Iterator<Map.Entry<K, String>> iter = entrySet().iterator(); iter.hasNext() && count != Integer.MAX_VALUE; iter.next()) {
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return isUnbounded() ? tree.size() == 0L : !entrySet().iterator().hasNext();
+    }
+
+    @Override
+    public Set<Map.Entry<K, String>> entrySet() {
+        return new AbstractSet<Map.Entry<K, String>>() {
+            @Override
+            public Iterator<Map.Entry<K, String>> iterator() {
+                return new MergingIterator<>(tree, tree.state, MappedSortedMap.this);
+            }
+
+            @Override
+            public int size() {
+                return MappedSortedMap.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return MappedSortedMap.this.isEmpty();
+            }
+        };
+    }
+
+    @Override
+    public NavigableMap<K, String> subMap( K fromKey,
+                                           boolean fromInclusive,
+                                           K toKey,
+                                           boolean toInclusive ) {
+        checkKey(fromKey);
+        checkKey(toKey);
+        if (descending) {
+            return withLowerBound(toKey, toInclusive).withUpperBound(fromKey, fromInclusive);
+        }
+        return withLowerBound(fromKey, fromInclusive).withUpperBound(toKey, toInclusive);
+    }
+
+    @Override
+    public NavigableMap<K, String> headMap( K toKey,
+                                            boolean inclusive ) {
+        checkKey(toKey);
+        return descending ? withLowerBound(toKey, inclusive) : withUpperBound(toKey, inclusive);
+    }
+
+    @Override
+    public NavigableMap<K, String> tailMap( K fromKey,
+                                            boolean inclusive ) {
+        checkKey(fromKey);
+        return descending ? withUpperBound(fromKey, inclusive) : withLowerBound(fromKey, inclusive);
+    }
+
+    @Override
+    public SortedMap<K, String> subMap( K fromKey,
+                                        K toKey ) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, String> headMap( K toKey ) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, String> tailMap( K fromKey ) {
+        return tailMap(fromKey, true);
+    }
+
+    private MappedSortedMap<K> withLowerBound( K key,
+                                               boolean inclusive ) {
+        if (lo != null) {
+            int diff = tree.comparator.compare(key, lo);
+            if (diff < 0) return this;
+            if (diff == 0) inclusive = inclusive && loInclusive;
+        }
+        return new MappedSortedMap<>(tree, key, inclusive, hi, hiInclusive, descending);
+    }
+
+    private MappedSortedMap<K> withUpperBound( K key,
+                                               boolean inclusive ) {
+        if (hi != null) {
+            int diff = tree.comparator.compare(key, hi);
+            if (diff > 0) return this;
+            if (diff == 0) inclusive = inclusive && hiInclusive;
+        }
+        return new MappedSortedMap<>(tree, lo, loInclusive, key, inclusive, descending);
+    }
+
+    @Override
+    public Map.Entry<K, String> firstEntry() {
+        Iterator<Map.Entry<K, String>> iter = entrySet().iterator();
+        return iter.hasNext() ? iter.next() : null;
+    }
+
+    @Override
+    public K firstKey() {
+        Map.Entry<K, String> first = firstEntry();
+        if (first == null) throw new NoSuchElementException();
+        return first.getKey();
+    }
+
+    @Override
+    public Map.Entry<K, String> pollFirstEntry() {
+        Map.Entry<K, String> first = firstEntry();
+        if (first != null) remove(first.getKey());
+        return first;
+    }
+
+    @Override
+    public Map.Entry<K, String> ceilingEntry( K key ) {
+        return tailMap(key, true).firstEntry();
+    }
+
+    @Override
+    public K ceilingKey( K key ) {
+        return keyOrNull(ceilingEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, String> higherEntry( K key ) {
+        return tailMap(key, false).firstEntry();
+    }
+
+    @Override
+    public K higherKey( K key ) {
+        return keyOrNull(higherEntry(key));
+    }
+
+    private static <K> K keyOrNull( Map.Entry<K, ?> entry ) {
+        return entry != null ? entry.getKey() : null;
+    }
+
+    @Override
+    public Map.Entry<K, String> lowerEntry( K key ) {
+        return headMap(key, false).lastEntry();
+    }
+
+    @Override
+    public K lowerKey( K key ) {
+        return keyOrNull(lowerEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, String> floorEntry( K key ) {
+        return headMap(key, true).lastEntry();
+    }
+
+    @Override
+    public K floorKey( K key ) {
+        return keyOrNull(floorEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, String> lastEntry() {
+        return descendingMap().firstEntry();
+    }
+
+    @Override
+    public K lastKey() {
+        Map.Entry<K, String> last = lastEntry();
+        if (last == null) throw new NoSuchElementException();
+        return last.getKey();
+    }
+
+    @Override
+    public Map.Entry<K, String> pollLastEntry() {
+        Map.Entry<K, String> last = lastEntry();
+        if (last != null) remove(last.getKey());
+        return last;
+    }
+
+    @Override
+    public MappedSortedMap<K> descendingMap() {
+        return new MappedSortedMap<>(tree, lo, loInclusive, hi, hiInclusive, !descending);
+    }
+
+    @Override
+    public NavigableSet<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<>(this);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public String toString() {
+        return tree.toString();
+    }
+
+    /**
+     * The navigable set of the keys of a map (or view), in the order of the map.
+     *
+     * @param <K> the type of key
+     */
+    private static final class KeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+        private final NavigableMap<K, String> map;
+
+        protected KeySet( NavigableMap<K, String> map ) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            final Iterator<Map.Entry<K, String>> entries = map.entrySet().iterator();
+            return new Iterator<K>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public K next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains( Object key ) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public boolean remove( Object key ) {
+            return map.remove(key) != null;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return map.comparator();
+        }
+
+        @Override
+        public K first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public K last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public K lower( K key ) {
+            return map.lowerKey(key);
+        }
+
+        @Override
+        public K floor( K key ) {
+            return map.floorKey(key);
+        }
+
+        @Override
+        public K ceiling( K key ) {
+            return map.ceilingKey(key);
+        }
+
+        @Override
+        public K higher( K key ) {
+            return map.higherKey(key);
+        }
+
+        @Override
+        public K pollFirst() {
+            return keyOrNull(map.pollFirstEntry());
+        }
+
+        @Override
+        public K pollLast() {
+            return keyOrNull(map.pollLastEntry());
+        }
+
+        @Override
+        public NavigableSet<K> descendingSet() {
+            return new KeySet<>(map.descendingMap());
+        }
+
+        @Override
+        public Iterator<K> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public NavigableSet<K> subSet( K fromElement,
+                                       boolean fromInclusive,
+                                       K toElement,
+                                       boolean toInclusive ) {
+            return new KeySet<>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<K> headSet( K toElement,
+                                        boolean inclusive ) {
+            return new KeySet<>(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<K> tailSet( K fromElement,
+                                        boolean inclusive ) {
+            return new KeySet<>(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<K> subSet( K fromElement,
+                                    K toElement ) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> headSet( K toElement ) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> tailSet( K fromElement ) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    /**
+     * The storage of a map, shared by the map and all of its views.
+     *
+     * @param <K> the type of key
+     */
+    @ThreadSafe
+    static final class Tree<K> {
+        /**
+         * The maximum number of segments, above which the newest segments are merged regardless of their sizes.
+         */
+        private static final int MAX_SEGMENTS = 32;
+
+        /**
+         * The marker of a removed key in the buffer.
+         */
+        protected static final Object REMOVED = new Object();
+
+        protected final MappedIndexStore store;
+        protected final String name;
+        protected final long id;
+        protected final Serializer<K> serializer;
+        protected final Comparator<K> comparator;
+        private final int maxBufferedEntries;
+
+        protected volatile State<K> state;
+        @GuardedBy( "this" )
+        private long size;
+        @GuardedBy( "this" )
+        private int buffered;
+        @GuardedBy( "this" )
+        private long flushedSize;
+        @GuardedBy( "this" )
+        private long flushedLsn;
+        @GuardedBy( "this" )
+        private boolean dropped;
+
+        Tree( MappedIndexStore store,
+              String name,
+              long id,
+              Serializer<K> serializer,
+              Comparator<K> comparator,
+              int maxBufferedEntries,
+              List<MappedSegment> segments,
+              long size,
+              long flushedLsn ) {
+            this.store = store;
+            this.name = name;
+            this.id = id;
+            this.serializer = serializer;
+            this.comparator = comparator;
+            this.maxBufferedEntries = maxBufferedEntries;
+            this.state = new State<>(new ConcurrentSkipListMap<K, Object>(comparator), segments);
+            this.size = size;
+            this.flushedSize = size;
+            this.flushedLsn = flushedLsn;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        String get( K key ) {
+            Object value = lookup(state, key);
+            return value instanceof String ? (String)value : null;
+        }
+
+        String put( K key,
+                    String value ) {
+            return put(key, value, true);
+        }
+
+        String remove( K key ) {
+            return remove(key, true);
+        }
+
+        synchronized void clear() {
+            checkNotDropped();
+            store.log(MappedIndexStore.CLEAR, id, null, null);
+            clearContent();
+        }
+
+        /**
+         * Apply a change which was read from the log of the store.
+         *
+         * @param op the operation
+         * @param key the key, or null for operations which don't have keys
+         * @param value the value, or null for operations which don't have values
+         */
+        synchronized void replay( byte op,
+                                  byte[] key,
+                                  byte[] value ) {
+            switch (op) {
+                case MappedIndexStore.PUT:
+                    put(decode(key), new String(value, StandardCharsets.UTF_8), false);
+                    break;
+                case MappedIndexStore.REMOVE:
+                    remove(decode(key), false);
+                    break;
+                case MappedIndexStore.CLEAR:
+                    clearContent();
+                    break;
+                default:
+                    throw new LocalIndexException("Unexpected operation in the log of '" + name + "': " + op);
+            }
+        }
+
+        private synchronized String put( K key,
+                                         String value,
+                                         boolean log ) {
+            checkNotDropped();
+            State<K> current = state;
+            Object previous = lookup(current, key);
+            if (log) {
+                store.log(MappedIndexStore.PUT, id, encode(key), value.getBytes(StandardCharsets.UTF_8));
+            }
+            if (current.buffer.put(key, value) == null) {
+                ++buffered;
+            }
+            if (!(previous instanceof String)) {
+                ++size;
+            }
+            flushIfFull();
+            return previous instanceof String ? (String)previous : null;
+        }
+
+        private synchronized String remove( K key,
+                                            boolean log ) {
+            checkNotDropped();
+            State<K> current = state;
+            Object previous = lookup(current, key);
+            if (!(previous instanceof String)) {
+                return null;
+            }
+            if (log) {
+                store.log(MappedIndexStore.REMOVE, id, encode(key), null);
+            }
+            if (current.segments.isEmpty()) {
+                // there is nothing to hide ...
+                if (current.buffer.remove(key) != null) {
+                    --buffered;
+                }
+            } else if (current.buffer.put(key, REMOVED) == null) {
+                ++buffered;
+            }
+            --size;
+            flushIfFull();
+            return (String)previous;
+        }
+
+        private void clearContent() {
+            for (MappedSegment segment : state.segments) {
+                store.obsolete(segment.id());
+            }
+            state = new State<>(new ConcurrentSkipListMap<K, Object>(comparator), Collections.<MappedSegment>emptyList());
+            size = 0L;
+            buffered = 0;
+            flushedSize = 0L;
+        }
+
+        /**
+         * Mark this tree as removed from the store, after which it cannot be changed anymore.
+         */
+        synchronized void drop() {
+            if (dropped) return;
+            store.log(MappedIndexStore.DROP, id, null, null);
+            for (MappedSegment segment : state.segments) {
+                store.obsolete(segment.id());
+            }
+            dropped = true;
+        }
+
+        private void checkNotDropped() {
+            if (dropped) {
+                throw new IllegalStateException("The index storage '" + name + "' has been removed");
+            }
+        }
+
+        private void flushIfFull() {
+            if (buffered >= maxBufferedEntries) {
+                flush();
+            }
+        }
+
+        /**
+         * Write all of the buffered changes into a new segment, merging segments as needed.
+         */
+        synchronized void flush() {
+            if (dropped) return;
+            State<K> current = state;
+            if (buffered == 0) {
+                // all of the changes logged so far are in the segments ...
+                flushedSize = size;
+                flushedLsn = store.nextLsn();
+                return;
+            }
+            List<MappedSegment> segments = new ArrayList<>(current.segments);
+            try {
+                final boolean keepRemoved = !segments.isEmpty();
+                final Iterator<Map.Entry<K, Object>> iter = current.buffer.entrySet().iterator();
+                MappedSegment segment = write(new Iterator<MappedSegment.Entry>() {
+                    private MappedSegment.Entry next = advance();
+
+                    private MappedSegment.Entry advance() {
+                        while (iter.hasNext()) {
+                            Map.Entry<K, Object> entry = iter.next();
+                            boolean removed = entry.getValue() == REMOVED;
+                            if (removed && !keepRemoved) continue;
+                            byte[] value = removed ? null : ((String)entry.getValue()).getBytes(StandardCharsets.UTF_8);
+                            return new MappedSegment.Entry(encode(entry.getKey()), value);
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public MappedSegment.Entry next() {
+                        MappedSegment.Entry result = next;
+                        next = advance();
+                        return result;
+                    }
+                });
+                if (segment != null) {
+                    segments.add(segment);
+                }
+                compact(segments);
+            } catch (IOException e) {
+                throw new LocalIndexException("Unable to write the index storage '" + name + "'", e);
+            }
+            state = new State<>(new ConcurrentSkipListMap<K, Object>(comparator), segments);
+            buffered = 0;
+            flushedSize = size;
+            flushedLsn = store.nextLsn();
+        }
+
+        /**
+         * Merge the newest segments as long as they are not much smaller than the segment preceding them, so that the segment
+         * sizes decrease exponentially from the oldest to the newest.
+         *
+         * @param segments the segments, from oldest to newest; modified in place
+         * @throws IOException if a merged segment cannot be written
+         */
+        private void compact( List<MappedSegment> segments ) throws IOException {
+            while (segments.size() >= 2) {
+                int n = segments.size();
+                MappedSegment older = segments.get(n - 2);
+                MappedSegment newer = segments.get(n - 1);
+                if (n <= MAX_SEGMENTS && newer.entryCount() * 2 < older.entryCount()) {
+                    break;
+                }
+                // removed keys only need to be kept if there are older segments ...
+                MappedSegment merged = write(new MergingSegmentIterator(older, newer, n > 2));
+                segments.remove(n - 1);
+                segments.remove(n - 2);
+                if (merged != null) {
+                    segments.add(merged);
+                }
+                store.obsolete(older.id());
+                store.obsolete(newer.id());
+            }
+        }
+
+        private MappedSegment write( Iterator<MappedSegment.Entry> entries ) throws IOException {
+            long segmentId = store.nextSegmentId();
+            return MappedSegment.write(store.segmentFile(segmentId), segmentId, entries);
+        }
+
+        /**
+         * Get the state of this tree as it should be recorded in the manifest of the store.
+         *
+         * @return the descriptor; never null
+         */
+        synchronized MappedIndexStore.Descriptor descriptor() {
+            MappedIndexStore.Descriptor descriptor = new MappedIndexStore.Descriptor(name, id, flushedLsn, flushedSize);
+            for (MappedSegment segment : state.segments) {
+                descriptor.segmentIds.add(segment.id());
+            }
+            return descriptor;
+        }
+
+        protected Object lookup( State<K> state,
+                                 K key ) {
+            Object value = state.buffer.get(key);
+            if (value != null) {
+                return value;
+            }
+            for (int i = state.segments.size() - 1; i >= 0; --i) {
+                MappedSegment.Entry entry = find(state.segments.get(i), key);
+                if (entry != null) {
+                    return entry.isDeleted() ? REMOVED : entry.valueAsString();
+                }
+            }
+            return null;
+        }
+
+        private MappedSegment.Entry find( MappedSegment segment,
+                            K key ) {
+            int block = findBlock(segment, key);
+            if (block < 0) {
+                return null;
+            }
+            Cursor cursor = segment.cursor(block);
+            for (int i = 0; i != MappedSegment.BLOCK_SIZE; ++i) {
+                MappedSegment.Entry entry = cursor.next();
+                if (entry == null) {
+                    return null;
+                }
+                int diff = comparator.compare(decode(entry.key), key);
+                if (diff == 0) {
+                    return entry;
+                }
+                if (diff > 0) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Find the last block whose first key is not greater than the given key.
+         *
+         * @param segment the segment
+         * @param key the key
+         * @return the block number, or -1 if the first key of the segment is greater than the given key
+         */
+        protected int findBlock( MappedSegment segment,
+                                 K key ) {
+            int low = 0;
+            int high = segment.blockCount() - 1;
+            int result = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(decode(segment.firstKey(mid)), key) <= 0) {
+                    result = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+
+        protected byte[] encode( K key ) {
+            try {
+                DataOutput2 out = new DataOutput2();
+                serializer.serialize(out, key);
+                return out.copyBytes();
+            } catch (IOException e) {
+                throw new LocalIndexException("Unable to serialize a key of the index storage '" + name + "'", e);
+            }
+        }
+
+        protected K decode( byte[] key ) {
+            try {
+                return serializer.deserialize(new DataInput2(key), key.length);
+            } catch (IOException e) {
+                throw new LocalIndexException("Unable to deserialize a key of the index storage '" + name + "'", e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            State<K> current = state;
+            return name + " (" + current.segments + " and " + current.buffer.size() + " buffered entries)";
+        }
+
+        /**
+         * Merges the entries of two segments, with the entries of the newer segment hiding those of the older segment.
+         */
+        private final class MergingSegmentIterator implements Iterator<MappedSegment.Entry> {
+            private final Cursor older;
+            private final Cursor newer;
+            private final boolean keepRemoved;
+            private K olderKey;
+            private K newerKey;
+            private MappedSegment.Entry next;
+
+            protected MergingSegmentIterator( MappedSegment older,
+                                              MappedSegment newer,
+                                              boolean keepRemoved ) {
+                this.older = older.cursor(0);
+                this.newer = newer.cursor(0);
+                this.keepRemoved = keepRemoved;
+                this.olderKey = advance(this.older);
+                this.newerKey = advance(this.newer);
+                this.next = computeNext();
+            }
+
+            private K advance( Cursor cursor ) {
+                MappedSegment.Entry entry = cursor.next();
+                return entry != null ? decode(entry.key) : null;
+            }
+
+            private MappedSegment.Entry computeNext() {
+                while (olderKey != null || newerKey != null) {
+                    MappedSegment.Entry entry;
+                    if (newerKey == null) {
+                        entry = older.current();
+                        olderKey = advance(older);
+                    } else if (olderKey == null) {
+                        entry = newer.current();
+                        newerKey = advance(newer);
+                    } else {
+                        int diff = Arrays.equals(older.current().key, newer.current().key) ? 0 : comparator.compare(olderKey,
+                                                                                                                    newerKey);
+                        if (diff < 0) {
+                            entry = older.current();
+                            olderKey = advance(older);
+                        } else {
+                            entry = newer.current();
+                            newerKey = advance(newer);
+                            if (diff == 0) {
+                                // the newer entry hides the older one ...
+                                olderKey = advance(older);
+                            }
+                        }
+                    }
+                    if (keepRemoved || !entry.isDeleted()) {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public MappedSegment.Entry next() {
+                if (next == null) throw new NoSuchElementException();
+                MappedSegment.Entry result = next;
+                next = computeNext();
+                return result;
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of the buffer and segments of a tree. The buffer is only changed until the snapshot is replaced.
+     *
+     * @param <K> the type of key
+     */
+    @Immutable
+    protected static final class State<K> {
+        protected final ConcurrentNavigableMap<K, Object> buffer;
+        protected final List<MappedSegment> segments;
+
+        protected State( ConcurrentNavigableMap<K, Object> buffer,
+                         List<MappedSegment> segments ) {
+            this.buffer = buffer;
+            this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+        }
+    }
+
+    /**
+     * A source of entries for the {@link MergingIterator}, where sources with lower ranks have the more recent entries.
+     *
+     * @param <K> the type of key
+     */
+    private abstract static class Source<K> {
+        protected final int rank;
+        protected K key;
+
+        protected Source( int rank ) {
+            this.rank = rank;
+        }
+
+        /**
+         * Advance to the next entry.
+         *
+         * @return true if there is an entry, or false if the source is exhausted
+         */
+        protected abstract boolean advance();
+
+        /**
+         * Get the value of the current entry.
+         *
+         * @return the value, or {@link Tree#REMOVED} if the key has been removed
+         */
+        protected abstract Object value();
+    }
+
+    private static final class BufferSource<K> extends Source<K> {
+        private final Iterator<Map.Entry<K, Object>> iter;
+        private Object value;
+
+        protected BufferSource( Iterator<Map.Entry<K, Object>> iter ) {
+            super(0);
+            this.iter = iter;
+        }
+
+        @Override
+        protected boolean advance() {
+            if (!iter.hasNext()) return false;
+            Map.Entry<K, Object> entry = iter.next();
+            key = entry.getKey();
+            value = entry.getValue();
+            return true;
+        }
+
+        @Override
+        protected Object value() {
+            return value;
+        }
+    }
+
+    private static final class SegmentSource<K> extends Source<K> {
+        private final Tree<K> tree;
+        private final Cursor cursor;
+
+        protected SegmentSource( Tree<K> tree,
+                                 Cursor cursor,
+                                 int rank ) {
+            super(rank);
+            this.tree = tree;
+            this.cursor = cursor;
+        }
+
+        @Override
+        protected boolean advance() {
+            MappedSegment.Entry entry = cursor.next();
+            if (entry == null) return false;
+            key = tree.decode(entry.key);
+            return true;
+        }
+
+        @Override
+        protected Object value() {
+            MappedSegment.Entry entry = cursor.current();
+            return entry.isDeleted() ? Tree.REMOVED : entry.valueAsString();
+        }
+    }
+
+    /**
+     * A source which returns the entries of a segment in descending order. Since a segment can only be read forward, each block
+     * is read in full and its entries are then returned in reverse, starting from the last block.
+     *
+     * @param <K> the type of key
+     */
+    private static final class ReverseSegmentSource<K> extends Source<K> {
+        private final Tree<K> tree;
+        private final MappedSegment segment;
+        private final List<MappedSegment.Entry> entries = new ArrayList<>(MappedSegment.BLOCK_SIZE);
+        private int block;
+        private int index;
+
+        protected ReverseSegmentSource( Tree<K> tree,
+                                        MappedSegment segment,
+                                        int lastBlock,
+                                        int rank ) {
+            super(rank);
+            this.tree = tree;
+            this.segment = segment;
+            this.block = lastBlock + 1;
+        }
+
+        @Override
+        protected boolean advance() {
+            if (index == 0) {
+                if (block == 0) return false;
+                --block;
+                entries.clear();
+                Cursor cursor = segment.cursor(block);
+                long count = Math.min(MappedSegment.BLOCK_SIZE, segment.entryCount() - (long)block * MappedSegment.BLOCK_SIZE);
+                for (int i = 0; i != count; ++i) {
+                    entries.add(cursor.next());
+                }
+                index = entries.size();
+                if (index == 0) return false;
+            }
+            key = tree.decode(entries.get(--index).key);
+            return true;
+        }
+
+        @Override
+        protected Object value() {
+            MappedSegment.Entry entry = entries.get(index);
+            return entry.isDeleted() ? Tree.REMOVED : entry.valueAsString();
+        }
+    }
+
+    /**
+     * Iterates over the entries within the range of a view, in the order of the view, by merging the entries of the buffer and
+     * all of the segments.
+     *
+     * @param <K> the type of key
+     */
+    private static final class MergingIterator<K> implements Iterator<Map.Entry<K, String>> {
+        private final Tree<K> tree;
+        private final MappedSortedMap<K> range;
+        private final PriorityQueue<Source<K>> sources;
+        private Map.Entry<K, String> next;
+        private K lastReturned;
+
+        protected MergingIterator( final Tree<K> tree,
+                                   State<K> state,
+                                   MappedSortedMap<K> range ) {
+            this.tree = tree;
+            this.range = range;
+            final Comparator<? super K> order = range.comparator();
+            this.sources = new PriorityQueue<>(state.segments.size() + 1, new Comparator<Source<K>>() {
+                @Override
+                public int compare( Source<K> source1,
+                                    Source<K> source2 ) {
+                    int diff = order.compare(source1.key, source2.key);
+                    return diff != 0 ? diff : Integer.compare(source1.rank, source2.rank);
+                }
+            });
+            ConcurrentNavigableMap<K, Object> buffer = state.buffer;
+            if (range.descending) {
+                if (range.hi != null) {
+                    buffer = buffer.headMap(range.hi, range.hiInclusive);
+                }
+                buffer = buffer.descendingMap();
+            } else if (range.lo != null) {
+                buffer = buffer.tailMap(range.lo, range.loInclusive);
+            }
+            add(new BufferSource<>(buffer.entrySet().iterator()));
+            List<MappedSegment> segments = state.segments;
+            for (int i = segments.size() - 1; i >= 0; --i) {
+                MappedSegment segment = segments.get(i);
+                int rank = segments.size() - i;
+                if (range.descending) {
+                    // the block holding the upper bound is the last one which can have keys in the range ...
+                    int block = range.hi != null ? tree.findBlock(segment, range.hi) : segment.blockCount() - 1;
+                    add(new ReverseSegmentSource<>(tree, segment, block, rank));
+                } else {
+                    int block = range.lo != null ? Math.max(tree.findBlock(segment, range.lo), 0) : 0;
+                    add(new SegmentSource<>(tree, segment.cursor(block), rank));
+                }
+            }
+            this.next = computeNext();
+        }
+
+        private void add( Source<K> source ) {
+            while (source.advance()) {
+                if (range.afterEnd(source.key)) {
+                    return;
+                }
+                if (!range.beforeStart(source.key)) {
+                    sources.add(source);
+                    return;
+                }
+            }
+        }
+
+        private Map.Entry<K, String> computeNext() {
+            while (!sources.isEmpty()) {
+                Source<K> source = sources.poll();
+                K key = source.key;
+                Object value = source.value();
+                // skip the older entries with the same key ...
+                while (!sources.isEmpty() && tree.comparator.compare(sources.peek().key, key) == 0) {
+                    add(sources.poll());
+                }
+                add(source);
+                if (value != Tree.REMOVED) {
+                    return new AbstractMap.SimpleImmutableEntry<>(key, (String)value);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, String> next() {
+            if (next == null) throw new NoSuchElementException();
+            Map.Entry<K, String> result = next;
+            lastReturned = result.getKey();
+            next = computeNext();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) throw new IllegalStateException();
+            tree.remove(lastReturned);
+            lastReturned = null;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.sequencer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.modeshape.common.annotation.NotThreadSafe;
+import org.modeshape.jcr.value.Name;
+import org.modeshape.jcr.value.Path;
+
+/**
+ * A set of {@link SequencerPathExpression}s compiled into a single trie of path segments, which quickly finds the expressions
+ * that may match a changed property without converting the path of the node and the name of the property into a string.
+ * <p>
+ * The trie has a node for each step of the expressions' paths: literal steps (e.g., "<code>jcr:content</code>") are looked up by
+ * the local name of each path segment, steps with wildcards or alternatives (e.g., "<code>(*.jpg|*.png)</code>") are matched
+ * against the local names, and "<code>//</code>" steps match any number of segments. The trie ignores namespace prefixes and
+ * same-name-sibling indexes, so it may return expressions that do not match; but it never omits an expression that does match,
+ * so callers must still use the {@link SequencerPathExpression#matcher(String) expression's matcher} for each candidate (which
+ * they need anyway to find the selected and output paths). Expressions that use features the trie does not understand (e.g.,
+ * optional segments or groups that span several segments) are always returned as candidates.
+ * </p>
+ * <p>
+ * This class is not thread-safe while expressions are being {@link #add(SequencerPathExpression, Object) added}, but once built
+ * it can be used concurrently by multiple threads.
+ * </p>
+ *
+ * @param <T> the type of value associated with each expression
+ */
+@NotThreadSafe
+public final class PathExpressionTrie<T> {
+
+    private static final Pattern INDEX_PREDICATE_PATTERN = Pattern.compile("\\[(?:\\d+(?:,\\d+)*|\\*)?\\]");
+    private static final String UNSUPPORTED_CHARACTERS = "\\^$+?{}[]";
+    private static final String ENCODED_CHARACTERS = "*/:[]|";
+
+    private final TrieNode root = new TrieNode(false);
+    private final List<T> values = new ArrayList<>();
+    private final BitSet alwaysCandidates = new BitSet();
+
+    /**
+     * Add the supplied expression and its value to this trie.
+     *
+     * @param expression the sequencer path expression; may not be null
+     * @param value the value returned when the expression may match; may not be null
+     */
+    public void add( SequencerPathExpression expression,
+                     T value ) {
+        int ordinal = values.size();
+        values.add(value);
+        List<Step> steps = compile(expression.selectPathExpression());
+        if (steps == null) {
+            alwaysCandidates.set(ordinal);
+            return;
+        }
+        TrieNode node = root;
+        for (Step step : steps) {
+            node = node.child(step);
+        }
+        node.ordinals.set(ordinal);
+    }
+
+    /**
+     * Determine whether any expressions were added to this trie.
+     *
+     * @return true if there are no expressions, or false otherwise
+     */
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Get the values of all the expressions in this trie, in the order they were added.
+     *
+     * @return the values; never null
+     */
+    public List<T> values() {
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Find the values of the expressions that may match the supplied property on the node at the supplied path.
+     *
+     * @param pathToNode the path of the node; may not be null
+     * @param propertyName the name of the property; may not be null
+     * @return the values of the candidate expressions, in the order they were added; never null
+     */
+    public List<T> candidates( Path pathToNode,
+                               Name propertyName ) {
+        if (pathToNode.isRoot()) {
+            // the string form of a property on the root node has an empty segment, so let the regular expressions decide ...
+            return values();
+        }
+        List<TrieNode> states = new ArrayList<>();
+        root.addTo(states);
+        for (int i = 0, size = pathToNode.size(); i != size && !states.isEmpty(); ++i) {
+            states = advance(states, pathToNode.getSegment(i).getName(), false);
+        }
+        if (!states.isEmpty()) {
+            states = advance(states, propertyName, true);
+        }
+        BitSet matched = (BitSet)alwaysCandidates.clone();
+        for (TrieNode state : states) {
+            matched.or(state.ordinals);
+        }
+        if (matched.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> candidates = new ArrayList<>(matched.cardinality());
+        for (int ordinal = matched.nextSetBit(0); ordinal >= 0; ordinal = matched.nextSetBit(ordinal + 1)) {
+            candidates.add(values.get(ordinal));
+        }
+        return candidates;
+    }
+
+    private List<TrieNode> advance( List<TrieNode> states,
+                                    Name name,
+                                    boolean property ) {
+        String localName = name.getLocalName();
+        // names with characters that are encoded in their string form may match in unexpected ways, so they match everything ...
+        boolean matchesEverything = containsAny(localName, ENCODED_CHARACTERS);
+        String key = localName.toLowerCase(Locale.ROOT);
+        List<TrieNode> next = new ArrayList<>();
+        for (TrieNode state : states) {
+            if (state.anyDepth) {
+                state.addTo(next);
+            }
+            if (matchesEverything) {
+                for (TrieNode child : state.literalChildren.values()) {
+                    child.addTo(next);
+                }
+            } else {
+                TrieNode child = state.literalChildren.get(key);
+                if (child != null) {
+                    child.addTo(next);
+                }
+            }
+            for (Map.Entry<Step, TrieNode> entry : state.patternChildren.entrySet()) {
+                if (matchesEverything || entry.getKey().matches(name, localName, property)) {
+                    entry.getValue().addTo(next);
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Break the path of the supplied expression into steps, or return null if the path uses features this trie does not
+     * understand. The predicates are handled the same way as in {@link PathExpression}, except that index predicates are ignored.
+     */
+    private static List<Step> compile( PathExpression expression ) {
+        String path = PathExpression.parsePathInWorkspace(expression.getExpression()).path;
+        path = expression.removeUnusedPredicates(path);
+        path = INDEX_PREDICATE_PATTERN.matcher(path).replaceAll("");
+        if (path.endsWith("]")) {
+            // the last predicate becomes the last steps of the path ...
+            int start = path.lastIndexOf('[');
+            if (start < 0) {
+                return null;
+            }
+            path = path.substring(0, start) + "/" + path.substring(start + 1, path.length() - 1);
+        }
+        if (!path.startsWith("/") || containsAny(path, UNSUPPORTED_CHARACTERS) || path.contains("||") || path.contains("(|")
+            || path.contains("|)") || path.contains("()")) {
+            return null;
+        }
+        List<Step> steps = new ArrayList<>();
+        boolean anyDepth = false;
+        for (String token : path.substring(1).split("/", -1)) {
+            if (token.isEmpty()) {
+                // two or more sequential delimiters match any sequence of nodes ...
+                if (!anyDepth) {
+                    steps.add(Step.ANY_DEPTH);
+                    anyDepth = true;
+                }
+                continue;
+            }
+            anyDepth = false;
+            if (token.equals(".") || token.equals("..") || token.indexOf('@', 1) > 0) {
+                return null;
+            }
+            List<String> alternatives = expand(token);
+            if (alternatives == null) {
+                return null;
+            }
+            steps.add(new Step(alternatives));
+        }
+        return steps;
+    }
+
+    /**
+     * Expand the groups and alternatives within a single step into the list of equivalent patterns, or return null if the step
+     * contains a group that is not closed or an alternative outside of any group.
+     */
+    private static List<String> expand( String token ) {
+        int open = token.indexOf('(');
+        if (open < 0) {
+            // an alternative outside of a group applies to the whole expression, not just this step ...
+            if (token.indexOf(')') >= 0 || token.indexOf('|') >= 0) {
+                return null;
+            }
+            return Collections.singletonList(token);
+        }
+        // find the matching close parenthesis ...
+        int depth = 0;
+        int close = -1;
+        for (int i = open; i != token.length() && close < 0; ++i) {
+            char c = token.charAt(i);
+            if (c == '(') {
+                ++depth;
+            } else if (c == ')' && --depth == 0) {
+                close = i;
+            }
+        }
+        if (close < 0 || token.substring(0, open).indexOf('|') >= 0 || token.substring(0, open).indexOf(')') >= 0) {
+            return null;
+        }
+        List<String> groupAlternatives = new ArrayList<>();
+        int depthInGroup = 0;
+        int start = open + 1;
+        for (int i = start; i != close; ++i) {
+            char c = token.charAt(i);
+            if (c == '(') {
+                ++depthInGroup;
+            } else if (c == ')') {
+                --depthInGroup;
+            } else if (c == '|' && depthInGroup == 0) {
+                groupAlternatives.add(token.substring(start, i));
+                start = i + 1;
+            }
+        }
+        groupAlternatives.add(token.substring(start, close));
+        String prefix = token.substring(0, open);
+        List<String> suffixes = expand(token.substring(close + 1));
+        if (suffixes == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (String groupAlternative : groupAlternatives) {
+            List<String> middles = expand(groupAlternative);
+            if (middles == null) {
+                return null;
+            }
+            for (String middle : middles) {
+                for (String suffix : suffixes) {
+                    result.add(prefix + middle + suffix);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsAny( String value,
+                                        String characters ) {
+        for (int i = 0; i != value.length(); ++i) {
+            if (characters.indexOf(value.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class TrieNode {
+        private final boolean anyDepth;
+        private final Map<String, TrieNode> literalChildren = new HashMap<>();
+        private final Map<Step, TrieNode> patternChildren = new HashMap<>();
+        private final BitSet ordinals = new BitSet();
+        private TrieNode anyDepthChild;
+
+        private TrieNode( boolean anyDepth ) {
+            this.anyDepth = anyDepth;
+        }
+
+        private TrieNode child( Step step ) {
+            if (step == Step.ANY_DEPTH) {
+                if (anyDepthChild == null) {
+                    anyDepthChild = new TrieNode(true);
+                }
+                return anyDepthChild;
+            }
+            String literal = step.literalKey();
+            if (literal != null) {
+                return literalChildren.computeIfAbsent(literal, key -> new TrieNode(false));
+            }
+            return patternChildren.computeIfAbsent(step, key -> new TrieNode(false));
+        }
+
+        /**
+         * Add this node and the "<code>//</code>" nodes that follow it (which also match zero segments) to the supplied states.
+         */
+        private void addTo( List<TrieNode> states ) {
+            if (!states.contains(this)) {
+                states.add(this);
+                if (anyDepthChild != null) {
+                    anyDepthChild.addTo(states);
+                }
+            }
+        }
+    }
+
+    /**
+     * A single step of a path expression, matching one path segment when the segment matches any of the step's patterns. Within
+     * a pattern, '<code>*</code>' matches any sequence of characters and '<code>.</code>' matches any single character, just as
+     * they do in the regular expressions of {@link PathExpression}.
+     */
+    private static final class Step {
+        private static final Step ANY_DEPTH = new Step(Collections.<String>emptyList());
+
+        private final List<String> patterns;
+
+        private Step( List<String> patterns ) {
+            this.patterns = patterns;
+        }
+
+        /**
+         * Get the lower-case local name that a segment must have to match this step, or null if this step has wildcards or
+         * alternatives.
+         */
+        private String literalKey() {
+            if (patterns.size() != 1) {
+                return null;
+            }
+            String pattern = patterns.get(0);
+            if (pattern.indexOf('*') >= 0 || pattern.indexOf('.') >= 0) {
+                return null;
+            }
+            int colon = pattern.indexOf(':');
+            if (colon >= 0) {
+                return pattern.substring(colon + 1).toLowerCase(Locale.ROOT);
+            }
+            return (pattern.startsWith("@") ? pattern.substring(1) : pattern).toLowerCase(Locale.ROOT);
+        }
+
+        private boolean matches( Name name,
+                                 String localName,
+                                 boolean property ) {
+            for (String pattern : patterns) {
+                if (matches(pattern, name, localName, property)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean matches( String pattern,
+                                        Name name,
+                                        String localName,
+                                        boolean property ) {
+            boolean hasPrefix = !name.getNamespaceUri().isEmpty();
+            int colon = pattern.indexOf(':');
+            if (colon >= 0) {
+                // the colon in the pattern can only match the colon after the prefix, so the rest must match the local name ...
+                return hasPrefix && matchesGlob(pattern, colon + 1, localName, 0);
+            }
+            String segment = property ? "@" + localName : localName;
+            int lastWildcard = Math.max(pattern.lastIndexOf('*'), pattern.lastIndexOf('.'));
+            if (lastWildcard < 0) {
+                return !hasPrefix && segment.equalsIgnoreCase(pattern);
+            }
+            // the wildcards may also match the prefix, but whatever follows the last wildcard must end the local name ...
+            int tailLength = pattern.length() - lastWildcard - 1;
+            return segment.length() >= tailLength
+                   && segment.regionMatches(true, segment.length() - tailLength, pattern, lastWildcard + 1, tailLength);
+        }
+
+        private static boolean matchesGlob( String pattern,
+                                            int patternIndex,
+                                            String value,
+                                            int valueIndex ) {
+            while (patternIndex < pattern.length()) {
+                char c = pattern.charAt(patternIndex);
+                if (c == '*') {
+                    for (int i = valueIndex; i <= value.length(); ++i) {
+                        if (matchesGlob(pattern, patternIndex + 1, value, i)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (valueIndex == value.length()) {
+                    return false;
+                }
+                if (c != '.' && !value.regionMatches(true, valueIndex, pattern, patternIndex, 1)) {
+                    return false;
+                }
+                ++patternIndex;
+                ++valueIndex;
+            }
+            return valueIndex == value.length();
+        }
+
+        @Override
+        public int hashCode() {
+            return patterns.hashCode();
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if (obj == this) return true;
+            if (obj instanceof Step) {
+                return patterns.equals(((Step)obj).patterns);
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return this == ANY_DEPTH ? "//" : String.join("|", patterns);
+        }
+    }
+}
@@ -105,6 +105,13 @@ public class SequencerPathExpression implements Serializable {
         return this.selectExpression.getSelectExpression();
     }
 
+    /**
+     * @return the compiled select expression
+     */
+    PathExpression selectPathExpression() {
+        return this.selectExpression;
+    }
+
     /**
      * @return outputExpression
      */
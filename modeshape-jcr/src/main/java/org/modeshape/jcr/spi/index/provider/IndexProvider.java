@@ -40,10 +40,12 @@ import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.jcr.ModeShapeLexicon;
 import org.modeshape.jcr.NodeTypes;
+import org.modeshape.jcr.RepositoryStatistics;
 import org.modeshape.jcr.api.Logger;
 import org.modeshape.jcr.api.index.IndexColumnDefinition;
 import org.modeshape.jcr.api.index.IndexDefinition;
 import org.modeshape.jcr.api.index.IndexDefinition.IndexKind;
+import org.modeshape.jcr.api.monitor.DurationMetric;
 import org.modeshape.jcr.bus.ChangeBus;
 import org.modeshape.jcr.cache.CachedNode.Properties;
 import org.modeshape.jcr.cache.NodeKey;
@@ -162,6 +164,11 @@ public abstract class IndexProvider {
      */
     private String systemWorkspaceName;
 
+    /**
+     * The statistics of the repository, set via reflection
+     */
+    private RepositoryStatistics statistics;
+
     /**
      * A flag that tracks whether {@link #initialize()} has been called.
      */
@@ -292,6 +299,20 @@ public abstract class IndexProvider {
         return environment;
     }
 
+    /**
+     * Record the latency of an operation performed by this provider (or its indexes) in the statistics of the repository.
+     * This method does nothing if the provider has not yet been registered with a repository.
+     *
+     * @param metric the metric under which the latency is recorded; may not be null
+     * @param nanos the duration of the operation, in nanoseconds
+     */
+    protected final void recordLatency( DurationMetric metric,
+                                        long nanos ) {
+        if (statistics != null) {
+            statistics.recordLatency(metric, nanos);
+        }
+    }
+
     /**
      * Initialize the provider. This is called automatically by ModeShape once for each provider instance, and should not be
      * called by the provider itself.
@@ -1499,7 +1520,13 @@ public abstract class IndexProvider {
         public final void notify( ChangeSet changeSet ) {
             if (changeSet.getWorkspaceName() != null) {
                 // This is a change in the content of a workspace ...
+                if (statistics == null) {
+                    managedIndex.getIndexChangeAdapter().notify(changeSet);
+                    return;
+                }
+                long start = System.nanoTime();
                 managedIndex.getIndexChangeAdapter().notify(changeSet);
+                statistics.recordLatency(DurationMetric.INDEX_UPDATE_TIME, System.nanoTime() - start);
             }
         }
 
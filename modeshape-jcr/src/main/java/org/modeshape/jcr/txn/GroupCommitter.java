@@ -0,0 +1,328 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.txn;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.transaction.RollbackException;
+import javax.transaction.SystemException;
+import org.modeshape.common.annotation.GuardedBy;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.txn.Transactions.Transaction;
+
+/**
+ * A component which persists the changes of concurrent, independent session saves within a single ModeShape transaction, so
+ * that many small saves share the cost of a single commit of the persistent store.
+ * <p>
+ * Each save is {@link #commit(Set, Work) submitted} with the keys of the nodes it changes and the {@link Work work} which
+ * persists these changes. The first thread which submits a save becomes the leader: it waits for up to the configured window
+ * for other saves to arrive, begins a transaction, performs the work of every save whose keys do not overlap those of an
+ * earlier save in the same group, and commits. The threads of the other saves simply block until their save has been handled.
+ * </p>
+ * <p>
+ * If any of the saves in a group fails, the whole group is rolled back and each of its saves is
+ * {@link Outcome#isCommitted() reported} as not committed, so that the callers can retry them in their own transactions. This
+ * way each save still succeeds or fails individually, exactly as it would without group commit.
+ * </p>
+ */
+@ThreadSafe
+public class GroupCommitter {
+
+    private static final Logger LOGGER = Logger.getLogger(GroupCommitter.class);
+
+    /**
+     * The work which persists the changes of a single save, called by the leader of a group within the group's transaction.
+     *
+     * @param <T> the type of result of the work
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        /**
+         * Persist the changes.
+         *
+         * @param transaction the transaction of the group; never null
+         * @return the result of the work
+         * @throws Exception if the changes cannot be persisted
+         */
+        T persist( Transaction transaction ) throws Exception;
+    }
+
+    /**
+     * The outcome of a save which was submitted for group commit.
+     *
+     * @param <T> the type of result of the work
+     */
+    public static final class Outcome<T> {
+        private final T result;
+        private final Transaction transaction;
+        private final Throwable failure;
+
+        protected Outcome( T result,
+                           Transaction transaction,
+                           Throwable failure ) {
+            this.result = result;
+            this.transaction = transaction;
+            this.failure = failure;
+        }
+
+        /**
+         * Determine whether the changes of the save have been committed.
+         *
+         * @return true if the changes were committed, or false if they were not and the save should either be retried in its own
+         *         transaction or {@link #failure() failed}
+         */
+        public boolean isCommitted() {
+            return transaction != null;
+        }
+
+        /**
+         * Get the result of the work, if the save was committed.
+         *
+         * @return the result of the work; null if the save was not committed
+         */
+        public T result() {
+            return result;
+        }
+
+        /**
+         * Get the transaction in which the save was committed.
+         *
+         * @return the committed transaction; null if the save was not committed
+         */
+        public Transaction transaction() {
+            return transaction;
+        }
+
+        /**
+         * Get the failure which occurred when committing the group. Unlike failures which occur while persisting the changes
+         * (after which all the saves in the group are retried), such a failure leaves the outcome of the transaction unknown and
+         * must be reported to the caller.
+         *
+         * @return the failure; null if the save was either committed or should be retried
+         */
+        public Throwable failure() {
+            return failure;
+        }
+    }
+
+    private final Transactions transactions;
+    private final long windowNanos;
+    private final int maxSaves;
+
+    @GuardedBy( "this" )
+    private final Deque<PendingSave<?>> pending = new ArrayDeque<>();
+    @GuardedBy( "this" )
+    private boolean leaderActive = false;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param transactions the {@link Transactions} instance used to begin and commit the transactions; may not be null
+     * @param windowMillis the maximum number of milliseconds that a group waits for other saves; may not be negative
+     * @param maxSaves the maximum number of saves committed in a single group; must be positive
+     */
+    public GroupCommitter( Transactions transactions,
+                           long windowMillis,
+                           int maxSaves ) {
+        CheckArg.isNotNull(transactions, "transactions");
+        CheckArg.isNonNegative(windowMillis, "windowMillis");
+        CheckArg.isPositive(maxSaves, "maxSaves");
+        this.transactions = transactions;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxSaves = maxSaves;
+    }
+
+    /**
+     * Submit a save for group commit and block until it has been handled, either by this thread or by the leader of the group to
+     * which the save was added. The caller must not be associated with a transaction.
+     *
+     * @param keys the keys of the nodes changed by the save; saves which change the same nodes are never part of the same
+     *        group; may not be null
+     * @param work the work which persists the changes; may not be null
+     * @return the outcome of the save; never null
+     */
+    public <T> Outcome<T> commit( Set<NodeKey> keys,
+                                  Work<T> work ) {
+        PendingSave<T> save = new PendingSave<>(keys, work);
+        boolean interrupted = false;
+        try {
+            synchronized (this) {
+                pending.addLast(save);
+                if (pending.size() >= maxSaves) {
+                    // wake up the leader which may be waiting for the group to fill up ...
+                    notifyAll();
+                }
+                while (!save.isDone() && leaderActive) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // the save may already be in progress, so we can't give up on it ...
+                        interrupted = true;
+                    }
+                }
+                if (save.isDone()) {
+                    return save.outcome();
+                }
+                leaderActive = true;
+            }
+            try {
+                // lead groups until our own save has been handled ...
+                while (!save.isDone()) {
+                    List<PendingSave<?>> group = nextGroup();
+                    try {
+                        commitGroup(group);
+                    } finally {
+                        synchronized (this) {
+                            notifyAll();
+                        }
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    leaderActive = false;
+                    notifyAll();
+                }
+            }
+            return save.outcome();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized List<PendingSave<?>> nextGroup() {
+        long deadline = System.nanoTime() + windowNanos;
+        long remaining = windowNanos;
+        while (remaining > 0 && pending.size() < maxSaves) {
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+        List<PendingSave<?>> group = new ArrayList<>();
+        Set<NodeKey> keysInGroup = new HashSet<>();
+        for (Iterator<PendingSave<?>> iter = pending.iterator(); iter.hasNext() && group.size() < maxSaves;) {
+            PendingSave<?> save = iter.next();
+            if (Collections.disjoint(keysInGroup, save.keys)) {
+                keysInGroup.addAll(save.keys);
+                group.add(save);
+                iter.remove();
+            }
+        }
+        return group;
+    }
+
+    private void commitGroup( List<PendingSave<?>> group ) {
+        Transaction txn = null;
+        try {
+            try {
+                txn = transactions.begin();
+                for (PendingSave<?> save : group) {
+                    save.persist(txn);
+                }
+            } catch (Throwable t) {
+                LOGGER.debug(t, "Unable to persist a group of {0} saves; each save will be retried on its own", group.size());
+                rollback(txn);
+                return;
+            }
+            try {
+                txn.commit();
+            } catch (RollbackException | SystemException e) {
+                // the transaction has been rolled back ...
+                LOGGER.debug(e, "Unable to commit a group of {0} saves; each save will be retried on its own", group.size());
+                return;
+            } catch (Throwable t) {
+                // we don't know whether the changes were committed, so each save fails as it would have on its own ...
+                for (PendingSave<?> save : group) {
+                    save.fail(t);
+                }
+                return;
+            }
+            LOGGER.debug("Committed a group of {0} saves in transaction {1}", group.size(), txn);
+            for (PendingSave<?> save : group) {
+                save.committed(txn);
+            }
+        } finally {
+            for (PendingSave<?> save : group) {
+                save.retryIfNotDone();
+            }
+        }
+    }
+
+    private void rollback( Transaction txn ) {
+        if (txn == null) {
+            return;
+        }
+        try {
+            txn.rollback();
+        } catch (Exception e) {
+            LOGGER.debug(e, "Error while rolling back transaction {0}", txn);
+        }
+    }
+
+    private static final class PendingSave<T> {
+        private final Set<NodeKey> keys;
+        private final Work<T> work;
+        private T result;
+        private volatile Outcome<T> outcome;
+
+        protected PendingSave( Set<NodeKey> keys,
+                               Work<T> work ) {
+            this.keys = keys;
+            this.work = work;
+        }
+
+        protected void persist( Transaction txn ) throws Exception {
+            result = work.persist(txn);
+        }
+
+        protected void committed( Transaction txn ) {
+            outcome = new Outcome<>(result, txn, null);
+        }
+
+        protected void fail( Throwable failure ) {
+            outcome = new Outcome<>(null, null, failure);
+        }
+
+        protected void retryIfNotDone() {
+            if (outcome == null) {
+                outcome = new Outcome<>(null, null, null);
+            }
+        }
+
+        protected boolean isDone() {
+            return outcome != null;
+        }
+
+        protected Outcome<T> outcome() {
+            return outcome;
+        }
+    }
+}
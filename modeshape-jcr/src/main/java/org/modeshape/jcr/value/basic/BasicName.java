@@ -166,6 +166,10 @@ public class BasicName implements Name {
     @Override
     public boolean equals( Object obj ) {
         if (obj == this) return true;
+        if (obj instanceof BasicName && ((BasicName)obj).hc != this.hc) {
+            // Shared instances are caught above, and different names almost always have different hash codes ...
+            return false;
+        }
         if (obj instanceof Name) {
             Name that = (Name)obj;
             if (!this.getLocalName().equals(that.getLocalName())) return false;
@@ -0,0 +1,97 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.value.basic;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.jcr.value.Name;
+import org.modeshape.jcr.value.Path;
+
+/**
+ * A bounded, process-wide table of the {@link Name} and {@link Path.Segment} instances that are created when nodes are read
+ * from their documents. The same handful of property names, node type names and child names are decoded over and over again,
+ * and returning a shared instance for each of them dramatically reduces the number of duplicate (and short-lived) objects.
+ * Shared instances also allow most {@link Object#equals(Object)} calls to succeed on the identity check.
+ * <p>
+ * Each table is a fixed-size array indexed by the hash of the value, where a newer value simply replaces an older value with
+ * the same slot. The tables therefore never grow and never need to be cleaned up, and lookups and updates need no locking. Since
+ * the instances are immutable, concurrent readers can only ever see either the old or the new instance of a slot, both of which
+ * are valid.
+ * </p>
+ */
+@ThreadSafe
+public final class InternTable {
+
+    private static final int NAME_TABLE_SIZE = 1 << 14;
+    private static final int SEGMENT_TABLE_SIZE = 1 << 14;
+
+    private static final AtomicReferenceArray<BasicName> NAMES = new AtomicReferenceArray<>(NAME_TABLE_SIZE);
+    private static final AtomicReferenceArray<BasicPathSegment> SEGMENTS = new AtomicReferenceArray<>(SEGMENT_TABLE_SIZE);
+
+    private InternTable() {
+    }
+
+    /**
+     * Obtain the shared name with the given namespace URI and local name, creating it if needed.
+     *
+     * @param namespaceUri the namespace URI; may be null
+     * @param localName the local name; may not be null and is expected to already be decoded and trimmed
+     * @return the name; never null
+     */
+    public static Name name( String namespaceUri,
+                             String localName ) {
+        if (namespaceUri == null) namespaceUri = "";
+        int slot = slot(31 * namespaceUri.hashCode() + localName.hashCode(), NAME_TABLE_SIZE);
+        BasicName name = NAMES.get(slot);
+        if (name != null && name.getLocalName().equals(localName) && name.getNamespaceUri().equals(namespaceUri)) {
+            return name;
+        }
+        name = new BasicName(namespaceUri, localName);
+        if (name.getLocalName().equals(localName) && name.getNamespaceUri().equals(namespaceUri)) {
+            // Only share the names whose content was not changed by trimming, since they'd never be found again ...
+            NAMES.lazySet(slot, name);
+        }
+        return name;
+    }
+
+    /**
+     * Obtain the shared path segment with the given name and same-name-sibling index, creating it if needed.
+     *
+     * @param name the name of the segment; may not be null
+     * @param index the same-name-sibling index of the segment
+     * @return the segment; never null
+     */
+    public static Path.Segment segment( Name name,
+                                        int index ) {
+        int slot = slot(31 * name.hashCode() + index, SEGMENT_TABLE_SIZE);
+        BasicPathSegment segment = SEGMENTS.get(slot);
+        if (segment != null && segment.getIndex() == index && segment.getName().equals(name)) {
+            return segment;
+        }
+        segment = new BasicPathSegment(name, index);
+        if (segment.getIndex() == index) {
+            SEGMENTS.lazySet(slot, segment);
+        }
+        return segment;
+    }
+
+    private static int slot( int hash,
+                             int tableSize ) {
+        // Spread the higher bits, since the table sizes are powers of 2 ...
+        hash ^= (hash >>> 16);
+        return hash & (tableSize - 1);
+    }
+}
@@ -119,7 +119,7 @@ public class NameValueFactory extends AbstractValueFactory<Name> implements Name
                     }
                     String namespaceUri = this.namespaceRegistryHolder.getNamespaceRegistry().getNamespaceForPrefix("");
                     String localName = decoder.decode(value.substring(2));
-                    return new BasicName(namespaceUri, localName);
+                    return InternTable.name(namespaceUri, localName);
                 }
                 if (closingBraceIndex > 1) {
                     // Closing brace found with chars between ...
@@ -136,7 +136,7 @@ public class NameValueFactory extends AbstractValueFactory<Name> implements Name
                     // There is no namespace prefix ...
                     String namespaceUri = this.namespaceRegistryHolder.getNamespaceRegistry().getNamespaceForPrefix("");
                     String localName = decoder.decode(value);
-                    return new BasicName(namespaceUri, localName);
+                    return InternTable.name(namespaceUri, localName);
                 }
                 // There is a namespace ...
                 String prefix = value.substring(0, colonIndex);
@@ -150,7 +150,7 @@ public class NameValueFactory extends AbstractValueFactory<Name> implements Name
                 int nextIndexAfterColon = colonIndex + 1;
                 String localName = nextIndexAfterColon < value.length() ? value.substring(nextIndexAfterColon) : "";
                 localName = decoder.decode(localName);
-                return new BasicName(namespaceUri, localName);
+                return InternTable.name(namespaceUri, localName);
             }
         } catch (NamespaceException err) {
             throw new ValueFormatException(value, getPropertyType(),
@@ -176,7 +176,7 @@ public class NameValueFactory extends AbstractValueFactory<Name> implements Name
         if (decoder == null) decoder = getDecoder();
         namespaceUri = namespaceUri != null ? decoder.decode(namespaceUri.trim()) : null;
         localName = decoder.decode(localName.trim());
-        return new BasicName(namespaceUri, localName);
+        return InternTable.name(namespaceUri, localName);
     }
 
     @Override
@@ -571,7 +571,7 @@ public class PathValueFactory extends AbstractValueFactory<Path> implements Path
         CheckArg.isNotNull(segmentName, "segment name");
         if (Path.SELF_NAME.equals(segmentName)) return Path.SELF_SEGMENT;
         if (Path.PARENT_NAME.equals(segmentName)) return Path.PARENT_SEGMENT;
-        return new BasicPathSegment(segmentName);
+        return InternTable.segment(segmentName, Path.DEFAULT_INDEX);
     }
 
     @Override
@@ -580,7 +580,7 @@ public class PathValueFactory extends AbstractValueFactory<Path> implements Path
         CheckArg.isNotNull(segmentName, "segment name");
         if (Path.SELF_NAME.equals(segmentName)) return Path.SELF_SEGMENT;
         if (Path.PARENT_NAME.equals(segmentName)) return Path.PARENT_SEGMENT;
-        return new BasicPathSegment(segmentName, index);
+        return InternTable.segment(segmentName, index);
     }
 
     @Override
@@ -596,7 +596,7 @@ public class PathValueFactory extends AbstractValueFactory<Path> implements Path
         if (Path.PARENT.equals(segmentName)) return Path.PARENT_SEGMENT;
         int startBracketNdx = segmentName.lastIndexOf('[');
         if (startBracketNdx < 0) {
-            return new BasicPathSegment(getNameValueFactory().create(segmentName, decoder));
+            return InternTable.segment(getNameValueFactory().create(segmentName, decoder), Path.DEFAULT_INDEX);
         }
         int endBracketNdx = segmentName.lastIndexOf(']', segmentName.length() - 1);
         if (endBracketNdx < 0) {
@@ -609,8 +609,8 @@ public class PathValueFactory extends AbstractValueFactory<Path> implements Path
         }
         String ndx = segmentName.substring(startBracketNdx + 1, endBracketNdx);
         try {
-            return new BasicPathSegment(getNameValueFactory().create(segmentName.substring(0, startBracketNdx), decoder),
-                                        Integer.parseInt(ndx));
+            return InternTable.segment(getNameValueFactory().create(segmentName.substring(0, startBracketNdx), decoder),
+                                       Integer.parseInt(ndx));
         } catch (NumberFormatException err) {
             throw new ValueFormatException(segmentName, getPropertyType(), GraphI18n.invalidIndexInSegmentName.text(ndx,
                                                                                                                     segmentName));
@@ -623,7 +623,7 @@ public class PathValueFactory extends AbstractValueFactory<Path> implements Path
         CheckArg.isNotNull(segmentName, "segment name");
         if (Path.SELF.equals(segmentName)) return Path.SELF_SEGMENT;
         if (Path.PARENT.equals(segmentName)) return Path.PARENT_SEGMENT;
-        return new BasicPathSegment(getNameValueFactory().create(segmentName), index);
+        return InternTable.segment(getNameValueFactory().create(segmentName), index);
     }
 
     @Override
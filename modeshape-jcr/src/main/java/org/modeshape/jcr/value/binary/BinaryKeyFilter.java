@@ -0,0 +1,102 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.value.binary;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.value.BinaryKey;
+
+/**
+ * A Bloom filter over the {@link BinaryKey}s contained in a single binary store, which can tell that a store definitely does not
+ * contain a value without asking the store. Keys can only be added, so a filter may report values which were since removed from
+ * the store, but never misses a value that was added.
+ */
+@ThreadSafe
+public final class BinaryKeyFilter {
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01d;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Create a new empty filter sized for the supplied number of keys, with a false positive probability of 1%.
+     *
+     * @param expectedKeys the number of keys the filter is expected to contain; must be positive
+     */
+    public BinaryKeyFilter( int expectedKeys ) {
+        CheckArg.isPositive(expectedKeys, "expectedKeys");
+        double ln2 = Math.log(2);
+        long bits = (long)Math.ceil(-expectedKeys * Math.log(FALSE_POSITIVE_PROBABILITY) / (ln2 * ln2));
+        int wordCount = (int)Math.max(1L, (bits + 63L) / 64L);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int)Math.round((double)bitCount / expectedKeys * ln2));
+    }
+
+    /**
+     * Add the supplied key to this filter.
+     *
+     * @param key the key; may not be null
+     */
+    public void add( BinaryKey key ) {
+        long hash1 = hash(key.toString(), 0xcbf29ce484222325L);
+        long hash2 = hash(key.toString(), 0x84222325cbf29ce4L) | 1L;
+        for (int i = 0; i != hashCount; ++i) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            int word = (int)(bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) == 0L && !words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Determine whether the supplied key may have been added to this filter.
+     *
+     * @param key the key; may not be null
+     * @return false if the key was definitely never added, or true if it may have been added
+     */
+    public boolean mightContain( BinaryKey key ) {
+        long hash1 = hash(key.toString(), 0xcbf29ce484222325L);
+        long hash2 = hash(key.toString(), 0x84222325cbf29ce4L) | 1L;
+        for (int i = 0; i != hashCount; ++i) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int)(bit >>> 6)) & (1L << bit)) == 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash( String value,
+                              long seed ) {
+        // 64-bit FNV-1a, followed by a final mix so that similar keys don't produce similar hashes ...
+        long hash = seed;
+        for (int i = 0; i != value.length(); ++i) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
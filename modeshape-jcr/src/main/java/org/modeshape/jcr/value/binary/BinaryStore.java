@@ -144,6 +144,30 @@ public interface BinaryStore {
     void removeValuesUnusedLongerThan( long minimumAge,
                                        TimeUnit unit ) throws BinaryStoreException;
 
+    /**
+     * Remove the binary values with the supplied keys, which the caller believes have been {@link #markAsUnused(Iterable) unused}
+     * long enough. Any value which is not currently marked as unused in this store, or which this store has not considered unused
+     * for at least the supplied minimum age (e.g., because it was stored again since it was marked as unused), is left untouched,
+     * as are the keys of values not stored within this store.
+     * <p>
+     * Stores which cannot remove individual values should return {@code false}, in which case the caller should rely on
+     * {@link #removeValuesUnusedLongerThan(long, TimeUnit)} instead. By default this method does nothing and returns false.
+     * </p>
+     *
+     * @param keys the keys for the binary values that are believed to be unused; may not be null
+     * @param minimumAge the minimum time that a binary value must have been unused before it can be removed; must be
+     *        non-negative
+     * @param unit the time unit for the minimum age; may not be null
+     * @return true if this store removed those of the values that are still unused, or false if the store does not support
+     *         removing individual values
+     * @throws BinaryStoreException if there is a problem removing the unused values
+     */
+    default boolean removeValues( Iterable<BinaryKey> keys,
+                                  long minimumAge,
+                                  TimeUnit unit ) throws BinaryStoreException {
+        return false;
+    }
+
     /**
      * Get the text that can be extracted from this binary content. If text extraction isn't enabled (either full text search is
      * not enabled or there aren't any configured extractors), this returns {@code null}
@@ -0,0 +1,214 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.value.binary;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.common.util.FileUtil;
+import org.modeshape.jcr.JcrI18n;
+import org.modeshape.jcr.value.BinaryKey;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * The map of {@link BinaryKey}s to the names of the stores within a {@link CompositeBinaryStore} that contain them, together with
+ * the time each value was last accessed. The map is either kept in memory, in which case only the most recently used locations
+ * are kept and are learned as values are stored and found, or persisted in a file so that all of them survive restarts.
+ * <p>
+ * The locations are only hints: a value may be removed or moved by another process or directly in one of the named stores, so
+ * callers must always verify that the value is still where the map says it is.
+ * </p>
+ */
+@ThreadSafe
+public class BinaryStoreLocations {
+
+    private static final Logger LOGGER = Logger.getLogger(BinaryStoreLocations.class);
+
+    private static final String FILE_NAME = "binary-locations";
+    private static final String LOCATIONS = "locations";
+    private static final String ACCESS_TIMES = "accessTimes";
+
+    /**
+     * The default maximum number of locations that are kept in memory.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 100000;
+
+    private final DB db;
+    private final ConcurrentMap<String, String> storeNamesByKey;
+    private final ConcurrentMap<String, Long> accessTimesByKey;
+
+    /**
+     * Create a new set of at most {@link #DEFAULT_MAXIMUM_SIZE} locations kept only in memory.
+     */
+    public BinaryStoreLocations() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Create a new set of locations kept only in memory. Once the maximum size is reached, the locations of the least recently
+     * used values are forgotten.
+     *
+     * @param maximumSize the maximum number of locations which are kept; must be positive
+     */
+    public BinaryStoreLocations( int maximumSize ) {
+        CheckArg.isPositive(maximumSize, "maximumSize");
+        this.db = null;
+        // make sure eviction runs in the same thread
+        this.storeNamesByKey = Caffeine.newBuilder().maximumSize(maximumSize).executor(Runnable::run).<String, String>build()
+                                       .asMap();
+        this.accessTimesByKey = Caffeine.newBuilder().maximumSize(maximumSize).executor(Runnable::run).<String, Long>build()
+                                        .asMap();
+    }
+
+    /**
+     * Create a new set of locations persisted in the supplied directory. If the existing file cannot be opened (e.g. because it
+     * was corrupted by a crash), it is discarded and the locations must be {@link #isEmpty() rebuilt}.
+     *
+     * @param directory the directory holding the file; may not be null
+     */
+    public BinaryStoreLocations( File directory ) {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File file = new File(directory, FILE_NAME);
+        DB db;
+        try {
+            db = open(file);
+        } catch (RuntimeException e) {
+            LOGGER.warn(e, JcrI18n.discardingBinaryStoreLocations, file);
+            for (File existing : directory.listFiles((dir, name) -> name.startsWith(FILE_NAME))) {
+                FileUtil.delete(existing);
+            }
+            db = open(file);
+        }
+        this.db = db;
+        this.storeNamesByKey = db.createHashMap(LOCATIONS)
+                                 .keySerializer(Serializer.STRING)
+                                 .valueSerializer(Serializer.STRING)
+                                 .makeOrGet();
+        this.accessTimesByKey = db.createHashMap(ACCESS_TIMES)
+                                  .keySerializer(Serializer.STRING)
+                                  .valueSerializer(Serializer.LONG)
+                                  .makeOrGet();
+    }
+
+    private static DB open( File file ) {
+        return DBMaker.newFileDB(file).transactionDisable().mmapFileEnableIfSupported().closeOnJvmShutdown().make();
+    }
+
+    /**
+     * Get the name of the store which is known to contain the supplied value.
+     *
+     * @param key the key of the value; may not be null
+     * @return the name of the store, or null if the location of the value is not known
+     */
+    public String storeName( BinaryKey key ) {
+        return storeNamesByKey.get(key.toString());
+    }
+
+    /**
+     * Record that the supplied value is contained in the named store. A value whose access time is not yet known is considered
+     * to have been accessed now.
+     *
+     * @param key the key of the value; may not be null
+     * @param storeName the name of the store; may not be null
+     */
+    public void recordLocation( BinaryKey key,
+                                String storeName ) {
+        String keyString = key.toString();
+        storeNamesByKey.put(keyString, storeName);
+        accessTimesByKey.putIfAbsent(keyString, System.currentTimeMillis());
+    }
+
+    /**
+     * Record that the supplied value was just read.
+     *
+     * @param key the key of the value; may not be null
+     */
+    public void recordAccess( BinaryKey key ) {
+        accessTimesByKey.put(key.toString(), System.currentTimeMillis());
+    }
+
+    /**
+     * Forget the location of the supplied value.
+     *
+     * @param key the key of the value; may not be null
+     */
+    public void remove( BinaryKey key ) {
+        String keyString = key.toString();
+        storeNamesByKey.remove(keyString);
+        accessTimesByKey.remove(keyString);
+    }
+
+    /**
+     * Forget the locations of all the values.
+     */
+    public void clear() {
+        storeNamesByKey.clear();
+        accessTimesByKey.clear();
+    }
+
+    /**
+     * Determine whether the location of any value is known.
+     *
+     * @return true if no locations are known, or false otherwise
+     */
+    public boolean isEmpty() {
+        return storeNamesByKey.isEmpty();
+    }
+
+    /**
+     * Find the values in the named store which were last accessed before or after the supplied time.
+     *
+     * @param storeName the name of the store; may not be null
+     * @param timeInMillis the time, in milliseconds since the epoch
+     * @param accessedBefore true if the values last accessed before the time are to be returned, or false if the values accessed
+     *        at or after the time are to be returned
+     * @return the keys of the values; never null
+     */
+    public List<BinaryKey> keysInStore( String storeName,
+                                        long timeInMillis,
+                                        boolean accessedBefore ) {
+        List<BinaryKey> keys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : storeNamesByKey.entrySet()) {
+            if (!storeName.equals(entry.getValue())) {
+                continue;
+            }
+            Long accessTime = accessTimesByKey.get(entry.getKey());
+            if (accessTime != null && (accessTime < timeInMillis) == accessedBefore) {
+                keys.add(new BinaryKey(entry.getKey()));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Release the resources held by these locations.
+     */
+    public void close() {
+        if (db != null && !db.isClosed()) {
+            db.close();
+        }
+    }
+}
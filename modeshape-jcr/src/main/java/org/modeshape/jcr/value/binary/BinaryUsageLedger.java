@@ -0,0 +1,258 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.value.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.modeshape.common.annotation.ThreadSafe;
+import org.modeshape.common.logging.Logger;
+import org.modeshape.jcr.JcrI18n;
+import org.modeshape.jcr.value.BinaryKey;
+
+/**
+ * A ledger of the binary values which are no longer referenced by the repository, so that garbage collection can find the
+ * values to be removed in time proportional to the number of unused values rather than by scanning the whole binary store.
+ * <p>
+ * Every time a save changes whether a binary value is used, the ledger appends a delta for the value's key: +1 when the value
+ * is used again, -1 when it is no longer used, or 0 when it has been removed from the store. The reference counts themselves
+ * are kept in the repository's binary reference documents, so the sessions only report the transitions of those counts, and
+ * the ledger folds each key's deltas into a count that is either zero (unused since a given time) or not. Only the zero-count
+ * keys are kept in memory, and the log is periodically compacted to one entry per such key.
+ * </p>
+ * <p>
+ * The ledger is only a list of candidates: a value may be used again by a save whose delta was lost (e.g. by a crash), so
+ * binary stores must {@link BinaryStore#removeValues(Iterable, long, TimeUnit) remove} only those values they themselves have
+ * considered unused for long enough.
+ * Values that never appear in the ledger (e.g. binary values stored by sessions that were never saved, or values no longer used
+ * before the ledger was created) are still removed by the periodic {@link BinaryStore#removeValuesUnusedLongerThan(long,
+ * TimeUnit) full scans} of the store.
+ * </p>
+ */
+@ThreadSafe
+public class BinaryUsageLedger {
+
+    private static final Logger LOGGER = Logger.getLogger(BinaryUsageLedger.class);
+
+    private static final String FILE_NAME = "binary-usage.log";
+    private static final int MIN_ENTRIES_BEFORE_COMPACTION = 1 << 12;
+
+    private final File file;
+    private final Map<String, Long> unusedSince = new HashMap<>();
+    private DataOutputStream log;
+    private int entryCount;
+
+    /**
+     * Create a new ledger kept only in memory.
+     */
+    public BinaryUsageLedger() {
+        this.file = null;
+    }
+
+    /**
+     * Create a new ledger persisted in the supplied directory. The existing log, if any, is replayed and compacted. If it cannot
+     * be read, it is discarded and the values it listed will be found by the next full scan of the binary store.
+     *
+     * @param directory the directory holding the log; may not be null
+     */
+    public BinaryUsageLedger( File directory ) {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        this.file = new File(directory, FILE_NAME);
+        if (file.exists()) {
+            try {
+                replay();
+            } catch (IOException e) {
+                LOGGER.warn(e, JcrI18n.discardingBinaryUsageLedger, file);
+                unusedSince.clear();
+            }
+        }
+        compact();
+    }
+
+    private void replay() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                String sha1;
+                int delta;
+                long timestamp;
+                try {
+                    sha1 = in.readUTF();
+                    delta = in.readByte();
+                    timestamp = in.readLong();
+                } catch (EOFException e) {
+                    // the end of the log, or an entry that was only partially written before a crash ...
+                    return;
+                }
+                apply(sha1, delta, timestamp);
+            }
+        }
+    }
+
+    private void apply( String sha1,
+                        int delta,
+                        long timestamp ) {
+        if (delta < 0) {
+            // keep the time the value first became unused ...
+            unusedSince.putIfAbsent(sha1, timestamp);
+        } else {
+            unusedSince.remove(sha1);
+        }
+    }
+
+    /**
+     * Record that the supplied values are used again by the repository.
+     *
+     * @param keys the keys of the values; may not be null
+     */
+    public synchronized void recordUsed( Iterable<BinaryKey> keys ) {
+        append(keys, 1, false);
+    }
+
+    /**
+     * Record that the supplied values are no longer used by the repository.
+     *
+     * @param keys the keys of the values; may not be null
+     */
+    public synchronized void recordUnused( Iterable<BinaryKey> keys ) {
+        append(keys, -1, true);
+    }
+
+    /**
+     * Record that the supplied values have been removed from the binary store.
+     *
+     * @param keys the keys of the values; may not be null
+     */
+    public synchronized void recordRemoved( Iterable<BinaryKey> keys ) {
+        append(keys, 0, false);
+    }
+
+    private void append( Iterable<BinaryKey> keys,
+                         int delta,
+                         boolean unused ) {
+        long now = System.currentTimeMillis();
+        try {
+            for (BinaryKey key : keys) {
+                String sha1 = key.toString();
+                if (unused == unusedSince.containsKey(sha1)) {
+                    // the delta doesn't change anything, so don't bother logging it ...
+                    continue;
+                }
+                apply(sha1, delta, now);
+                if (log != null) {
+                    log.writeUTF(sha1);
+                    log.writeByte(delta);
+                    log.writeLong(now);
+                }
+                ++entryCount;
+            }
+            if (log != null) {
+                log.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.warn(e, JcrI18n.unableToWriteBinaryUsageLedger, file, e.getMessage());
+        }
+        if (entryCount > MIN_ENTRIES_BEFORE_COMPACTION && entryCount > 4 * unusedSince.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Find the values which have been unused for at least the supplied amount of time.
+     *
+     * @param minimumAge the minimum time that a value has been unused; must be non-negative
+     * @param unit the time unit for the minimum age; may not be null
+     * @return the keys of the values; never null
+     */
+    public synchronized List<BinaryKey> unusedLongerThan( long minimumAge,
+                                                          TimeUnit unit ) {
+        long oldestTimestamp = System.currentTimeMillis() - unit.toMillis(minimumAge);
+        List<BinaryKey> keys = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : unusedSince.entrySet()) {
+            if (entry.getValue() < oldestTimestamp) {
+                keys.add(new BinaryKey(entry.getKey()));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Get the number of values which are currently unused.
+     *
+     * @return the number of unused values
+     */
+    public synchronized int unusedCount() {
+        return unusedSince.size();
+    }
+
+    /**
+     * Rewrite the log so that it contains a single entry for each unused value.
+     */
+    protected synchronized void compact() {
+        entryCount = unusedSince.size();
+        if (file == null) {
+            return;
+        }
+        closeLog();
+        File compacted = new File(file.getParentFile(), FILE_NAME + ".compacting");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compacted)))) {
+                for (Map.Entry<String, Long> entry : unusedSince.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeByte(-1);
+                    out.writeLong(entry.getValue());
+                }
+            }
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        } catch (IOException e) {
+            LOGGER.warn(e, JcrI18n.unableToWriteBinaryUsageLedger, file, e.getMessage());
+        }
+    }
+
+    private void closeLog() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                LOGGER.debug(e, "Error while closing the binary usage ledger in '{0}'", file);
+            } finally {
+                log = null;
+            }
+        }
+    }
+
+    /**
+     * Release the resources held by this ledger.
+     */
+    public synchronized void close() {
+        closeLog();
+    }
+}
@@ -235,6 +235,27 @@ public class CassandraBinaryStore extends AbstractBinaryStore {
         }
     }
 
+    @Override
+    public boolean removeValues( Iterable<BinaryKey> keys,
+                                 long minimumAge,
+                                 TimeUnit unit ) throws BinaryStoreException {
+        try {
+            Date deadline = new Date(System.currentTimeMillis() - unit.toMillis(minimumAge));
+            for (BinaryKey key : keys) {
+                // only remove the value if it has been unused since before the deadline ...
+                ResultSet rs = session.execute("SELECT cid from modeshape.binary where cid = '" + key.toString()
+                                               + "' and usage=0 and usage_time < " + deadline.getTime() + " allow filtering;");
+                Row row = rs.one();
+                if (row != null) {
+                    session.execute("DELETE from modeshape.binary where cid = '" + key.toString() + "';");
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            throw new BinaryStoreException(e);
+        }
+    }
+
     @Override
     public Iterable<BinaryKey> getAllBinaryKeys() throws BinaryStoreException {
         try {
@@ -15,16 +15,24 @@
  */
 package org.modeshape.jcr.value.binary;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import javax.jcr.RepositoryException;
+import org.modeshape.common.annotation.Immutable;
 import org.modeshape.common.collection.Collections;
 import org.modeshape.common.logging.Logger;
 import org.modeshape.common.util.CheckArg;
+import org.modeshape.common.util.NamedThreadFactory;
 import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.TextExtractors;
 import org.modeshape.jcr.mimetype.MimeTypeDetector;
@@ -38,6 +46,17 @@ import org.modeshape.jcr.value.BinaryValue;
  * BinaryStores. On retrieval, the CompositeBinaryStore will look in all the other BinaryStores for the value. When storing a
  * value, the CompositeBinaryStore may receive a StorageHint that MAY be used when determining which named BinaryStore to write
  * to. If a storage hint is not provided (or doesn't match a store), the value will be stored in the default store.
+ * <p>
+ * The name of the store that contains each value is remembered in {@link BinaryStoreLocations}, so that reading a value
+ * normally asks a single store. The most recently used locations are kept in memory unless a
+ * {@link #setLocationsDirectory(File) directory} is set, in which case all of them are persisted and are rebuilt from the named
+ * stores' keys when the file is new. Optionally, a
+ * {@link BinaryKeyFilter Bloom filter} per named store allows a value whose location is not known to be looked for only in the
+ * stores that may contain it; the filters only see the values stored through this composite store, so they must not be enabled
+ * if values are also written directly into the named stores. Finally, a {@link TieringPolicy} can periodically move the values
+ * which have not been read for some time from a "hot" store into a "cold" store, and move them back when they are read again;
+ * since this requires the locations of all the values, a tiering policy can only be used with a locations directory.
+ * </p>
  */
 public class CompositeBinaryStore implements BinaryStore {
 
@@ -48,7 +67,15 @@ public class CompositeBinaryStore implements BinaryStore {
     protected Logger logger = Logger.getLogger(getClass());
 
     private Map<String, BinaryStore> namedStores;
-    private BinaryStore defaultBinaryStore;
+    private String defaultBinaryStoreName;
+
+    private File locationsDirectory;
+    private int bloomFilterExpectedKeys;
+    private TieringPolicy tieringPolicy;
+    private volatile BinaryStoreLocations locations = new BinaryStoreLocations();
+    private volatile Map<String, BinaryKeyFilter> filtersByStoreName = java.util.Collections.emptyMap();
+    private final Set<BinaryKey> promotions = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService tieringService;
 
     /**
      * Initialize a new CompositeBinaryStore using a Map of other BinaryKeys that are keyed by an implementer-provided key. The
@@ -58,7 +85,42 @@ public class CompositeBinaryStore implements BinaryStore {
      */
     public CompositeBinaryStore( Map<String, BinaryStore> namedStores ) {
         this.namedStores = namedStores;
-        this.defaultBinaryStore = null;
+        this.defaultBinaryStoreName = null;
+    }
+
+    /**
+     * Set the directory in which the locations of the values are persisted. By default the locations are only kept in memory.
+     * This must be called before the store is {@link #start() started}.
+     *
+     * @param locationsDirectory the directory; may be null if the locations are only to be kept in memory
+     */
+    public void setLocationsDirectory( File locationsDirectory ) {
+        this.locationsDirectory = locationsDirectory;
+    }
+
+    /**
+     * Enable a Bloom filter for each named store, sized for the supplied number of values per store. This must be called before
+     * the store is {@link #start() started}.
+     *
+     * @param expectedKeys the number of values each named store is expected to contain, or 0 if no filters are to be used
+     */
+    public void setBloomFilterExpectedKeys( int expectedKeys ) {
+        CheckArg.isNonNegative(expectedKeys, "expectedKeys");
+        this.bloomFilterExpectedKeys = expectedKeys;
+    }
+
+    /**
+     * Set the policy for moving values between a "hot" and a "cold" store. This must be called before the store is
+     * {@link #start() started}, and requires a {@link #setLocationsDirectory(File) locations directory}.
+     *
+     * @param tieringPolicy the policy; may be null if values are not to be moved automatically
+     */
+    public void setTieringPolicy( TieringPolicy tieringPolicy ) {
+        if (tieringPolicy != null) {
+            CheckArg.containsKey(namedStores, tieringPolicy.getHotStoreName(), "namedStores");
+            CheckArg.containsKey(namedStores, tieringPolicy.getColdStoreName(), "namedStores");
+        }
+        this.tieringPolicy = tieringPolicy;
     }
 
     /**
@@ -73,6 +135,26 @@ public class CompositeBinaryStore implements BinaryStore {
             bs.start();
         }
 
+        if (locationsDirectory != null) {
+            locations = new BinaryStoreLocations(locationsDirectory);
+        }
+        // The tiering policy only moves values whose location is known, so it needs all the (persisted) locations ...
+        if (tieringPolicy != null && locationsDirectory == null) {
+            throw new IllegalStateException(JcrI18n.binaryTieringRequiresLocationsDirectory.text());
+        }
+        boolean rebuildLocations = locationsDirectory != null && locations.isEmpty();
+        if (rebuildLocations || bloomFilterExpectedKeys > 0) {
+            try {
+                scanNamedStores(rebuildLocations);
+            } catch (BinaryStoreException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        if (tieringPolicy != null) {
+            tieringService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("modeshape-binary-tiering"));
+            long interval = tieringPolicy.getIntervalInMillis();
+            tieringService.scheduleWithFixedDelay(this::runTieringPolicy, interval, interval, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
@@ -80,6 +162,12 @@ public class CompositeBinaryStore implements BinaryStore {
      */
     @Override
     public void shutdown() {
+        if (tieringService != null) {
+            tieringService.shutdownNow();
+            tieringService = null;
+        }
+        locations.close();
+
         Iterator<Map.Entry<String, BinaryStore>> it = getNamedStoreIterator();
 
         while (it.hasNext()) {
@@ -147,9 +235,17 @@ public class CompositeBinaryStore implements BinaryStore {
 
     @Override
     public BinaryValue storeValue( InputStream stream, String hint, boolean markAsUnused ) throws BinaryStoreException {
-        BinaryStore binaryStore = selectBinaryStore(hint);
+        String binaryStoreName = selectBinaryStoreName(hint);
+        BinaryStore binaryStore = namedStores.get(binaryStoreName);
         BinaryValue bv = binaryStore.storeValue(stream, markAsUnused);
         logger.debug("Stored binary " + bv.getKey() + " into binary store " + binaryStore + " used=" + markAsUnused);
+        if (!(bv instanceof InMemoryBinaryValue)) {
+            BinaryKeyFilter filter = filtersByStoreName.get(binaryStoreName);
+            if (filter != null) {
+                filter.add(bv.getKey());
+            }
+            locations.recordLocation(bv.getKey(), binaryStoreName);
+        }
         return bv;
     }
 
@@ -205,38 +301,34 @@ public class CompositeBinaryStore implements BinaryStore {
 
     @Override
     public InputStream getInputStream( BinaryKey key ) throws BinaryStoreException {
-        Iterator<Map.Entry<String, BinaryStore>> it = getNamedStoreIterator();
-
-        while (it.hasNext()) {
-            final Map.Entry<String, BinaryStore> entry = it.next();
-
-            final String binaryStoreKey = entry.getKey();
-
-            BinaryStore binaryStore = entry.getValue();
-            logger.trace("Checking binary store " + binaryStoreKey + " for key " + key);
-            try {
-                return binaryStore.getInputStream(key);
-            } catch (BinaryStoreException e) {
-                // this exception is "normal", and is thrown
-                logger.trace(e, "The named store " + binaryStoreKey + " raised exception");
+        String binaryStoreName = locations.storeName(key);
+        if (binaryStoreName != null) {
+            BinaryStore binaryStore = namedStores.get(binaryStoreName);
+            if (binaryStore != null) {
+                try {
+                    InputStream stream = binaryStore.getInputStream(key);
+                    accessed(key, binaryStoreName);
+                    return stream;
+                } catch (BinaryStoreException e) {
+                    // the value has been removed or moved since its location was recorded ...
+                    logger.trace(e, "The named store " + binaryStoreName + " no longer contains " + key);
+                }
             }
+            locations.remove(key);
         }
 
-        throw new BinaryStoreException(JcrI18n.unableToFindBinaryValue.text(key, this.toString()));
+        binaryStoreName = findBinaryStoreNameContainingKey(key);
+        if (binaryStoreName == null) {
+            throw new BinaryStoreException(JcrI18n.unableToFindBinaryValue.text(key, this.toString()));
+        }
+        InputStream stream = namedStores.get(binaryStoreName).getInputStream(key);
+        accessed(key, binaryStoreName);
+        return stream;
     }
 
     @Override
     public boolean hasBinary( BinaryKey key ) {
-        Iterator<Map.Entry<String, BinaryStore>> it = getNamedStoreIterator();
-
-        while (it.hasNext()) {
-            BinaryStore bs = it.next().getValue();
-            if (bs.hasBinary(key)) {
-                return true;
-            }
-        }
-
-        return false;
+        return findBinaryStoreNameContainingKey(key) != null;
     }
 
     @SuppressWarnings( "unused" )
@@ -297,17 +389,10 @@ public class CompositeBinaryStore implements BinaryStore {
     }
 
     @Override
-    public String getText( BinaryValue binary ) throws BinaryStoreException {
-
-        if (binary instanceof InMemoryBinaryValue) {
-            if (extractors == null || !extractors.extractionEnabled()) {
-                return null;
-            }
-
-            // The extracted text will never be stored, so try directly using the text extractors ...
-            return extractors.extract((InMemoryBinaryValue)binary, new TextExtractorContext(detector));
-        }
-
+    public boolean removeValues( Iterable<BinaryKey> keys,
+                                 long minimumAge,
+                                 TimeUnit unit ) throws BinaryStoreException {
+        boolean removed = true;
         Iterator<Map.Entry<String, BinaryStore>> it = getNamedStoreIterator();
 
         while (it.hasNext()) {
@@ -315,19 +400,34 @@ public class CompositeBinaryStore implements BinaryStore {
 
             final String binaryStoreKey = entry.getKey();
             BinaryStore bs = entry.getValue();
+
             try {
-                if (bs.hasBinary(binary.getKey())) {
-                    return bs.getText(binary);
-                }
+                // if any of the named stores can't remove individual values, they all need a full scan ...
+                removed &= bs.removeValues(keys, minimumAge, unit);
             } catch (BinaryStoreException e) {
                 logger.debug(e, "The named store " + binaryStoreKey + " raised exception");
-                if (!it.hasNext()) {
-                    throw e;
-                }
             }
         }
+        return removed;
+    }
+
+    @Override
+    public String getText( BinaryValue binary ) throws BinaryStoreException {
+
+        if (binary instanceof InMemoryBinaryValue) {
+            if (extractors == null || !extractors.extractionEnabled()) {
+                return null;
+            }
 
-        throw new BinaryStoreException(JcrI18n.unableToFindBinaryValue.text(binary.getKey(), this));
+            // The extracted text will never be stored, so try directly using the text extractors ...
+            return extractors.extract((InMemoryBinaryValue)binary, new TextExtractorContext(detector));
+        }
+
+        BinaryStore bs = findBinaryStoreContainingKey(binary.getKey());
+        if (bs == null) {
+            throw new BinaryStoreException(JcrI18n.unableToFindBinaryValue.text(binary.getKey(), this));
+        }
+        return bs.getText(binary);
     }
 
     @Override
@@ -342,27 +442,11 @@ public class CompositeBinaryStore implements BinaryStore {
             return detectedMimeType;
         }
 
-        Iterator<Map.Entry<String, BinaryStore>> it = getNamedStoreIterator();
-
-        while (it.hasNext()) {
-            Map.Entry<String, BinaryStore> entry = it.next();
-
-            final String binaryStoreKey = entry.getKey();
-            BinaryStore bs = entry.getValue();
-
-            try {
-                if (bs.hasBinary(binary.getKey())) {
-                    return bs.getMimeType(binary, name);
-                }
-            } catch (BinaryStoreException e) {
-                logger.debug(e, "The named store " + binaryStoreKey + " raised exception");
-                if (!it.hasNext()) {
-                    throw e;
-                }
-            }
+        BinaryStore bs = findBinaryStoreContainingKey(binary.getKey());
+        if (bs == null) {
+            throw new BinaryStoreException(JcrI18n.unableToFindBinaryValue.text(binary.getKey(), this));
         }
-
-        throw new BinaryStoreException(JcrI18n.unableToFindBinaryValue.text(binary.getKey(), this));
+        return bs.getMimeType(binary, name);
     }
 
     @Override
@@ -396,18 +480,128 @@ public class CompositeBinaryStore implements BinaryStore {
      * @return the BinaryStore that contains the given key
      */
     public BinaryStore findBinaryStoreContainingKey( BinaryKey key ) {
-        Iterator<Map.Entry<String, BinaryStore>> binaryStoreIterator = getNamedStoreIterator();
+        String binaryStoreName = findBinaryStoreNameContainingKey(key);
+        return binaryStoreName != null ? namedStores.get(binaryStoreName) : null;
+    }
+
+    /**
+     * Get the name of the named binary store that contains the key, asking first the store in which the key is known to be
+     * located and then only those stores which may contain the key.
+     *
+     * @param key the key to the binary content; never null
+     * @return the name of the BinaryStore that contains the given key, or null if no store contains the key
+     */
+    protected String findBinaryStoreNameContainingKey( BinaryKey key ) {
+        String binaryStoreName = locations.storeName(key);
+        if (binaryStoreName != null) {
+            BinaryStore bs = namedStores.get(binaryStoreName);
+            if (bs != null && bs.hasBinary(key)) {
+                return binaryStoreName;
+            }
+            locations.remove(key);
+        }
 
+        Iterator<Map.Entry<String, BinaryStore>> binaryStoreIterator = getNamedStoreIterator();
         while (binaryStoreIterator.hasNext()) {
-            BinaryStore bs = binaryStoreIterator.next().getValue();
-            if (bs.hasBinary(key)) {
-                return bs;
+            Map.Entry<String, BinaryStore> entry = binaryStoreIterator.next();
+            BinaryKeyFilter filter = filtersByStoreName.get(entry.getKey());
+            if (filter != null && !filter.mightContain(key)) {
+                logger.trace("The named store " + entry.getKey() + " does not contain " + key);
+                continue;
+            }
+            if (entry.getValue().hasBinary(key)) {
+                locations.recordLocation(key, entry.getKey());
+                return entry.getKey();
             }
         }
 
         return null;
     }
 
+    /**
+     * Rebuild the locations of all the values (and the Bloom filters, if enabled) from the keys of all the named stores. If a
+     * value is contained in several stores, the first store is recorded as its location.
+     *
+     * @throws BinaryStoreException if the keys of a named store cannot be read
+     */
+    public void rebuildLocations() throws BinaryStoreException {
+        scanNamedStores(true);
+    }
+
+    private void scanNamedStores( boolean rebuildLocations ) throws BinaryStoreException {
+        Map<String, BinaryKeyFilter> filters = new HashMap<>();
+        if (rebuildLocations) {
+            locations.clear();
+        }
+        Iterator<Map.Entry<String, BinaryStore>> binaryStoreIterator = getNamedStoreIterator();
+        while (binaryStoreIterator.hasNext()) {
+            Map.Entry<String, BinaryStore> entry = binaryStoreIterator.next();
+            BinaryKeyFilter filter = bloomFilterExpectedKeys > 0 ? new BinaryKeyFilter(bloomFilterExpectedKeys) : null;
+            for (BinaryKey key : entry.getValue().getAllBinaryKeys()) {
+                if (filter != null) {
+                    filter.add(key);
+                }
+                if (rebuildLocations && locations.storeName(key) == null) {
+                    locations.recordLocation(key, entry.getKey());
+                }
+            }
+            if (filter != null) {
+                filters.put(entry.getKey(), filter);
+            }
+        }
+        if (bloomFilterExpectedKeys > 0) {
+            filtersByStoreName = filters;
+        }
+    }
+
+    /**
+     * Move the values which were not read within the period defined by the {@link TieringPolicy} from its hot store into its
+     * cold store. Only the values whose location is known are considered.
+     *
+     * @throws BinaryStoreException if a value could not be moved
+     */
+    public void applyTieringPolicy() throws BinaryStoreException {
+        TieringPolicy policy = tieringPolicy;
+        if (policy == null) {
+            return;
+        }
+        long accessedBefore = System.currentTimeMillis() - policy.getColdAfterInMillis();
+        for (BinaryKey key : locations.keysInStore(policy.getHotStoreName(), accessedBefore, true)) {
+            moveValue(key, policy.getHotStoreName(), policy.getColdStoreName());
+        }
+    }
+
+    private void runTieringPolicy() {
+        try {
+            applyTieringPolicy();
+        } catch (Throwable t) {
+            logger.error(t, JcrI18n.errorDuringBinaryTiering, tieringPolicy.getHotStoreName(), tieringPolicy.getColdStoreName(),
+                         t.getMessage());
+        }
+    }
+
+    private void accessed( final BinaryKey key,
+                           String binaryStoreName ) {
+        locations.recordAccess(key);
+        final TieringPolicy policy = tieringPolicy;
+        final ScheduledExecutorService service = tieringService;
+        if (policy == null || service == null || !policy.isPromoteOnAccess()
+            || !policy.getColdStoreName().equals(binaryStoreName) || !promotions.add(key)) {
+            return;
+        }
+        // Move the value back into the hot store, without making the reader wait ...
+        service.execute(() -> {
+            try {
+                moveValue(key, policy.getColdStoreName(), policy.getHotStoreName());
+            } catch (Throwable t) {
+                logger.error(t, JcrI18n.errorDuringBinaryTiering, policy.getColdStoreName(), policy.getHotStoreName(),
+                             t.getMessage());
+            } finally {
+                promotions.remove(key);
+            }
+        });
+    }
+
     /**
      * Select a named binary store for the given hint
      * 
@@ -415,38 +609,109 @@ public class CompositeBinaryStore implements BinaryStore {
      * @return a named BinaryStore from the hint, or the default store
      */
     private BinaryStore selectBinaryStore( String hint ) {
+        return namedStores.get(selectBinaryStoreName(hint));
+    }
+
+    /**
+     * Select the name of a named binary store for the given hint
+     * 
+     * @param hint a hint to a binary store; possibly null
+     * @return the name of the named BinaryStore from the hint, or of the default store
+     */
+    private String selectBinaryStoreName( String hint ) {
 
-        BinaryStore namedBinaryStore = null;
+        String namedBinaryStoreName = null;
 
         if (hint != null) {
             logger.trace("Selecting named binary store for hint: " + hint);
-            namedBinaryStore = namedStores.get(hint);
+            if (namedStores.containsKey(hint)) {
+                namedBinaryStoreName = hint;
+            }
         }
 
-        if (namedBinaryStore == null) {
-            namedBinaryStore = getDefaultBinaryStore();
+        if (namedBinaryStoreName == null) {
+            namedBinaryStoreName = getDefaultBinaryStoreName();
         }
 
-        logger.trace("Selected binary store: " + namedBinaryStore.toString());
+        logger.trace("Selected binary store: " + namedBinaryStoreName);
 
-        return namedBinaryStore;
+        return namedBinaryStoreName;
     }
 
-    private BinaryStore getDefaultBinaryStore() {
-        if (defaultBinaryStore == null) {
+    private String getDefaultBinaryStoreName() {
+        if (defaultBinaryStoreName == null) {
             if (namedStores.containsKey(DEFAULT_STRATEGY_HINT)) {
-                defaultBinaryStore = namedStores.get(DEFAULT_STRATEGY_HINT);
+                defaultBinaryStoreName = DEFAULT_STRATEGY_HINT;
             } else {
                 logger.trace("Did not find a named binary store with the key 'default', picking the first binary store in the list");
-                final Iterator<BinaryStore> iterator = namedStores.values().iterator();
+                final Iterator<String> iterator = namedStores.keySet().iterator();
 
                 if (iterator.hasNext()) {
-                    defaultBinaryStore = iterator.next();
+                    defaultBinaryStoreName = iterator.next();
                 }
             }
         }
 
-        return defaultBinaryStore;
+        return defaultBinaryStoreName;
+    }
+
+    /**
+     * The policy for moving values between a "hot" store, which holds the values which are read frequently, and a "cold" store,
+     * which holds those that are rarely read.
+     */
+    @Immutable
+    public static final class TieringPolicy {
+        private final String hotStoreName;
+        private final String coldStoreName;
+        private final long coldAfterInMillis;
+        private final long intervalInMillis;
+        private final boolean promoteOnAccess;
+
+        /**
+         * Create a new tiering policy.
+         *
+         * @param hotStoreName the name of the store holding the frequently read values; may not be null
+         * @param coldStoreName the name of the store holding the rarely read values; may not be null
+         * @param coldAfterInMillis the time after which a value that has not been read is moved into the cold store; must be
+         *        positive
+         * @param intervalInMillis the time between two runs of the policy; must be positive
+         * @param promoteOnAccess true if a value read from the cold store is to be moved back into the hot store
+         */
+        public TieringPolicy( String hotStoreName,
+                              String coldStoreName,
+                              long coldAfterInMillis,
+                              long intervalInMillis,
+                              boolean promoteOnAccess ) {
+            CheckArg.isNotNull(hotStoreName, "hotStoreName");
+            CheckArg.isNotNull(coldStoreName, "coldStoreName");
+            CheckArg.isPositive(coldAfterInMillis, "coldAfterInMillis");
+            CheckArg.isPositive(intervalInMillis, "intervalInMillis");
+            this.hotStoreName = hotStoreName;
+            this.coldStoreName = coldStoreName;
+            this.coldAfterInMillis = coldAfterInMillis;
+            this.intervalInMillis = intervalInMillis;
+            this.promoteOnAccess = promoteOnAccess;
+        }
+
+        public String getHotStoreName() {
+            return hotStoreName;
+        }
+
+        public String getColdStoreName() {
+            return coldStoreName;
+        }
+
+        public long getColdAfterInMillis() {
+            return coldAfterInMillis;
+        }
+
+        public long getIntervalInMillis() {
+            return intervalInMillis;
+        }
+
+        public boolean isPromoteOnAccess() {
+            return promoteOnAccess;
+        }
     }
 
 }
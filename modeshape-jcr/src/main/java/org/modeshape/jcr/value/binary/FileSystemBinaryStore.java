@@ -486,6 +486,42 @@ public class FileSystemBinaryStore extends AbstractBinaryStore {
         }
     }
 
+    @Override
+    public boolean removeValues( Iterable<BinaryKey> keys,
+                                 long minimumAge,
+                                 TimeUnit unit ) throws BinaryStoreException {
+        long oldestTimestamp = System.currentTimeMillis() - TimeUnit.MILLISECONDS.convert(minimumAge, unit);
+        for (BinaryKey key : keys) {
+            removeUnusedFile(key, oldestTimestamp);
+            removeUnusedFile(createKeyFromSourceWithSuffix(key, EXTRACTED_TEXT_SUFFIX), oldestTimestamp);
+            removeUnusedFile(createKeyFromSourceWithSuffix(key, MIME_TYPE_SUFFIX), oldestTimestamp);
+        }
+        return true;
+    }
+
+    private void removeUnusedFile( BinaryKey key,
+                                   long oldestTimestamp ) throws BinaryStoreException {
+        File trashFile = getTrashFile(key, false);
+        if (trashFile == null) {
+            // the value is not marked as unused (anymore), so leave it alone
+            return;
+        }
+        File persistedFile = findFile(directory, key, false);
+        Lock lock = locks.writeLock(key.toString());
+        try {
+            // the value may have been marked as used (or stored again, which refreshes the trash file) since we looked, and we
+            // only remove the trash file if we successfully deleted the main file; otherwise the next full scan will try again
+            if (!trashFile.exists() || trashFile.lastModified() >= oldestTimestamp
+                || (persistedFile.exists() && !persistedFile.delete()) || !removeTrashFile(key)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        pruneEmptyDirectories(trash, trashFile.getParentFile());
+        pruneEmptyDirectories(directory, persistedFile.getParentFile());
+    }
+
     private void removeFilesOlderThan( long oldestTimestamp,
                                        File parentDirectory ) throws IOException, BinaryStoreException {
         if (parentDirectory == null || !parentDirectory.exists() || parentDirectory.isFile()) {
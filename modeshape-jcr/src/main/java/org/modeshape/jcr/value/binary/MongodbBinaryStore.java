@@ -247,6 +247,22 @@ public class MongodbBinaryStore extends AbstractBinaryStore {
         }
     }
 
+    @Override
+    public boolean removeValues( Iterable<BinaryKey> keys,
+                                 long minimumAge,
+                                 TimeUnit unit ) {
+        long deadline = System.currentTimeMillis() - unit.toMillis(minimumAge);
+        for (BinaryKey key : keys) {
+            if (db.collectionExists(key.toString())) {
+                DBCollection content = db.getCollection(key.toString());
+                if (Boolean.TRUE.equals(getAttribute(content, FIELD_UNUSED)) && isExpired(content, deadline)) {
+                    content.drop();
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     protected void storeMimeType( BinaryValue source,
                                   String mimeType ) throws BinaryStoreException {
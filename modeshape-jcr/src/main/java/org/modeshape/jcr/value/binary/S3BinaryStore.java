@@ -269,6 +269,28 @@ public class S3BinaryStore extends AbstractBinaryStore {
         }
     }
 
+    @Override
+    public boolean removeValues( Iterable<BinaryKey> keys,
+                                 long minimumAge,
+                                 TimeUnit timeUnit ) throws BinaryStoreException {
+        Date deadline = new Date(System.currentTimeMillis() - timeUnit.toMillis(minimumAge));
+        try {
+            for (BinaryKey key : keys) {
+                if (!s3Client.doesObjectExist(bucketName, key.toString())) {
+                    continue;
+                }
+                ObjectMetadata metadata = s3Client.getObjectMetadata(bucketName, key.toString());
+                if (String.valueOf(true).equals(metadata.getUserMetadata().get(UNUSED_KEY))
+                    && metadata.getLastModified().before(deadline)) {
+                    s3Client.deleteObject(bucketName, key.toString());
+                }
+            }
+            return true;
+        } catch (AmazonClientException e) {
+            throw new BinaryStoreException(e);
+        }
+    }
+
     @Override
     public Iterable<BinaryKey> getAllBinaryKeys() throws BinaryStoreException {
         try {
@@ -0,0 +1,107 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jmx;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Values holder which exposes {@link org.modeshape.jcr.api.monitor.Percentiles} to JMX.
+ */
+public class PercentileData {
+
+    private final long count;
+    private final String timeUnit;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long maximum;
+
+    /**
+     * @param count the number of recorded durations
+     * @param timeUnit the name of the unit in which the durations are expressed
+     * @param p50 the median duration
+     * @param p90 the 90th percentile
+     * @param p99 the 99th percentile
+     * @param p999 the 99.9th percentile
+     * @param maximum the largest recorded duration
+     */
+    @ConstructorProperties( {"count", "timeUnit", "p50", "p90", "p99", "p999", "maximum"} )
+    public PercentileData( long count,
+                           String timeUnit,
+                           long p50,
+                           long p90,
+                           long p99,
+                           long p999,
+                           long maximum ) {
+        this.count = count;
+        this.timeUnit = timeUnit;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.maximum = maximum;
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the name of the {@link java.util.concurrent.TimeUnit} in which all the other values are expressed; never null
+     */
+    public String getTimeUnit() {
+        return timeUnit;
+    }
+
+    /**
+     * @return the median duration
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * @return the duration below which 90% of the recorded durations fall
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * @return the duration below which 99% of the recorded durations fall
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * @return the duration below which 99.9% of the recorded durations fall
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    /**
+     * @return the largest recorded duration
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+}
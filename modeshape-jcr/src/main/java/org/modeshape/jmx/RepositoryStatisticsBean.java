@@ -32,6 +32,7 @@ import org.modeshape.jcr.JcrI18n;
 import org.modeshape.jcr.api.monitor.DurationActivity;
 import org.modeshape.jcr.api.monitor.DurationMetric;
 import org.modeshape.jcr.api.monitor.History;
+import org.modeshape.jcr.api.monitor.Percentiles;
 import org.modeshape.jcr.api.monitor.RepositoryMonitor;
 import org.modeshape.jcr.api.monitor.Statistics;
 import org.modeshape.jcr.api.monitor.ValueMetric;
@@ -171,4 +172,18 @@ public class RepositoryStatisticsBean implements RepositoryStatisticsMXBean {
             throw new MBeanException(e);
         }
     }
+
+    @Override
+    public PercentileData getPercentiles( DurationMetric metric ) throws MBeanException {
+        try {
+            Percentiles percentiles = monitor.getPercentiles(metric);
+            TimeUnit unit = metric.getTimeUnit();
+            return new PercentileData(percentiles.getCount(), unit.name(), percentiles.getValueAtPercentile(50.0d, unit),
+                                      percentiles.getValueAtPercentile(90.0d, unit),
+                                      percentiles.getValueAtPercentile(99.0d, unit),
+                                      percentiles.getValueAtPercentile(99.9d, unit), percentiles.getMaximum(unit));
+        } catch (RepositoryException e) {
+            throw new MBeanException(e);
+        }
+    }
 }
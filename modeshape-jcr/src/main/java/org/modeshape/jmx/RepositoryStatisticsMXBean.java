@@ -49,7 +49,7 @@ public interface RepositoryStatisticsMXBean {
      * @return a [name, description] map of available duration metrics; never null
      * @see org.modeshape.jcr.api.monitor.RepositoryMonitor#getAvailableDurationMetrics()
      */
-    @Details( "A list of enums which represent the available duration metrics that should be used as parameters for the getDurations and getLongestRunning operations" )
+    @Details( "A list of enums which represent the available duration metrics that should be used as parameters for the getDurations, getLongestRunning and getPercentiles operations" )
     List<EnumDescription> getDurationMetrics();
 
     /**
@@ -105,4 +105,17 @@ public interface RepositoryStatisticsMXBean {
     @Details( "Returns the longest running time of a duration type (e.g. longest running session)" )
     public List<DurationData> getLongestRunning( @Details( "The duration metric enum name  (see the DurationMetrics)" ) DurationMetric metric )
         throws MBeanException;
+
+    /**
+     * Get the percentiles of all the durations recorded for the specified metric since the repository was started. The values
+     * are expressed in the {@link DurationMetric#getTimeUnit() unit} of the metric.
+     * 
+     * @param metric the duration metric; may not be null
+     * @return the percentile data; never null
+     * @see org.modeshape.jcr.api.monitor.RepositoryMonitor#getPercentiles(org.modeshape.jcr.api.monitor.DurationMetric)
+     * @throws javax.management.MBeanException if anything unexpected fails while performing the operation.
+     */
+    @Details( "Returns the median, 90th, 99th and 99.9th percentiles of a duration type (e.g. save persist time)" )
+    public PercentileData getPercentiles( @Details( "The duration metric enum name  (see the DurationMetrics)" ) DurationMetric metric )
+        throws MBeanException;
 }
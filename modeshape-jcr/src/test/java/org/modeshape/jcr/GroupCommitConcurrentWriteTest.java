@@ -0,0 +1,160 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jcr.Node;
+import javax.jcr.ReferentialIntegrityException;
+import javax.jcr.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.api.JcrTools;
+
+/**
+ * Runs all the {@link ConcurrentWriteTest concurrent write tests} against a repository which commits concurrent saves in groups.
+ */
+public class GroupCommitConcurrentWriteTest extends ConcurrentWriteTest {
+
+    @Override
+    @Before
+    public void beforeEach() throws Exception {
+        startRepositoryWithConfigurationFrom("config/repo-config-group-commit.json");
+        tools = new JcrTools();
+
+        // Set the transaction timeout so that we can debug code called within the transaction ...
+        repository.runningState().txnManager().setTransactionTimeout(500);
+    }
+
+    @Test
+    public void shouldCommitIndependentSavesOfManyThreads() throws Exception {
+        final int numParents = 16;
+        final int numChildrenPerParent = 20;
+        runOnce(session -> {
+            Node root = session.getRootNode();
+            for (int i = 0; i != numParents; ++i) {
+                root.addNode("parent" + i);
+            }
+            session.save();
+        }, false);
+
+        final AtomicInteger counter = new AtomicInteger();
+        runConcurrently(numParents * numChildrenPerParent, numParents, session -> {
+            int count = counter.getAndIncrement();
+            Node parent = session.getNode("/parent" + (count % numParents));
+            parent.addNode("child" + (count / numParents));
+            session.save();
+        });
+
+        verify(session -> {
+            for (int i = 0; i != numParents; ++i) {
+                assertThat(session.getNode("/parent" + i).getNodes().getSize(), is((long)numChildrenPerParent));
+            }
+        });
+    }
+
+    @Test
+    public void shouldFailOnlyTheSaveWhichCannotBePersisted() throws Exception {
+        final int numSaves = 64;
+        runOnce(session -> {
+            Node referenced = session.getRootNode().addNode("referenced");
+            referenced.addMixin("mix:referenceable");
+            session.getRootNode().addNode("referrer").setProperty("ref", referenced);
+            session.save();
+        }, false);
+
+        final AtomicInteger counter = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        runConcurrently(numSaves, 8, session -> {
+            int count = counter.getAndIncrement();
+            if (count % 8 == 0) {
+                // removing a node which is still referenced always fails ...
+                session.getNode("/referenced").remove();
+                try {
+                    session.save();
+                } catch (ReferentialIntegrityException e) {
+                    failures.incrementAndGet();
+                }
+                return;
+            }
+            session.getRootNode().addNode("node" + count);
+            session.save();
+        });
+
+        assertThat(failures.get(), is(numSaves / 8));
+        verify(session -> {
+            assertNotNull(session.getNode("/referenced"));
+            // the root also contains the system node, the referenced node and the referrer ...
+            assertThat(session.getRootNode().getNodes().getSize(), is((long)(numSaves - numSaves / 8 + 3)));
+        });
+    }
+
+    @Test
+    public void shouldSeeChangesOfOtherSessionsAfterSavingInGroups() throws Exception {
+        final int numSessions = 8;
+        runOnce(session -> {
+            Node root = session.getRootNode();
+            for (int i = 0; i != numSessions; ++i) {
+                root.addNode("parent" + i);
+            }
+            session.save();
+        }, false);
+
+        final CyclicBarrier barrier = new CyclicBarrier(numSessions);
+        ExecutorService executor = Executors.newFixedThreadPool(numSessions);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i != numSessions; ++i) {
+                final int index = i;
+                futures.add(executor.submit(() -> {
+                    Session session = repository.login();
+                    try {
+                        // each round of saves is committed concurrently, so the saves are most likely grouped ...
+                        for (int round = 0; round != 2; ++round) {
+                            session.getNode("/parent" + index).addNode("child" + round);
+                            barrier.await(10, TimeUnit.SECONDS);
+                            session.save();
+                            barrier.await(10, TimeUnit.SECONDS);
+                            // the long-lived session must see what the other sessions have just saved ...
+                            for (int other = 0; other != numSessions; ++other) {
+                                Node parent = session.getNode("/parent" + other);
+                                assertThat(parent.getNodes().getSize(), is((long)round + 1));
+                                assertNotNull(parent.getNode("child" + round));
+                            }
+                        }
+                    } finally {
+                        session.logout();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -213,6 +213,89 @@ public class ImportExportTest extends SingleUseAbstractTest {
         assertNoNode("/someNode[2]");
     }
 
+    @Test
+    public void shouldImportSystemViewWithUuidsAndForwardReferencesInBatches() throws Exception {
+        // Register the Cars node types ...
+        tools.registerNodeTypes(session, "cars.cnd");
+
+        // Create the node under which the content will be imported ...
+        session.getRootNode().addNode("/someNode");
+        session.save();
+
+        // Import the car content, saving after (nearly) every node ...
+        InputStream stream = resourceStream("io/cars-system-view-with-uuids.xml");
+        try {
+            ((Workspace)session.getWorkspace()).importXML("/someNode", stream, ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW, 1);
+        } finally {
+            stream.close();
+        }
+
+        Node cars = assertNode("/someNode/Cars");
+        assertThat(cars.getIdentifier(), is(expectedIdentifier));
+        assertNode("/someNode/Cars/Hybrid/Toyota Prius");
+        assertNode("/someNode/Cars/Utility/Ford F-150");
+
+        // The Bentley refers to the Lexus, which appears later in the document ...
+        Node bentley = assertNode("/someNode/Cars/Luxury/Bentley Continental");
+        Node lexus = assertNode("/someNode/Cars/Luxury/Lexus IS350");
+        Node cadillac = assertNode("/someNode/Cars/Luxury/Cadillac DTS");
+        Value[] alternateModels = bentley.getProperty("car:alternateModels").getValues();
+        assertThat(alternateModels.length, is(2));
+        assertThat(alternateModels[0].getString(), is(lexus.getIdentifier()));
+        assertThat(alternateModels[1].getString(), is(cadillac.getIdentifier()));
+        assertThat(lexus.getReferences().getSize(), is(1L));
+        assertThat(cadillac.getReferences().getSize(), is(1L));
+    }
+
+    @Test
+    public void shouldImportSystemViewWithUuidsOverReferencedContentInBatches() throws Exception {
+        // Register the Cars node types ...
+        tools.registerNodeTypes(session, "cars.cnd");
+
+        // Set up the repository with existing content, and refer to a node near the end of that content ...
+        session.getRootNode().addNode("a");
+        session.getRootNode().addNode("b");
+        session.save();
+        InputStream stream = resourceStream("io/cars-system-view-with-uuids.xml");
+        try {
+            session.getWorkspace().importXML("/a", stream, ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW);
+        } finally {
+            stream.close();
+        }
+        Node lexus = assertNode("/a/Cars/Luxury/Lexus IS350");
+        session.getRootNode().addNode("referrer").setProperty("lexus", lexus);
+        session.save();
+
+        // Reimport the content elsewhere, saving after (nearly) every node; the existing 'Cars' subtree (including the Lexus)
+        // is removed when the first node is imported, but the Lexus is only imported again after several batches ...
+        stream = resourceStream("io/cars-system-view-with-uuids.xml");
+        try {
+            ((Workspace)session.getWorkspace()).importXML("/b", stream, ImportUUIDBehavior.IMPORT_UUID_COLLISION_REMOVE_EXISTING,
+                                                          2);
+        } finally {
+            stream.close();
+        }
+
+        assertNoNode("/a/Cars");
+        lexus = assertNode("/b/Cars/Luxury/Lexus IS350");
+        assertThat(session.getNode("/referrer").getProperty("lexus").getNode().getPath(), is(lexus.getPath()));
+        List<String> referrerPaths = new ArrayList<>();
+        for (PropertyIterator iter = lexus.getReferences(); iter.hasNext();) {
+            referrerPaths.add(iter.nextProperty().getParent().getPath());
+        }
+        assertTrue(referrerPaths.contains("/referrer"));
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldNotAllowImportWithNonPositiveBatchSize() throws Exception {
+        InputStream stream = resourceStream("io/cars-system-view.xml");
+        try {
+            ((Workspace)session.getWorkspace()).importXML("/", stream, ImportUUIDBehavior.IMPORT_UUID_CREATE_NEW, 0);
+        } finally {
+            stream.close();
+        }
+    }
+
     @Test
     public void shouldImportSystemViewWithUuidsAfterNodesWithSameUuidsAreDeletedInSessionButNotSaved() throws Exception {
         // Register the Cars node types ...
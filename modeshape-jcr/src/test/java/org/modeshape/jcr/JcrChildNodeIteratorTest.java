@@ -25,6 +25,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import org.junit.Before;
@@ -114,4 +116,45 @@ public class JcrChildNodeIteratorTest {
         iter.next();
     }
 
+    @Test
+    public void shouldReadAheadInWindowsAndReturnNodesInOrder() {
+        final List<List<ChildReference>> prefetched = new ArrayList<List<ChildReference>>();
+        final List<List<ChildReference>> prefetchedAsync = new ArrayList<List<ChildReference>>();
+        NodeResolver resolver = new NodeResolver() {
+            @SuppressWarnings( "synthetic-access" )
+            @Override
+            public Node nodeFrom( ChildReference ref ) {
+                return childNodesByRef.get(ref);
+            }
+
+            @Override
+            public int prefetchSize() {
+                return 4;
+            }
+
+            @Override
+            public void prefetch( List<ChildReference> window ) {
+                prefetched.add(new ArrayList<ChildReference>(window));
+            }
+
+            @Override
+            public Future<?> prefetchAsync( List<ChildReference> window ) {
+                prefetchedAsync.add(new ArrayList<ChildReference>(window));
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        iter = new JcrChildNodeIterator(resolver, refs.iterator());
+        for (AbstractJcrNode expected : children) {
+            assertThat(iter.hasNext(), is(true));
+            assertThat((AbstractJcrNode)iter.nextNode(), is(sameInstance(expected)));
+        }
+        assertThat(iter.hasNext(), is(false));
+        // the first window is loaded before its nodes are resolved, and the others in the background ...
+        assertThat(prefetched.size(), is(1));
+        assertThat(prefetched.get(0), is(refs.subList(0, 4)));
+        assertThat(prefetchedAsync.size(), is(2));
+        assertThat(prefetchedAsync.get(0), is(refs.subList(4, 8)));
+        assertThat(prefetchedAsync.get(1), is(refs.subList(8, 10)));
+    }
+
 }
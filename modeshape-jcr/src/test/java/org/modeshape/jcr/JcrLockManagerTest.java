@@ -15,6 +15,7 @@
  */
 package org.modeshape.jcr;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -24,6 +25,7 @@ import javax.jcr.InvalidItemStateException;
 import javax.jcr.Node;
 import javax.jcr.Session;
 import javax.jcr.lock.Lock;
+import javax.jcr.lock.LockException;
 import javax.jcr.lock.LockManager;
 import org.junit.Assert;
 import org.junit.Test;
@@ -135,4 +137,36 @@ public class JcrLockManagerTest extends SingleUseAbstractTest {
         lockManager.lock(node.getPath(), false, false, 10, null);
         assertTrue(node.isLocked());
     }
+
+    @Test
+    public void shouldReloadLocksLazilyAfterRefresh() throws Exception {
+        Node parent = session.getRootNode().addNode("parent");
+        parent.addMixin("mix:lockable");
+        for (int i = 0; i != 20; ++i) {
+            parent.addNode("child" + i).addMixin("mix:lockable");
+        }
+        session.save();
+        JcrLockManager lockManager = session.getWorkspace().getLockManager();
+        Lock childLock = lockManager.lock("/parent/child7", false, false, Long.MAX_VALUE, null);
+
+        // the locks are reloaded from the system area when next needed ...
+        repository.lockManager().refreshFromSystem();
+        assertTrue(lockManager.isLocked("/parent/child7"));
+        assertFalse(lockManager.isLocked("/parent/child8"));
+        assertTrue(lockManager.holdsLock("/parent/child7"));
+        assertEquals(childLock.getLockToken(), lockManager.getLock("/parent/child7").getLockToken());
+        try {
+            lockManager.lock("/parent", true, false, Long.MAX_VALUE, null);
+            fail("A deep lock should not be allowed when a descendant is locked");
+        } catch (LockException e) {
+            // expected
+        }
+
+        lockManager.unlock("/parent/child7");
+        lockManager.lock("/parent", true, false, Long.MAX_VALUE, null);
+        repository.lockManager().refreshFromSystem();
+        assertTrue(lockManager.isLocked("/parent/child8"));
+        assertTrue(lockManager.getLock("/parent/child8").isDeep());
+        assertEquals("/parent", lockManager.getLock("/parent/child8").getNode().getPath());
+    }
 }
@@ -1239,6 +1239,51 @@ public class JcrVersioningTest extends SingleUseAbstractTest {
         }
     }
 
+    @Test
+    public void shouldShareUnchangedFrozenContentBetweenVersions() throws Exception {
+        startRepositoryWithConfiguration("{ 'name' : '" + REPO_NAME + "', 'versionStorage' : 'shared' }");
+        versionManager = session.getWorkspace().getVersionManager();
+
+        Node node = session.getRootNode().addNode("document");
+        node.addMixin("mix:versionable");
+        Node unchanged = node.addNode("unchanged");
+        unchanged.setProperty("prop", "value");
+        unchanged.addNode("child").setProperty("prop", "value");
+        node.addNode("changed").setProperty("prop", "v1");
+        session.save();
+        Version v1 = versionManager.checkin(node.getPath());
+
+        versionManager.checkout(node.getPath());
+        node.getNode("changed").setProperty("prop", "v2");
+        session.save();
+        Version v2 = versionManager.checkin(node.getPath());
+
+        Node frozen1 = v1.getFrozenNode();
+        Node frozen2 = v2.getFrozenNode();
+        assertEquals(frozen1.getNode("unchanged").getIdentifier(), frozen2.getNode("unchanged").getIdentifier());
+        assertNotEquals(frozen1.getNode("changed").getIdentifier(), frozen2.getNode("changed").getIdentifier());
+        assertEquals("v1", frozen1.getProperty("changed/prop").getString());
+        assertEquals("v2", frozen2.getProperty("changed/prop").getString());
+
+        versionManager.restore(v1, true);
+        assertEquals("v1", node.getProperty("changed/prop").getString());
+        assertEquals("value", node.getProperty("unchanged/child/prop").getString());
+        assertPropertyIsAbsent(node.getNode("unchanged"), "mode:frozenContentHash");
+
+        versionManager.restore(v2, true);
+        assertEquals("v2", node.getProperty("changed/prop").getString());
+
+        // removing the version which first recorded the shared content should not affect the other version ...
+        versionManager.getVersionHistory(node.getPath()).removeVersion(v1.getName());
+        frozen2 = versionManager.getVersionHistory(node.getPath()).getVersion(v2.getName()).getFrozenNode();
+        assertEquals("value", frozen2.getProperty("unchanged/child/prop").getString());
+        versionManager.checkout(node.getPath());
+        node.getNode("unchanged/child").remove();
+        session.save();
+        versionManager.restore(node.getPath(), v2.getName(), true);
+        assertEquals("value", node.getProperty("unchanged/child/prop").getString());
+    }
+
     private List<String> allChildrenPaths( Node root ) throws Exception {
         List<String> paths = new ArrayList<String>();
         NodeIterator nodeIterator = root.getNodes();
@@ -38,6 +38,7 @@ import javax.jcr.NamespaceRegistry;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.PathNotFoundException;
+import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.lock.LockException;
@@ -46,6 +47,7 @@ import javax.jcr.query.QueryManager;
 import javax.jcr.security.AccessControlList;
 import javax.jcr.security.AccessControlManager;
 import javax.jcr.security.Privilege;
+import javax.jcr.version.Version;
 import org.junit.Before;
 import org.junit.Test;
 import org.modeshape.common.FixFor;
@@ -54,6 +56,7 @@ import org.modeshape.jcr.api.JcrTools;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.change.Change;
 import org.modeshape.jcr.cache.change.WorkspaceRemoved;
+import org.modeshape.jcr.cache.document.DocumentTranslator;
 import org.modeshape.jcr.security.SimplePrincipal;
 
 /**
@@ -146,6 +149,99 @@ public class JcrWorkspaceTest extends SingleUseAbstractTest {
         assertNotNull(otherSession.getNode("/b"));
     }
 
+    @Test
+    public void shouldCreateWorkspaceFromSourceWorkspaceWithManyNodesAndReferences() throws Exception {
+        Node parent = session.getNode("/b");
+        for (int i = 0; i != 1200; ++i) {
+            parent.addNode("child" + i);
+        }
+        Node target = session.getNode("/a/b/c");
+        target.addMixin("mix:referenceable");
+        Node versionable = session.getRootNode().addNode("versionable");
+        versionable.addMixin("mix:versionable");
+        Node referrer = session.getNode("/a");
+        referrer.setProperty("strongRef", target);
+        referrer.setProperty("weakRef", session.getValueFactory().createValue(target, true));
+        referrer.setProperty("binary", session.getValueFactory().createBinary(new ByteArrayInputStream(new byte[10000])));
+        session.save();
+        session.getWorkspace().getVersionManager().checkpoint("/versionable");
+
+        workspace.createWorkspace("cloned", workspaceName);
+
+        JcrSession clonedSession = repository.login("cloned");
+        try {
+            assertEquals(1200, clonedSession.getNode("/b").getNodes().getSize());
+            assertEquals(session.getNode("/b/child1199").getIdentifier(), clonedSession.getNode("/b/child1199").getIdentifier());
+            assertEquals("value", clonedSession.getNode("/a/b/c").getProperty("stringProperty").getString());
+
+            Node clonedTarget = clonedSession.getNode("/a/b/c");
+            Node clonedReferrer = clonedSession.getNode("/a");
+            assertEquals(clonedTarget, clonedReferrer.getProperty("strongRef").getNode());
+            assertEquals(clonedTarget, clonedReferrer.getProperty("weakRef").getNode());
+            assertEquals(1, clonedTarget.getReferences().getSize());
+            assertEquals(1, clonedTarget.getWeakReferences().getSize());
+            assertEquals(1, target.getReferences().getSize());
+            assertEquals(10000, clonedReferrer.getProperty("binary").getBinary().getSize());
+
+            Version baseVersion = session.getWorkspace().getVersionManager().getBaseVersion("/versionable");
+            assertEquals(baseVersion.getIdentifier(),
+                         clonedSession.getWorkspace().getVersionManager().getBaseVersion("/versionable").getIdentifier());
+
+            // The cloned content is independent of the source content ...
+            clonedSession.getNode("/b/child0").remove();
+            clonedReferrer.getProperty("strongRef").remove();
+            clonedReferrer.getProperty("weakRef").remove();
+            clonedSession.save();
+            clonedTarget.remove();
+            clonedSession.save();
+            assertEquals(1200, session.getNode("/b").getNodes().getSize());
+            assertEquals(1, target.getReferences().getSize());
+
+            Query query = clonedSession.getWorkspace().getQueryManager()
+                                       .createQuery("SELECT * FROM [nt:base] WHERE NAME() = 'child1199'", Query.JCR_SQL2);
+            assertEquals(1, query.execute().getNodes().getSize());
+        } finally {
+            clonedSession.logout();
+        }
+        workspace.deleteWorkspace("cloned");
+        assertEquals(10000, session.getNode("/a").getProperty("binary").getBinary().getSize());
+    }
+
+    @Test
+    public void shouldCreateWorkspaceFromSourceWorkspaceWithHeavilyReferencedNode() throws Exception {
+        int referrerCount = DocumentTranslator.DEFAULT_MAX_INLINE_REFERRERS + 10;
+        Node target = session.getNode("/a/b/c");
+        target.addMixin("mix:referenceable");
+        Node parent = session.getNode("/b");
+        for (int i = 0; i != referrerCount; ++i) {
+            parent.addNode("referrer" + i).setProperty("ref", target);
+        }
+        session.save();
+        assertEquals(referrerCount, target.getReferences().getSize());
+
+        workspace.createWorkspace("cloned", workspaceName);
+
+        JcrSession clonedSession = repository.login("cloned");
+        try {
+            Node clonedTarget = clonedSession.getNode("/a/b/c");
+            assertEquals(referrerCount, clonedTarget.getReferences().getSize());
+            // Every referrer is a node of the cloned workspace ...
+            PropertyIterator references = clonedTarget.getReferences();
+            while (references.hasNext()) {
+                assertTrue(references.nextProperty().getParent().getPath().startsWith("/b/referrer"));
+            }
+
+            // The referrers of the clone are independent of the source referrers ...
+            clonedSession.getNode("/b/referrer0").remove();
+            clonedSession.save();
+            assertEquals(referrerCount - 1, clonedTarget.getReferences().getSize());
+            assertEquals(referrerCount, target.getReferences().getSize());
+        } finally {
+            clonedSession.logout();
+        }
+        workspace.deleteWorkspace("cloned");
+    }
+
     @Test( expected = RepositoryException.class )
     @FixFor( "MODE-1972" )
     public void shouldNotCopyPartialWorkspaceIntoWorkspaceRoot() throws Exception {
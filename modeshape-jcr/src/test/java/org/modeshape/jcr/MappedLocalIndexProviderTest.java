@@ -0,0 +1,30 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr;
+
+import java.io.InputStream;
+
+/**
+ * Runs all the {@link LocalIndexProviderTest local index provider tests} against providers which keep the index entries off-heap,
+ * in memory-mapped files.
+ */
+public class MappedLocalIndexProviderTest extends LocalIndexProviderTest {
+
+    @Override
+    protected InputStream repositoryConfiguration() {
+        return resource("config/repo-config-persistent-mmap-local-provider-no-indexes.json");
+    }
+}
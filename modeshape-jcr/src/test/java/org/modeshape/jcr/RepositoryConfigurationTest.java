@@ -34,6 +34,7 @@ import org.modeshape.jcr.RepositoryConfiguration.AnonymousSecurity;
 import org.modeshape.jcr.RepositoryConfiguration.Default;
 import org.modeshape.jcr.RepositoryConfiguration.DocumentOptimization;
 import org.modeshape.jcr.RepositoryConfiguration.FieldName;
+import org.modeshape.jcr.RepositoryConfiguration.GroupCommit;
 import org.modeshape.jcr.RepositoryConfiguration.Indexes;
 import org.modeshape.jcr.RepositoryConfiguration.JaasSecurity;
 import org.modeshape.jcr.RepositoryConfiguration.Security;
@@ -344,6 +345,11 @@ public class RepositoryConfigurationTest {
         assertValid("config/local-index-provider-with-custom-settings.json");        
     }
 
+    @Test
+    public void shouldAllowMappedStorageEngineForLocalIndexProvider() {
+        assertValid("config/repo-config-persistent-mmap-local-provider-no-indexes.json");
+    }
+
     @Test
     public void shouldAlwaysReturnNonNullSequencingComponent() {
         RepositoryConfiguration config = new RepositoryConfiguration("repoName");
@@ -410,6 +416,33 @@ public class RepositoryConfigurationTest {
         assertThat(opt.getThreadPoolName(), is(Default.OPTIMIZATION_POOL));
     }
 
+    @Test
+    public void shouldNotEnableGroupCommitByDefault() {
+        RepositoryConfiguration config = new RepositoryConfiguration("repoName");
+        assertThat(config.getGroupCommit(), is(notNullValue()));
+        assertThat(config.getGroupCommit().isEnabled(), is(false));
+    }
+
+    @Test
+    public void shouldEnableGroupCommitWithDefaultValues() {
+        Document doc = Schematic.newDocument(FieldName.NAME, "repoName", FieldName.STORAGE,
+                                             Schematic.newDocument(FieldName.GROUP_COMMIT, Schematic.newDocument()));
+        RepositoryConfiguration config = assertValid(new RepositoryConfiguration(doc, "repoName"));
+        GroupCommit groupCommit = config.getGroupCommit();
+        assertThat(groupCommit.isEnabled(), is(true));
+        assertThat(groupCommit.getWindowMillis(), is(Default.GROUP_COMMIT_WINDOW_MILLIS));
+        assertThat(groupCommit.getMaxSaves(), is(Default.GROUP_COMMIT_MAX_SAVES));
+    }
+
+    @Test
+    public void shouldEnableGroupCommitWithCustomValues() {
+        RepositoryConfiguration config = assertValid("config/repo-config-group-commit.json");
+        GroupCommit groupCommit = config.getGroupCommit();
+        assertThat(groupCommit.isEnabled(), is(true));
+        assertThat(groupCommit.getWindowMillis(), is(2L));
+        assertThat(groupCommit.getMaxSaves(), is(16));
+    }
+
     @FixFor( "MODE-1988" )
     @Test
     public void shouldDisableDocumentOptimizationWithoutValidChildCountTargetValue() {
@@ -17,7 +17,10 @@ package org.modeshape.jcr;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import java.io.InputStream;
@@ -191,6 +194,51 @@ public class RepositoryNodeTypeManagerTest {
         assertNotNull(def);
     }
 
+    @Test
+    public void shouldDetermineSubtypesUsingTypeLattice() throws Exception {
+        NodeTypes nodeTypes = repoTypeManager.getNodeTypes();
+        for (JcrNodeType nodeType : nodeTypes.getAllNodeTypes()) {
+            for (JcrNodeType candidate : nodeTypes.getAllNodeTypes()) {
+                Name name = nodeType.getInternalName();
+                Name candidateName = candidate.getInternalName();
+                boolean expected = JcrNtLexicon.BASE.equals(candidateName) || nodeType.isNodeType(candidateName);
+                assertThat(name + " is a " + candidateName, nodeTypes.isTypeOrSubtype(name, candidateName), is(expected));
+                assertThat(nodeTypes.isTypeOrSubtype(Collections.singleton(name), candidateName), is(expected));
+                assertThat(nodeTypes.isTypeOrSubtype(new Name[] {name}, candidateName), is(expected));
+            }
+        }
+        Name unknown = new BasicName(null, "unknownType");
+        assertFalse(nodeTypes.isTypeOrSubtype(unknown, JcrMixLexicon.REFERENCEABLE));
+        assertFalse(nodeTypes.isTypeOrSubtype(JcrNtLexicon.UNSTRUCTURED, unknown));
+        assertTrue(nodeTypes.isTypeOrSubtype(unknown, unknown));
+    }
+
+    @Test
+    public void shouldDetermineVersionableAndReferenceableTypesUsingTypeLattice() throws Exception {
+        NodeTypes nodeTypes = repoTypeManager.getNodeTypes();
+        Set<Name> none = Collections.emptySet();
+        assertTrue(nodeTypes.isVersionable(JcrMixLexicon.VERSIONABLE));
+        assertTrue(nodeTypes.isVersionable(JcrNtLexicon.UNSTRUCTURED, Collections.singleton(JcrMixLexicon.VERSIONABLE)));
+        assertFalse(nodeTypes.isVersionable(JcrNtLexicon.UNSTRUCTURED, Collections.singleton(JcrMixLexicon.REFERENCEABLE)));
+        assertFalse(nodeTypes.isVersionable(null));
+        assertTrue(nodeTypes.isReferenceable(JcrNtLexicon.UNSTRUCTURED, Collections.singleton(JcrMixLexicon.VERSIONABLE)));
+        assertTrue(nodeTypes.isReferenceable(JcrNtLexicon.UNSTRUCTURED, Collections.singleton(JcrMixLexicon.REFERENCEABLE)));
+        assertFalse(nodeTypes.isReferenceable(JcrNtLexicon.UNSTRUCTURED, none));
+        assertThat(nodeTypes.getBucketIdLengthForUnorderedCollection(ModeShapeLexicon.TINY_UNORDERED_COLLECTION, null), is(1));
+        assertThat(nodeTypes.getBucketIdLengthForUnorderedCollection(JcrNtLexicon.UNSTRUCTURED,
+                                                                     Collections.singleton(ModeShapeLexicon.HUGE_UNORDERED_COLLECTION)),
+                   is(4));
+    }
+
+    @Test
+    public void shouldReuseChildNodeDefinitionsForSamePrimaryType() throws Exception {
+        NodeTypes nodeTypes = repoTypeManager.getNodeTypes();
+        NodeTypes.NodeDefinitionSet first = nodeTypes.findChildNodeDefinitions(JcrNtLexicon.NODE_TYPE, null);
+        // Use another parent type in between, so that the thread-local set is no longer the same ...
+        nodeTypes.findChildNodeDefinitions(JcrNtLexicon.VERSION_HISTORY, null);
+        assertSame(first, nodeTypes.findChildNodeDefinitions(JcrNtLexicon.NODE_TYPE, null));
+    }
+
     private JcrNodeTypeManager nodeTypeManager() throws RepositoryException {
         return session.getWorkspace().getNodeTypeManager();
     }
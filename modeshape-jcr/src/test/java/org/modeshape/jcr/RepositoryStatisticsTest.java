@@ -0,0 +1,124 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.modeshape.jcr.RepositoryStatistics.LatencyHistogram;
+import org.modeshape.jcr.api.monitor.DurationMetric;
+import org.modeshape.jcr.api.monitor.Percentiles;
+import org.modeshape.jcr.api.monitor.Statistics;
+
+/**
+ * Unit test for the {@link LatencyHistogram} used by {@link RepositoryStatistics}.
+ */
+public class RepositoryStatisticsTest {
+
+    @Test
+    public void shouldReturnZeroPercentilesForEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram(TimeUnit.MICROSECONDS);
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getValueAtPercentile(50.0d, TimeUnit.MICROSECONDS), is(0L));
+        assertThat(histogram.getMaximum(TimeUnit.MICROSECONDS), is(0L));
+        assertThat(histogram.statistics().getCount(), is(0));
+    }
+
+    @Test
+    public void shouldRecordSmallValuesExactly() {
+        LatencyHistogram histogram = new LatencyHistogram(TimeUnit.MICROSECONDS);
+        for (long value = 1; value <= 50; ++value) {
+            histogram.recordValue(value);
+        }
+        assertThat(histogram.getCount(), is(50L));
+        assertThat(histogram.getValueAtPercentile(50.0d, TimeUnit.MICROSECONDS), is(25L));
+        assertThat(histogram.getValueAtPercentile(100.0d, TimeUnit.MICROSECONDS), is(50L));
+        assertThat(histogram.getMaximum(TimeUnit.MICROSECONDS), is(50L));
+    }
+
+    @Test
+    public void shouldComputePercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram(TimeUnit.MICROSECONDS);
+        for (long value = 1; value <= 100000; ++value) {
+            histogram.recordValue(value);
+        }
+        assertWithinError(histogram.getValueAtPercentile(50.0d, TimeUnit.MICROSECONDS), 50000L);
+        assertWithinError(histogram.getValueAtPercentile(90.0d, TimeUnit.MICROSECONDS), 90000L);
+        assertWithinError(histogram.getValueAtPercentile(99.0d, TimeUnit.MICROSECONDS), 99000L);
+        assertWithinError(histogram.getValueAtPercentile(99.9d, TimeUnit.MICROSECONDS), 99900L);
+        assertThat(histogram.getMaximum(TimeUnit.MICROSECONDS), is(100000L));
+        assertThat(histogram.getValueAtPercentile(99.0d, TimeUnit.MILLISECONDS), is(histogram.getValueAtPercentile(99.0d,
+                                                                                                                 TimeUnit.MICROSECONDS) / 1000));
+    }
+
+    @Test
+    public void shouldMapEveryValueToBucketContainingIt() {
+        for (long value = 0; value < (1L << 20); value += 7) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.highestValueInBucket(index));
+            assertTrue(index == 0 || value > LatencyHistogram.highestValueInBucket(index - 1));
+        }
+    }
+
+    @Test
+    public void shouldClampValuesOutsideTrackableRange() {
+        LatencyHistogram histogram = new LatencyHistogram(TimeUnit.MICROSECONDS);
+        histogram.recordValue(-5L);
+        histogram.recordValue(Long.MAX_VALUE);
+        assertThat(histogram.getCount(), is(2L));
+        assertThat(histogram.getValueAtPercentile(50.0d, TimeUnit.MICROSECONDS), is(0L));
+        assertThat(histogram.getMaximum(TimeUnit.MICROSECONDS), is((1L << 40) - 1));
+        assertThat(histogram.getValueAtPercentile(100.0d, TimeUnit.MICROSECONDS), is((1L << 40) - 1));
+    }
+
+    @Test
+    public void shouldMergeHistograms() {
+        LatencyHistogram first = new LatencyHistogram(TimeUnit.MICROSECONDS);
+        LatencyHistogram second = new LatencyHistogram(TimeUnit.MICROSECONDS);
+        for (long value = 1; value <= 1000; ++value) {
+            first.recordValue(value);
+            second.recordValue(value * 1000);
+        }
+        LatencyHistogram all = new LatencyHistogram(TimeUnit.MICROSECONDS);
+        all.add(first);
+        all.add(second);
+        assertThat(all.getCount(), is(2000L));
+        assertThat(all.getMaximum(TimeUnit.MICROSECONDS), is(1000000L));
+        assertWithinError(all.getValueAtPercentile(25.0d, TimeUnit.MICROSECONDS), 500L);
+        assertWithinError(all.getValueAtPercentile(75.0d, TimeUnit.MICROSECONDS), 500000L);
+
+        Statistics stats = all.statistics();
+        assertThat(stats.getCount(), is(2000));
+        assertThat(stats.getMinimum(), is(1L));
+        assertThat(stats.getMaximum(), is(1000000L));
+        assertWithinError((long)stats.getMean(), (500500L + 500L) / 2);
+    }
+
+    @Test
+    public void shouldExposePercentilesForLatencyMetrics() {
+        RepositoryStatistics statistics = new RepositoryStatistics(new ExecutionContext());
+        Percentiles percentiles = statistics.getPercentiles(DurationMetric.SAVE_PERSIST_TIME);
+        assertThat(percentiles.getCount(), is(0L));
+    }
+
+    private static void assertWithinError( long actual,
+                                           long expected ) {
+        double error = Math.abs(actual - expected) / (double)expected;
+        assertTrue("Expected " + expected + " but was " + actual, error < 0.035d);
+    }
+}
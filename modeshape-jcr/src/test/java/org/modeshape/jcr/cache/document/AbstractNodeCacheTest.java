@@ -22,8 +22,10 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -597,6 +599,30 @@ public abstract class AbstractNodeCacheTest extends AbstractSchematicDbTest {
         assertThat(iter.hasNext(), is(false));
     }
     
+    @Test
+    public void shouldGetPropertyNamesAndPropertiesByNameWithoutLoadingAllProperties() {
+        CachedNode node = cache.getNode(cache.getRootKey());
+
+        // Look up a single property by name ...
+        CachedNode.Properties properties = node.getPropertiesByName(cache);
+        assertThat(properties.getProperty(JcrLexicon.PRIMARY_TYPE).getFirstValue(), is((Object)ModeShapeLexicon.ROOT));
+        assertThat(properties.getProperty(name("nonExistant")), is(nullValue()));
+
+        // The names should match those of the properties ...
+        Set<Name> names = new HashSet<>();
+        for (Iterator<Name> iter = node.getPropertyNames(cache); iter.hasNext();) {
+            names.add(iter.next());
+        }
+        assertThat(names.contains(JcrLexicon.PRIMARY_TYPE), is(true));
+        assertThat(names.contains(JcrLexicon.UUID), is(true));
+        Set<Name> propertyNames = new HashSet<>();
+        for (Property property : properties) {
+            propertyNames.add(property.getName());
+        }
+        assertThat(propertyNames, is(names));
+        assertThat(names.size(), is(node.getPropertyCount(cache)));
+    }
+
     @Test
     public void shouldGetNodesByPath() {
         CacheCheck check = check(cache);
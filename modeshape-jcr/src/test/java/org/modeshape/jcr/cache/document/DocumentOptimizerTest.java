@@ -19,8 +19,11 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Before;
 import org.junit.Test;
 import org.modeshape.jcr.ExecutionContext;
@@ -29,6 +32,7 @@ import org.modeshape.jcr.cache.ChildReference;
 import org.modeshape.jcr.cache.MutableCachedNode;
 import org.modeshape.jcr.cache.NodeKey;
 import org.modeshape.jcr.cache.SessionCache;
+import org.modeshape.jcr.cache.document.LocalDocumentStore.DocumentOperationResults;
 import org.modeshape.jcr.value.Name;
 import org.modeshape.jcr.value.Path.Segment;
 import org.modeshape.schematic.SchematicEntry;
@@ -172,6 +176,53 @@ public class DocumentOptimizerTest extends AbstractSessionCacheTest {
         print(document(key), true);
     }
 
+    @Test
+    public void shouldOptimizeOnlyTheParentsWhoseChildBlocksWereMarkedDirty() throws Exception {
+        MutableCachedNode nodeB = check(session1).mutableNode("/childB");
+        NodeKey key = nodeB.getKey();
+        runInTransaction(() -> optimizer.optimizeChildrenBlocks(key, null, 5, 2)); // will merge into a single block ...
+        session1.save();
+
+        // Append enough children to exceed the target plus the tolerance ...
+        nodeB = check(session1).mutableNode("/childB");
+        for (int i = 0; i != 10; ++i) {
+            nodeB.createChild(session(), key.withId("child" + i), name("newChild"), property("p1a", 344));
+        }
+        session1.save();
+
+        DirtyChildBlocks dirtyChildBlocks = new DirtyChildBlocks(5, 2);
+        LocalDocumentStore store = workspaceCache.documentStore().localStore();
+        assertThat(dirtyChildBlocks.needsOptimization(document(key), false, store), is(true));
+
+        runInTransaction(() -> {
+            dirtyChildBlocks.markDirty(store, transactions().currentTransaction(), Collections.singleton(key.toString()));
+            return null;
+        });
+        assertThat(store.get(DirtyChildBlocks.shardKey(key.toString())).content().getDocument(DirtyChildBlocks.PARENTS)
+                        .containsField(key.toString()), is(true));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            DocumentOperationResults results = dirtyChildBlocks.optimize(store, executor, 2, 0);
+            assertThat(results.getModifiedCount(), is(1L));
+            assertThat(results.getFailureCount(), is(0L));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(dirtyChildBlocks.needsOptimization(document(key), false, store), is(false));
+        assertThat(store.get(DirtyChildBlocks.shardKey(key.toString())).content().getDocument(DirtyChildBlocks.PARENTS)
+                        .containsField(key.toString()), is(false));
+
+        // Nothing is marked, so there is nothing to optimize ...
+        executor = Executors.newFixedThreadPool(2);
+        try {
+            DocumentOperationResults results = dirtyChildBlocks.optimize(store, executor, 2, 0);
+            assertThat(results.getModifiedCount() + results.getUnmodifiedCount(), is(0L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     protected Document document( NodeKey key ) {
         SchematicEntry entry = workspaceCache.documentStore().get(key.toString());
         return entry.content();
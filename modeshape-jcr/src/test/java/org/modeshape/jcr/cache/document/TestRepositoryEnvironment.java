@@ -20,9 +20,12 @@ import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.NodeTypes;
 import org.modeshape.jcr.RepositoryConfiguration;
 import org.modeshape.jcr.RepositoryEnvironment;
+import org.modeshape.jcr.RepositoryStatistics;
 import org.modeshape.jcr.locking.LockingService;
 import org.modeshape.jcr.locking.StandaloneLockingService;
+import org.modeshape.jcr.txn.GroupCommitter;
 import org.modeshape.jcr.txn.Transactions;
+import org.modeshape.jcr.value.binary.BinaryUsageLedger;
 import org.modeshape.schematic.SchematicDb;
 
 /**
@@ -60,4 +63,24 @@ public class TestRepositoryEnvironment implements RepositoryEnvironment {
     public LockingService lockingService() {
         return lockingService;
     }
+
+    @Override
+    public RepositoryStatistics statistics() {
+        return null;
+    }
+
+    @Override
+    public GroupCommitter groupCommitter() {
+        return null;
+    }
+
+    @Override
+    public DirtyChildBlocks dirtyChildBlocks() {
+        return null;
+    }
+
+    @Override
+    public BinaryUsageLedger binaryUsageLedger() {
+        return null;
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.cache.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.change.RecordingChanges;
+import org.modeshape.jcr.value.Name;
+import org.modeshape.jcr.value.Path;
+import org.modeshape.jcr.value.PathFactory;
+
+public class WorkspacePathCacheTest {
+
+    private static final Set<Name> NO_MIXINS = Collections.emptySet();
+
+    private PathFactory pathFactory;
+    private WorkspacePathCache cache;
+    private Name type;
+
+    @Before
+    public void beforeEach() {
+        ExecutionContext context = new ExecutionContext();
+        pathFactory = context.getValueFactories().getPathFactory();
+        type = context.getValueFactories().getNameFactory().create("nt:unstructured");
+        cache = new WorkspacePathCache(100);
+        cache("a", "/a");
+        cache("b", "/a/b");
+        cache("b2", "/a/b[2]");
+        cache("c", "/a/b/c");
+        cache("c2", "/a/b[2]/c");
+        cache("d", "/a/d");
+        cache("e", "/a/d/e");
+    }
+
+    protected NodeKey key( String id ) {
+        return new NodeKey("source1works1-" + id);
+    }
+
+    protected Path path( String path ) {
+        return pathFactory.create(path);
+    }
+
+    protected void cache( String id,
+                          String path ) {
+        cache.put(key(id), cache.stamp(), path(path));
+    }
+
+    protected RecordingChanges changes() {
+        return new RecordingChanges("session", "process", "repository", "workspace", "journal");
+    }
+
+    protected void assertCached( String... ids ) {
+        for (String id : ids) {
+            assertThat(id, cache.get(key(id)) != null, is(true));
+        }
+    }
+
+    protected void assertNotCached( String... ids ) {
+        for (String id : ids) {
+            assertThat(id, cache.get(key(id)), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void shouldReturnCachedPaths() {
+        assertThat(cache.get(key("c2")), is(path("/a/b[2]/c")));
+        assertNotCached("unknown");
+    }
+
+    @Test
+    public void shouldInvalidateMovedSubtreeAndItsSameNameSiblings() {
+        RecordingChanges changes = changes();
+        changes.nodeMoved(key("b"), type, NO_MIXINS, key("d"), key("a"), path("/a/d/b"), path("/a/b"));
+        cache.invalidate(changes);
+        assertNotCached("b", "b2", "c", "c2");
+        assertCached("a", "d", "e");
+    }
+
+    @Test
+    public void shouldInvalidateRenamedSubtreeAndSiblingsWithOldName() {
+        RecordingChanges changes = changes();
+        changes.nodeRenamed(key("b"), path("/a/x"), path("/a/b").getLastSegment(), type, NO_MIXINS);
+        cache.invalidate(changes);
+        assertNotCached("b", "b2", "c", "c2");
+        assertCached("a", "d", "e");
+    }
+
+    @Test
+    public void shouldInvalidateRemovedSubtreeAndItsSameNameSiblings() {
+        RecordingChanges changes = changes();
+        changes.nodeRemoved(key("d"), key("a"), path("/a/d"), type, NO_MIXINS, type, NO_MIXINS);
+        cache.invalidate(changes);
+        assertNotCached("d", "e");
+        assertCached("a", "b", "b2", "c", "c2");
+    }
+
+    @Test
+    public void shouldNotKeepPathComputedBeforeInvalidation() {
+        long stamp = cache.stamp();
+        RecordingChanges changes = changes();
+        changes.nodeRemoved(key("e"), key("d"), path("/a/d/e"), type, NO_MIXINS, type, NO_MIXINS);
+        cache.invalidate(changes);
+        cache.put(key("f"), stamp, path("/a/f"));
+        assertNotCached("f");
+        cache("f", "/a/f");
+        assertCached("f");
+    }
+}
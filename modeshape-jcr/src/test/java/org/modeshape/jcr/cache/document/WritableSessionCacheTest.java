@@ -18,6 +18,7 @@ package org.modeshape.jcr.cache.document;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -28,9 +29,12 @@ import org.modeshape.common.statistic.Stopwatch;
 import org.modeshape.jcr.ExecutionContext;
 import org.modeshape.jcr.RepositoryEnvironment;
 import org.modeshape.jcr.cache.CachedNode;
+import org.modeshape.jcr.cache.CachedNode.ReferenceType;
 import org.modeshape.jcr.cache.MutableCachedNode;
 import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.cache.ReferrerCounts;
 import org.modeshape.jcr.cache.SessionCache;
+import org.modeshape.jcr.value.Reference;
 
 /**
  * Tests that operate against a {@link WritableSessionCache}. Each test method starts with a clean slate of content
@@ -393,4 +397,57 @@ public class WritableSessionCacheTest extends AbstractSessionCacheTest {
         session1.destroy(child.getKey());
         assertEquals(new HashSet<NodeKey>(Arrays.asList(rootKey, childKey)), session1.getChangedNodeKeysAtOrBelow(root));
     }
+
+    @Test
+    public void shouldMoveReferrersIntoBucketsWhenNodeIsHeavilyReferenced() {
+        workspaceCache.translator().setMaxInlineReferrers(4);
+        NodeKey targetKey = check(cache).node("/childB").getKey();
+        Reference reference = context.getValueFactories().getReferenceFactory().create(targetKey, false);
+
+        // Create more referrers than can be stored inline ...
+        MutableCachedNode root = session1.mutable(session1.getRootKey());
+        Set<NodeKey> referrers = new HashSet<>();
+        for (int i = 0; i != 10; ++i) {
+            NodeKey key = newKey("x-referrer" + i);
+            root.createChild(session1, key, name("referrer" + i), property("ref", reference));
+            referrers.add(key);
+        }
+        session1.save();
+
+        assertTrue(workspaceCache.translator().hasBucketedReferrers(workspaceCache.documentStore().get(targetKey.toString())
+                                                                                  .content()));
+        CachedNode target = session2.getNode(targetKey);
+        assertEquals(referrers, target.getReferrers(session2, ReferenceType.BOTH));
+        ReferrerCounts counts = target.getReferrerCounts(session2);
+        assertEquals(referrers, counts.getStrongReferrers());
+        assertThat(counts.countStrongReferencesFrom(newKey("x-referrer3")), is(1));
+
+        // Add and remove referrers from another session, which only change the buckets ...
+        MutableCachedNode root2 = session2.mutable(session2.getRootKey());
+        NodeKey another = newKey("x-referrer10");
+        root2.createChild(session2, another, name("referrer10"), property("ref", reference));
+        referrers.add(another);
+        NodeKey first = newKey("x-referrer0");
+        session2.mutable(first).removeProperty(session2, name("ref"));
+        referrers.remove(first);
+        session2.save();
+
+        target = session1.getNode(targetKey);
+        assertEquals(referrers, target.getReferrers(session1, ReferenceType.STRONG));
+        counts = target.getReferrerCounts(session1);
+        assertThat(counts.countStrongReferencesFrom(another), is(1));
+        assertThat(counts.countStrongReferencesFrom(first), is(0));
+
+        // Removing the target removes its buckets ...
+        for (NodeKey referrer : referrers) {
+            session1.mutable(referrer).removeProperty(session1, name("ref"));
+        }
+        session1.destroy(targetKey);
+        session1.save();
+        for (int i = 0; i != 256; ++i) {
+            String bucketKey = String.format("%s/%s/%02x", targetKey, DocumentConstants.REFERRERS, i);
+            assertThat(workspaceCache.documentStore().containsKey(bucketKey), is(false));
+        }
+        assertThat(workspaceCache.documentStore().containsKey(targetKey + "/" + DocumentConstants.REFERRERS), is(false));
+    }
 }
@@ -26,6 +26,7 @@ import java.util.LinkedList;
 import java.util.Map;
 import javax.jcr.query.qom.Constraint;
 import javax.jcr.query.qom.JoinCondition;
+import org.junit.After;
 import org.junit.Before;
 import org.mapdb.BTreeKeySerializer;
 import org.mapdb.DB;
@@ -53,15 +54,42 @@ public abstract class AbstractLocalIndexTest {
     protected Serializers serializers;
     protected ExecutionContext context;
     protected DB db;
+    protected MappedIndexStore store;
     protected String propertyName = "indexedProperty";
 
     @Before
-    public void beforeEach() {
+    public void beforeEach() throws Exception {
         context = new ExecutionContext();
         db = DBMaker.newMemoryDB().make();
+        store = openStore();
         serializers = MapDB.serializers(context.getValueFactories());
     }
 
+    @After
+    public void afterEach() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * Open the store in which the indexes keep their entries off-heap.
+     *
+     * @return the store, or null if the indexes should keep their entries in the MapDB database
+     * @throws Exception if the store cannot be opened
+     */
+    protected MappedIndexStore openStore() throws Exception {
+        return null;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private <T> Serializer<T> serializerFor( Class<T> valueClass ) {
+        if (store != null && valueClass == String.class) {
+            return (Serializer<T>)MappedIndexStore.STRING_SERIALIZER;
+        }
+        return (Serializer<T>)serializers.serializerFor(valueClass);
+    }
+
     protected void loadLongIndex( LocalUniqueIndex<Long> index,
                                   int numValues ) {
         for (int i = 1; i <= numValues; ++i) {
@@ -95,11 +123,11 @@ public abstract class AbstractLocalIndexTest {
         PropertyType type = PropertyType.discoverType(valueType);
         ValueFactory<T> valueFactory = (ValueFactory<T>)context.getValueFactories().getValueFactory(type);
         Converter<T> converter = IndexValues.converter(valueFactory);
-        Serializer<T> serializer = (Serializer<T>)serializers.serializerFor(type.getValueClass());
+        Serializer<T> serializer = serializerFor((Class<T>)type.getValueClass());
         BTreeKeySerializer<T> keySerializer = (BTreeKeySerializer<T>)serializers.bTreeKeySerializerFor(type.getValueClass(),
                                                                                                        type.getComparator(),
                                                                                                        false);
-        return new LocalUniqueIndex<T>("myIndex", "myWorkspace", db, converter, keySerializer, serializer);
+        return new LocalUniqueIndex<T>("myIndex", "myWorkspace", db, store, converter, keySerializer, serializer);
     }
 
     @SuppressWarnings( "unchecked" )
@@ -108,8 +136,8 @@ public abstract class AbstractLocalIndexTest {
         Comparator<T> comparator = (Comparator<T>)type.getComparator();
         ValueFactory<T> valueFactory = (ValueFactory<T>)context.getValueFactories().getValueFactory(type);
         Converter<T> converter = IndexValues.converter(valueFactory);
-        Serializer<T> serializer = (Serializer<T>)serializers.serializerFor(type.getValueClass());
-        return new LocalDuplicateIndex<T>("myIndex", "myWorkspace", db, converter, serializer, comparator);
+        Serializer<T> serializer = serializerFor((Class<T>)type.getValueClass());
+        return new LocalDuplicateIndex<T>("myIndex", "myWorkspace", db, store, converter, serializer, comparator);
     }
 
     public <T> void assertNoMatch( LocalUniqueIndex<T> index,
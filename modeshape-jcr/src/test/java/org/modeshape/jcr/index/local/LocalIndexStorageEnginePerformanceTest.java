@@ -0,0 +1,127 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.local;
+
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.mapdb.DBMaker;
+import org.modeshape.common.statistic.Stopwatch;
+import org.modeshape.common.util.FileUtil;
+import org.modeshape.jcr.api.query.qom.Operator;
+import org.modeshape.jcr.cache.NodeKey;
+import org.modeshape.jcr.spi.index.provider.Filter;
+
+/**
+ * Compares the load time, query time and heap usage of local indexes which store their entries in the MapDB database with
+ * those of local indexes which keep their entries off-heap in a {@link MappedIndexStore}.
+ */
+@Ignore( "This is a perf test" )
+public class LocalIndexStorageEnginePerformanceTest extends AbstractLocalIndexTest {
+
+    private static final int NUM_VALUES = 1000000;
+    private static final int NUM_QUERIES = 1000;
+    private static final File DIRECTORY = new File("target/local-index-perf");
+
+    private boolean mapped;
+
+    @Override
+    protected MappedIndexStore openStore() throws Exception {
+        FileUtil.delete(DIRECTORY);
+        if (!mapped) {
+            assertTrue(DIRECTORY.mkdirs());
+            db = DBMaker.newFileDB(new File(DIRECTORY, "local-indexes.db")).make();
+            return null;
+        }
+        return MappedIndexStore.open(DIRECTORY, MappedIndexStore.DEFAULT_MAX_BUFFERED_ENTRIES);
+    }
+
+    @Override
+    @Before
+    public void beforeEach() {
+        // each test opens its own storage ...
+    }
+
+    private void open( boolean mapped ) throws Exception {
+        this.mapped = mapped;
+        super.beforeEach();
+    }
+
+    @Override
+    @After
+    public void afterEach() {
+        super.afterEach();
+        db.close();
+    }
+
+    @Test
+    public void shouldLoadAndQueryMapDBIndex() throws Exception {
+        open(false);
+        loadAndQuery("mapdb");
+    }
+
+    @Test
+    public void shouldLoadAndQueryMappedIndex() throws Exception {
+        open(true);
+        loadAndQuery("mmap");
+    }
+
+    private void loadAndQuery( String engine ) {
+        LocalDuplicateIndex<String> index = duplicateValueIndex(String.class);
+        long heapBefore = usedHeap();
+        Stopwatch load = new Stopwatch();
+        load.start();
+        for (int i = 0; i != NUM_VALUES; ++i) {
+            index.add(key(i), propertyName, String.format("value-%08d", i % (NUM_VALUES / 10)));
+            if (i % 10000 == 0) {
+                index.commit();
+            }
+        }
+        index.commit();
+        load.stop();
+        long heapAfter = usedHeap();
+
+        Stopwatch query = new Stopwatch();
+        query.start();
+        long matches = 0L;
+        for (int i = 0; i != NUM_QUERIES; ++i) {
+            String lower = String.format("value-%08d", (i * 97) % (NUM_VALUES / 10));
+            Filter.Results results = index.filter(constraints(propertyName, Operator.GREATER_THAN_OR_EQUAL_TO, lower), 100);
+            Filter.ResultBatch batch = results.getNextBatch(100);
+            for (NodeKey nodeKey : batch.keys()) {
+                assertTrue(nodeKey != null);
+                ++matches;
+            }
+            results.close();
+        }
+        query.stop();
+
+        System.out.println(engine + ": loaded " + NUM_VALUES + " values in " + load.getTotalDuration() + ", ran " + NUM_QUERIES
+                           + " range queries (" + matches + " results) in " + query.getTotalDuration() + ", heap grew by "
+                           + ((heapAfter - heapBefore) / (1024 * 1024)) + " MB");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i != 3; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.local;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+import org.modeshape.common.util.FileUtil;
+import org.modeshape.jcr.value.ValueComparators;
+
+public class MappedIndexStoreTest {
+
+    private static final Comparator<String> COMPARATOR = ValueComparators.STRING_COMPARATOR;
+    private static final Serializer<String> SERIALIZER = MappedIndexStore.STRING_SERIALIZER;
+
+    private File directory;
+    private MappedIndexStore store;
+
+    @Before
+    public void beforeEach() throws Exception {
+        directory = new File("target/mapped-index-store");
+        FileUtil.delete(directory);
+        store = MappedIndexStore.open(directory, 16);
+    }
+
+    @After
+    public void afterEach() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private MappedSortedMap<String> map( String name ) {
+        return store.map(name, SERIALIZER, COMPARATOR);
+    }
+
+    private void reopen( boolean close ) throws Exception {
+        if (close) {
+            store.close();
+        }
+        // otherwise the store is abandoned, as if the process had crashed ...
+        store = MappedIndexStore.open(directory, 16);
+    }
+
+    private static String key( int i ) {
+        return String.format("node-%06d", i);
+    }
+
+    @Test
+    public void shouldMatchTreeMapAfterRandomChanges() {
+        MappedSortedMap<String> map = map("random");
+        TreeMap<String, String> expected = new TreeMap<>(COMPARATOR);
+        Random random = new Random(42);
+        for (int i = 0; i != 5000; ++i) {
+            String key = key(random.nextInt(1000));
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            } else {
+                String value = "value" + i;
+                assertThat(map.put(key, value), is(expected.put(key, value)));
+            }
+        }
+        assertSameContent(map, expected);
+        assertThat(map.sizeLong(), is((long)expected.size()));
+        assertSameContent(map.subMap(key(100), true, key(200), false), expected.subMap(key(100), true, key(200), false));
+        assertSameContent(map.headMap(key(300), true), expected.headMap(key(300), true));
+        assertSameContent(map.tailMap(key(900), false), expected.tailMap(key(900), false));
+        assertSameContent(map.tailMap(key(500), true).headMap(key(600), false), expected.subMap(key(500), true, key(600), false));
+        assertThat(map.firstKey(), is(expected.firstKey()));
+        assertThat(map.ceilingKey(key(500)), is(expected.ceilingKey(key(500))));
+        assertThat(map.higherKey(key(500)), is(expected.higherKey(key(500))));
+    }
+
+    @Test
+    public void shouldNavigateInDescendingOrder() {
+        MappedSortedMap<String> map = map("descending");
+        TreeMap<String, String> expected = new TreeMap<>(COMPARATOR);
+        Random random = new Random(7);
+        for (int i = 0; i != 3000; ++i) {
+            String key = key(random.nextInt(1000));
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, "value" + i);
+                expected.put(key, "value" + i);
+            }
+        }
+        assertSameContent(map.descendingMap(), expected.descendingMap());
+        assertSameContent(map.subMap(key(100), true, key(200), false).descendingMap(),
+                          expected.subMap(key(100), true, key(200), false).descendingMap());
+        assertSameContent(map.descendingMap().subMap(key(600), true, key(500), false),
+                          expected.descendingMap().subMap(key(600), true, key(500), false));
+        assertSameContent(map.descendingMap().headMap(key(300), true), expected.descendingMap().headMap(key(300), true));
+        assertSameContent(map.descendingMap().tailMap(key(900), false), expected.descendingMap().tailMap(key(900), false));
+        assertSameContent(map.descendingMap().descendingMap(), expected);
+        assertThat(map.lastKey(), is(expected.lastKey()));
+        assertThat(map.descendingMap().firstKey(), is(expected.lastKey()));
+        for (int i = -1; i <= 1000; i += 37) {
+            String key = key(i);
+            assertThat(map.lowerKey(key), is(expected.lowerKey(key)));
+            assertThat(map.floorKey(key), is(expected.floorKey(key)));
+            assertThat(map.ceilingKey(key), is(expected.ceilingKey(key)));
+            assertThat(map.higherKey(key), is(expected.higherKey(key)));
+            assertThat(map.descendingMap().ceilingKey(key), is(expected.descendingMap().ceilingKey(key)));
+            assertThat(map.headMap(key(500), false).floorKey(key), is(expected.headMap(key(500), false).floorKey(key)));
+        }
+
+        NavigableSet<String> keys = map.headMap(key(500), false).navigableKeySet();
+        assertThat(keys.last(), is(expected.headMap(key(500), false).lastKey()));
+        assertThat(new ArrayList<>(keys.descendingSet()), is(new ArrayList<>(expected.headMap(key(500), false).descendingKeySet())));
+        assertThat(new ArrayList<>(map.descendingKeySet()), is(new ArrayList<>(expected.descendingKeySet())));
+        assertThat(map.pollLastEntry(), is(expected.pollLastEntry()));
+        assertThat(map.lastKey(), is(expected.lastKey()));
+    }
+
+    @Test
+    public void shouldRemoveEntriesThroughViews() {
+        MappedSortedMap<String> map = map("views");
+        for (int i = 0; i != 100; ++i) {
+            map.put(key(i), "value" + i);
+        }
+        map.subMap(key(10), true, key(20), true).clear();
+        for (Iterator<String> iter = map.tailMap(key(90), true).keySet().iterator(); iter.hasNext();) {
+            iter.next();
+            iter.remove();
+        }
+        assertThat(map.size(), is(79));
+        assertThat(map.get(key(10)), is(nullValue()));
+        assertThat(map.get(key(21)), is("value21"));
+        assertThat(map.subMap(key(90), key(95)).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldPersistEntriesWhenClosed() throws Exception {
+        MappedSortedMap<String> map = map("persist");
+        for (int i = 0; i != 500; ++i) {
+            map.put(key(i), "value" + i);
+        }
+        for (int i = 0; i != 500; i += 2) {
+            map.remove(key(i));
+        }
+        store.commit();
+        reopen(true);
+        map = map("persist");
+        assertThat(map.sizeLong(), is(250L));
+        assertThat(map.get(key(0)), is(nullValue()));
+        assertThat(map.get(key(499)), is("value499"));
+        assertThat(map.firstKey(), is(key(1)));
+    }
+
+    @Test
+    public void shouldRecoverCommittedChangesFromTheLog() throws Exception {
+        MappedSortedMap<String> map = map("recover");
+        for (int i = 0; i != 100; ++i) {
+            map.put(key(i), "value" + i);
+        }
+        store.commit();
+        map.put(key(1000), "uncommitted");
+        reopen(false);
+
+        map = map("recover");
+        assertThat(map.sizeLong(), is(100L));
+        assertThat(map.get(key(42)), is("value42"));
+        assertThat(map.get(key(1000)), is(nullValue()));
+
+        // the recovered changes must survive another crash ...
+        store.checkpoint();
+        reopen(false);
+        assertThat(map("recover").sizeLong(), is(100L));
+    }
+
+    @Test
+    public void shouldKeepChangesOfMapsWhichAreNotOpenedAfterRecovery() throws Exception {
+        map("first").put(key(1), "one");
+        map("second").put(key(2), "two");
+        store.commit();
+        reopen(false);
+        map("first").put(key(3), "three");
+        store.checkpoint();
+        reopen(true);
+        assertThat(map("second").get(key(2)), is("two"));
+        assertThat(map("first").size(), is(2));
+    }
+
+    @Test
+    public void shouldPersistClearedAndDeletedMaps() throws Exception {
+        MappedSortedMap<String> cleared = map("cleared");
+        MappedSortedMap<String> deleted = map("deleted");
+        for (int i = 0; i != 100; ++i) {
+            cleared.put(key(i), "value" + i);
+            deleted.put(key(i), "value" + i);
+        }
+        store.checkpoint();
+        cleared.clear();
+        cleared.put(key(1), "again");
+        store.delete("deleted");
+        store.commit();
+        reopen(false);
+
+        assertThat(store.exists("deleted"), is(false));
+        assertThat(store.names().contains("cleared"), is(true));
+        assertThat(map("cleared").size(), is(1));
+        assertThat(map("cleared").get(key(1)), is("again"));
+        reopen(true);
+        assertThat(map("cleared").size(), is(1));
+        assertThat(map("deleted").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldSupportSetViews() {
+        Set<String> set = map("set").asSet();
+        assertThat(set.add("a"), is(true));
+        assertThat(set.add("a"), is(false));
+        assertThat(set.add("b"), is(true));
+        assertThat(set.contains("a"), is(true));
+        assertThat(set.remove("a"), is(true));
+        assertThat(set.size(), is(1));
+    }
+
+    @Test
+    public void shouldSerializeStringsWithCommonPrefixes() throws Exception {
+        List<String> values = new ArrayList<>();
+        values.add("");
+        values.add("abc");
+        values.add("abcd");
+        values.add("a\u0000b");
+        values.add("été");
+        values.add("中文");
+        for (String value : values) {
+            DataOutput2 out = new DataOutput2();
+            SERIALIZER.serialize(out, value);
+            byte[] bytes = out.copyBytes();
+            assertThat(SERIALIZER.deserialize(new DataInput2(bytes), bytes.length), is(value));
+        }
+        DataOutput2 shorter = new DataOutput2();
+        SERIALIZER.serialize(shorter, "abc");
+        DataOutput2 longer = new DataOutput2();
+        SERIALIZER.serialize(longer, "abcd");
+        for (int i = 0; i != 3; ++i) {
+            assertThat(shorter.buf[i], is(longer.buf[i]));
+        }
+    }
+
+    private static void assertSameContent( NavigableMap<String, String> actual,
+                                           NavigableMap<String, String> expected ) {
+        Iterator<Map.Entry<String, String>> expectedIter = expected.entrySet().iterator();
+        for (Map.Entry<String, String> entry : actual.entrySet()) {
+            assertThat(expectedIter.hasNext(), is(true));
+            Map.Entry<String, String> expectedEntry = expectedIter.next();
+            assertThat(entry.getKey(), is(expectedEntry.getKey()));
+            assertThat(entry.getValue(), is(expectedEntry.getValue()));
+        }
+        assertThat(expectedIter.hasNext(), is(false));
+        assertThat(actual.size(), is(expected.size()));
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.index.local;
+
+import java.io.File;
+import org.modeshape.common.util.FileUtil;
+
+/**
+ * Runs all the {@link LocalDuplicateIndexTest duplicate index tests} against indexes which keep their entries in a
+ * {@link MappedIndexStore}. The store only buffers a few changes, so that the entries are spread over multiple segments.
+ */
+public class MappedLocalDuplicateIndexTest extends LocalDuplicateIndexTest {
+
+    @Override
+    protected MappedIndexStore openStore() throws Exception {
+        File directory = new File("target/mapped-local-duplicate-index");
+        FileUtil.delete(directory);
+        return MappedIndexStore.open(directory, 8);
+    }
+}
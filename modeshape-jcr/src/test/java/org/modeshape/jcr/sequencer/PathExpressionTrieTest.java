@@ -0,0 +1,131 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jcr.sequencer;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.jcr.ExecutionContext;
+import org.modeshape.jcr.value.Name;
+import org.modeshape.jcr.value.Path;
+
+public class PathExpressionTrieTest {
+
+    private static final String[] EXPRESSIONS = {"/a/b/c/@x", "//(*.jpg|*.png)/jcr:content[@jcr:data]",
+        "/docs//*.txt[*]/jcr:content[@jcr:data]", "/a/(b|c)/*[@jcr:mimeType]", "//@myns:prop", "/a/(b/c)//@x",
+        "/a[2]/b/@x", "/*/@*"};
+
+    private static final String[] PROPERTY_PATHS = {"/a/b/c/@x", "/a/b/c/@y", "/a/b/@x", "/a[2]/b/@x", "/a/c/d/@jcr:mimeType",
+        "/a/d/e/@jcr:mimeType", "/files/photo.jpg/jcr:content/@jcr:data", "/files/photo.PNG/jcr:content/@jcr:data",
+        "/files/doc.txt/jcr:content/@jcr:data", "/docs/x/y/doc.txt/jcr:content/@jcr:data",
+        "/docs/doc.txt[3]/jcr:content/@jcr:data", "/other/doc.txt/jcr:content/@jcr:data", "/x/y/@myns:prop",
+        "/x/y/@myns:other", "/top/@jcr:primaryType", "/a/b/c/d/e/@x"};
+
+    private ExecutionContext context;
+    private PathExpressionTrie<SequencerPathExpression> trie;
+    private List<SequencerPathExpression> expressions;
+
+    @Before
+    public void beforeEach() throws Exception {
+        context = new ExecutionContext();
+        context.getNamespaceRegistry().register("myns", "http://www.example.com/myns");
+        trie = new PathExpressionTrie<>();
+        expressions = new ArrayList<>();
+        for (String expression : EXPRESSIONS) {
+            SequencerPathExpression expr = SequencerPathExpression.compile(expression + " => /output");
+            expressions.add(expr);
+            trie.add(expr, expr);
+        }
+    }
+
+    protected List<SequencerPathExpression> candidates( String propertyPath ) {
+        int index = propertyPath.lastIndexOf("/@");
+        Path pathToNode = context.getValueFactories().getPathFactory().create(propertyPath.substring(0, index));
+        Name propertyName = context.getValueFactories().getNameFactory().create(propertyPath.substring(index + 2));
+        return trie.candidates(pathToNode, propertyName);
+    }
+
+    protected boolean matches( SequencerPathExpression expression,
+                               String propertyPath ) {
+        return expression.matcher(propertyPath).matches();
+    }
+
+    @Test
+    public void shouldReturnNoCandidatesWhenEmpty() throws Exception {
+        trie = new PathExpressionTrie<>();
+        assertThat(trie.isEmpty(), is(true));
+        assertThat(candidates("/a/b/c/@x").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldReturnValuesInTheOrderTheyWereAdded() throws Exception {
+        assertThat(trie.isEmpty(), is(false));
+        assertThat(trie.values(), is(expressions));
+    }
+
+    @Test
+    public void shouldNeverOmitAnExpressionThatMatches() throws Exception {
+        for (String propertyPath : PROPERTY_PATHS) {
+            List<SequencerPathExpression> candidates = candidates(propertyPath);
+            for (SequencerPathExpression expression : expressions) {
+                if (matches(expression, propertyPath)) {
+                    String reason = expression + " should be a candidate for " + propertyPath;
+                    assertThat(reason, candidates.contains(expression), is(true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldMatchLiteralSegments() throws Exception {
+        trie = new PathExpressionTrie<>();
+        SequencerPathExpression expr = SequencerPathExpression.compile("/a/b/c/@x => /output");
+        trie.add(expr, expr);
+        assertThat(candidates("/a/b/c/@x"), is(Collections.singletonList(expr)));
+        assertThat(candidates("/a/b/c[2]/@x"), is(Collections.singletonList(expr)));
+        assertThat(candidates("/a/b/c/@y").isEmpty(), is(true));
+        assertThat(candidates("/a/b/@x").isEmpty(), is(true));
+        assertThat(candidates("/a/b/c/d/@x").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldMatchWildcardsAndAlternativesAgainstTheLocalNames() throws Exception {
+        trie = new PathExpressionTrie<>();
+        SequencerPathExpression expr = SequencerPathExpression.compile("//(*.jpg|*.png)/jcr:content[@jcr:data] => /output");
+        trie.add(expr, expr);
+        assertThat(candidates("/files/photo.jpg/jcr:content/@jcr:data"), is(Collections.singletonList(expr)));
+        assertThat(candidates("/photo.png/jcr:content/@jcr:data"), is(Collections.singletonList(expr)));
+        assertThat(candidates("/files/doc.txt/jcr:content/@jcr:data").isEmpty(), is(true));
+        assertThat(candidates("/files/photo.jpg/jcr:content/@jcr:mimeType").isEmpty(), is(true));
+        assertThat(candidates("/files/photo.jpg/other/@jcr:data").isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldAlwaysReturnExpressionsThatCannotBeCompiledIntoTheTrie() throws Exception {
+        trie = new PathExpressionTrie<>();
+        SequencerPathExpression literal = SequencerPathExpression.compile("/a/b/@x => /output");
+        SequencerPathExpression group = SequencerPathExpression.compile("/a/(b/c)//@x => /output");
+        trie.add(literal, literal);
+        trie.add(group, group);
+        assertThat(candidates("/z/@y"), is(Collections.singletonList(group)));
+        assertThat(candidates("/a/b/@x"), is(Arrays.asList(literal, group)));
+    }
+}
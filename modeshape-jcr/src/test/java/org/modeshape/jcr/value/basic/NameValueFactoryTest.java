@@ -16,6 +16,7 @@
 package org.modeshape.jcr.value.basic;
 
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -176,6 +177,23 @@ public class NameValueFactoryTest extends BaseValueFactoryTest {
         assertThat(name.getString(NO_OP_ENCODER), is("{http://www.modeshape.org/namespace}"));
     }
 
+    @Test
+    public void shouldReturnSharedInstancesForEqualNames() {
+        name = nameFactory.create("dna:something");
+        assertSame(name, nameFactory.create("dna:something"));
+        assertSame(name, nameFactory.create("{http://www.modeshape.org/namespace}something"));
+        assertSame(name, nameFactory.create("http://www.modeshape.org/namespace", "something"));
+        assertSame(name, nameFactory.create("http://www.modeshape.org/namespace", " something "));
+    }
+
+    @Test
+    public void shouldConsiderNamesWithDifferentHashCodesToBeDifferent() {
+        Name other = nameFactory.create("dna:somethingElse");
+        name = nameFactory.create("dna:something");
+        assertThat(name.equals(other), is(false));
+        assertThat(name.equals(new BasicName("http://www.modeshape.org/namespace", "something")), is(true));
+    }
+
     @Ignore
     @Test
     public void shouldCreateFromNonEncodedString() {
@@ -16,6 +16,7 @@
 package org.modeshape.jcr.value.basic;
 
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.modeshape.jcr.value.basic.IsPathContaining.hasSegments;
 import java.util.ArrayList;
@@ -140,4 +141,16 @@ public class PathValueFactoryTest extends BaseValueFactoryTest {
     public void shouldThrowValueFormatExceptionOnMalformedName() {
         factory.splitPath("/jcr:foo/{foobar");
     }
+
+    @Test
+    public void shouldReturnSharedInstancesForEqualSegments() {
+        Path.Segment segment = factory.createSegment("a");
+        assertSame(segment, factory.createSegment("a"));
+        assertSame(segment, factory.createSegment(segment.getName()));
+        assertSame(segment, factory.createSegment("a[1]"));
+        Path.Segment second = factory.createSegment("a[2]");
+        assertThat(second.getIndex(), is(2));
+        assertSame(second, factory.createSegment(segment.getName(), 2));
+        assertSame(second, factory.createSegment("a", 2));
+    }
 }
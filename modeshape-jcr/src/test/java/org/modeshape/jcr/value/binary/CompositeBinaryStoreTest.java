@@ -215,6 +215,94 @@ public class CompositeBinaryStoreTest extends AbstractBinaryStoreTest {
         assertTrue(alternativeStore.hasBinary(v.getKey()));
     }
 
+    @Test
+    public void shouldRememberTheStoreContainingAValueAcrossRestarts() throws Exception {
+        File locationsDirectory = new File("target/cbsl/");
+        FileUtil.delete(locationsDirectory);
+        CompositeBinaryStore composite = newCompositeStore();
+        composite.setLocationsDirectory(locationsDirectory);
+        composite.start();
+        BinaryKey key;
+        try {
+            key = composite.storeValue(new ByteArrayInputStream(randomContent()), "alternative", false).getKey();
+        } finally {
+            composite.shutdown();
+        }
+
+        BinaryStoreLocations locations = new BinaryStoreLocations(locationsDirectory);
+        try {
+            assertThat(locations.storeName(key), is("alternative"));
+        } finally {
+            locations.close();
+            FileUtil.delete(locationsDirectory);
+        }
+    }
+
+    @Test
+    public void shouldFindValuesStoredThroughTheCompositeStoreWhenUsingBloomFilters() throws Exception {
+        CompositeBinaryStore composite = newCompositeStore();
+        composite.setBloomFilterExpectedKeys(100);
+        composite.start();
+        try {
+            byte[] content = randomContent();
+            BinaryKey key = composite.storeValue(new ByteArrayInputStream(content), "alternative", false).getKey();
+            assertArrayEquals(content, IoUtil.readBytes(composite.getInputStream(key)));
+            assertThat(composite.hasBinary(new BinaryKey("this-is-not-a-key")), is(false));
+        } finally {
+            composite.shutdown();
+        }
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void shouldNotStartWithTieringPolicyIfLocationsAreOnlyKeptInMemory() throws Exception {
+        CompositeBinaryStore composite = newCompositeStore();
+        composite.setTieringPolicy(new CompositeBinaryStore.TieringPolicy("default", "alternative", 1L, 60000L, false));
+        try {
+            composite.start();
+        } finally {
+            composite.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldMoveValuesWhichWereNotReadRecentlyIntoTheColdStore() throws Exception {
+        File locationsDirectory = new File("target/cbst/");
+        FileUtil.delete(locationsDirectory);
+        CompositeBinaryStore composite = newCompositeStore();
+        composite.setLocationsDirectory(locationsDirectory);
+        composite.setTieringPolicy(new CompositeBinaryStore.TieringPolicy("default", "alternative", 1L, 60000L, false));
+        composite.start();
+        try {
+            byte[] content = randomContent();
+            BinaryKey key = composite.storeValue(new ByteArrayInputStream(content), false).getKey();
+            BinaryStore hotStore = composite.findBinaryStoreContainingKey(key);
+            Thread.sleep(10L);
+
+            composite.applyTieringPolicy();
+
+            BinaryStore coldStore = composite.findBinaryStoreContainingKey(key);
+            assertThat(coldStore == hotStore, is(false));
+            assertArrayEquals(content, IoUtil.readBytes(composite.getInputStream(key)));
+        } finally {
+            composite.shutdown();
+        }
+    }
+
+    private CompositeBinaryStore newCompositeStore() {
+        File hotDirectory = new File("target/cbs-hot/");
+        File coldDirectory = new File("target/cbs-cold/");
+        FileUtil.delete(hotDirectory);
+        FileUtil.delete(coldDirectory);
+        hotDirectory.mkdirs();
+        coldDirectory.mkdirs();
+        Map<String, BinaryStore> stores = new LinkedHashMap<String, BinaryStore>();
+        stores.put("default", new FileSystemBinaryStore(hotDirectory));
+        stores.put("alternative", new FileSystemBinaryStore(coldDirectory));
+        CompositeBinaryStore composite = new CompositeBinaryStore(stores);
+        composite.setMinimumBinarySizeInBytes(MIN_BINARY_SIZE);
+        return composite;
+    }
+
     @Override
     @SkipOnOS(value = SkipOnOS.WINDOWS, description = "Sometimes file locks prevent the cleanup thread from removing values")
     @Test
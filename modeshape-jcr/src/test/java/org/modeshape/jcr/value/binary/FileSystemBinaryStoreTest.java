@@ -211,6 +211,73 @@ public class FileSystemBinaryStoreTest extends AbstractBinaryStoreTest {
         assertThat(countTrashFiles(), is(0));
     }
 
+    @Test
+    public void shouldRemoveOnlyTheUnusedValuesListedInTheUsageLedger() throws Exception {
+        List<BinaryKey> storedKeys = new ArrayList<BinaryKey>();
+        for (int i = 0; i != CONTENT.length; ++i) {
+            Binary binary = storeAndCheck(i);
+            if (binary instanceof StoredBinaryValue) storedKeys.add(((StoredBinaryValue)binary).getKey());
+        }
+        assertThat(storedKeys.size() > 2, is(true));
+        BinaryKey unused = storedKeys.get(0);
+        BinaryKey usedAgain = storedKeys.get(1);
+
+        File ledgerDirectory = new File("target/fsbs-ledger");
+        FileUtil.delete(ledgerDirectory);
+        BinaryUsageLedger ledger = new BinaryUsageLedger(ledgerDirectory);
+        store.markAsUnused(Arrays.asList(unused, usedAgain));
+        ledger.recordUnused(Arrays.asList(unused, usedAgain));
+        store.markAsUsed(Collections.singleton(usedAgain));
+        ledger.recordUsed(Collections.singleton(usedAgain));
+        ledger.close();
+
+        // Replay the ledger from disk ...
+        ledger = new BinaryUsageLedger(ledgerDirectory);
+        Thread.sleep(10L);
+        List<BinaryKey> unusedKeys = ledger.unusedLongerThan(0, TimeUnit.MILLISECONDS);
+        assertThat(unusedKeys, is(Collections.singletonList(unused)));
+
+        // The store should only remove the values it still considers unused ...
+        assertThat(store.removeValues(storedKeys, 0, TimeUnit.MILLISECONDS), is(true));
+        ledger.recordRemoved(unusedKeys);
+        assertThat(countStoredFiles(), is(storedKeys.size() - 1));
+        assertThat(countTrashFiles(), is(0));
+        assertThat(store.hasBinary(unused), is(false));
+        assertThat(store.hasBinary(usedAgain), is(true));
+        assertThat(ledger.unusedCount(), is(0));
+        ledger.close();
+        FileUtil.delete(ledgerDirectory);
+    }
+
+    @Test
+    public void shouldNotRemoveUnusedValueListedInTheUsageLedgerAfterItIsStoredAgain() throws Exception {
+        int index = CONTENT.length - 1;
+        Binary binary = storeAndCheck(index, StoredBinaryValue.class);
+        BinaryKey key = ((StoredBinaryValue)binary).getKey();
+
+        BinaryUsageLedger ledger = new BinaryUsageLedger();
+        store.markAsUnused(Collections.singleton(key));
+        ledger.recordUnused(Collections.singleton(key));
+        Thread.sleep(1100L); // Sleep more than a second, since modified times may only be accurate to nearest second ...
+
+        // Another session uploads the same content, which isn't used until that session is saved ...
+        store.storeValue(new ByteArrayInputStream(CONTENT[index].getBytes()), true);
+        List<BinaryKey> unusedKeys = ledger.unusedLongerThan(1, TimeUnit.SECONDS);
+        assertThat(unusedKeys, is(Collections.singletonList(key)));
+
+        // The store has considered the value unused for less than the minimum age, so it must keep it ...
+        assertThat(store.removeValues(unusedKeys, 1, TimeUnit.SECONDS), is(true));
+        assertThat(store.hasBinary(key), is(true));
+        assertThat(countTrashFiles(), is(1));
+
+        // But once the value has been unused long enough, it is removed ...
+        Thread.sleep(1100L);
+        assertThat(store.removeValues(unusedKeys, 1, TimeUnit.SECONDS), is(true));
+        assertThat(store.hasBinary(key), is(false));
+        assertThat(countTrashFiles(), is(0));
+        ledger.close();
+    }
+
     @Test
     public void shouldStoreLargeFile() throws Exception {
         print = true;
@@ -54,7 +54,7 @@ public class RepositoryStatisticsMXBeanTest extends SingleUseAbstractTest {
 
         assertNotNull(mBeanInfo);
         assertEquals(3, mBeanInfo.getAttributes().length);
-        assertEquals(3, mBeanInfo.getOperations().length);
+        assertEquals(4, mBeanInfo.getOperations().length);
     }
 
     @Test
@@ -94,6 +94,20 @@ public class RepositoryStatisticsMXBeanTest extends SingleUseAbstractTest {
         assertTrue(result instanceof CompositeData[]);
     }
 
+    @Test
+    public void shouldRetrievePercentiles() throws Exception {
+        Object[] arguments = new Object[] { DurationMetric.SAVE_PERSIST_TIME.name()};
+        String[] signature = new String[] {String.class.getName()};
+        Object result = SERVER.invoke(mBeanName, "getPercentiles", arguments, signature);
+        assertNotNull(result);
+        CompositeData data = (CompositeData) result;
+        assertEquals(DurationMetric.SAVE_PERSIST_TIME.getTimeUnit().name(), data.get("timeUnit"));
+        assertTrue(data.containsKey("count"));
+        assertTrue(data.containsKey("p50"));
+        assertTrue(data.containsKey("p99"));
+        assertTrue(data.containsKey("maximum"));
+    }
+
     private void assertHistoricalData( Object result ) {
         assertNotNull(result);
         CompositeData data = (CompositeData) result;
@@ -33,6 +33,7 @@ class JcrStatement implements Statement {
     private SQLWarning warning;
     private int rowLimit = -1;
     private int fetchDirection = ResultSet.FETCH_FORWARD;
+    private int fetchSize = 0;
     private boolean poolable;
     private int moreResults = 0;
 
@@ -54,7 +55,7 @@ class JcrStatement implements Statement {
     /**
      * {@inheritDoc}
      * <p>
-     * This driver doesn't have a way to set the fetch size, so this method always returns 0.
+     * The fetch size is 0 unless it has been {@link #setFetchSize(int) set}.
      * </p>
      * 
      * @see java.sql.Statement#getFetchSize()
@@ -62,13 +63,14 @@ class JcrStatement implements Statement {
     @Override
     public int getFetchSize() throws SQLException {
         notClosed();
-        return 0;
+        return fetchSize;
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * This driver doesn't have a way to set the fetch size, so this method is ignored and does nothing.
+     * The fetch size is passed as a hint to the {@link RepositoryDelegate}: remote repositories use it to request the rows in
+     * pages of that size, while local repositories ignore it.
      * </p>
      * 
      * @see java.sql.Statement#setFetchSize(int)
@@ -76,6 +78,10 @@ class JcrStatement implements Statement {
     @Override
     public void setFetchSize( int rows ) throws SQLException {
         notClosed();
+        if (rows < 0) {
+            throw new SQLException(JdbcLocalI18n.argumentMayNotBeNegative.text("rows", rows));
+        }
+        fetchSize = rows;
     }
 
     @Override
@@ -296,7 +302,12 @@ class JcrStatement implements Statement {
             // Convert the supplied SQL into JCR-SQL2 ...
             String jcrSql2 = connection.nativeSQL(sql);
             // Create the query ...
-            final QueryResult jcrResults = getJcrRepositoryDelegate().execute(jcrSql2, this.sqlLanguage);
+            final QueryResult jcrResults;
+            if (fetchSize > 0) {
+                jcrResults = getJcrRepositoryDelegate().execute(jcrSql2, this.sqlLanguage, fetchSize);
+            } else {
+                jcrResults = getJcrRepositoryDelegate().execute(jcrSql2, this.sqlLanguage);
+            }
             results = new JcrResultSet(this, jcrResults, null);
             moreResults = 1;
         } catch (RepositoryException e) {
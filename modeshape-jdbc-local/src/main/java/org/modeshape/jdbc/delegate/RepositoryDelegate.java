@@ -79,6 +79,23 @@ public interface RepositoryDelegate {
     QueryResult execute( String query,
                          String language ) throws RepositoryException;
 
+    /**
+     * Call to execute the <code>query</code> based on the specified JCR language, using the given number of rows as a hint for
+     * how many rows should be fetched at a time. By default the hint is ignored.
+     * 
+     * @param query is the query expression to execute
+     * @param language is the JCR language the <code>query</code> should be executed based on.
+     * @param fetchSize the number of rows which should be fetched at a time, or 0 if the delegate should decide
+     * @return QueryResult is the JCR query result
+     * @throws RepositoryException
+     * @see java.sql.Statement#setFetchSize(int)
+     */
+    default QueryResult execute( String query,
+                                 String language,
+                                 int fetchSize ) throws RepositoryException {
+        return execute(query, language);
+    }
+
     /**
      * Generate the plan for the <code>query</code> based on the specified JCR language.
      * 
@@ -241,6 +241,12 @@ public class JcrStatementTest {
     @Test
     public void shouldSetFetchSize() throws SQLException {
         stmt.setFetchSize(100);
+        assertThat(stmt.getFetchSize(), is(100));
+    }
+
+    @Test( expected = SQLException.class )
+    public void shouldNotAllowNegativeFetchSize() throws SQLException {
+        stmt.setFetchSize(-1);
     }
 
     /**
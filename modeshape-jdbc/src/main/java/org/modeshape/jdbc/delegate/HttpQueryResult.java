@@ -16,11 +16,10 @@
 
 package org.modeshape.jdbc.delegate;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import javax.jcr.Node;
@@ -33,24 +32,70 @@ import org.modeshape.jdbc.JdbcJcrValueFactory;
 
 /**
  * A simple implementation of the {@link QueryResult} interface.
+ * <p>
+ * The rows are converted only as they are iterated. If the result was obtained in pages (see {@link PageSupplier}), the next
+ * page is only requested once all the rows of the current page have been iterated, so that at most one page of rows is held
+ * in memory at any time.
+ * </p>
  * 
  * @author Horia Chiorean
  */
 public final class HttpQueryResult implements QueryResult {
 
-    protected final List<HttpRow> rows = new ArrayList<>();
     protected final Map<String, String> columnTypesByName = new LinkedHashMap<>();
+    private final PageSupplier pageSupplier;
+    private org.modeshape.jdbc.rest.QueryResult currentPage;
+    private Iterator<org.modeshape.jdbc.rest.QueryResult.Row> currentPageRows;
+    private HttpRowIterator rowIterator;
 
     protected HttpQueryResult( org.modeshape.jdbc.rest.QueryResult queryResult ) {
-        assert queryResult != null;
+        this(queryResult, null);
+    }
 
-        if (!queryResult.isEmpty()) {
-            this.columnTypesByName.putAll(queryResult.getColumns());
+    protected HttpQueryResult( org.modeshape.jdbc.rest.QueryResult firstPage,
+                               PageSupplier pageSupplier ) {
+        assert firstPage != null;
+        this.pageSupplier = pageSupplier;
+        this.currentPage = firstPage;
+        this.currentPageRows = firstPage.iterator();
+        if (!firstPage.isEmpty()) {
+            this.columnTypesByName.putAll(firstPage.getColumns());
+        }
+    }
+
+    /**
+     * Supplies the pages of a query result which is obtained in multiple requests.
+     */
+    protected interface PageSupplier {
+        /**
+         * Requests the page of rows which follows the page with the given cursor.
+         *
+         * @param cursor the cursor returned with the previous page; never {@code null}
+         * @return the next page; never {@code null}
+         */
+        org.modeshape.jdbc.rest.QueryResult nextPage( String cursor );
+    }
 
-            for (org.modeshape.jdbc.rest.QueryResult.Row queryRow : queryResult) {
-                rows.add(new HttpRow(queryRow));
+    /**
+     * Returns the next row from the current page, requesting the next page if the current one has no more rows.
+     *
+     * @return the next row, or {@code null} if there are no more rows
+     */
+    protected org.modeshape.jdbc.rest.QueryResult.Row nextQueryRow() {
+        while (currentPage != null) {
+            if (currentPageRows.hasNext()) {
+                return currentPageRows.next();
+            }
+            String cursor = currentPage.getCursor();
+            if (cursor == null || pageSupplier == null) {
+                currentPage = null;
+                currentPageRows = null;
+            } else {
+                currentPage = pageSupplier.nextPage(cursor);
+                currentPageRows = currentPage.iterator();
             }
         }
+        return null;
     }
 
     @Override
@@ -70,12 +115,22 @@ public final class HttpQueryResult implements QueryResult {
 
     @Override
     public boolean isEmpty() {
-        return rows.isEmpty();
+        RowIterator rows = getRows();
+        return rows.getPosition() == -1;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rows are read only once, so all the calls of this method return the same iterator.
+     * </p>
+     */
     @Override
     public RowIterator getRows() {
-        return new HttpRowIterator();
+        if (rowIterator == null) {
+            rowIterator = new HttpRowIterator();
+        }
+        return rowIterator;
     }
 
     @Override
@@ -90,7 +145,11 @@ public final class HttpQueryResult implements QueryResult {
 
     @Override
     public void close() {
-        // do nothing
+        if (currentPage != null) {
+            currentPage.close();
+            currentPage = null;
+            currentPageRows = null;
+        }
     }
 
     @Override
@@ -100,18 +159,22 @@ public final class HttpQueryResult implements QueryResult {
 
     private class HttpRowIterator implements RowIterator {
 
-        private static final int EMPTY_CURSOR = -1;
-        private int cursor = rows.isEmpty() ? EMPTY_CURSOR : 0;
+        private long position = 0;
+        private HttpRow next;
+        private boolean exhausted;
 
         protected HttpRowIterator() {
         }
 
         @Override
         public Row nextRow() {
-            if (cursor == -1 || cursor >= rows.size()) {
+            if (!hasNext()) {
                 throw new NoSuchElementException("No more rows to iterate over");
             }
-            return rows.get(cursor++);
+            Row row = next;
+            next = null;
+            position++;
+            return row;
         }
 
         @Override
@@ -119,26 +182,42 @@ public final class HttpQueryResult implements QueryResult {
             if (skipNum < 0) {
                 throw new IllegalArgumentException("skipNum must be a positive value");
             }
-            int availableRowsCount = rows.size() - cursor;
-            if (skipNum > availableRowsCount) {
-                throw new NoSuchElementException("Skip would go past collection end");
+            for (long i = 0; i < skipNum; i++) {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Skip would go past collection end");
+                }
+                nextRow();
             }
-            cursor += skipNum;
         }
 
+        /**
+         * {@inheritDoc}
+         * <p>
+         * The number of rows is only known once all the rows have been read, so until then this method returns -1.
+         * </p>
+         */
         @Override
         public long getSize() {
-            return rows.size();
+            return hasNext() ? -1 : position;
         }
 
         @Override
         public long getPosition() {
-            return cursor;
+            // an empty result has no position, just like before all the rows were read at once
+            return position == 0 && !hasNext() ? -1 : position;
         }
 
         @Override
         public boolean hasNext() {
-            return cursor != -1 && cursor < rows.size();
+            if (next == null && !exhausted) {
+                org.modeshape.jdbc.rest.QueryResult.Row queryRow = nextQueryRow();
+                if (queryRow == null) {
+                    exhausted = true;
+                } else {
+                    next = new HttpRow(queryRow);
+                }
+            }
+            return next != null;
         }
 
         @Override
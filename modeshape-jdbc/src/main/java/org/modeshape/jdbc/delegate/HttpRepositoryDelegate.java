@@ -86,10 +86,28 @@ public class HttpRepositoryDelegate extends AbstractRepositoryDelegate {
     @Override
     public QueryResult execute( String query,
                                 String language ) throws RepositoryException {
-        logger.trace("Executing query: {0}", query);
+        return execute(query, language, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the fetch size is positive, the rows are requested from the server in pages of at most that many rows, and each page is
+     * only requested once the rows of the previous page have been read. Otherwise all the rows are requested at once. In both
+     * cases the rows are only decoded as the result is iterated.
+     * </p>
+     */
+    @Override
+    public QueryResult execute( final String query,
+                                final String language,
+                                final int fetchSize ) throws RepositoryException {
+        logger.trace("Executing query: {0} with fetch size {1}", query, fetchSize);
         try {
-            org.modeshape.jdbc.rest.QueryResult result = this.restClient.query(query, language);
-            return new HttpQueryResult(result);
+            org.modeshape.jdbc.rest.QueryResult firstPage = this.restClient.query(query, language, fetchSize, null);
+            return new HttpQueryResult(firstPage, cursor -> {
+                logger.trace("Fetching the next {0} rows of query: {1}", fetchSize, query);
+                return restClient.query(query, language, fetchSize, cursor);
+            });
         } catch (Exception e) {
             throw new RepositoryException(e.getMessage(), e);
         }
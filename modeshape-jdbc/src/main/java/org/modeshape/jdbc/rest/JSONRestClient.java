@@ -15,14 +15,18 @@
  */
 package org.modeshape.jdbc.rest;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
@@ -241,6 +245,15 @@ public final class JSONRestClient {
             }
         }
 
+        /**
+         * Returns a reader over the content of the response, which can be used to parse large responses incrementally.
+         *
+         * @return a {@link Reader} instance, never {@code null}
+         */
+        public Reader reader() {
+            return new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
+        }
+
         public String asString() {
             if (contentString == null) {
                 contentString = new String(content);
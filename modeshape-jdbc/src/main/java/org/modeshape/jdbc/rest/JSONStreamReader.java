@@ -0,0 +1,303 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jdbc.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * A minimal pull parser which reads a JSON document one token at a time, so that large documents (e.g. query results with
+ * many rows) can be decoded incrementally instead of being parsed into a single {@link JSONObject}.
+ * <p>
+ * The reader is lenient about the separators between values and expects the document to be well-formed; nested objects and
+ * arrays which are read as values are returned in the same string form Jettison would produce for them.
+ * </p>
+ */
+final class JSONStreamReader implements Closeable {
+
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private int peeked = NONE;
+
+    protected JSONStreamReader( Reader reader ) {
+        assert reader != null;
+        this.reader = reader;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException if the next token is not the start of an object or if the content cannot be read
+     */
+    protected void beginObject() throws IOException {
+        expect('{');
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException if the next token is not the end of an object or if the content cannot be read
+     */
+    protected void endObject() throws IOException {
+        expect('}');
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException if the next token is not the start of an array or if the content cannot be read
+     */
+    protected void beginArray() throws IOException {
+        expect('[');
+    }
+
+    /**
+     * Consumes the end of an array.
+     *
+     * @throws IOException if the next token is not the end of an array or if the content cannot be read
+     */
+    protected void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * Checks if the current object or array has more members, consuming the separator before the next member.
+     *
+     * @return {@code true} if there is another member, {@code false} if the end of the object or array is next
+     * @throws IOException if the content cannot be read
+     */
+    protected boolean hasNext() throws IOException {
+        int c = peek();
+        if (c == ',') {
+            read();
+            c = peek();
+        }
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /**
+     * Reads the name of the next member of the current object, including the separator which follows it.
+     *
+     * @return the name; never {@code null}
+     * @throws IOException if the next token is not a name or if the content cannot be read
+     */
+    protected String nextName() throws IOException {
+        if (peek() != '"') {
+            throw syntaxError("a name");
+        }
+        read();
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Reads the next value, converting it to a string: strings are unescaped, numbers and literals are returned as they appear
+     * in the document and nested objects and arrays are returned in their JSON form.
+     *
+     * @return the string form of the value; never {@code null}
+     * @throws IOException if the next token is not a value or if the content cannot be read
+     */
+    protected String nextValue() throws IOException {
+        int c = peek();
+        switch (c) {
+            case '"':
+                read();
+                return readString();
+            case '{':
+            case '[':
+                String json = readStructure();
+                try {
+                    return c == '{' ? new JSONObject(json).toString() : new JSONArray(json).toString();
+                } catch (JSONException e) {
+                    throw new IOException(e);
+                }
+            case -1:
+            case ',':
+            case ':':
+            case '}':
+            case ']':
+                throw syntaxError("a value");
+            default:
+                return readLiteral();
+        }
+    }
+
+    /**
+     * Skips the next value, whatever its type.
+     *
+     * @throws IOException if the next token is not a value or if the content cannot be read
+     */
+    protected void skipValue() throws IOException {
+        int c = peek();
+        if (c == '{' || c == '[') {
+            readStructure();
+        } else {
+            nextValue();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String readString() throws IOException {
+        StringBuilder result = new StringBuilder();
+        while (true) {
+            int c = read();
+            switch (c) {
+                case -1:
+                    throw syntaxError("the end of a string");
+                case '"':
+                    return result.toString();
+                case '\\':
+                    int escaped = read();
+                    switch (escaped) {
+                        case 'b':
+                            result.append('\b');
+                            break;
+                        case 't':
+                            result.append('\t');
+                            break;
+                        case 'n':
+                            result.append('\n');
+                            break;
+                        case 'f':
+                            result.append('\f');
+                            break;
+                        case 'r':
+                            result.append('\r');
+                            break;
+                        case 'u':
+                            char[] hex = new char[4];
+                            for (int i = 0; i < hex.length; i++) {
+                                int digit = read();
+                                if (digit == -1) {
+                                    throw syntaxError("a unicode escape sequence");
+                                }
+                                hex[i] = (char)digit;
+                            }
+                            try {
+                                result.append((char)Integer.parseInt(new String(hex), 16));
+                            } catch (NumberFormatException e) {
+                                throw syntaxError("a unicode escape sequence");
+                            }
+                            break;
+                        case -1:
+                            throw syntaxError("an escape sequence");
+                        default:
+                            result.append((char)escaped);
+                    }
+                    break;
+                default:
+                    result.append((char)c);
+            }
+        }
+    }
+
+    private String readLiteral() throws IOException {
+        StringBuilder result = new StringBuilder();
+        while (true) {
+            int c = peekRaw();
+            if (c == -1 || c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            result.append((char)read());
+        }
+        return result.toString();
+    }
+
+    /**
+     * Reads a nested object or array as is, so that it can be parsed by Jettison.
+     */
+    private String readStructure() throws IOException {
+        StringBuilder result = new StringBuilder();
+        int depth = 0;
+        boolean inString = false;
+        do {
+            int c = read();
+            if (c == -1) {
+                throw syntaxError("the end of an object or array");
+            }
+            result.append((char)c);
+            if (inString) {
+                if (c == '\\') {
+                    int escaped = read();
+                    if (escaped == -1) {
+                        throw syntaxError("an escape sequence");
+                    }
+                    result.append((char)escaped);
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                ++depth;
+            } else if (c == '}' || c == ']') {
+                --depth;
+            }
+        } while (depth > 0);
+        return result.toString();
+    }
+
+    private void expect( char expected ) throws IOException {
+        if (peek() != expected) {
+            throw syntaxError("'" + expected + "'");
+        }
+        read();
+    }
+
+    /**
+     * Returns the next character which is not whitespace, without consuming it.
+     */
+    private int peek() throws IOException {
+        int c = peekRaw();
+        while (c != -1 && Character.isWhitespace(c)) {
+            read();
+            c = peekRaw();
+        }
+        return c;
+    }
+
+    private int peekRaw() throws IOException {
+        if (peeked == NONE) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        if (peeked != NONE) {
+            int c = peeked;
+            peeked = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private IOException syntaxError( String expected ) throws IOException {
+        int c = peekRaw();
+        String found = c == -1 ? "the end of the content" : "'" + (char)c + "'";
+        return new IOException("Invalid JSON content: expected " + expected + " but found " + found);
+    }
+}
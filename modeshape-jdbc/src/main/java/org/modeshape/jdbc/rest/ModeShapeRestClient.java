@@ -32,6 +32,8 @@ public final class ModeShapeRestClient {
     private static final String ITEMS_METHOD = "items";
     private static final String QUERY_METHOD = "query";
     private static final String QUERY_PLAN_METHOD = "queryPlan";
+    private static final String LIMIT_PARAMETER = "limit";
+    private static final String CURSOR_PARAMETER = "cursor";
 
     private final JSONRestClient jsonRestClient;
 
@@ -135,6 +137,40 @@ public final class ModeShapeRestClient {
         return new QueryResult(response.json());
     }
 
+    /**
+     * Runs a query in the specified language against the repository from {@code repoUrl}, returning at most {@code limit} rows.
+     * The rows of the result are decoded only as the result is iterated. If there are more rows than the limit,
+     * {@link QueryResult#getCursor()} returns the cursor which can be passed back to this method to get the following rows.
+     *
+     * @param query a {@code String}, never {@code null}
+     * @param queryLanguage the language of the query, never {@code null}
+     * @param limit the maximum number of rows to return; if not positive all the rows are returned
+     * @param cursor a cursor obtained from a previous result of the same query; may be {@code null} to get the first rows
+     * @return a {@link QueryResult} instance, never {@code null}
+     * @see javax.jcr.query.Query
+     */
+    public QueryResult query( String query,
+                              String queryLanguage,
+                              long limit,
+                              String cursor ) {
+        StringBuilder url = new StringBuilder(jsonRestClient.appendToURL(QUERY_METHOD));
+        char separator = '?';
+        if (limit > 0) {
+            url.append(separator).append(LIMIT_PARAMETER).append('=').append(limit);
+            separator = '&';
+        }
+        if (cursor != null) {
+            url.append(separator).append(CURSOR_PARAMETER).append('=').append(cursor);
+        }
+        String contentType = contentTypeForQueryLanguage(queryLanguage);
+        JSONRestClient.Response response = jsonRestClient.postStream(new ByteArrayInputStream(query.getBytes()), url.toString(),
+                                                                     contentType);
+        if (!response.isOK()) {
+            throw new RuntimeException(JdbcI18n.invalidServerResponse.text(url, response.asString()));
+        }
+        return new QueryResult(new JSONStreamReader(response.reader()));
+    }
+
     /**
      * Returns a string representation of a query plan in a given language.
      * 
@@ -15,11 +15,13 @@
  */
 package org.modeshape.jdbc.rest;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
@@ -27,13 +29,24 @@ import org.codehaus.jettison.json.JSONObject;
 /**
  * POJO which can unmarshal the {@link org.codehaus.jettison.json.JSONObject} representation of a query response coming
  * from a ModeShape REST Service.
+ * <p>
+ * A query result can also be read from a {@link JSONStreamReader}, in which case the rows are only decoded as the result is
+ * {@link #iterator() iterated}. Such a result can only be iterated once.
+ * </p>
  *
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
 public final class QueryResult implements Iterable<QueryResult.Row>{
 
+    private static final String COLUMNS_FIELD_NAME = "columns";
+    private static final String ROWS_FIELD_NAME = "rows";
+    private static final String CURSOR_FIELD_NAME = "cursor";
+
     private final Map<String, String> columns;
     private final List<Row> rows;
+    private JSONStreamReader reader;
+    private Row nextRow;
+    private String cursor;
 
     /**
      * Creates a new query result which wraps the JSON response.
@@ -44,8 +57,8 @@ public final class QueryResult implements Iterable<QueryResult.Row>{
     protected QueryResult(JSONObject object) {
         try {
             this.columns = new LinkedHashMap<>();
-            if (object.has("columns")) {
-                JSONObject columnsObject = object.getJSONObject("columns");
+            if (object.has(COLUMNS_FIELD_NAME)) {
+                JSONObject columnsObject = object.getJSONObject(COLUMNS_FIELD_NAME);
                 Iterator<String> keysIterator = columnsObject.keys();
                 while (keysIterator.hasNext()) {
                     String columnName = keysIterator.next();
@@ -55,20 +68,143 @@ public final class QueryResult implements Iterable<QueryResult.Row>{
             }
 
             this.rows = new ArrayList<>();
-            if (object.has("rows")) {
-                JSONArray rowsArray = object.getJSONArray("rows");
+            if (object.has(ROWS_FIELD_NAME)) {
+                JSONArray rowsArray = object.getJSONArray(ROWS_FIELD_NAME);
                 for (int i = 0; i < rowsArray.length(); i++) {
                     this.rows.add(new Row(rowsArray.getJSONObject(i)));
                 }
             }
+            if (object.has(CURSOR_FIELD_NAME)) {
+                this.cursor = object.getString(CURSOR_FIELD_NAME);
+            }
         } catch (JSONException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Creates a new query result which reads the JSON response from the given reader. The columns are read immediately, while
+     * the rows are only read as the result is iterated. The reader is closed once all the rows have been read.
+     *
+     * @param reader a {@link JSONStreamReader}, never {@code null}
+     */
+    protected QueryResult( JSONStreamReader reader ) {
+        this.columns = new LinkedHashMap<>();
+        this.rows = new ArrayList<>();
+        this.reader = reader;
+        try {
+            reader.beginObject();
+            readFields();
+        } catch (IOException e) {
+            close();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the fields of the response up to the first row, or up to the end of the response if there are no more rows.
+     */
+    private void readFields() throws IOException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (COLUMNS_FIELD_NAME.equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String columnName = reader.nextName();
+                    columns.put(columnName, reader.nextValue());
+                }
+                reader.endObject();
+            } else if (ROWS_FIELD_NAME.equals(name)) {
+                reader.beginArray();
+                if (!columns.isEmpty()) {
+                    // the rows will be read lazily ...
+                    return;
+                }
+                // the columns have not been read yet, so read all the rows now ...
+                while (reader.hasNext()) {
+                    rows.add(readRow());
+                }
+                reader.endArray();
+            } else if (CURSOR_FIELD_NAME.equals(name)) {
+                cursor = reader.nextValue();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        close();
+    }
+
+    private Row readRow() throws IOException {
+        Map<String, String> values = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            values.put(key, reader.nextValue());
+        }
+        reader.endObject();
+        return new Row(values);
+    }
+
+    private boolean hasNextStreamedRow() {
+        if (nextRow != null) {
+            return true;
+        }
+        if (reader == null) {
+            return false;
+        }
+        try {
+            if (reader.hasNext()) {
+                nextRow = readRow();
+                return true;
+            }
+            reader.endArray();
+            // read the fields which follow the rows (e.g. the cursor) ...
+            readFields();
+            return false;
+        } catch (IOException e) {
+            close();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Row nextStreamedRow() {
+        if (!hasNextStreamedRow()) {
+            throw new NoSuchElementException();
+        }
+        Row row = nextRow;
+        nextRow = null;
+        return row;
+    }
+
+    /**
+     * Returns an iterator over the rows. If this result is being read from a stream, the rows are decoded as the iterator is
+     * advanced and are not kept by this result.
+     *
+     * @return an {@link Iterator} instance, never {@code null}
+     */
     @Override
     public Iterator<Row> iterator() {
-        return rows.iterator();
+        if (reader == null && nextRow == null) {
+            return rows.iterator();
+        }
+        final Iterator<Row> bufferedRows = rows.iterator();
+        return new Iterator<Row>() {
+            @Override
+            public boolean hasNext() {
+                return bufferedRows.hasNext() || hasNextStreamedRow();
+            }
+
+            @Override
+            public Row next() {
+                return bufferedRows.hasNext() ? bufferedRows.next() : nextStreamedRow();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     /**
@@ -81,11 +217,14 @@ public final class QueryResult implements Iterable<QueryResult.Row>{
     }
 
     /**
-     * Returns the result rows.
+     * Returns the result rows. If this result is being read from a stream, this reads all of the remaining rows.
      *
      * @return a {@link java.util.List} of {@link QueryResult.Row}, never {@code null}
      */
     public List<Row> getRows() {
+        while (hasNextStreamedRow()) {
+            rows.add(nextStreamedRow());
+        }
         return rows;
     }
 
@@ -95,7 +234,32 @@ public final class QueryResult implements Iterable<QueryResult.Row>{
      * @return {@code true} if there are any rows, {@code false} otherwise.
      */
     public boolean isEmpty() {
-        return rows.isEmpty();
+        return rows.isEmpty() && !hasNextStreamedRow();
+    }
+
+    /**
+     * Returns the cursor which can be used to request the rows following the ones in this result, when the query was executed
+     * with a limit. If this result is being read from a stream, the cursor is only known once all the rows have been read.
+     *
+     * @return an opaque {@code String}, or {@code null} if there are no more rows
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Closes the stream from which this result is read, if any. Any rows which have not been read yet are discarded.
+     */
+    public void close() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // ignore
+            } finally {
+                reader = null;
+            }
+        }
     }
 
     /**
@@ -104,6 +268,10 @@ public final class QueryResult implements Iterable<QueryResult.Row>{
     public final class Row {
         private final Map<String, String> values;
 
+        protected Row( Map<String, String> values ) {
+            this.values = values;
+        }
+
         @SuppressWarnings("unchecked")
         protected Row( JSONObject object ) {
             try {
@@ -0,0 +1,100 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.jdbc.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.StringReader;
+import java.util.Iterator;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link QueryResult} when it's read from a {@link JSONStreamReader}.
+ */
+public class QueryResultTest {
+
+    private static final String RESPONSE = "{\"columns\":{\"jcr:path\":\"STRING\",\"jcr:score\":\"DOUBLE\",\"tags\":\"STRING\"},"
+                                           + "\"rows\":[{\"jcr:path\":\"/a\",\"jcr:score\":1.5,\"tags\":[\"x\",\"y\"]},"
+                                           + "{\"jcr:path\":\"/b \\\"quoted\\\" \\u00e9\",\"jcr:score\":2}],"
+                                           + "\"cursor\":\"Mjpmb28\"}";
+
+    private QueryResult streamed( String json ) {
+        return new QueryResult(new JSONStreamReader(new StringReader(json)));
+    }
+
+    @Test
+    public void shouldReadColumnsBeforeRows() throws Exception {
+        QueryResult result = streamed(RESPONSE);
+        assertEquals(3, result.getColumns().size());
+        assertEquals("DOUBLE", result.getColumns().get("jcr:score"));
+        // the cursor follows the rows, so it's not known yet
+        assertNull(result.getCursor());
+    }
+
+    @Test
+    public void shouldReadRowsLazilyAndThenTheCursor() throws Exception {
+        QueryResult result = streamed(RESPONSE);
+        assertFalse(result.isEmpty());
+        Iterator<QueryResult.Row> rows = result.iterator();
+        assertTrue(rows.hasNext());
+        assertEquals("/a", rows.next().getValue("jcr:path"));
+        assertTrue(rows.hasNext());
+        QueryResult.Row row = rows.next();
+        assertEquals("/b \"quoted\" \u00e9", row.getValue("jcr:path"));
+        assertEquals("2", row.getValue("jcr:score"));
+        assertFalse(rows.hasNext());
+        assertEquals("Mjpmb28", result.getCursor());
+    }
+
+    @Test
+    public void shouldReadTheSameValuesAsTheJSONObject() throws Exception {
+        QueryResult expected = new QueryResult(new JSONObject(RESPONSE));
+        QueryResult actual = streamed(RESPONSE);
+        assertEquals(expected.getColumns(), actual.getColumns());
+        Iterator<QueryResult.Row> actualRows = actual.iterator();
+        for (QueryResult.Row expectedRow : expected) {
+            QueryResult.Row actualRow = actualRows.next();
+            for (String column : expected.getColumns().keySet()) {
+                assertEquals(expectedRow.getValue(column), actualRow.getValue(column));
+            }
+        }
+        assertFalse(actualRows.hasNext());
+        assertEquals(expected.getCursor(), actual.getCursor());
+    }
+
+    @Test
+    public void shouldReadEmptyResult() throws Exception {
+        QueryResult result = streamed("{\"columns\":{\"jcr:path\":\"STRING\"},\"rows\":[]}");
+        assertTrue(result.isEmpty());
+        assertFalse(result.iterator().hasNext());
+        assertNull(result.getCursor());
+
+        result = streamed("{}");
+        assertTrue(result.isEmpty());
+        assertTrue(result.getColumns().isEmpty());
+    }
+
+    @Test
+    public void shouldReadRowsWhichPrecedeTheColumns() throws Exception {
+        QueryResult result = streamed("{\"rows\":[{\"jcr:path\":\"/a\"}],\"columns\":{\"jcr:path\":\"STRING\"}}");
+        assertEquals("STRING", result.getColumns().get("jcr:path"));
+        assertEquals(1, result.getRows().size());
+        assertEquals("/a", result.getRows().get(0).getValue("jcr:path"));
+    }
+}
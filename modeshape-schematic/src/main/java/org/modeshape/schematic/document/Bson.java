@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.io.ObjectOutput;
 import java.io.OutputStream;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -28,6 +29,7 @@ import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.SimpleTimeZone;
 import java.util.regex.Pattern;
+import org.modeshape.schematic.internal.document.BsonDocumentView;
 import org.modeshape.schematic.internal.document.BsonReader;
 import org.modeshape.schematic.internal.document.BsonWriter;
 
@@ -201,6 +203,33 @@ public class Bson {
         return SHARED_READER.read(input);
     }
 
+    /**
+     * Read the binary BSON representation of a single document from the supplied input stream and construct a read-only
+     * {@link Document} view over those bytes. Unlike {@link #read(InputStream)}, the values are decoded only when they are
+     * accessed, so this is more efficient when only some of the fields will be read. Use {@link Document#clone()} or
+     * {@link Document#editable()} to obtain a mutable copy.
+     * 
+     * @param stream the input stream; may not be null
+     * @return the read-only {@link Document} view
+     * @throws IOException if there was a problem reading from the stream
+     */
+    public static Document readView( InputStream stream ) throws IOException {
+        return BsonDocumentView.read(stream);
+    }
+
+    /**
+     * Construct a read-only {@link Document} view over the binary BSON representation of a document which starts at the current
+     * position of the supplied buffer. The values are decoded only when they are accessed, and the content of the buffer must not
+     * be changed while the view is in use.
+     * 
+     * @param buffer the buffer containing the BSON representation; may not be null
+     * @return the read-only {@link Document} view
+     * @throws IllegalArgumentException if the buffer does not contain a BSON document
+     */
+    public static Document readView( ByteBuffer buffer ) {
+        return new BsonDocumentView(buffer);
+    }
+
     /**
      * Get the {@link Type} constant that describes the type of value for the given field name.
      * 
@@ -24,11 +24,14 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.Date;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import org.modeshape.schematic.internal.document.CompactJsonWriter;
 import org.modeshape.schematic.internal.document.JsonReader;
+import org.modeshape.schematic.internal.document.JsonStreamReader;
+import org.modeshape.schematic.internal.document.JsonStreamWriter;
 import org.modeshape.schematic.internal.document.JsonWriter;
 import org.modeshape.schematic.internal.document.PrettyJsonWriter;
 
@@ -295,6 +298,42 @@ public class Json {
         return SHARED_READER.readMultiple(reader);
     }
 
+    /**
+     * Return a streaming reader that pulls the tokens or documents from the supplied UTF-8 encoded stream, without introspecting
+     * the string values. The reader is also a {@link DocumentSequence}, and it should be closed when it is no longer needed.
+     * 
+     * @param stream the input stream; may not be null
+     * @return the streaming reader; never null
+     */
+    public static JsonStreamReader createStreamReader( InputStream stream ) {
+        return new JsonStreamReader(stream);
+    }
+
+    /**
+     * Return a streaming reader that pulls the tokens or documents from the supplied UTF-8 encoded stream. The reader is also a
+     * {@link DocumentSequence}, and it should be closed when it is no longer needed.
+     * 
+     * @param stream the input stream; may not be null
+     * @param introspectedFields the predicate that determines the names of the fields whose string values are examined for common
+     *        date patterns; may be null if no values are to be introspected
+     * @return the streaming reader; never null
+     */
+    public static JsonStreamReader createStreamReader( InputStream stream,
+                                                       Predicate<String> introspectedFields ) {
+        return new JsonStreamReader(stream, introspectedFields);
+    }
+
+    /**
+     * Return a streaming writer that encodes compact JSON directly into the supplied stream using UTF-8. The writer buffers its
+     * output, so it must be flushed or closed when the documents have been written.
+     * 
+     * @param stream the output stream; may not be null
+     * @return the streaming writer; never null
+     */
+    public static JsonStreamWriter createStreamWriter( OutputStream stream ) {
+        return new JsonStreamWriter(stream);
+    }
+
     /**
      * Return the modified JSON representation for the supplied in-memory {@link Document}. The resulting JSON will have no
      * embedded line feeds or extra spaces.
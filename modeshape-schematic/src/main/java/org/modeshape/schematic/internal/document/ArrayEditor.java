@@ -365,6 +365,7 @@ public class ArrayEditor implements EditableArray {
     @Override
     public EditableDocument setDocument( String name,
                                          Document document ) {
+        document = Utility.unwrap(document);
         setValue(name, document);
         return editable(document, indexFrom(name));
     }
@@ -478,6 +479,7 @@ public class ArrayEditor implements EditableArray {
                                      String code,
                                      Document scope ) {
         if (scope != null) {
+            scope = Utility.unwrap(scope);
             setValue(name, factory.createCode(code, scope));
             return editable(scope, indexFrom(name));
         }
@@ -593,6 +595,11 @@ public class ArrayEditor implements EditableArray {
         if (doc instanceof MutableArray) {
             return createEditableArray((MutableArray)doc, index, factory);
         }
+        if (doc instanceof BsonDocumentView) {
+            // views can't be changed, so replace the view with a mutable copy ...
+            doc = doc.clone();
+            array.setValue(index, doc);
+        }
         assert doc instanceof MutableDocument;
         return createEditableDocument((MutableDocument)doc, index, factory);
     }
@@ -812,7 +819,7 @@ public class ArrayEditor implements EditableArray {
     @Override
     public EditableDocument setDocument( int index,
                                          Document document ) {
-        if (document instanceof DocumentEditor) document = ((DocumentEditor)document).unwrap();
+        document = Utility.unwrap(document);
         setValue(index, document);
         return editable(document, index);
     }
@@ -921,6 +928,7 @@ public class ArrayEditor implements EditableArray {
                                      String code,
                                      Document scope ) {
         if (scope != null) {
+            scope = Utility.unwrap(scope);
             setValue(index, factory.createCode(code, scope));
             return editable(scope, index);
         }
@@ -979,7 +987,7 @@ public class ArrayEditor implements EditableArray {
     @Override
     public EditableDocument addDocument( int index,
                                          Document document ) {
-        if (document instanceof DocumentEditor) document = ((DocumentEditor)document).unwrap();
+        document = Utility.unwrap(document);
         addValue(index, document);
         return editable(document, index);
     }
@@ -1088,6 +1096,7 @@ public class ArrayEditor implements EditableArray {
                                      String code,
                                      Document scope ) {
         if (scope != null) {
+            scope = Utility.unwrap(scope);
             addValue(index, factory.createCode(code, scope));
             return editable(scope, index);
         }
@@ -1138,7 +1147,7 @@ public class ArrayEditor implements EditableArray {
 
     @Override
     public EditableDocument addDocument( Document document ) {
-        if (document instanceof DocumentEditor) document = ((DocumentEditor)document).unwrap();
+        document = Utility.unwrap(document);
         addValue(document);
         return editable(document, size());
     }
@@ -1232,6 +1241,7 @@ public class ArrayEditor implements EditableArray {
     public EditableDocument addCode( String code,
                                      Document scope ) {
         if (scope != null) {
+            scope = Utility.unwrap(scope);
             addValue(factory.createCode(code, scope));
             return editable(scope, size());
         }
@@ -1275,7 +1285,7 @@ public class ArrayEditor implements EditableArray {
 
     @Override
     public EditableDocument addDocumentIfAbsent( Document document ) {
-        if (document instanceof DocumentEditor) document = ((DocumentEditor)document).unwrap();
+        document = Utility.unwrap(document);
         return doAddValueIfAbsent(document) ? editable(document, size()) : null;
     }
 
@@ -1349,6 +1359,7 @@ public class ArrayEditor implements EditableArray {
     public EditableDocument addCodeIfAbsent( String code,
                                              Document scope ) {
         if (scope != null) {
+            scope = Utility.unwrap(scope);
             return doAddValueIfAbsent(factory.createCode(code, scope)) ? editable(scope, size()) : null;
         }
         return addValueIfAbsent(factory.createCode(code));
@@ -0,0 +1,676 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.modeshape.schematic.annotation.ThreadSafe;
+import org.modeshape.schematic.document.Array;
+import org.modeshape.schematic.document.Binary;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Code;
+import org.modeshape.schematic.document.CodeWithScope;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableDocument;
+import org.modeshape.schematic.document.Editor;
+import org.modeshape.schematic.document.Json;
+import org.modeshape.schematic.document.MaxKey;
+import org.modeshape.schematic.document.MinKey;
+import org.modeshape.schematic.document.Null;
+import org.modeshape.schematic.document.ObjectId;
+import org.modeshape.schematic.document.Symbol;
+import org.modeshape.schematic.internal.io.BsonDataInput;
+
+/**
+ * A read-only {@link Document} which is backed directly by the BSON representation of a document held in a {@link ByteBuffer}.
+ * Nothing is decoded when the view is created: the fields are located the first time any of them is accessed, and each value is
+ * decoded only when it is first read. Nested documents are themselves views over the same bytes, while arrays are decoded as a
+ * whole when they are accessed.
+ * <p>
+ * A view can never be changed. Its {@link #clone()}, {@link #editable()} and {@link #edit(boolean)} methods return a mutable
+ * copy of the whole document, and editors always copy a view before changing a document into which it is set. The bytes must
+ * not be changed while the view is in use.
+ * </p>
+ */
+@ThreadSafe
+public final class BsonDocumentView implements Document {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The smallest valid BSON document: the length and the terminating zero byte.
+     */
+    private static final int MIN_LENGTH = 5;
+
+    private final transient ByteBuffer buffer;
+    private transient volatile Map<String, Element> elements;
+
+    /**
+     * Create a view of the BSON document which starts at the current position of the supplied buffer. The position of the
+     * supplied buffer is not changed.
+     *
+     * @param buffer the buffer containing the BSON representation of the document; may not be null
+     * @throws IllegalArgumentException if the buffer does not contain a complete BSON document
+     */
+    public BsonDocumentView( ByteBuffer buffer ) {
+        ByteBuffer bytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.remaining() < MIN_LENGTH) {
+            throw new IllegalArgumentException("The buffer does not contain a BSON document");
+        }
+        int length = bytes.getInt(0);
+        if (length < MIN_LENGTH || length > bytes.remaining()) {
+            throw new IllegalArgumentException("Invalid BSON document length " + length + " for a buffer with "
+                                               + bytes.remaining() + " bytes remaining");
+        }
+        bytes.limit(length);
+        this.buffer = bytes;
+    }
+
+    /**
+     * Read the BSON representation of a single document from the supplied stream and create a view over it. Only the bytes of
+     * the document are read from the stream, and they are read into a single array of the exact size of the document.
+     *
+     * @param stream the stream; may not be null
+     * @return the view over the document; never null
+     * @throws IOException if there was a problem reading from the stream or if the stream does not contain a BSON document
+     */
+    public static BsonDocumentView read( InputStream stream ) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        byte[] prefix = new byte[4];
+        input.readFully(prefix);
+        int length = (prefix[3] & 0xFF) << 24 | (prefix[2] & 0xFF) << 16 | (prefix[1] & 0xFF) << 8 | (prefix[0] & 0xFF);
+        if (length < MIN_LENGTH) {
+            throw new IOException("Invalid BSON document length " + length);
+        }
+        byte[] bytes = new byte[length];
+        System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+        input.readFully(bytes, prefix.length, length - prefix.length);
+        return new BsonDocumentView(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Get the number of bytes in the BSON representation of this document.
+     *
+     * @return the number of bytes
+     */
+    public int byteLength() {
+        return buffer.limit();
+    }
+
+    private Map<String, Element> elements() {
+        Map<String, Element> result = elements;
+        if (result == null) {
+            // Concurrent readers may both build the index, but they'll build identical ones ...
+            result = new LinkedHashMap<>();
+            int end = buffer.limit() - 1; // the last byte is the document's terminator
+            int offset = 4;
+            while (offset < end) {
+                byte type = buffer.get(offset);
+                if (type == Bson.END_OF_DOCUMENT) break;
+                int nameEnd = terminatorAfter(offset + 1);
+                String name = readUtf8(offset + 1, nameEnd - offset - 1);
+                int valueOffset = nameEnd + 1;
+                result.put(name, new Element(type, offset + 1, valueOffset));
+                offset = valueOffset + valueLength(type, valueOffset);
+            }
+            elements = result;
+        }
+        return result;
+    }
+
+    private int valueLength( byte type,
+                             int offset ) {
+        switch (type) {
+            case Bson.Type.DOUBLE:
+            case Bson.Type.DATETIME:
+            case Bson.Type.TIMESTAMP:
+            case Bson.Type.INT64:
+                return 8;
+            case Bson.Type.INT32:
+                return 4;
+            case Bson.Type.BOOLEAN:
+                return 1;
+            case Bson.Type.OBJECTID:
+                return 12;
+            case Bson.Type.NULL:
+            case Bson.Type.UNDEFINED:
+            case Bson.Type.MAXKEY:
+            case Bson.Type.MINKEY:
+                return 0;
+            case Bson.Type.STRING:
+            case Bson.Type.JAVASCRIPT:
+            case Bson.Type.SYMBOL:
+                return 4 + buffer.getInt(offset);
+            case Bson.Type.DOCUMENT:
+            case Bson.Type.ARRAY:
+            case Bson.Type.JAVASCRIPT_WITH_SCOPE:
+                return buffer.getInt(offset);
+            case Bson.Type.BINARY:
+                return 5 + buffer.getInt(offset); // the length, the subtype and the bytes
+            case Bson.Type.REGEX:
+                return terminatorAfter(terminatorAfter(offset) + 1) + 1 - offset;
+            case Bson.Type.DBPOINTER:
+                return 4 + buffer.getInt(offset) + 12;
+            default:
+                throw new IllegalStateException("Unexpected BSON type 0x" + Integer.toHexString(type & 0xFF) + " at offset "
+                                                + offset);
+        }
+    }
+
+    private int terminatorAfter( int offset ) {
+        int end = buffer.limit();
+        for (int i = offset; i < end; ++i) {
+            if (buffer.get(i) == Bson.END_OF_STRING) return i;
+        }
+        throw new IllegalStateException("Unterminated BSON string at offset " + offset);
+    }
+
+    private String readUtf8( int offset,
+                             int length ) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Object valueOf( String name,
+                            Element element ) {
+        Object value = element.value;
+        if (value == Element.UNDECODED) {
+            // Concurrent readers may both decode the value, but they'll decode equal values ...
+            value = decode(name, element);
+            element.value = value;
+        }
+        return value;
+    }
+
+    private Object decode( String name,
+                           Element element ) {
+        int offset = element.valueOffset;
+        DocumentValueFactory values = BsonReader.VALUE_FACTORY;
+        switch (element.type) {
+            case Bson.Type.STRING:
+            case Bson.Type.SYMBOL:
+                // the length includes the zero-byte terminator ...
+                return values.createString(readUtf8(offset + 4, buffer.getInt(offset) - 1));
+            case Bson.Type.INT32:
+                return values.createInt(buffer.getInt(offset));
+            case Bson.Type.INT64:
+                return values.createLong(buffer.getLong(offset));
+            case Bson.Type.DOUBLE:
+                return values.createDouble(buffer.getDouble(offset));
+            case Bson.Type.BOOLEAN:
+                return values.createBoolean(buffer.get(offset) != 0);
+            case Bson.Type.DATETIME:
+                return values.createDate(buffer.getLong(offset));
+            case Bson.Type.NULL:
+                return values.createNull();
+            case Bson.Type.DOCUMENT:
+                ByteBuffer nested = buffer.duplicate();
+                nested.position(offset);
+                return new BsonDocumentView(nested);
+            default:
+                // Decode every other kind of value exactly as the reader would ...
+                ByteBuffer bytes = buffer.duplicate();
+                bytes.position(element.nameOffset);
+                BsonDataInput input = new BsonDataInput(new DataInputStream(new ByteBufferInputStream(bytes)));
+                BsonReader.Reader reader = new BsonReader.Reader(input, values);
+                BasicDocument result = new BasicDocument(1);
+                try {
+                    reader.readElement(element.type, result);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to read the BSON value of the '" + name + "' field", e);
+                }
+                return result.get(name);
+        }
+    }
+
+    @Override
+    public Object get( String name ) {
+        Element element = elements().get(name);
+        return element != null ? valueOf(name, element) : null;
+    }
+
+    @Override
+    public Boolean getBoolean( String name ) {
+        Object value = get(name);
+        return (value instanceof Boolean) ? (Boolean)value : null;
+    }
+
+    @Override
+    public boolean getBoolean( String name,
+                               boolean defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Boolean) ? ((Boolean)value).booleanValue() : defaultValue;
+    }
+
+    @Override
+    public Integer getInteger( String name ) {
+        Object value = get(name);
+        return (value instanceof Integer) ? (Integer)value : null;
+    }
+
+    @Override
+    public int getInteger( String name,
+                           int defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Integer) ? ((Integer)value).intValue() : defaultValue;
+    }
+
+    @Override
+    public Long getLong( String name ) {
+        Object value = get(name);
+        if (value instanceof Long) return (Long)value;
+        if (value instanceof Integer) return ((Integer)value).longValue();
+        return null;
+    }
+
+    @Override
+    public long getLong( String name,
+                         long defaultValue ) {
+        Object value = get(name);
+        if (value instanceof Long) return ((Long)value).longValue();
+        if (value instanceof Integer) return ((Integer)value).longValue();
+        return defaultValue;
+    }
+
+    @Override
+    public Double getDouble( String name ) {
+        Object value = get(name);
+        return (value instanceof Double) ? (Double)value : null;
+    }
+
+    @Override
+    public double getDouble( String name,
+                             double defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Double) ? ((Double)value).doubleValue() : defaultValue;
+    }
+
+    @Override
+    public Number getNumber( String name ) {
+        Object value = get(name);
+        return (value instanceof Number) ? (Number)value : null;
+    }
+
+    @Override
+    public Number getNumber( String name,
+                             Number defaultValue ) {
+        Object value = get(name);
+        return (value instanceof Number) ? (Number)value : defaultValue;
+    }
+
+    @Override
+    public String getString( String name ) {
+        return getString(name, null);
+    }
+
+    @Override
+    public String getString( String name,
+                             String defaultValue ) {
+        Object value = get(name);
+        if (value != null) {
+            if (value instanceof String) {
+                return (String)value;
+            }
+            if (value instanceof Symbol) {
+                return ((Symbol)value).getSymbol();
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public List<?> getArray( String name ) {
+        Object value = get(name);
+        return (value instanceof List) ? (List<?>)value : null;
+    }
+
+    @Override
+    public Document getDocument( String name ) {
+        Object value = get(name);
+        return (value instanceof Document) ? (Document)value : null;
+    }
+
+    @Override
+    public boolean isNull( String name ) {
+        Element element = elements().get(name);
+        return element != null && element.type == Bson.Type.NULL;
+    }
+
+    @Override
+    public boolean isNullOrMissing( String name ) {
+        return Null.matches(get(name));
+    }
+
+    @Override
+    public MaxKey getMaxKey( String name ) {
+        Object value = get(name);
+        return (value instanceof MaxKey) ? (MaxKey)value : null;
+    }
+
+    @Override
+    public MinKey getMinKey( String name ) {
+        Object value = get(name);
+        return (value instanceof MinKey) ? (MinKey)value : null;
+    }
+
+    @Override
+    public Code getCode( String name ) {
+        Object value = get(name);
+        return (value instanceof Code) ? (Code)value : null;
+    }
+
+    @Override
+    public CodeWithScope getCodeWithScope( String name ) {
+        Object value = get(name);
+        return (value instanceof CodeWithScope) ? (CodeWithScope)value : null;
+    }
+
+    @Override
+    public ObjectId getObjectId( String name ) {
+        Object value = get(name);
+        return (value instanceof ObjectId) ? (ObjectId)value : null;
+    }
+
+    @Override
+    public Binary getBinary( String name ) {
+        Object value = get(name);
+        return (value instanceof Binary) ? (Binary)value : null;
+    }
+
+    @Override
+    public Symbol getSymbol( String name ) {
+        Object value = get(name);
+        if (value != null) {
+            if (value instanceof Symbol) {
+                return (Symbol)value;
+            }
+            if (value instanceof String) {
+                return new Symbol((String)value);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Pattern getPattern( String name ) {
+        Object value = get(name);
+        return (value instanceof Pattern) ? (Pattern)value : null;
+    }
+
+    @Override
+    public UUID getUuid( String name ) {
+        return getUuid(name, null);
+    }
+
+    @Override
+    public UUID getUuid( String name,
+                         UUID defaultValue ) {
+        Object value = get(name);
+        if (value != null) {
+            if (value instanceof UUID) {
+                return (UUID)value;
+            }
+            if (value instanceof String) {
+                try {
+                    return UUID.fromString((String)value);
+                } catch (IllegalArgumentException e) {
+                    // do nothing ...
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public int getType( String name ) {
+        return Bson.getTypeForValue(get(name));
+    }
+
+    @Override
+    public Map<String, ?> toMap() {
+        return Collections.unmodifiableMap(copy());
+    }
+
+    @Override
+    public Iterable<Field> fields() {
+        return () -> {
+            final Iterator<Map.Entry<String, Element>> iter = elements().entrySet().iterator();
+            return new Iterator<Field>() {
+                @Override
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public Field next() {
+                    Map.Entry<String, Element> entry = iter.next();
+                    return new ImmutableField(entry.getKey(), valueOf(entry.getKey(), entry.getValue()));
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        };
+    }
+
+    @Override
+    public boolean containsField( String name ) {
+        return elements().containsKey(name);
+    }
+
+    @Override
+    public boolean containsAll( Document document ) {
+        if (document == null) {
+            return true;
+        }
+        for (Field field : document.fields()) {
+            Object thisValue = this.get(field.getName());
+            Object thatValue = field.getValue();
+            if (!BsonUtils.valuesAreEqual(thisValue, thatValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(elements().keySet());
+    }
+
+    @Override
+    public int size() {
+        return elements().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements().isEmpty();
+    }
+
+    @Override
+    public MutableDocument clone() {
+        return copy();
+    }
+
+    private BasicDocument copy() {
+        BasicDocument clone = new BasicDocument(size());
+        for (Field field : this.fields()) {
+            Object value = field.getValue();
+            if (value instanceof Array) {
+                value = ((Array)value).clone();
+            } else if (value instanceof Document) {
+                value = ((Document)value).clone();
+            }// every other kind of value is immutable
+            clone.put(field.getName(), value);
+        }
+        return clone;
+    }
+
+    @Override
+    public Document with( Map<String, Object> changedFields ) {
+        return clone().with(changedFields);
+    }
+
+    @Override
+    public Document with( String fieldName,
+                          Object newValue ) {
+        return clone().with(fieldName, newValue);
+    }
+
+    @Override
+    public Document with( ValueTransformer transformer ) {
+        Document copy = clone();
+        Document transformed = copy.with(transformer);
+        return transformed != copy ? transformed : this;
+    }
+
+    @Override
+    public Document withVariablesReplaced( Properties properties ) {
+        return clone().withVariablesReplaced(properties);
+    }
+
+    @Override
+    public Document withVariablesReplacedWithSystemProperties() {
+        return clone().withVariablesReplacedWithSystemProperties();
+    }
+
+    @Override
+    public EditableDocument editable() {
+        return new DocumentEditor(clone());
+    }
+
+    @Override
+    public Editor edit( boolean clone ) {
+        // a view can never be edited in place ...
+        return clone().edit(false);
+    }
+
+    @Override
+    public int hashCode() {
+        // the same as the hash code of an equivalent BasicDocument ...
+        int hashCode = 0;
+        for (Field field : fields()) {
+            Object value = field.getValue();
+            hashCode += field.getName().hashCode() ^ (value != null ? value.hashCode() : 0);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals( Object obj ) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof Iterable) {
+            // Probably an array
+            return false;
+        }
+        if (obj instanceof Document) {
+            Document that = (Document)obj;
+            if (this.size() != that.size()) {
+                return false;
+            }
+            for (Field thisField : fields()) {
+                Object thisValue = thisField.getValue();
+                Object thatValue = that.get(thisField.getName());
+                if (!BsonUtils.valuesAreEqual(thisValue, thatValue)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return Json.write(this);
+    }
+
+    private Object writeReplace() {
+        // the buffer can't be serialized, so serialize a copy of the document instead ...
+        return clone();
+    }
+
+    /**
+     * The location of a field within the BSON bytes, along with its value once it has been decoded.
+     */
+    private static final class Element {
+        private static final Object UNDECODED = new Object();
+
+        private final byte type;
+        private final int nameOffset;
+        private final int valueOffset;
+        private volatile Object value = UNDECODED;
+
+        protected Element( byte type,
+                           int nameOffset,
+                           int valueOffset ) {
+            this.type = type;
+            this.nameOffset = nameOffset;
+            this.valueOffset = valueOffset;
+        }
+    }
+
+    /**
+     * An input stream over the remaining bytes of a buffer, used to decode the less common values with a {@link BsonReader}.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        protected ByteBufferInputStream( ByteBuffer buffer ) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read( byte[] b,
+                         int off,
+                         int len ) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+    }
+}
@@ -87,7 +87,7 @@ public class CompactJsonWriter implements JsonWriter {
             write(((DocumentEditor)object).unwrap(), writer);
         } else if (object instanceof Iterable) { // must check before 'BsonObject' because of inheritance
             write((Iterable<?>)object, writer);
-        } else if (object instanceof Map) {
+        } else if (object instanceof Map || object instanceof Document) {
             write((Document)object, writer);
         } else if (object instanceof Binary) {
             write((Binary)object, writer);
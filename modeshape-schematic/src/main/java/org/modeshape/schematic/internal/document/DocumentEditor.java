@@ -417,7 +417,7 @@ public class DocumentEditor implements EditableDocument {
     @Override
     public EditableDocument setDocument( String name,
                                          Document document ) {
-        if (document instanceof DocumentEditor) document = ((DocumentEditor)document).asMutableDocument();
+        document = Utility.unwrap(document);
         doSetValue(name, document);
         return editable(document, name);
     }
@@ -545,6 +545,7 @@ public class DocumentEditor implements EditableDocument {
                                      String code,
                                      Document scope ) {
         if (scope != null) {
+            scope = Utility.unwrap(scope);
             doSetValue(name, factory.createCode(code, scope));
             return editable(scope, name);
         }
@@ -620,6 +621,11 @@ public class DocumentEditor implements EditableDocument {
         if (doc instanceof MutableArray) {
             return createEditableArray((MutableArray)doc, fieldName, factory);
         }
+        if (doc instanceof BsonDocumentView) {
+            // views can't be changed, so replace the view with a mutable copy ...
+            doc = doc.clone();
+            document.put(fieldName, doc);
+        }
         assert doc instanceof MutableDocument;
         return createEditableDocument((MutableDocument)doc, fieldName, factory);
     }
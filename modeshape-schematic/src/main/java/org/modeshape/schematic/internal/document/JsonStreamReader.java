@@ -0,0 +1,735 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.util.function.Predicate;
+import org.modeshape.schematic.annotation.NotThreadSafe;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.DocumentSequence;
+import org.modeshape.schematic.document.Null;
+import org.modeshape.schematic.document.ParsingException;
+
+/**
+ * A pull-based reader of <a href="http://www.json.org/">JSON</a> content, which decodes UTF-8 bytes directly into
+ * {@link Token tokens} without creating intermediate {@link String} instances for the tokens that are not asked for. Callers
+ * can either walk the tokens with {@link #next()} and the typed accessors, or materialize whole {@link Document}s with
+ * {@link #readDocument()} and {@link #nextDocument()}.
+ * <p>
+ * The documents produced by this reader are the same as those produced by {@link JsonReader}, including the conversion of the
+ * extended JSON forms (e.g., <code>{ "$date" : ... }</code>) written by {@link CompactJsonWriter}. The date introspection of
+ * string values is optional and is done only for the fields accepted by the predicate supplied to the constructor. Function
+ * calls such as <code>new Date(...)</code> are not supported; use {@link JsonReader} for such content.
+ * </p>
+ */
+@NotThreadSafe
+public class JsonStreamReader implements DocumentSequence, Closeable {
+
+    /**
+     * The kinds of tokens returned by {@link JsonStreamReader#next()}.
+     */
+    public static enum Token {
+        START_DOCUMENT,
+        END_DOCUMENT,
+        START_ARRAY,
+        END_ARRAY,
+        FIELD_NAME,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_OF_INPUT
+    }
+
+    /**
+     * The predicate that introspects none of the string values.
+     */
+    public static final Predicate<String> NO_FIELDS = name -> false;
+
+    /**
+     * The predicate that introspects all of the string values.
+     */
+    public static final Predicate<String> ALL_FIELDS = name -> true;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int NAME_CACHE_SIZE = 512;
+    private static final int MAX_CACHED_NAME_LENGTH = 64;
+
+    private static final byte IN_DOCUMENT = 1;
+    private static final byte IN_ARRAY = 2;
+
+    private static final int INT_NUMBER = 1;
+    private static final int LONG_NUMBER = 2;
+    private static final int DOUBLE_NUMBER = 3;
+
+    /**
+     * The parser is used only to convert documents with reserved field names, which doesn't use the tokenizer.
+     */
+    private static final JsonReader.Parser EXTENDED_VALUES = new JsonReader.Parser(null, JsonReader.VALUE_FACTORY,
+                                                                                   JsonReader.SIMPLE_VALUE_MATCHER);
+
+    private final InputStream stream;
+    private final byte[] buffer;
+    private final Predicate<String> introspectedFields;
+    private final String[] names = new String[NAME_CACHE_SIZE];
+    private int position;
+    private int limit;
+    /** The offset of the first byte in the buffer from the beginning of the content */
+    private long bufferStart;
+    private long lineStart;
+    private int lineNumber = 1;
+
+    private byte[] containers = new byte[16];
+    private int depth;
+    private boolean afterName;
+    private boolean afterValue;
+
+    private Token current;
+    private String fieldName;
+    private char[] chars = new char[128];
+    private int charCount;
+    private int numberType;
+    private long longValue;
+    private double doubleValue;
+    private boolean booleanValue;
+
+    /**
+     * Create a reader of the UTF-8 encoded JSON content in the supplied stream, which does not introspect the string values.
+     *
+     * @param stream the stream; may not be null
+     */
+    public JsonStreamReader( InputStream stream ) {
+        this(stream, NO_FIELDS);
+    }
+
+    /**
+     * Create a reader of the UTF-8 encoded JSON content in the supplied stream.
+     *
+     * @param stream the stream; may not be null
+     * @param introspectedFields the predicate that determines the names of the fields whose string values are examined for
+     *        common date patterns; may be null if no values are to be introspected
+     */
+    public JsonStreamReader( InputStream stream,
+                             Predicate<String> introspectedFields ) {
+        assert stream != null;
+        this.stream = stream;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.introspectedFields = introspectedFields != null ? introspectedFields : NO_FIELDS;
+    }
+
+    /**
+     * Create a reader of the UTF-8 encoded JSON content in the supplied range of bytes. The bytes are not copied and must not be
+     * modified while they are being read.
+     *
+     * @param content the content; may not be null
+     * @param offset the offset of the first byte of the content
+     * @param length the number of bytes of content
+     * @param introspectedFields the predicate that determines the names of the fields whose string values are examined for
+     *        common date patterns; may be null if no values are to be introspected
+     */
+    public JsonStreamReader( byte[] content,
+                             int offset,
+                             int length,
+                             Predicate<String> introspectedFields ) {
+        if (offset < 0 || length < 0 || offset + length > content.length) {
+            throw new IndexOutOfBoundsException("Invalid offset " + offset + " and length " + length);
+        }
+        this.stream = null;
+        this.buffer = content;
+        this.position = offset;
+        this.limit = offset + length;
+        this.bufferStart = -offset;
+        this.introspectedFields = introspectedFields != null ? introspectedFields : NO_FIELDS;
+    }
+
+    /**
+     * Advance to the next token.
+     *
+     * @return the next token; never null, and {@link Token#END_OF_INPUT} when there is no more content
+     * @throws ParsingException if the content is not valid JSON or could not be read
+     */
+    public Token next() throws ParsingException {
+        int c = skipWhitespace();
+        if (depth == 0) {
+            afterValue = false;
+            if (c == -1) return current = Token.END_OF_INPUT;
+            return current = valueToken(c);
+        }
+        if (containers[depth - 1] == IN_DOCUMENT) {
+            if (afterName) {
+                afterName = false;
+                return current = valueToken(c);
+            }
+            if (c == '}') {
+                ++position;
+                return current = pop(Token.END_DOCUMENT);
+            }
+            if (afterValue) {
+                if (c != ',') throw error("Expected ',' or '}'");
+                ++position;
+                c = skipWhitespace();
+                if (c == '}') {
+                    ++position;
+                    return current = pop(Token.END_DOCUMENT);
+                }
+            }
+            if (c != '"' && c != '\'') throw error(c == -1 ? "Unexpected end of the content" : "Expected a field name");
+            ++position;
+            readString((byte)c);
+            fieldName = name();
+            if (skipWhitespace() != ':') throw error("Expected ':' after the field name \"" + fieldName + "\"");
+            ++position;
+            afterName = true;
+            afterValue = false;
+            return current = Token.FIELD_NAME;
+        }
+        if (c == ']') {
+            ++position;
+            return current = pop(Token.END_ARRAY);
+        }
+        if (afterValue) {
+            if (c != ',') throw error("Expected ',' or ']'");
+            ++position;
+            c = skipWhitespace();
+            if (c == ']') {
+                ++position;
+                return current = pop(Token.END_ARRAY);
+            }
+        }
+        return current = valueToken(c);
+    }
+
+    /**
+     * Get the token that was last returned by {@link #next()}.
+     *
+     * @return the current token, or null if {@link #next()} has not been called
+     */
+    public Token current() {
+        return current;
+    }
+
+    /**
+     * Get the name of the field when the current token is {@link Token#FIELD_NAME}. Field names are shared by all documents read
+     * by this reader, so the same instance is returned for each occurrence of a name.
+     *
+     * @return the name of the current (or the last) field
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Get the text of the current {@link Token#STRING} or {@link Token#NUMBER} token.
+     *
+     * @return the text
+     */
+    public String getString() {
+        return new String(chars, 0, charCount);
+    }
+
+    /**
+     * Get the text of the current {@link Token#STRING} or {@link Token#NUMBER} token without copying it. The returned sequence is
+     * valid only until {@link #next()} is called.
+     *
+     * @return the text
+     */
+    public CharSequence getCharacters() {
+        return CharBuffer.wrap(chars, 0, charCount);
+    }
+
+    /**
+     * Get the value of the current {@link Token#NUMBER} token as an int.
+     *
+     * @return the value
+     */
+    public int getInt() {
+        return numberType == DOUBLE_NUMBER ? (int)doubleValue : (int)longValue;
+    }
+
+    /**
+     * Get the value of the current {@link Token#NUMBER} token as a long.
+     *
+     * @return the value
+     */
+    public long getLong() {
+        return numberType == DOUBLE_NUMBER ? (long)doubleValue : longValue;
+    }
+
+    /**
+     * Get the value of the current {@link Token#NUMBER} token as a double.
+     *
+     * @return the value
+     */
+    public double getDouble() {
+        return numberType == DOUBLE_NUMBER ? doubleValue : longValue;
+    }
+
+    /**
+     * Get the value of the current {@link Token#NUMBER} token as the same {@link Integer}, {@link Long} or {@link Double} that
+     * {@link JsonReader#parseNumber(String)} returns.
+     *
+     * @return the value
+     */
+    public Number getNumber() {
+        switch (numberType) {
+            case INT_NUMBER:
+                return JsonReader.VALUE_FACTORY.createInt((int)longValue);
+            case LONG_NUMBER:
+                return JsonReader.VALUE_FACTORY.createLong(longValue);
+            default:
+                return JsonReader.VALUE_FACTORY.createDouble(doubleValue);
+        }
+    }
+
+    /**
+     * Get the value of the current {@link Token#BOOLEAN} token.
+     *
+     * @return the value
+     */
+    public boolean getBoolean() {
+        return booleanValue;
+    }
+
+    /**
+     * Skip the current value. When the current token is {@link Token#FIELD_NAME}, the value of the field is skipped; when it is
+     * {@link Token#START_DOCUMENT} or {@link Token#START_ARRAY}, all tokens up to and including the matching end token are
+     * skipped. Otherwise, this method does nothing.
+     *
+     * @throws ParsingException if the content is not valid JSON or could not be read
+     */
+    public void skipValue() throws ParsingException {
+        if (current == Token.FIELD_NAME) next();
+        if (current == Token.START_DOCUMENT || current == Token.START_ARRAY) {
+            int target = depth - 1;
+            while (depth > target) {
+                if (next() == Token.END_OF_INPUT) throw error("Unexpected end of the content");
+            }
+        }
+    }
+
+    /**
+     * Read the document that begins with the current {@link Token#START_DOCUMENT} token, leaving the reader positioned at the
+     * matching {@link Token#END_DOCUMENT} token.
+     *
+     * @return the document; never null
+     * @throws ParsingException if the content is not valid JSON or could not be read
+     */
+    public Document readDocument() throws ParsingException {
+        if (current != Token.START_DOCUMENT) throw error("JSON documents must begin with a '{' character");
+        return (Document)readFields(false);
+    }
+
+    /**
+     * Read the value that begins with the current token, leaving the reader positioned at the last token of the value. Nested
+     * documents with reserved field names are converted into the corresponding values, just like {@link JsonReader} does.
+     *
+     * @return the value; may be {@link Null#getInstance()} but never null
+     * @throws ParsingException if the content is not valid JSON or could not be read
+     */
+    public Object readValue() throws ParsingException {
+        if (current == Token.FIELD_NAME) {
+            String name = fieldName;
+            next();
+            return readValue(name);
+        }
+        return readValue((String)null);
+    }
+
+    @Override
+    public Document nextDocument() throws ParsingException {
+        Token token = next();
+        if (token == Token.END_OF_INPUT) return null;
+        if (token != Token.START_DOCUMENT) throw error("JSON documents must begin with a '{' character");
+        return (Document)readFields(false);
+    }
+
+    /**
+     * Get the line number of the current position within the content.
+     *
+     * @return the 1-based line number
+     */
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Get the column number of the current position within the content.
+     *
+     * @return the 1-based column number
+     */
+    public int columnNumber() {
+        return (int)(bufferStart + position - lineStart) + 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (stream != null) stream.close();
+    }
+
+    private Object readFields( boolean convertReservedFields ) throws ParsingException {
+        BasicDocument doc = new BasicDocument();
+        boolean hasReservedFieldNames = false;
+        while (next() != Token.END_DOCUMENT) {
+            String name = fieldName;
+            if (!hasReservedFieldNames && name.length() != 0 && name.charAt(0) == '$') hasReservedFieldNames = true;
+            next();
+            doc.put(name, readValue(name));
+        }
+        if (convertReservedFields && hasReservedFieldNames) {
+            return EXTENDED_VALUES.processDocumentWithReservedFieldNames(doc);
+        }
+        return doc;
+    }
+
+    private Object readValue( String name ) throws ParsingException {
+        switch (current) {
+            case START_DOCUMENT:
+                return readFields(true);
+            case START_ARRAY:
+                BasicArray array = new BasicArray();
+                while (next() != Token.END_ARRAY) {
+                    array.addValue(readValue(name));
+                }
+                return array;
+            case STRING:
+                String value = getString();
+                if (name != null && introspectedFields != NO_FIELDS && introspectedFields.test(name)) {
+                    return JsonReader.DATE_VALUE_MATCHER.parseValue(value);
+                }
+                return value;
+            case NUMBER:
+                return getNumber();
+            case BOOLEAN:
+                return JsonReader.VALUE_FACTORY.createBoolean(booleanValue);
+            case NULL:
+                return Null.getInstance();
+            default:
+                throw error("Expected a value but found " + current);
+        }
+    }
+
+    private Token pop( Token token ) {
+        --depth;
+        afterName = false;
+        afterValue = true;
+        return token;
+    }
+
+    private void push( byte container ) {
+        if (depth == containers.length) {
+            byte[] larger = new byte[depth * 2];
+            System.arraycopy(containers, 0, larger, 0, depth);
+            containers = larger;
+        }
+        containers[depth++] = container;
+        afterName = false;
+        afterValue = false;
+    }
+
+    private Token valueToken( int c ) throws ParsingException {
+        switch (c) {
+            case '{':
+                ++position;
+                push(IN_DOCUMENT);
+                return Token.START_DOCUMENT;
+            case '[':
+                ++position;
+                push(IN_ARRAY);
+                return Token.START_ARRAY;
+            case '"':
+            case '\'':
+                ++position;
+                readString((byte)c);
+                afterValue = true;
+                return Token.STRING;
+            case ',':
+            case '}':
+            case ']':
+                // A missing value, which the CompactJsonWriter writes for null values ...
+                if (depth == 0) throw error("Unexpected '" + (char)c + "'");
+                afterValue = true;
+                return Token.NULL;
+            case -1:
+                throw error("Unexpected end of the content");
+            default:
+                afterValue = true;
+                return readLiteral();
+        }
+    }
+
+    /**
+     * Read the unquoted number, boolean, null or other literal value.
+     */
+    private Token readLiteral() throws ParsingException {
+        charCount = 0;
+        int c;
+        while ((c = peek()) != -1) {
+            if (c == ',' || c == '}' || c == ']' || c == ':' || c <= ' ') break;
+            if (c >= 0x80) {
+                // Non-ASCII literals are unusual, but they're decoded like strings ...
+                ++position;
+                appendMultiByte(c);
+                continue;
+            }
+            ++position;
+            append((char)c);
+        }
+        if (charCount == 0) throw error("Expected a value");
+        char first = chars[0];
+        if ((first >= '0' && first <= '9') || first == '-' || first == '+' || first == '.') {
+            if (parseNumber()) return Token.NUMBER;
+        } else if (isLiteral("true")) {
+            booleanValue = true;
+            return Token.BOOLEAN;
+        } else if (isLiteral("false")) {
+            booleanValue = false;
+            return Token.BOOLEAN;
+        } else if (isLiteral("null")) {
+            return Token.NULL;
+        } else if (isLiteral("new") || isLiteral("date") || getString().toLowerCase().startsWith("date(")) {
+            throw error("Function calls are not supported by the streaming reader");
+        }
+        // Any other literal is kept as is ...
+        return Token.STRING;
+    }
+
+    private boolean isLiteral( String literal ) {
+        if (charCount != literal.length()) return false;
+        for (int i = 0; i != charCount; ++i) {
+            if (Character.toLowerCase(chars[i]) != literal.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parse the literal in the character buffer as a number, accumulating plain integers without creating a string.
+     */
+    private boolean parseNumber() {
+        int i = 0;
+        boolean negative = false;
+        if (chars[0] == '-' || chars[0] == '+') {
+            negative = chars[0] == '-';
+            i = 1;
+        }
+        int digits = charCount - i;
+        if (digits > 0 && digits <= 18) {
+            long value = 0L;
+            for (; i != charCount; ++i) {
+                char c = chars[i];
+                if (c < '0' || c > '9') break;
+                value = value * 10 + (c - '0');
+            }
+            if (i == charCount) {
+                if (negative) value = -value;
+                longValue = value;
+                numberType = value == (int)value ? INT_NUMBER : LONG_NUMBER;
+                return true;
+            }
+        }
+        // Doubles, hexadecimal and very long numbers are handled like the JsonReader does ...
+        Number number = JsonReader.parseNumber(getString());
+        if (number == null) return false;
+        if (number instanceof Double) {
+            numberType = DOUBLE_NUMBER;
+            doubleValue = number.doubleValue();
+        } else {
+            numberType = number instanceof Integer ? INT_NUMBER : LONG_NUMBER;
+            longValue = number.longValue();
+        }
+        return true;
+    }
+
+    /**
+     * Read the remainder of a quoted string into the character buffer. The opening quote has already been consumed.
+     */
+    private void readString( byte quote ) throws ParsingException {
+        charCount = 0;
+        while (true) {
+            int p = position;
+            if (p == limit) {
+                if (!fill()) throw error("Unterminated string");
+                continue;
+            }
+            if (charCount == chars.length) grow(1);
+            // Copy the run of plain ASCII characters without checking the buffers for each character ...
+            int end = p + Math.min(limit - p, chars.length - charCount);
+            byte[] bytes = buffer;
+            char[] dest = chars;
+            int n = charCount;
+            while (p < end) {
+                byte b = bytes[p];
+                if (b == quote || b == '\\' || b < 0) break;
+                dest[n++] = (char)b;
+                ++p;
+            }
+            charCount = n;
+            position = p;
+            if (p == end) continue;
+            byte b = bytes[p];
+            ++position;
+            if (b == quote) return;
+            if (b == '\\') {
+                readEscape();
+            } else {
+                appendMultiByte(b & 0xFF);
+            }
+        }
+    }
+
+    private void readEscape() throws ParsingException {
+        int c = read();
+        switch (c) {
+            case 'b':
+                append('\b');
+                break;
+            case 'f':
+                append('\f');
+                break;
+            case 'n':
+                append('\n');
+                break;
+            case 'r':
+                append('\r');
+                break;
+            case 't':
+                append('\t');
+                break;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i != 4; ++i) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) throw error("Invalid unicode escape sequence");
+                    value = (value << 4) | digit;
+                }
+                append((char)value);
+                break;
+            case -1:
+                throw error("Unterminated string");
+            default:
+                // Includes the quotes, backslash and forward slash ...
+                if (c >= 0x80) {
+                    appendMultiByte(c);
+                } else {
+                    append((char)c);
+                }
+        }
+    }
+
+    /**
+     * Decode the UTF-8 sequence that begins with the supplied lead byte, which has already been consumed.
+     */
+    private void appendMultiByte( int lead ) throws ParsingException {
+        int codePoint;
+        if ((lead & 0xE0) == 0xC0) {
+            codePoint = ((lead & 0x1F) << 6) | continuation();
+        } else if ((lead & 0xF0) == 0xE0) {
+            codePoint = ((lead & 0x0F) << 12) | (continuation() << 6) | continuation();
+        } else if ((lead & 0xF8) == 0xF0) {
+            codePoint = ((lead & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+            append(Character.highSurrogate(codePoint));
+            append(Character.lowSurrogate(codePoint));
+            return;
+        } else {
+            throw error("Invalid UTF-8 byte 0x" + Integer.toHexString(lead));
+        }
+        append((char)codePoint);
+    }
+
+    private int continuation() throws ParsingException {
+        int b = read();
+        if ((b & 0xC0) != 0x80) throw error("Invalid UTF-8 sequence");
+        return b & 0x3F;
+    }
+
+    private String name() {
+        int n = charCount;
+        if (n > MAX_CACHED_NAME_LENGTH) return getString();
+        char[] value = chars;
+        int hash = 0;
+        for (int i = 0; i != n; ++i) {
+            hash = 31 * hash + value[i];
+        }
+        int index = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+        String cached = names[index];
+        if (cached != null && cached.length() == n) {
+            int i = 0;
+            while (i != n && cached.charAt(i) == value[i]) {
+                ++i;
+            }
+            if (i == n) return cached;
+        }
+        return names[index] = getString();
+    }
+
+    private void append( char c ) {
+        if (charCount == chars.length) grow(1);
+        chars[charCount++] = c;
+    }
+
+    private void grow( int needed ) {
+        int capacity = Math.max(chars.length * 2, charCount + needed);
+        char[] larger = new char[capacity];
+        System.arraycopy(chars, 0, larger, 0, charCount);
+        chars = larger;
+    }
+
+    private int skipWhitespace() throws ParsingException {
+        while (true) {
+            if (position == limit && !fill()) return -1;
+            int c = buffer[position] & 0xFF;
+            if (c > ' ') return c;
+            ++position;
+            if (c == '\n') {
+                ++lineNumber;
+                lineStart = bufferStart + position;
+            }
+        }
+    }
+
+    private int peek() throws ParsingException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position] & 0xFF;
+    }
+
+    private int read() throws ParsingException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws ParsingException {
+        if (stream == null) return false;
+        bufferStart += limit;
+        position = 0;
+        limit = 0;
+        try {
+            int n = stream.read(buffer, 0, buffer.length);
+            if (n <= 0) return false;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            throw new ParsingException(e.getMessage(), e, lineNumber, columnNumber());
+        }
+    }
+
+    private ParsingException error( String message ) {
+        int line = lineNumber;
+        int column = columnNumber();
+        return new ParsingException(message + " at line " + line + ", column " + column, line, column);
+    }
+}
@@ -0,0 +1,527 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import static org.modeshape.schematic.document.Json.ReservedField.BASE_64;
+import static org.modeshape.schematic.document.Json.ReservedField.BINARY_TYPE;
+import static org.modeshape.schematic.document.Json.ReservedField.CODE;
+import static org.modeshape.schematic.document.Json.ReservedField.DATE;
+import static org.modeshape.schematic.document.Json.ReservedField.INCREMENT;
+import static org.modeshape.schematic.document.Json.ReservedField.OBJECT_ID;
+import static org.modeshape.schematic.document.Json.ReservedField.REGEX_OPTIONS;
+import static org.modeshape.schematic.document.Json.ReservedField.REGEX_PATTERN;
+import static org.modeshape.schematic.document.Json.ReservedField.SCOPE;
+import static org.modeshape.schematic.document.Json.ReservedField.TIMESTAMP;
+import static org.modeshape.schematic.document.Json.ReservedField.UUID;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.modeshape.schematic.annotation.NotThreadSafe;
+import org.modeshape.schematic.document.Binary;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Code;
+import org.modeshape.schematic.document.CodeWithScope;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.MaxKey;
+import org.modeshape.schematic.document.MinKey;
+import org.modeshape.schematic.document.Null;
+import org.modeshape.schematic.document.ObjectId;
+import org.modeshape.schematic.document.Symbol;
+import org.modeshape.schematic.document.Timestamp;
+
+/**
+ * A push-based writer of compact <a href="http://www.json.org/">JSON</a> content, which encodes the names and values directly
+ * into a buffer of UTF-8 bytes. Callers can either write the structure with {@link #beginDocument()}, {@link #name(String)},
+ * the <code>value(...)</code> methods and {@link #endDocument()}, or write whole documents with {@link #write(Document)}.
+ * <p>
+ * Values that have no JSON equivalent are written in the same extended JSON forms as {@link CompactJsonWriter}, so the output
+ * can be read by both {@link JsonReader} and {@link JsonStreamReader}. Each top-level value is followed by a line feed, so that
+ * multiple documents can be written to the same stream and read back with {@link JsonStreamReader#nextDocument()}.
+ * </p>
+ */
+@NotThreadSafe
+public class JsonStreamWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 8192;
+    /** The maximum number of bytes written for a single character */
+    private static final int MAX_CHAR_BYTES = 6;
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    private static final byte IN_DOCUMENT = 1;
+    private static final byte IN_ARRAY = 2;
+
+    private final OutputStream stream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+
+    private byte[] containers = new byte[16];
+    private boolean[] hasValues = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Create a writer of UTF-8 encoded JSON content to the supplied stream.
+     *
+     * @param stream the stream; may not be null
+     */
+    public JsonStreamWriter( OutputStream stream ) {
+        assert stream != null;
+        this.stream = stream;
+    }
+
+    /**
+     * Begin a document.
+     *
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter beginDocument() throws IOException {
+        beforeValue();
+        writeByte('{');
+        push(IN_DOCUMENT);
+        return this;
+    }
+
+    /**
+     * End the current document.
+     *
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     * @throws IllegalStateException if the current container is not a document or if a field has no value
+     */
+    public JsonStreamWriter endDocument() throws IOException {
+        if (depth == 0 || containers[depth - 1] != IN_DOCUMENT || afterName) {
+            throw new IllegalStateException("There is no document to end");
+        }
+        --depth;
+        writeByte('}');
+        afterValue();
+        return this;
+    }
+
+    /**
+     * Begin an array.
+     *
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        beforeValue();
+        writeByte('[');
+        push(IN_ARRAY);
+        return this;
+    }
+
+    /**
+     * End the current array.
+     *
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     * @throws IllegalStateException if the current container is not an array
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        if (depth == 0 || containers[depth - 1] != IN_ARRAY) {
+            throw new IllegalStateException("There is no array to end");
+        }
+        --depth;
+        writeByte(']');
+        afterValue();
+        return this;
+    }
+
+    /**
+     * Write the name of the next field in the current document.
+     *
+     * @param name the name of the field; may not be null
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     * @throws IllegalStateException if the current container is not a document or if the previous field has no value
+     */
+    public JsonStreamWriter name( String name ) throws IOException {
+        if (depth == 0 || containers[depth - 1] != IN_DOCUMENT || afterName) {
+            throw new IllegalStateException("A field name can only be written within a document");
+        }
+        if (hasValues[depth - 1]) writeByte(',');
+        writeString(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Write a string value.
+     *
+     * @param value the value; may be null
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter value( String value ) throws IOException {
+        if (value == null) return nullValue();
+        beforeValue();
+        writeString(value);
+        afterValue();
+        return this;
+    }
+
+    /**
+     * Write an integer value.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter value( int value ) throws IOException {
+        return value((long)value);
+    }
+
+    /**
+     * Write a long value.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter value( long value ) throws IOException {
+        beforeValue();
+        writeLong(value);
+        afterValue();
+        return this;
+    }
+
+    /**
+     * Write a double value.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter value( double value ) throws IOException {
+        beforeValue();
+        writeAscii(Double.toString(value));
+        afterValue();
+        return this;
+    }
+
+    /**
+     * Write a boolean value.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter value( boolean value ) throws IOException {
+        beforeValue();
+        writeBytes(value ? TRUE : FALSE);
+        afterValue();
+        return this;
+    }
+
+    /**
+     * Write a null value.
+     *
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter nullValue() throws IOException {
+        beforeValue();
+        writeBytes(NULL);
+        afterValue();
+        return this;
+    }
+
+    /**
+     * Write the supplied value, which may be any of the values that can be stored in a {@link Document}.
+     *
+     * @param value the value; may be null
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     * @throws IllegalArgumentException if the value cannot be written as JSON
+     */
+    public JsonStreamWriter value( Object value ) throws IOException {
+        if (value == null || value instanceof Null) {
+            return nullValue();
+        } else if (value instanceof String) {
+            return value((String)value);
+        } else if (value instanceof Boolean) {
+            return value(((Boolean)value).booleanValue());
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(((Number)value).longValue());
+        } else if (value instanceof Float) {
+            beforeValue();
+            writeAscii(Float.toString((Float)value));
+            afterValue();
+            return this;
+        } else if (value instanceof Double) {
+            return value(((Double)value).doubleValue());
+        } else if (value.getClass().isArray()) {
+            beginArray();
+            for (int i = 0, len = Array.getLength(value); i < len; i++) {
+                value(Array.get(value, i));
+            }
+            return endArray();
+        } else if (value instanceof ArrayEditor) {
+            return value(((ArrayEditor)value).unwrap());
+        } else if (value instanceof DocumentEditor) {
+            return write(((DocumentEditor)value).unwrap());
+        } else if (value instanceof Iterable) { // must check before 'Document' because of inheritance
+            beginArray();
+            for (Object element : (Iterable<?>)value) {
+                value(element);
+            }
+            return endArray();
+        } else if (value instanceof Document) {
+            return write((Document)value);
+        } else if (value instanceof Symbol) {
+            return value(((Symbol)value).getSymbol());
+        } else if (value instanceof Date) {
+            return beginDocument().name(DATE).value(Bson.getDateFormatter().format((Date)value)).endDocument();
+        } else if (value instanceof Binary) {
+            Binary binary = (Binary)value;
+            return beginDocument().name(BINARY_TYPE).value(binary.getType()).name(BASE_64).value(binary.getBytesInBase64())
+                                  .endDocument();
+        } else if (value instanceof Pattern) {
+            Pattern pattern = (Pattern)value;
+            beginDocument().name(REGEX_PATTERN).value(pattern.pattern());
+            String options = BsonUtils.regexFlagsFor(pattern);
+            if (options.length() != 0) name(REGEX_OPTIONS).value(options);
+            return endDocument();
+        } else if (value instanceof UUID) {
+            return beginDocument().name(UUID).value(value.toString()).endDocument();
+        } else if (value instanceof CodeWithScope) { // must check before 'Code' because of inheritance
+            CodeWithScope code = (CodeWithScope)value;
+            return beginDocument().name(CODE).value(code.getCode()).name(SCOPE).value(code.getScope()).endDocument();
+        } else if (value instanceof Code) {
+            return beginDocument().name(CODE).value(((Code)value).getCode()).endDocument();
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp)value;
+            return beginDocument().name(TIMESTAMP).value(timestamp.getTime()).name(INCREMENT).value(timestamp.getInc())
+                                  .endDocument();
+        } else if (value instanceof ObjectId) {
+            return beginDocument().name(OBJECT_ID).value(((ObjectId)value).getBytesInBase16()).endDocument();
+        } else if (value instanceof MaxKey) {
+            return value("MaxKey");
+        } else if (value instanceof MinKey) {
+            return value("MinKey");
+        }
+        throw new IllegalArgumentException("Unable to write a value of type " + value.getClass().getName() + " as JSON");
+    }
+
+    /**
+     * Write the supplied document and all of its fields.
+     *
+     * @param document the document; may not be null
+     * @return this writer
+     * @throws IOException if there was a problem writing to the stream
+     */
+    public JsonStreamWriter write( Document document ) throws IOException {
+        beginDocument();
+        for (Document.Field field : document.fields()) {
+            name(field.getName());
+            value(field.getValue());
+        }
+        return endDocument();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        stream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private void push( byte container ) {
+        if (depth == containers.length) {
+            byte[] largerContainers = new byte[depth * 2];
+            System.arraycopy(containers, 0, largerContainers, 0, depth);
+            containers = largerContainers;
+            boolean[] largerHasValues = new boolean[depth * 2];
+            System.arraycopy(hasValues, 0, largerHasValues, 0, depth);
+            hasValues = largerHasValues;
+        }
+        containers[depth] = container;
+        hasValues[depth] = false;
+        ++depth;
+    }
+
+    private void beforeValue() throws IOException {
+        if (depth == 0) return;
+        if (containers[depth - 1] == IN_DOCUMENT) {
+            if (!afterName) throw new IllegalStateException("A field name must be written before each value in a document");
+            afterName = false;
+        } else if (hasValues[depth - 1]) {
+            writeByte(',');
+        }
+    }
+
+    private void afterValue() throws IOException {
+        if (depth == 0) {
+            // Separate the top-level values ...
+            writeByte('\n');
+        } else {
+            hasValues[depth - 1] = true;
+        }
+    }
+
+    private void writeString( String value ) throws IOException {
+        writeByte('"');
+        byte[] bytes = buffer;
+        int n = count;
+        for (int i = 0, len = value.length(); i != len; ++i) {
+            if (n > bytes.length - MAX_CHAR_BYTES) {
+                count = n;
+                flushBuffer();
+                n = 0;
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= ' ' && c != '"' && c != '\\') {
+                    bytes[n++] = (byte)c;
+                    continue;
+                }
+                bytes[n++] = '\\';
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        bytes[n++] = (byte)c;
+                        break;
+                    case '\b':
+                        bytes[n++] = 'b';
+                        break;
+                    case '\f':
+                        bytes[n++] = 'f';
+                        break;
+                    case '\n':
+                        bytes[n++] = 'n';
+                        break;
+                    case '\r':
+                        bytes[n++] = 'r';
+                        break;
+                    case '\t':
+                        bytes[n++] = 't';
+                        break;
+                    default:
+                        n = writeUnicodeEscape(c, n - 1);
+                }
+            } else if (c < 0x800) {
+                bytes[n++] = (byte)(0xC0 | (c >> 6));
+                bytes[n++] = (byte)(0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                char low = i + 1 != len ? value.charAt(i + 1) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                    int codePoint = Character.toCodePoint(c, low);
+                    bytes[n++] = (byte)(0xF0 | (codePoint >> 18));
+                    bytes[n++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[n++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[n++] = (byte)(0x80 | (codePoint & 0x3F));
+                    ++i;
+                } else {
+                    // A lone surrogate can't be encoded as UTF-8, so keep it as an escape ...
+                    n = writeUnicodeEscape(c, n);
+                }
+            } else {
+                bytes[n++] = (byte)(0xE0 | (c >> 12));
+                bytes[n++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                bytes[n++] = (byte)(0x80 | (c & 0x3F));
+            }
+        }
+        count = n;
+        writeByte('"');
+    }
+
+    /**
+     * Write the <code>\\uXXXX</code> escape of the supplied character into the buffer at the supplied position.
+     */
+    private int writeUnicodeEscape( char c,
+                                    int n ) {
+        byte[] bytes = buffer;
+        bytes[n++] = '\\';
+        bytes[n++] = 'u';
+        bytes[n++] = HEX[(c >> 12) & 0xF];
+        bytes[n++] = HEX[(c >> 8) & 0xF];
+        bytes[n++] = HEX[(c >> 4) & 0xF];
+        bytes[n++] = HEX[c & 0xF];
+        return n;
+    }
+
+    private void writeLong( long value ) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        if (count > buffer.length - 20) flushBuffer();
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        // Write the digits backwards from the end of the number ...
+        int end = count + digits(value);
+        int n = end;
+        do {
+            buffer[--n] = (byte)('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        count = end;
+    }
+
+    private static int digits( long value ) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            ++digits;
+        }
+        return digits;
+    }
+
+    private void writeAscii( String value ) throws IOException {
+        for (int i = 0, len = value.length(); i != len; ++i) {
+            writeByte(value.charAt(i));
+        }
+    }
+
+    private void writeBytes( byte[] bytes ) throws IOException {
+        if (count > buffer.length - bytes.length) flushBuffer();
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void writeByte( int b ) throws IOException {
+        if (count == buffer.length) flushBuffer();
+        buffer[count++] = (byte)b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count != 0) {
+            stream.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
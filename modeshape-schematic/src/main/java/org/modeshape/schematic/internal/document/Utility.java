@@ -39,6 +39,10 @@ class Utility {
         if (document instanceof DocumentEditor) {
             return unwrap(((DocumentEditor)document).unwrap());
         }
+        if (document instanceof BsonDocumentView) {
+            // views can't be changed, so a mutable copy is needed wherever a view is set ...
+            return document.clone();
+        }
         return document;
     }
 
@@ -49,6 +53,9 @@ class Utility {
         if (value instanceof ArrayEditor) {
             return unwrap(((ArrayEditor)value).unwrap());
         }
+        if (value instanceof BsonDocumentView) {
+            return ((BsonDocumentView)value).clone();
+        }
         return value;
     }
 
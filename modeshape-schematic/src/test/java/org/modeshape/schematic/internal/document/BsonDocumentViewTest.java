@@ -0,0 +1,211 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.schematic.document.Binary;
+import org.modeshape.schematic.document.Bson;
+import org.modeshape.schematic.document.Code;
+import org.modeshape.schematic.document.CodeWithScope;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.EditableDocument;
+import org.modeshape.schematic.document.Json;
+import org.modeshape.schematic.document.MaxKey;
+import org.modeshape.schematic.document.MinKey;
+import org.modeshape.schematic.document.Null;
+import org.modeshape.schematic.document.ObjectId;
+import org.modeshape.schematic.document.Symbol;
+import org.modeshape.schematic.document.Timestamp;
+
+public class BsonDocumentViewTest {
+
+    private BasicDocument input;
+    private byte[] bytes;
+
+    @Before
+    public void beforeEach() throws Exception {
+        BasicDocument nested = new BasicDocument("name", "nested", "count", 2);
+        nested.put("inner", new BasicDocument("value", 3L));
+        input = new BasicDocument();
+        input.put("string", "Joe \u00e9\u4e2d");
+        input.put("int", 42);
+        input.put("long", 42L);
+        input.put("double", 4.2d);
+        input.put("boolean", true);
+        input.put("date", new Date());
+        input.put("null", Null.getInstance());
+        input.put("nested", nested);
+        input.put("array", new BasicArray(1, "two", new BasicDocument("three", 3)));
+        input.put("binary", new Binary(new byte[] {1, 2, 3, 4}));
+        input.put("uuid", UUID.randomUUID());
+        input.put("objectId", new ObjectId(300, 200, 9, 15));
+        input.put("regex", Pattern.compile("[cb]at\\s*", Pattern.CASE_INSENSITIVE));
+        input.put("symbol", new Symbol("sym"));
+        input.put("timestamp", new Timestamp(100, 2));
+        input.put("code", new Code("function() {}"));
+        input.put("codeWithScope", new CodeWithScope("function() {}", new BasicDocument("x", 1)));
+        input.put("maxKey", MaxKey.getInstance());
+        input.put("minKey", MinKey.getInstance());
+        bytes = Bson.write(input);
+    }
+
+    protected BsonDocumentView view() {
+        return new BsonDocumentView(ByteBuffer.wrap(bytes));
+    }
+
+    protected Document expected() throws Exception {
+        return Bson.read(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void shouldReadTheSameValuesAsTheReader() throws Exception {
+        Document expected = expected();
+        BsonDocumentView view = view();
+        assertThat(view.size(), is(expected.size()));
+        assertThat(view.keySet(), is(expected.keySet()));
+        for (Document.Field field : expected.fields()) {
+            String name = field.getName();
+            assertThat(name, BsonUtils.valuesAreEqual(field.getValue(), view.get(name)), is(true));
+            assertThat(name, view.getType(name), is(expected.getType(name)));
+        }
+        assertThat(view.equals(expected), is(true));
+        assertThat(expected.equals(view), is(true));
+        // patterns don't implement hashCode, so compare the hash codes of the nested documents ...
+        assertThat(view.getDocument("nested").hashCode(), is(expected.getDocument("nested").hashCode()));
+        assertThat(view.toString(), is(Json.write(expected)));
+    }
+
+    @Test
+    public void shouldUseTheTypedGetters() throws Exception {
+        BsonDocumentView view = view();
+        assertThat(view.getString("string"), is("Joe \u00e9\u4e2d"));
+        assertThat(view.getInteger("int"), is(42));
+        assertThat(view.getLong("int"), is(42L));
+        assertThat(view.getLong("long"), is(42L));
+        assertThat(view.getDouble("double"), is(4.2d));
+        assertThat(view.getBoolean("boolean"), is(true));
+        assertThat(view.getString("symbol"), is("sym"));
+        assertThat(view.getUuid("uuid"), is(input.getUuid("uuid")));
+        assertThat(view.isNull("null"), is(true));
+        assertThat(view.isNullOrMissing("missing"), is(true));
+        assertThat(view.containsField("missing"), is(false));
+        assertThat(view.get("missing"), is(nullValue()));
+        assertThat(view.getArray("array").size(), is(3));
+        assertThat(view.getInteger("string", -1), is(-1));
+    }
+
+    @Test
+    public void shouldReturnNestedDocumentsAsViews() throws Exception {
+        BsonDocumentView view = view();
+        Document nested = view.getDocument("nested");
+        assertThat(nested, instanceOf(BsonDocumentView.class));
+        assertThat(nested.getString("name"), is("nested"));
+        assertThat(nested.getDocument("inner").getLong("value"), is(3L));
+        // the value is decoded only once ...
+        assertThat(view.getDocument("nested") == nested, is(true));
+    }
+
+    @Test
+    public void shouldViewDocumentAtThePositionOfTheBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 10);
+        buffer.position(7);
+        buffer.put(bytes);
+        buffer.position(7);
+        BsonDocumentView view = new BsonDocumentView(buffer);
+        assertThat(buffer.position(), is(7));
+        assertThat(view.byteLength(), is(bytes.length));
+        assertThat(view.getString("string"), is("Joe \u00e9\u4e2d"));
+        assertThat(view.getDocument("nested").getInteger("count"), is(2));
+        assertThat(view.equals(expected()), is(true));
+    }
+
+    @Test
+    public void shouldReadOnlyTheDocumentFromTheStream() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(bytes);
+        output.write(Bson.write(new BasicDocument("second", true)));
+        ByteArrayInputStream stream = new ByteArrayInputStream(output.toByteArray());
+        assertThat(Bson.readView(stream).equals(expected()), is(true));
+        assertThat(Bson.readView(stream).getBoolean("second"), is(true));
+        assertThat(stream.available(), is(0));
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldNotViewTruncatedDocument() throws Exception {
+        new BsonDocumentView(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test
+    public void shouldCloneIntoMutableDocument() throws Exception {
+        BsonDocumentView view = view();
+        MutableDocument clone = view.clone();
+        assertThat(clone, instanceOf(BasicDocument.class));
+        assertThat(clone.getDocument("nested"), instanceOf(BasicDocument.class));
+        assertThat(clone.equals(view), is(true));
+        clone.put("string", "changed");
+        ((MutableDocument)clone.getDocument("nested")).put("name", "changed");
+        assertThat(view.getString("string"), is("Joe \u00e9\u4e2d"));
+        assertThat(view.getDocument("nested").getString("name"), is("nested"));
+    }
+
+    @Test
+    public void shouldEditACopyOfTheView() throws Exception {
+        BsonDocumentView view = view();
+        EditableDocument editor = view.editable();
+        editor.setString("string", "changed");
+        editor.getDocument("nested").setNumber("count", 3);
+        assertThat(editor.getString("string"), is("changed"));
+        assertThat(editor.getDocument("nested").getInteger("count"), is(3));
+        assertThat(view.getString("string"), is("Joe \u00e9\u4e2d"));
+        assertThat(view.getDocument("nested").getInteger("count"), is(2));
+
+        Document changed = view.with("int", 43);
+        assertThat(changed.getInteger("int"), is(43));
+        assertThat(view.getInteger("int"), is(42));
+    }
+
+    @Test
+    public void shouldCopyViewsWhichAreSetIntoEditors() throws Exception {
+        BsonDocumentView view = view();
+        EditableDocument editor = new BasicDocument().editable();
+        EditableDocument nested = editor.setDocument("copy", view.getDocument("nested"));
+        nested.setString("name", "changed");
+        editor.getOrCreateArray("array").addDocument(view).setNumber("int", 43);
+        assertThat(editor.getDocument("copy").getString("name"), is("changed"));
+        assertThat(editor.getArray("array").getDocument("0").getInteger("int"), is(43));
+        assertThat(view.getDocument("nested").getString("name"), is("nested"));
+        assertThat(view.getInteger("int"), is(42));
+
+        // a view which ends up within a mutable document is replaced by a copy when it's edited ...
+        BasicDocument doc = new BasicDocument("view", view);
+        doc.editable().getDocument("view").setNumber("int", 44);
+        assertThat(doc.getDocument("view"), instanceOf(BasicDocument.class));
+        assertThat(doc.getDocument("view").getInteger("int"), is(44));
+        assertThat(view.getInteger("int"), is(42));
+    }
+}
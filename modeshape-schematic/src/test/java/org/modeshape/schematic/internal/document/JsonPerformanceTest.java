@@ -25,11 +25,13 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.Json;
 
 @Ignore
 public class JsonPerformanceTest {
@@ -83,6 +85,41 @@ public class JsonPerformanceTest {
         testReadingJsonThenWritingBsonThenReadingBson(getSmallTestData(), 200, false, true);
     }
     
+    @Test
+    public void shouldReadLargeTestDocumentWithoutDateMatchingUsingStreamReader() throws Exception {
+        testReadingJsonWithStreamReader(getLargeTestData(), 200, false, false);
+    }
+
+    @Test
+    public void shouldReadLargeTestDocumentWithDateMatchingUsingStreamReader() throws Exception {
+        testReadingJsonWithStreamReader(getLargeTestData(), 200, false, true);
+    }
+
+    @Test
+    public void shouldReadSmallTestDocumentWithoutDateMatchingUsingStreamReader() throws Exception {
+        testReadingJsonWithStreamReader(getSmallTestData(), 200, false, false);
+    }
+
+    @Test
+    public void shouldWriteLargeTestDocument() throws Exception {
+        testWritingJson(getLargeTestData(), 200);
+    }
+
+    @Test
+    public void shouldWriteLargeTestDocumentUsingStreamWriter() throws Exception {
+        testWritingJsonWithStreamWriter(getLargeTestData(), 200);
+    }
+
+    @Test
+    public void shouldWriteSmallTestDocument() throws Exception {
+        testWritingJson(getSmallTestData(), 200);
+    }
+
+    @Test
+    public void shouldWriteSmallTestDocumentUsingStreamWriter() throws Exception {
+        testWritingJsonWithStreamWriter(getSmallTestData(), 200);
+    }
+
     @Test
     public static String getLargeTestData() throws Exception {
         String result = read("sample-large-performance.json");
@@ -188,6 +225,69 @@ public class JsonPerformanceTest {
         if (error.get() != null) throw error.get();
     }
 
+    protected void testReadingJsonWithStreamReader( final String testData,
+                                                    int numberOfRuns,
+                                                    final boolean getValue,
+                                                    final boolean introspectStringValues ) throws Exception {
+        assertNotNull(testData);
+        final byte[] bytes = testData.getBytes(Json.UTF8);
+        final Predicate<String> introspectedFields = introspectStringValues ? JsonStreamReader.ALL_FIELDS :
+                                                                               JsonStreamReader.NO_FIELDS;
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        final String key = "key";
+        runTest("JsonStreamReader.nextDocument(" + introspectStringValues + ")", numberOfRuns, testData.length(), print,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            InputStream stream = new ByteArrayInputStream(bytes);
+                            Document doc = new JsonStreamReader(stream, introspectedFields).nextDocument();
+                            if (getValue) doc.get(key);
+                        } catch (Exception t) {
+                            error.compareAndSet(null, t);
+                        }
+                    }
+                });
+        if (error.get() != null) throw error.get();
+    }
+
+    protected void testWritingJson( final String testData,
+                                    int numberOfRuns ) throws Exception {
+        final Document doc = new JsonReader().read(testData, false);
+        final CompactJsonWriter writer = new CompactJsonWriter();
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        runTest("CompactJsonWriter.write(Object,OutputStream)", numberOfRuns, testData.length(), print, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writer.write(doc, new ByteArrayOutputStream());
+                } catch (Exception t) {
+                    error.compareAndSet(null, t);
+                }
+            }
+        });
+        if (error.get() != null) throw error.get();
+    }
+
+    protected void testWritingJsonWithStreamWriter( final String testData,
+                                                    int numberOfRuns ) throws Exception {
+        final Document doc = new JsonReader().read(testData, false);
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        runTest("JsonStreamWriter.write(Document)", numberOfRuns, testData.length(), print, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    JsonStreamWriter writer = new JsonStreamWriter(new ByteArrayOutputStream());
+                    writer.write(doc);
+                    writer.flush();
+                } catch (Exception t) {
+                    error.compareAndSet(null, t);
+                }
+            }
+        });
+        if (error.get() != null) throw error.get();
+    }
+
     protected void testReadingJsonWithJsonSimple( final String testData,
                                                   int numberOfRuns,
                                                   final boolean getValue ) throws Exception {
@@ -0,0 +1,189 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.schematic.internal.document;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.schematic.document.Binary;
+import org.modeshape.schematic.document.Code;
+import org.modeshape.schematic.document.CodeWithScope;
+import org.modeshape.schematic.document.Document;
+import org.modeshape.schematic.document.Json;
+import org.modeshape.schematic.document.Null;
+import org.modeshape.schematic.document.ObjectId;
+import org.modeshape.schematic.document.ParsingException;
+import org.modeshape.schematic.document.Timestamp;
+import org.modeshape.schematic.internal.document.JsonStreamReader.Token;
+
+public class JsonStreamReaderTest {
+
+    private BasicDocument input;
+
+    @Before
+    public void beforeEach() throws Exception {
+        input = new BasicDocument();
+        input.put("string", "Joe \u00e9\u4e2d\ud83d\ude00 'single' \"double\" \\ / \n\t\u0001");
+        input.put("int", 42);
+        input.put("long", 1L << 40);
+        input.put("negative", -7);
+        input.put("double", 4.25d);
+        input.put("boolean", true);
+        input.put("date", new Date(1234567890000L));
+        BasicArray array = new BasicArray(1, "two", new BasicDocument("three", 3), new BasicArray());
+        input.put("nested", new BasicDocument("array", array));
+        input.put("binary", new Binary(new byte[] {1, 2, 3, 4}));
+        input.put("uuid", UUID.randomUUID());
+        input.put("objectId", new ObjectId(300, 200, 9, 15));
+        input.put("regex", Pattern.compile("[cb]at\\s*", Pattern.CASE_INSENSITIVE));
+        input.put("timestamp", new Timestamp(100, 2));
+        input.put("code", new Code("function() {}"));
+        input.put("codeWithScope", new CodeWithScope("function() {}", new BasicDocument("x", 1)));
+        input.put("empty", new BasicDocument());
+    }
+
+    protected JsonStreamReader reader( String json ) throws Exception {
+        return new JsonStreamReader(new ByteArrayInputStream(json.getBytes(Json.UTF8)));
+    }
+
+    protected byte[] write( Document... documents ) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonStreamWriter writer = new JsonStreamWriter(output)) {
+            for (Document document : documents) {
+                writer.write(document);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    public void shouldReadTheSameDocumentAsTheJsonReader() throws Exception {
+        String json = Json.write(input);
+        Document expected = Json.read(json);
+        assertThat(reader(json).nextDocument(), is(expected));
+    }
+
+    @Test
+    public void shouldReadWhatTheStreamWriterWrites() throws Exception {
+        Document expected = Json.read(Json.write(input));
+        byte[] bytes = write(input, new BasicDocument("second", 2));
+        JsonStreamReader reader = new JsonStreamReader(new ByteArrayInputStream(bytes));
+        assertThat(reader.nextDocument(), is(expected));
+        assertThat(reader.nextDocument().getInteger("second"), is(2));
+        assertThat(reader.nextDocument(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldWriteWhatTheJsonReaderReads() throws Exception {
+        Document expected = Json.read(Json.write(input));
+        String json = new String(write(input), Json.UTF8);
+        assertThat(json.endsWith("}\n"), is(true));
+        assertThat(Json.read(json), is(expected));
+    }
+
+    @Test
+    public void shouldReadStringsLongerThanTheBuffer() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i != 30000; ++i) {
+            sb.append(i % 7 == 0 ? '\u00e9' : i % 11 == 0 ? '\u4e2d' : (char)('a' + i % 26));
+        }
+        BasicDocument doc = new BasicDocument("value", sb.toString());
+        Document read = new JsonStreamReader(new ByteArrayInputStream(write(doc))).nextDocument();
+        assertThat(read.getString("value"), is(sb.toString()));
+    }
+
+    @Test
+    public void shouldReturnTheTokens() throws Exception {
+        JsonStreamReader reader = reader("{ \"a\" : [1, 2.5, \"x\", true, null, { 'b' : -3 }], \"c\" : 123456789012 }");
+        assertThat(reader.next(), is(Token.START_DOCUMENT));
+        assertThat(reader.next(), is(Token.FIELD_NAME));
+        assertThat(reader.getFieldName(), is("a"));
+        assertThat(reader.next(), is(Token.START_ARRAY));
+        assertThat(reader.next(), is(Token.NUMBER));
+        assertThat(reader.getNumber(), instanceOf(Integer.class));
+        assertThat(reader.getInt(), is(1));
+        assertThat(reader.next(), is(Token.NUMBER));
+        assertThat(reader.getDouble(), is(2.5d));
+        assertThat(reader.next(), is(Token.STRING));
+        assertThat(reader.getCharacters().toString(), is("x"));
+        assertThat(reader.next(), is(Token.BOOLEAN));
+        assertThat(reader.getBoolean(), is(true));
+        assertThat(reader.next(), is(Token.NULL));
+        assertThat(reader.next(), is(Token.START_DOCUMENT));
+        assertThat(reader.next(), is(Token.FIELD_NAME));
+        assertThat(reader.getFieldName(), is("b"));
+        assertThat(reader.next(), is(Token.NUMBER));
+        assertThat(reader.getLong(), is(-3L));
+        assertThat(reader.next(), is(Token.END_DOCUMENT));
+        assertThat(reader.next(), is(Token.END_ARRAY));
+        assertThat(reader.next(), is(Token.FIELD_NAME));
+        assertThat(reader.next(), is(Token.NUMBER));
+        assertThat(reader.getNumber(), instanceOf(Long.class));
+        assertThat(reader.getLong(), is(123456789012L));
+        assertThat(reader.next(), is(Token.END_DOCUMENT));
+        assertThat(reader.next(), is(Token.END_OF_INPUT));
+    }
+
+    @Test
+    public void shouldSkipValues() throws Exception {
+        JsonStreamReader reader = reader("{ \"a\" : { \"x\" : [1, {}] }, \"b\" : 2 }");
+        assertThat(reader.next(), is(Token.START_DOCUMENT));
+        assertThat(reader.next(), is(Token.FIELD_NAME));
+        reader.skipValue();
+        assertThat(reader.next(), is(Token.FIELD_NAME));
+        assertThat(reader.getFieldName(), is("b"));
+        assertThat(reader.readValue(), is((Object)2));
+    }
+
+    @Test
+    public void shouldReadMissingValuesAsNull() throws Exception {
+        // the CompactJsonWriter doesn't write anything for null values ...
+        Document doc = reader(Json.write(new BasicDocument("missing", Null.getInstance(), "after", 1))).nextDocument();
+        assertThat(Null.matches(doc.get("missing")), is(true));
+        assertThat(doc.getInteger("after"), is(1));
+    }
+
+    @Test
+    public void shouldIntrospectOnlyTheSelectedFields() throws Exception {
+        String date = "\"2011-06-11T08:44:25Z\"";
+        String json = "{ \"when\" : " + date + ", \"other\" : " + date + ", \"dates\" : [" + date + "] }";
+        JsonStreamReader reader = new JsonStreamReader(new ByteArrayInputStream(json.getBytes(Json.UTF8)),
+                                                       name -> !name.equals("other"));
+        Document doc = reader.nextDocument();
+        assertThat(doc.get("when"), instanceOf(Date.class));
+        assertThat(doc.get("other"), instanceOf(String.class));
+        assertThat(doc.getArray("dates").get(0), instanceOf(Date.class));
+        assertThat(reader(json).nextDocument().get("when"), instanceOf(String.class));
+    }
+
+    @Test( expected = ParsingException.class )
+    public void shouldFailToReadFieldsWithoutSeparators() throws Exception {
+        reader("{ \"a\" : 1 \"b\" : 2 }").nextDocument();
+    }
+
+    @Test( expected = ParsingException.class )
+    public void shouldFailToReadTruncatedDocument() throws Exception {
+        reader("{ \"a\" : [1, 2").nextDocument();
+    }
+}
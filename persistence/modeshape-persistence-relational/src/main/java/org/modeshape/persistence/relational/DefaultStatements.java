@@ -248,7 +248,8 @@ public class DefaultStatements implements Statements {
 
     protected Document readDocument(InputStream is) {
         try (InputStream contentStream = config.compress() ? new GZIPInputStream(is) : is) {
-            return Bson.read(contentStream);
+            // the values are decoded lazily, since most readers only look at a few fields of each document ...
+            return Bson.readView(contentStream);
         } catch (IOException e) {
             throw new RelationalProviderException(e);
         }
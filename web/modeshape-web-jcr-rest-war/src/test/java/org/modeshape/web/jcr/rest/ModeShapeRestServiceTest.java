@@ -45,6 +45,7 @@ import org.modeshape.common.util.FileUtil;
 import org.modeshape.common.util.IoUtil;
 import org.modeshape.web.jcr.rest.form.FileUploadForm;
 import org.modeshape.web.jcr.rest.handler.RestBinaryHandler;
+import org.modeshape.web.jcr.rest.model.RestNode;
 
 /**
  * Unit test for the v2 version of the rest service: {@link ModeShapeRestService}
@@ -319,6 +320,32 @@ public class ModeShapeRestServiceTest extends AbstractRestTest {
                                                            .isJSONObjectLikeFile("query/query_result_offset_and_limit.json");
     }
 
+    @Test
+    public void shouldPageQueryResultsUsingCursor() throws Exception {
+        String queryNodeFile = "query/query_node.json";
+
+        doPost(queryNodeFile, itemsUrl(TEST_NODE)).isCreated();
+        doPost(queryNodeFile, itemsUrl(TEST_NODE, "child")).isCreated();
+        doPost(queryNodeFile, itemsUrl(TEST_NODE, "child")).isCreated();
+        doPost(queryNodeFile, itemsUrl(TEST_NODE, "child")).isCreated();
+
+        String query = "//element(child) order by @foo, @jcr:path";
+        JSONObject firstPage = xpathQuery(query, queryUrl() + "?limit=2").isOk().json();
+        assertEquals(2, firstPage.getJSONArray("rows").length());
+        String cursor = firstPage.getString("cursor");
+        assertNotNull(cursor);
+
+        // a cursor is only valid for the query which produced it
+        xpathQuery("//element(*) order by @jcr:path", queryUrl() + "?limit=2&cursor=" + cursor).isBadRequest();
+
+        JSONObject secondPage = xpathQuery(query, queryUrl() + "?limit=2&cursor=" + cursor).isOk().json();
+        assertEquals(1, secondPage.getJSONArray("rows").length());
+        assertFalse(secondPage.has("cursor"));
+
+        // and can be used only once
+        xpathQuery(query, queryUrl() + "?limit=2&cursor=" + cursor).isBadRequest();
+    }
+
     @Test
     public void shouldAllowJcrSql2Query() throws Exception {
         String queryNodeFile = "query/query_node.json";
@@ -799,6 +826,26 @@ public class ModeShapeRestServiceTest extends AbstractRestTest {
         assertTrue(foo2Children.has("bar[2]"));
     }
 
+    @Test
+    public void shouldPageNodeChildrenUsingCursor() throws Exception {
+        doPost("post/node_with_nested_sns_request.json", itemsUrl(TEST_NODE)).isCreated();
+        JSONObject firstPage = doGet(itemsUrl(TEST_NODE, "foo") + "?limit=1").isOk().json();
+        JSONObject children = firstPage.getJSONObject(CHILDREN_KEY);
+        assertEquals(1, children.length());
+        assertTrue(children.has("bar"));
+        String cursor = firstPage.getString(RestNode.CHILDREN_CURSOR_FIELD_NAME);
+        assertNotNull(cursor);
+
+        JSONObject secondPage = doGet(itemsUrl(TEST_NODE, "foo") + "?limit=1&cursor=" + cursor).isOk().json();
+        children = secondPage.getJSONObject(CHILDREN_KEY);
+        assertEquals(1, children.length());
+        assertTrue(children.has("bar[2]"));
+        assertFalse(secondPage.has(RestNode.CHILDREN_CURSOR_FIELD_NAME));
+
+        // a cursor can be used only once
+        doGet(itemsUrl(TEST_NODE, "foo") + "?limit=1&cursor=" + cursor).isBadRequest();
+    }
+
     @Test
     @FixFor( "MODE-2261" )
     public void shouldRunQueryWithMultipleSelectors() throws Exception {
@@ -404,6 +404,11 @@ public final class ModeShapeRestService {
      * @param depth the depth of the node graph that should be returned if {@code path} refers to a node. @{code 0} means return
      *        the requested node only. A negative value indicates that the full subgraph under the node should be returned. This
      *        parameter defaults to {@code 0} and is ignored if {@code path} refers to a property.
+     * @param limit the maximum number of children of the node that should be returned. If the node has more children, the
+     *        response contains a {@code mode:childrenCursor} which can be used to retrieve the next children. A negative value
+     *        (the default) means that all the children are returned.
+     * @param cursor the {@code mode:childrenCursor} returned by a previous request, from where the listing of the children
+     *        should continue; may be null. A cursor can be used only once, and expires if it's not used within 5 minutes.
      * @return a {@code non-null} {@link RestItem}
      * @throws RepositoryException if any JCR error occurs
      * @see javax.jcr.Session#getItem(String)
@@ -415,8 +420,10 @@ public final class ModeShapeRestService {
                              @PathParam( "repositoryName" ) String rawRepositoryName,
                              @PathParam( "workspaceName" ) String rawWorkspaceName,
                              @PathParam( "path" ) String path,
-                             @QueryParam( "depth" ) @DefaultValue( "0" ) int depth ) throws RepositoryException {
-        return itemHandler.item(request, rawRepositoryName, rawWorkspaceName, path, depth);
+                             @QueryParam( "depth" ) @DefaultValue( "0" ) int depth,
+                             @QueryParam( "limit" ) @DefaultValue( "-1" ) long limit,
+                             @QueryParam( "cursor" ) String cursor ) throws RepositoryException {
+        return itemHandler.item(request, rawRepositoryName, rawWorkspaceName, path, depth, limit, cursor);
     }
 
     /**
@@ -747,7 +754,9 @@ public final class ModeShapeRestService {
      *        the result set.
      * @param limit the maximum number of rows to be returned. If this value is greater than the size of the result set, the
      *        entire result set will be returned. If this value is less than zero, the entire result set will be returned. The
-     *        results are counted from the record specified in the offset parameter.
+     *        results are counted from the record specified in the offset parameter. If there are more rows than this, the result
+     *        contains a {@code cursor} which can be passed back as a {@code cursor} query parameter (instead of an offset) to
+     *        retrieve the following rows. A cursor can be used only once, and expires if it's not used within 5 minutes.
      * @param uriInfo the information about the URI (from which the other query parameters will be obtained)
      * @param requestContent the query expression
      * @return a {@code non-null} {@link RestQueryResult} instance.
@@ -783,7 +792,9 @@ public final class ModeShapeRestService {
      *        the result set.
      * @param limit the maximum number of rows to be returned. If this value is greater than the size of the result set, the
      *        entire result set will be returned. If this value is less than zero, the entire result set will be returned. The
-     *        results are counted from the record specified in the offset parameter.
+     *        results are counted from the record specified in the offset parameter. If there are more rows than this, the result
+     *        contains a {@code cursor} which can be passed back as a {@code cursor} query parameter (instead of an offset) to
+     *        retrieve the following rows. A cursor can be used only once, and expires if it's not used within 5 minutes.
      * @param uriInfo the information about the URI (from which the other query parameters will be obtained)
      * @param requestContent the query expression
      * @return a {@code non-null} {@link RestQueryResult} instance.
@@ -819,7 +830,9 @@ public final class ModeShapeRestService {
      *        the result set.
      * @param limit the maximum number of rows to be returned. If this value is greater than the size of the result set, the
      *        entire result set will be returned. If this value is less than zero, the entire result set will be returned. The
-     *        results are counted from the record specified in the offset parameter.
+     *        results are counted from the record specified in the offset parameter. If there are more rows than this, the result
+     *        contains a {@code cursor} which can be passed back as a {@code cursor} query parameter (instead of an offset) to
+     *        retrieve the following rows. A cursor can be used only once, and expires if it's not used within 5 minutes.
      * @param uriInfo the information about the URI (from which the other query parameters will be obtained)
      * @param requestContent the query expression
      * @return a {@code non-null} {@link RestQueryResult} instance.
@@ -854,7 +867,9 @@ public final class ModeShapeRestService {
      *        the result set.
      * @param limit the maximum number of rows to be returned. If this value is greater than the size of the result set, the
      *        entire result set will be returned. If this value is less than zero, the entire result set will be returned. The
-     *        results are counted from the record specified in the offset parameter.
+     *        results are counted from the record specified in the offset parameter. If there are more rows than this, the result
+     *        contains a {@code cursor} which can be passed back as a {@code cursor} query parameter (instead of an offset) to
+     *        retrieve the following rows. A cursor can be used only once, and expires if it's not used within 5 minutes.
      * @param uriInfo the information about the URI (from which the other query parameters will be obtained)
      * @param requestContent the query expression
      * @return a {@code non-null} {@link RestQueryResult} instance.
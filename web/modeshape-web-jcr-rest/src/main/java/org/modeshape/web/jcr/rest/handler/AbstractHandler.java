@@ -72,6 +72,11 @@ public abstract class AbstractHandler {
 
     private static final Logger LOGGER = WebLogger.getLogger(AbstractHandler.class);
 
+    /**
+     * The cursors which allow paged listings to be continued by later requests.
+     */
+    protected static final ContinuationCursors CURSORS = new ContinuationCursors();
+
     protected final Logger logger = WebLogger.getLogger(getClass());
 
     /**
@@ -111,6 +116,14 @@ public abstract class AbstractHandler {
         }
     }
 
+    /**
+     * Hands the active session over to a {@link ContinuationCursor}, which becomes responsible for logging it out, so that it is
+     * not logged out at the end of the current request.
+     */
+    protected static void detachActiveSession() {
+        AbstractHandler.ACTIVE_SESSION.remove();
+    }
+
     private String workspaceNameFor( String rawWorkspaceName ) {
         String workspaceName = RestHelper.URL_ENCODER.decode(rawWorkspaceName);
 
@@ -239,10 +252,39 @@ public abstract class AbstractHandler {
                                        int depth,
                                        Session session,
                                        Item item ) throws RepositoryException {
+        return createRestItem(request, depth, -1, null, session, item);
+    }
+
+    /**
+     * Creates the REST representation of the given item, optionally returning only a page of the children of the item (if the
+     * item is a node).
+     *
+     * @param request the servlet request; may not be null
+     * @param depth the depth up to which the node's subgraph should be included
+     * @param childrenLimit the maximum number of children of the item to include; a negative value means all the children
+     * @param childrenCursor a cursor previously returned as part of a node representation, from where the children should be
+     *        listed; may be null
+     * @param session the session used to read the item; may not be null
+     * @param item the item; may not be null
+     * @return the REST representation of the item; never null
+     * @throws RepositoryException if the item cannot be read
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    protected RestItem createRestItem( HttpServletRequest request,
+                                       int depth,
+                                       long childrenLimit,
+                                       String childrenCursor,
+                                       Session session,
+                                       Item item ) throws RepositoryException {
         String baseUrl = RestHelper.repositoryUrl(request);
-        return item instanceof Node ? createRestNode(session, (Node)item, baseUrl, depth) : createRestProperty(session,
-                                                                                                               (Property)item,
-                                                                                                               baseUrl);
+        if (item instanceof Node) {
+            Node node = (Node)item;
+            ContinuationCursor<Node> cursor = StringUtil.isBlank(childrenCursor) ? null : CURSORS.take(childrenCursor, session,
+                                                                                                       node.getIdentifier(),
+                                                                                                       Node.class);
+            return createRestNode(session, node, baseUrl, depth, childrenLimit, cursor);
+        }
+        return createRestProperty(session, (Property)item, baseUrl);
     }
 
     protected String parentPath( String path ) {
@@ -291,36 +333,64 @@ public abstract class AbstractHandler {
                                      Node node,
                                      String baseUrl,
                                      int depth ) throws RepositoryException {
-        String nodeUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, encodedPath(node.getPath()));
-        boolean isRoot = node.getPath().equals("/");
-        String parentUrl = isRoot ? RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, "..", "..") : RestHelper.urlFrom(baseUrl,
-                                                                                                                    ITEMS_METHOD_NAME,
-                                                                                                                    encodedPath(
-                                                                                                                            node.getParent()
-                                                                                                                                    .getPath()));
-        RestNode restNode = new RestNode(nodeName(node), node.getIdentifier(), nodeUrl, parentUrl);
-
-        // add the properties
-        for (PropertyIterator propertyIterator = node.getProperties(); propertyIterator.hasNext();) {
-            Property property = propertyIterator.nextProperty();
-            restNode.addJcrProperty(createRestProperty(session, property, baseUrl));
-        }
+        return createRestNode(session, node, baseUrl, depth, -1, null);
+    }
 
-        // add the children
-        for (NodeIterator nodeIterator = node.getNodes(); nodeIterator.hasNext();) {
-            Node childNode = nodeIterator.nextNode();
-            RestNode restChild = null;
-            if (depth > 0) {
-                restChild = createRestNode(session, childNode, baseUrl, depth - 1);
-            } else if (depth < 0) {
-                restChild = createRestNode(session, childNode, baseUrl, -1);
-            } else {
-                String childUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, encodedPath(childNode.getPath()));
-                restChild = new RestNode(nodeName(childNode), childNode.getIdentifier(), childUrl, nodeUrl);
+    private RestNode createRestNode( Session session,
+                                     Node node,
+                                     String baseUrl,
+                                     int depth,
+                                     long childrenLimit,
+                                     ContinuationCursor<Node> childrenCursor ) throws RepositoryException {
+        boolean keepCursor = false;
+        try {
+            String nodeUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, encodedPath(node.getPath()));
+            boolean isRoot = node.getPath().equals("/");
+            String parentUrl = isRoot ? RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, "..", "..")
+                                      : RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, encodedPath(node.getParent().getPath()));
+            RestNode restNode = new RestNode(nodeName(node), node.getIdentifier(), nodeUrl, parentUrl);
+
+            // add the properties
+            for (PropertyIterator propertyIterator = node.getProperties(); propertyIterator.hasNext();) {
+                Property property = propertyIterator.nextProperty();
+                restNode.addJcrProperty(createRestProperty(session, property, baseUrl));
+            }
+
+            // add the children, continuing the listing of the cursor (if any) ...
+            Session childrenSession = childrenCursor != null ? childrenCursor.session() : session;
+            NodeIterator nodeIterator = childrenCursor != null ? (NodeIterator)childrenCursor.iterator() : node.getNodes();
+            for (long count = 0; nodeIterator.hasNext(); count++) {
+                if (childrenLimit >= 0 && count >= childrenLimit) {
+                    if (count > 0) {
+                        ContinuationCursor<Node> cursor = childrenCursor;
+                        if (cursor == null) {
+                            cursor = new ContinuationCursor<>(session, node.getIdentifier(), node, nodeIterator);
+                            detachActiveSession();
+                        }
+                        restNode.setChildrenCursor(CURSORS.open(cursor));
+                        keepCursor = true;
+                    }
+                    break;
+                }
+                Node childNode = nodeIterator.nextNode();
+                RestNode restChild = null;
+                if (depth > 0) {
+                    restChild = createRestNode(childrenSession, childNode, baseUrl, depth - 1);
+                } else if (depth < 0) {
+                    restChild = createRestNode(childrenSession, childNode, baseUrl, -1);
+                } else {
+                    String childUrl = RestHelper.urlFrom(baseUrl, ITEMS_METHOD_NAME, encodedPath(childNode.getPath()));
+                    restChild = new RestNode(nodeName(childNode), childNode.getIdentifier(), childUrl, nodeUrl);
+                }
+                restNode.addChild(restChild);
+            }
+            return restNode;
+        } finally {
+            if (childrenCursor != null && !keepCursor) {
+                // the listing is complete (or has failed), so the cursor is no longer needed ...
+                childrenCursor.close();
             }
-            restNode.addChild(restChild);
         }
-        return restNode;
     }
 
     private RestProperty createRestProperty( Session session,
@@ -0,0 +1,110 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.handler;
+
+import java.util.Objects;
+import javax.jcr.RangeIterator;
+import javax.jcr.Session;
+import org.modeshape.jcr.api.Logger;
+import org.modeshape.web.jcr.WebLogger;
+
+/**
+ * A paged listing (e.g. query rows or the children of a node) which is held by the server between requests, so that the next
+ * page continues from where the previous page ended instead of re-reading all the preceding items. A cursor owns the session
+ * from which the listing was obtained, and logs it out once it's {@link #close() closed}.
+ *
+ * @param <S> the type of the source of the listing
+ * @see ContinuationCursors
+ */
+final class ContinuationCursor<S> {
+
+    private static final Logger LOGGER = WebLogger.getLogger(ContinuationCursor.class);
+
+    private final Session session;
+    private final String scope;
+    private final S source;
+    private final RangeIterator iterator;
+    private volatile long expiresAt;
+
+    /**
+     * Creates a new cursor.
+     *
+     * @param session the session from which the listing was obtained and which is owned by the cursor; may not be null
+     * @param scope a string which identifies the listing (e.g. the query or the identifier of the parent node), and which must
+     *        match when the cursor is presented back to the server; may not be null
+     * @param source the object from which the listing was obtained; may not be null
+     * @param iterator the iterator positioned on the next item which should be returned; may not be null
+     */
+    protected ContinuationCursor( Session session,
+                                  String scope,
+                                  S source,
+                                  RangeIterator iterator ) {
+        assert session != null;
+        assert scope != null;
+        assert source != null;
+        assert iterator != null;
+        this.session = session;
+        this.scope = scope;
+        this.source = source;
+        this.iterator = iterator;
+    }
+
+    protected Session session() {
+        return session;
+    }
+
+    protected S source() {
+        return source;
+    }
+
+    protected RangeIterator iterator() {
+        return iterator;
+    }
+
+    /**
+     * Checks whether this cursor can be used by the given session for the given listing, meaning the session belongs to the
+     * same user and is connected to the same workspace of the same repository as the session of this cursor.
+     *
+     * @param session the session of the request presenting the cursor; may not be null
+     * @param scope the scope of the requested listing; may not be null
+     * @return {@code true} if the cursor can be used, {@code false} otherwise
+     */
+    protected boolean isFor( Session session,
+                             String scope ) {
+        return this.scope.equals(scope) && this.session.getRepository() == session.getRepository()
+               && Objects.equals(this.session.getUserID(), session.getUserID())
+               && this.session.getWorkspace().getName().equals(session.getWorkspace().getName());
+    }
+
+    protected long expiresAt() {
+        return expiresAt;
+    }
+
+    protected void expiresAt( long expiresAt ) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Releases this cursor, logging out its session.
+     */
+    protected void close() {
+        try {
+            session.logout();
+        } catch (RuntimeException e) {
+            LOGGER.warn(e, "Error while trying to logout the session of a REST cursor");
+        }
+    }
+}
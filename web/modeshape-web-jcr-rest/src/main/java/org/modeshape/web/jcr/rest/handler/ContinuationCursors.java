@@ -0,0 +1,143 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.handler;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import javax.jcr.Session;
+import org.modeshape.jcr.api.Logger;
+import org.modeshape.web.jcr.WebLogger;
+
+/**
+ * The {@link ContinuationCursor cursors} which are currently open, each of which is identified by an opaque, random token that
+ * is returned to the client. A token can be used only once: {@link #take(String, Session, String, Class) taking} a cursor
+ * removes it, and the cursor is {@link #open(ContinuationCursor) opened} again under a new token if there are more items.
+ * <p>
+ * Cursors which are not used within their time to live are closed, as are the least recently used cursors once the maximum
+ * number of open cursors is reached.
+ * </p>
+ */
+final class ContinuationCursors {
+
+    /**
+     * The default time (in milliseconds) after which an unused cursor is closed.
+     */
+    protected static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The default maximum number of cursors which are open at the same time.
+     */
+    protected static final int DEFAULT_MAXIMUM_OPEN_CURSORS = 1000;
+
+    private static final Logger LOGGER = WebLogger.getLogger(ContinuationCursors.class);
+
+    private final ConcurrentMap<String, ContinuationCursor<?>> cursors = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long timeToLiveMillis;
+    private final int maximumOpenCursors;
+
+    protected ContinuationCursors() {
+        this(DEFAULT_TIME_TO_LIVE_MILLIS, DEFAULT_MAXIMUM_OPEN_CURSORS);
+    }
+
+    protected ContinuationCursors( long timeToLiveMillis,
+                                   int maximumOpenCursors ) {
+        assert timeToLiveMillis > 0;
+        assert maximumOpenCursors > 0;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maximumOpenCursors = maximumOpenCursors;
+    }
+
+    /**
+     * Registers the given cursor, so that the listing can be continued by a later request.
+     *
+     * @param cursor a {@code non-null} cursor
+     * @return the opaque token identifying the cursor, which is safe to use in a URL; never {@code null}
+     */
+    protected String open( ContinuationCursor<?> cursor ) {
+        long now = System.currentTimeMillis();
+        closeExpired(now);
+        while (cursors.size() >= maximumOpenCursors) {
+            closeOldest();
+        }
+        cursor.expiresAt(now + timeToLiveMillis);
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        cursors.put(token, cursor);
+        return token;
+    }
+
+    /**
+     * Removes the cursor with the given token, so that the caller can continue the listing. The caller is responsible for either
+     * {@link #open(ContinuationCursor) opening} the cursor again or {@link ContinuationCursor#close() closing} it.
+     *
+     * @param token the token returned when the cursor was opened; may not be null
+     * @param session the session of the request presenting the token; may not be null
+     * @param scope the scope of the requested listing; may not be null
+     * @param sourceType the expected type of the source of the listing; may not be null
+     * @return the cursor; never {@code null}
+     * @throws IllegalArgumentException if there is no open cursor with the given token, or if the cursor was not created for
+     *         the same user and listing
+     */
+    @SuppressWarnings( "unchecked" )
+    protected <S> ContinuationCursor<S> take( String token,
+                                              Session session,
+                                              String scope,
+                                              Class<S> sourceType ) {
+        closeExpired(System.currentTimeMillis());
+        ContinuationCursor<?> cursor = cursors.remove(token);
+        if (cursor == null) {
+            throw new IllegalArgumentException("The cursor '" + token + "' is not valid or has expired");
+        }
+        if (!sourceType.isInstance(cursor.source()) || !cursor.isFor(session, scope)) {
+            cursors.put(token, cursor);
+            throw new IllegalArgumentException("The cursor '" + token + "' was not created for this request");
+        }
+        return (ContinuationCursor<S>)cursor;
+    }
+
+    protected int size() {
+        return cursors.size();
+    }
+
+    private void closeExpired( long now ) {
+        for (Map.Entry<String, ContinuationCursor<?>> entry : cursors.entrySet()) {
+            ContinuationCursor<?> cursor = entry.getValue();
+            if (cursor.expiresAt() <= now && cursors.remove(entry.getKey(), cursor)) {
+                LOGGER.debug("Closing expired REST cursor");
+                cursor.close();
+            }
+        }
+    }
+
+    private void closeOldest() {
+        Map.Entry<String, ContinuationCursor<?>> oldest = null;
+        for (Map.Entry<String, ContinuationCursor<?>> entry : cursors.entrySet()) {
+            if (oldest == null || entry.getValue().expiresAt() < oldest.getValue().expiresAt()) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null && cursors.remove(oldest.getKey(), oldest.getValue())) {
+            LOGGER.debug("Closing the least recently used REST cursor, since there are too many open cursors");
+            oldest.getValue().close();
+        }
+    }
+}
@@ -62,9 +62,33 @@ public final class RestItemHandler extends ItemHandler {
                           String workspaceName,
                           String path,
                           int depth ) throws RepositoryException {
+        return item(request, repositoryName, workspaceName, path, depth, -1, null);
+    }
+
+    /**
+     * Retrieves the JCR {@link Item} at the given path, returning its rest representation with (at most) a page of its children.
+     *
+     * @param request the servlet request; may not be null or unauthenticated
+     * @param repositoryName the URL-encoded repository name
+     * @param workspaceName the URL-encoded workspace name
+     * @param path the path to the item
+     * @param depth the depth of the node graph that should be returned if {@code path} refers to a node.
+     * @param childrenLimit the maximum number of children of the node which should be returned; a negative value means all
+     * @param childrenCursor the cursor returned by a previous call, from where the children should be listed; may be null
+     * @return a the rest representation of the item, as a {@link RestItem} instance.
+     * @throws RepositoryException if any JCR operations fail.
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public RestItem item( HttpServletRequest request,
+                          String repositoryName,
+                          String workspaceName,
+                          String path,
+                          int depth,
+                          long childrenLimit,
+                          String childrenCursor ) throws RepositoryException {
         Session session = getSession(request, repositoryName, workspaceName);
         Item item = itemAtPath(path, session);
-        return createRestItem(request, depth, session, item);
+        return createRestItem(request, depth, childrenLimit, childrenCursor, session, item);
     }
 
     /**
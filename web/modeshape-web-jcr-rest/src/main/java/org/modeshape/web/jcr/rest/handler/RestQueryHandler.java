@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.jcr.Node;
@@ -53,7 +54,8 @@ public final class RestQueryHandler extends AbstractHandler {
 
     private static final String MODE_URI = "mode:uri";
     private static final String UNKNOWN_TYPE = "unknown-type";
-    private static final List<String> SKIP_QUERY_PARAMETERS = Arrays.asList("offset", "limit");
+    private static final String CURSOR_PARAMETER = "cursor";
+    private static final List<String> SKIP_QUERY_PARAMETERS = Arrays.asList("offset", "limit", CURSOR_PARAMETER);
 
     /**
      * Executes a the given query string (based on the language information) against a JCR repository, returning a rest model
@@ -66,9 +68,11 @@ public final class RestQueryHandler extends AbstractHandler {
      *        {@link javax.jcr.query.QueryManager}
      * @param statement a non-null String which should be a valid query string in the above language.
      * @param offset a numeric value which indicates the index in the result set from where results should be returned.
-     * @param limit a numeric value indicating the maximum number of rows to return.
+     * @param limit a numeric value indicating the maximum number of rows to return. If there are more rows than this, the result
+     *        will contain a {@code cursor} which can be passed back (as a request parameter) in order to get the next rows.
      * @param uriInfo a non-null {@link UriInfo} object which is provided by RestEASY, allowing extra request parameters to be
-     *        retrieved.
+     *        retrieved. If it contains a {@code cursor} parameter, the {@code offset} is ignored and the rows following the
+     *        ones returned with the cursor are returned, without executing the query again.
      * @return a {@link RestQueryHandler} instance
      * @throws RepositoryException if any operation fails at the JCR level
      */
@@ -87,19 +91,54 @@ public final class RestQueryHandler extends AbstractHandler {
 
         Session session = getSession(request, repositoryName, workspaceName);
         Query query = createQuery(language, statement, session);
-        bindExtraVariables(uriInfo, session.getValueFactory(), query);
+        Map<String, String> variables = bindExtraVariables(uriInfo, session.getValueFactory(), query);
 
-        QueryResult result = query.execute();
-        RestQueryResult restQueryResult = new RestQueryResult();
+        // the cursor is only valid for the same query ...
+        String scope = language + '\n' + statement + '\n' + variables;
+        String cursorToken = uriInfo != null ? uriInfo.getQueryParameters().getFirst(CURSOR_PARAMETER) : null;
+        ContinuationCursor<QueryResult> cursor = StringUtil.isBlank(cursorToken) ? null : CURSORS.take(cursorToken, session, scope,
+                                                                                                       QueryResult.class);
+        boolean keepCursor = false;
+        try {
+            QueryResult result;
+            RowIterator resultRows;
+            Session rowsSession = session;
+            if (cursor != null) {
+                // continue from the row following the previous page, without executing the query again ...
+                result = cursor.source();
+                resultRows = (RowIterator)cursor.iterator();
+                rowsSession = cursor.session();
+            } else {
+                result = query.execute();
+                resultRows = result.getRows();
+                if (offset > 0) {
+                    resultRows.skip(offset);
+                }
+            }
+            RestQueryResult restQueryResult = new RestQueryResult();
 
-        String[] columnNames = result.getColumnNames();
-        setColumns(result, restQueryResult, columnNames);
+            String[] columnNames = result.getColumnNames();
+            setColumns(result, restQueryResult, columnNames);
 
-        String baseUrl = RestHelper.repositoryUrl(request);
+            String baseUrl = RestHelper.repositoryUrl(request);
 
-        setRows(offset, limit, session, result, restQueryResult, columnNames, baseUrl);
+            boolean hasMoreRows = setRows(resultRows, limit, rowsSession, result, restQueryResult, columnNames, baseUrl);
+            if (hasMoreRows && limit > 0) {
+                if (cursor == null) {
+                    cursor = new ContinuationCursor<>(session, scope, result, resultRows);
+                    detachActiveSession();
+                }
+                restQueryResult.setCursor(CURSORS.open(cursor));
+                keepCursor = true;
+            }
 
-        return restQueryResult;
+            return restQueryResult;
+        } finally {
+            if (cursor != null && !keepCursor) {
+                // all the rows have been returned (or reading them has failed), so the cursor is no longer needed ...
+                cursor.close();
+            }
+        }
     }
 
     /**
@@ -141,17 +180,13 @@ public final class RestQueryHandler extends AbstractHandler {
         return new RestQueryPlanResult(plan, statement, language, query.getAbstractQueryModelRepresentation());
     }
 
-    private void setRows( long offset,
-                          long limit,
-                          Session session,
-                          QueryResult result,
-                          RestQueryResult restQueryResult,
-                          String[] columnNames,
-                          String baseUrl ) throws RepositoryException {
-        RowIterator resultRows = result.getRows();
-        if (offset > 0) {
-            resultRows.skip(offset);
-        }
+    private boolean setRows( RowIterator resultRows,
+                             long limit,
+                             Session session,
+                             QueryResult result,
+                             RestQueryResult restQueryResult,
+                             String[] columnNames,
+                             String baseUrl ) throws RepositoryException {
         if (limit < 0) {
             limit = Long.MAX_VALUE;
         }
@@ -165,6 +200,8 @@ public final class RestQueryHandler extends AbstractHandler {
 
             restQueryResult.addRow(restRow);
         }
+        // only a limited result can have more rows
+        return limit == 0 && resultRows.hasNext();
     }
 
     private void createLinksFromNodePaths( QueryResult result,
@@ -316,11 +353,12 @@ public final class RestQueryHandler extends AbstractHandler {
         return (org.modeshape.jcr.api.query.Query)queryManager.createQuery(statement, language);
     }
 
-    private void bindExtraVariables( UriInfo uriInfo,
-                                     ValueFactory valueFactory,
-                                     Query query ) throws RepositoryException {
+    private Map<String, String> bindExtraVariables( UriInfo uriInfo,
+                                                    ValueFactory valueFactory,
+                                                    Query query ) throws RepositoryException {
+        Map<String, String> variables = new TreeMap<String, String>();
         if (uriInfo == null) {
-            return;
+            return variables;
         }
         // Extract the query parameters and bind as variables ...
         for (Map.Entry<String, List<String>> entry : uriInfo.getQueryParameters().entrySet()) {
@@ -341,6 +379,8 @@ public final class RestQueryHandler extends AbstractHandler {
             }
             // Bind the variable value to the variable name ...
             query.bindValue(variableName, valueFactory.createValue(variableValue));
+            variables.put(variableName, variableValue);
         }
+        return variables;
     }
 }
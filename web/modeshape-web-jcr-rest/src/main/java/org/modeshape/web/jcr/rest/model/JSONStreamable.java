@@ -0,0 +1,37 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.codehaus.jettison.json.JSONException;
+
+/**
+ * An extension of {@link JSONAble} which should be implemented by objects which can be large (e.g. query results or node
+ * graphs), so that their JSON representation can be written out piece by piece instead of being built in memory first.
+ */
+public interface JSONStreamable extends JSONAble {
+
+    /**
+     * Writes the JSON representation of this object to the given writer. The output must be equivalent to the one produced by
+     * {@link #toJSON()}.
+     *
+     * @param writer a {@code non-null} {@link Writer}
+     * @throws JSONException if conversion to JSON is not possible.
+     * @throws IOException if the output cannot be written.
+     */
+    public void writeJSON( Writer writer ) throws JSONException, IOException;
+}
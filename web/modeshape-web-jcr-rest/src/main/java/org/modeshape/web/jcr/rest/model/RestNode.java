@@ -16,7 +16,10 @@
 
 package org.modeshape.web.jcr.rest.model;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,22 +33,29 @@ import org.modeshape.common.collection.Collections;
  * 
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
-public final class RestNode extends RestItem {
+public final class RestNode extends RestItem implements JSONStreamable {
 
     public static final String SELF_FIELD_NAME = "self";
     public static final String UP_FIELD_NAME = "up";
     public static final String ID_FIELD_NAME = "id";
     public static final String CHILDREN_FIELD_NAME = "children";
+    /**
+     * The name of the field holding the cursor from where the next children can be listed. The name has the prefix of the
+     * ModeShape namespace, so that it never collides with the name of a property of the node.
+     */
+    public static final String CHILDREN_CURSOR_FIELD_NAME = "mode:childrenCursor";
 
     private static final Set<String> RESERVED_FIELD_NAMES = Collections.unmodifiableSet(SELF_FIELD_NAME,
                                                                                         UP_FIELD_NAME,
                                                                                         ID_FIELD_NAME,
-                                                                                        CHILDREN_FIELD_NAME);
+                                                                                        CHILDREN_FIELD_NAME,
+                                                                                        CHILDREN_CURSOR_FIELD_NAME);
 
     private final List<RestProperty> jcrProperties;
     private final List<RestNode> children;
     private final Map<String, String> customProperties;
     protected final String id;
+    private String childrenCursor;
 
     /**
      * Creates a new rest node
@@ -101,8 +111,64 @@ public final class RestNode extends RestItem {
         return this;
     }
 
+    /**
+     * Sets the cursor which can be used to retrieve the children following the ones added to this node.
+     *
+     * @param childrenCursor an opaque string; may be null if there are no more children
+     * @return this rest node.
+     */
+    public RestNode setChildrenCursor( String childrenCursor ) {
+        this.childrenCursor = childrenCursor;
+        return this;
+    }
+
     @Override
     public JSONObject toJSON() throws JSONException {
+        JSONObject node = toJSONWithoutChildren();
+        addChildren(node);
+        if (childrenCursor != null) {
+            node.put(CHILDREN_CURSOR_FIELD_NAME, childrenCursor);
+        }
+        return node;
+    }
+
+    @Override
+    public void writeJSON( Writer writer ) throws JSONException, IOException {
+        JSONObject node = toJSONWithoutChildren();
+        if (children.isEmpty() && childrenCursor == null) {
+            node.write(writer);
+            return;
+        }
+        // write everything except the closing brace and then append the children one by one, so that a large subgraph
+        // is never converted into JSON all at once
+        String nodeString = node.toString();
+        writer.write(nodeString, 0, nodeString.length() - 1);
+        if (!children.isEmpty()) {
+            writer.write(',');
+            writer.write(JSONObject.quote(CHILDREN_FIELD_NAME));
+            writer.write(":{");
+            boolean first = true;
+            for (Map.Entry<String, RestNode> entry : childrenByName().entrySet()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writer.write(JSONObject.quote(entry.getKey()));
+                writer.write(':');
+                entry.getValue().writeJSON(writer);
+            }
+            writer.write('}');
+        }
+        if (childrenCursor != null) {
+            writer.write(',');
+            writer.write(JSONObject.quote(CHILDREN_CURSOR_FIELD_NAME));
+            writer.write(':');
+            writer.write(JSONObject.quote(childrenCursor));
+        }
+        writer.write('}');
+    }
+
+    private JSONObject toJSONWithoutChildren() throws JSONException {
         JSONObject node = new JSONObject();
 
         // do these first so that they appear first in the JSON ...
@@ -112,8 +178,6 @@ public final class RestNode extends RestItem {
 
         addCustomProperties(node);
         addJcrProperties(node);
-        addChildren(node);
-
         return node;
     }
 
@@ -125,13 +189,27 @@ public final class RestNode extends RestItem {
         // children
         if (!children.isEmpty()) {
             JSONObject children = new JSONObject();
-            for (RestNode child : this.children) {
-                children.put(child.name, child.toJSON());
+            for (Map.Entry<String, RestNode> entry : childrenByName().entrySet()) {
+                children.put(entry.getKey(), entry.getValue().toJSON());
             }
             node.put(CHILDREN_FIELD_NAME, children);
         }
     }
 
+    /**
+     * Get the children keyed by their names. Since the names are the keys of the JSON object holding the children, only the last
+     * of several same-name siblings is kept, at the position of the first one.
+     *
+     * @return the children by name, in the order in which they were added; never null
+     */
+    private Map<String, RestNode> childrenByName() {
+        Map<String, RestNode> childrenByName = new LinkedHashMap<String, RestNode>();
+        for (RestNode child : children) {
+            childrenByName.put(child.name, child);
+        }
+        return childrenByName;
+    }
+
     private void addJcrProperties( JSONObject node ) throws JSONException {
         // properties
         for (RestProperty restProperty : jcrProperties) {
@@ -16,6 +16,8 @@
 
 package org.modeshape.web.jcr.rest.model;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
@@ -31,9 +33,14 @@ import org.modeshape.common.util.StringUtil;
  * 
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
-public final class RestQueryResult implements JSONAble {
+public final class RestQueryResult implements JSONStreamable {
+    private static final String COLUMNS_FIELD_NAME = "columns";
+    private static final String ROWS_FIELD_NAME = "rows";
+    private static final String CURSOR_FIELD_NAME = "cursor";
+
     private final Map<String, String> columns;
     private final List<RestRow> rows;
+    private String cursor;
 
     /**
      * Creates an empty instance
@@ -69,22 +76,73 @@ public final class RestQueryResult implements JSONAble {
         return this;
     }
 
+    /**
+     * Sets the cursor which can be used to retrieve the rows following the ones in this result.
+     *
+     * @param cursor an opaque string; may be null if there are no more rows
+     * @return this instance
+     */
+    public RestQueryResult setCursor( String cursor ) {
+        this.cursor = cursor;
+        return this;
+    }
+
     @Override
     public JSONObject toJSON() throws JSONException {
         JSONObject result = new JSONObject();
         if (!columns.isEmpty()) {
-            result.put("columns", columns);
+            result.put(COLUMNS_FIELD_NAME, columns);
         }
         if (!rows.isEmpty()) {
             JSONArray rows = new JSONArray();
             for (RestRow row : this.rows) {
                 rows.put(row.toJSON());
             }
-            result.put("rows", rows);
+            result.put(ROWS_FIELD_NAME, rows);
+        }
+        if (cursor != null) {
+            result.put(CURSOR_FIELD_NAME, cursor);
         }
         return result;
     }
 
+    @Override
+    public void writeJSON( Writer writer ) throws JSONException, IOException {
+        // write each row separately, so that the JSON for all the rows is never held in memory at the same time
+        writer.write('{');
+        boolean hasFields = false;
+        if (!columns.isEmpty()) {
+            writer.write(JSONObject.quote(COLUMNS_FIELD_NAME));
+            writer.write(':');
+            new JSONObject(columns).write(writer);
+            hasFields = true;
+        }
+        if (!rows.isEmpty()) {
+            if (hasFields) {
+                writer.write(',');
+            }
+            writer.write(JSONObject.quote(ROWS_FIELD_NAME));
+            writer.write(":[");
+            for (int i = 0; i < rows.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                rows.get(i).toJSON().write(writer);
+            }
+            writer.write(']');
+            hasFields = true;
+        }
+        if (cursor != null) {
+            if (hasFields) {
+                writer.write(',');
+            }
+            writer.write(JSONObject.quote(CURSOR_FIELD_NAME));
+            writer.write(':');
+            writer.write(JSONObject.quote(cursor));
+        }
+        writer.write('}');
+    }
+
     public class RestRow implements JSONAble {
         private final Map<String, Object> values;
 
@@ -16,12 +16,14 @@
 
 package org.modeshape.web.jcr.rest.output;
 
-import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
@@ -34,10 +36,12 @@ import org.codehaus.jettison.json.JSONException;
 import org.jboss.resteasy.spi.WriterException;
 import org.jboss.resteasy.util.Types;
 import org.modeshape.web.jcr.rest.model.JSONAble;
+import org.modeshape.web.jcr.rest.model.JSONStreamable;
 
 /**
  * Implementation of {@link MessageBodyWriter} which writes a {@link JSONAble} or a {@link Collection Collection<JSONAble>} instances to
- * a response, producing {@link MediaType#APPLICATION_JSON}.
+ * a response, producing {@link MediaType#APPLICATION_JSON}. The content is written directly to the response stream, so
+ * {@link JSONStreamable} entities (e.g. large query results) are never fully converted into a single string in memory.
  *
  * @author Horia Chiorean (hchiorea@redhat.com)
  */
@@ -46,22 +50,13 @@ import org.modeshape.web.jcr.rest.model.JSONAble;
 public class JSONBodyWriter implements MessageBodyWriter<Object> {
 
     @Override
-    @SuppressWarnings( "unchecked" )
     public long getSize( Object object,
                          Class<?> type,
                          Type genericType,
                          Annotation[] annotations,
                          MediaType mediaType ) {
-        try {
-            if (isJSONAble(type)) {
-                return getString((JSONAble)object).getBytes().length;
-            } else if (isJSONAbleCollection(type, genericType)) {
-                return getString((Collection<JSONAble>)object).getBytes().length;
-            }
-            return 0;
-        } catch (JSONException e) {
-            throw new WriterException(e);
-        }
+        // the size is not known upfront because the content is streamed
+        return -1;
     }
 
     @Override
@@ -93,28 +88,66 @@ public class JSONBodyWriter implements MessageBodyWriter<Object> {
                          Annotation[] annotations,
                          MediaType mediaType,
                          MultivaluedMap<String, Object> httpHeaders,
-                         OutputStream entityStream ) throws WebApplicationException {
-        String content;
+                         OutputStream entityStream ) throws IOException, WebApplicationException {
+        boolean jsonAble = isJSONAble(type);
+        if (!jsonAble && !isJSONAbleCollection(type, genericType)) {
+            return;
+        }
+        // the headers must be set before anything is written to the stream
+        String contentTypeHeader = mediaType.toString() + ";charset=utf-8";
+        httpHeaders.putSingle("Content-Type", contentTypeHeader);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(entityStream, StandardCharsets.UTF_8));
         try {
-            if (isJSONAble(type)) {
-                content = getString((JSONAble)object);
-            } else if (isJSONAbleCollection(type, genericType)) {
-                content = getString((Collection<JSONAble>)object);
+            if (jsonAble) {
+                write((JSONAble)object, writer);
             } else {
-                return;
+                write((Collection<JSONAble>)object, writer);
             }
         } catch (JSONException e) {
             throw new WriterException(e);
         }
+        writer.flush();
+    }
 
-        try {
-            PrintStream ps = new PrintStream(new BufferedOutputStream(entityStream), true, "UTF-8");
-            String contentTypeHeader = mediaType.toString() + ";charset=utf-8";
-            httpHeaders.putSingle("Content-Type", contentTypeHeader);
-            ps.print(content);
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
+    /**
+     * Writes the content of a {@link JSONAble} instance to the given writer. {@link JSONStreamable} instances are asked to write
+     * themselves, piece by piece.
+     *
+     * @param jsonAble a {@code non-null} {@link JSONAble}
+     * @param writer a {@code non-null} {@link Writer}
+     * @throws JSONException if the JSON conversion fails
+     * @throws IOException if the content cannot be written
+     */
+    protected void write( JSONAble jsonAble,
+                          Writer writer ) throws JSONException, IOException {
+        if (jsonAble instanceof JSONStreamable) {
+            ((JSONStreamable)jsonAble).writeJSON(writer);
+        } else {
+            jsonAble.toJSON().write(writer);
+        }
+    }
+
+    /**
+     * Writes the content of a collection of {@link JSONAble} instances to the given writer, as a JSON array.
+     *
+     * @param collection a {@code non-null} {@link Collection}
+     * @param writer a {@code non-null} {@link Writer}
+     * @throws JSONException if the JSON conversion fails
+     * @throws IOException if the content cannot be written
+     */
+    protected void write( Collection<JSONAble> collection,
+                          Writer writer ) throws JSONException, IOException {
+        writer.write('[');
+        boolean first = true;
+        for (JSONAble jsonAble : collection) {
+            if (!first) {
+                writer.write(',');
+            }
+            write(jsonAble, writer);
+            first = false;
         }
+        writer.write(']');
     }
 
     protected String getString( JSONAble jsonAble ) throws JSONException {
@@ -126,7 +159,7 @@ public class JSONBodyWriter implements MessageBodyWriter<Object> {
         return array.toString();
     }
 
-    private String getString( Collection<JSONAble> collection ) throws JSONException {
+    protected String getString( Collection<JSONAble> collection ) throws JSONException {
         return getString(toArray(collection));
     }
 
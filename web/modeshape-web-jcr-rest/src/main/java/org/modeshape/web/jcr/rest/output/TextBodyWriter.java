@@ -16,6 +16,9 @@
 
 package org.modeshape.web.jcr.rest.output;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.ext.Provider;
@@ -35,6 +38,19 @@ public class TextBodyWriter extends JSONBodyWriter {
 
     private static final int TEXT_INDENT_FACTOR = 2;
 
+    @Override
+    protected void write( JSONAble jsonAble,
+                          Writer writer ) throws JSONException, IOException {
+        // the indented output is meant for humans, so it's not streamed
+        writer.write(getString(jsonAble));
+    }
+
+    @Override
+    protected void write( Collection<JSONAble> collection,
+                          Writer writer ) throws JSONException, IOException {
+        writer.write(getString(collection));
+    }
+
     @Override
     protected String getString( JSONAble jsonAble ) throws JSONException {
         if (jsonAble instanceof Stringable) {
@@ -0,0 +1,133 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.query.QueryResult;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ContinuationCursors}
+ */
+public class ContinuationCursorsTest {
+
+    private Repository repository;
+    private ContinuationCursors cursors;
+
+    @Before
+    public void beforeEach() {
+        repository = mock(Repository.class);
+        cursors = new ContinuationCursors(60000, 2);
+    }
+
+    @Test
+    public void shouldTakeOpenCursorOnlyOnce() throws Exception {
+        Session session = session("user");
+        ContinuationCursor<Node> cursor = cursor(session, "scope");
+        String token = cursors.open(cursor);
+
+        assertSame(cursor, cursors.take(token, session("user"), "scope", Node.class));
+        assertEquals(0, cursors.size());
+        assertInvalid(token, session("user"), "scope");
+
+        // opening the cursor again gives it a new token ...
+        assertNotEquals(token, cursors.open(cursor));
+    }
+
+    @Test
+    public void shouldNotTakeCursorForAnotherUserOrListing() throws Exception {
+        Session session = session("user");
+        String token = cursors.open(cursor(session, "scope"));
+
+        assertInvalid(token, session("other"), "scope");
+        assertInvalid(token, session("user"), "other scope");
+        try {
+            cursors.take(token, session("user"), "scope", QueryResult.class);
+            fail("The cursor should not be valid for a query");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        // the cursor is still usable by its owner ...
+        assertEquals(1, cursors.size());
+        cursors.take(token, session("user"), "scope", Node.class);
+        verify(session, never()).logout();
+    }
+
+    @Test
+    public void shouldCloseExpiredCursors() throws Exception {
+        cursors = new ContinuationCursors(1, 2);
+        Session session = session("user");
+        String token = cursors.open(cursor(session, "scope"));
+        Thread.sleep(10);
+
+        assertInvalid(token, session("user"), "scope");
+        verify(session).logout();
+    }
+
+    @Test
+    public void shouldCloseOldestCursorWhenTooManyCursorsAreOpen() throws Exception {
+        Session first = session("user");
+        Session second = session("user");
+        String firstToken = cursors.open(cursor(first, "scope"));
+        Thread.sleep(2);
+        cursors.open(cursor(second, "scope"));
+        cursors.open(cursor(session("user"), "scope"));
+
+        assertEquals(2, cursors.size());
+        verify(first).logout();
+        verify(second, never()).logout();
+        assertInvalid(firstToken, session("user"), "scope");
+    }
+
+    private void assertInvalid( String token,
+                                Session session,
+                                String scope ) {
+        try {
+            cursors.take(token, session, scope, Node.class);
+            fail("The cursor should not be valid");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private ContinuationCursor<Node> cursor( Session session,
+                                             String scope ) {
+        return new ContinuationCursor<>(session, scope, mock(Node.class), mock(NodeIterator.class));
+    }
+
+    private Session session( String userId ) {
+        Workspace workspace = mock(Workspace.class);
+        when(workspace.getName()).thenReturn("default");
+        Session session = mock(Session.class);
+        when(session.getRepository()).thenReturn(repository);
+        when(session.getUserID()).thenReturn(userId);
+        when(session.getWorkspace()).thenReturn(workspace);
+        return session;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * ModeShape (http://www.modeshape.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.modeshape.web.jcr.rest.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import java.io.StringWriter;
+import java.util.Collections;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RestNode}
+ */
+public class RestNodeTest {
+
+    private static final String URL = "http://localhost/repo/default/items";
+
+    @Test
+    public void shouldWriteSameJSONAsToJSONForSameNameSiblings() throws Exception {
+        RestNode node = node("foo", "/foo");
+        node.addChild(node("bar", "/foo/bar").addJcrProperty(property("index", "/foo/bar", "1")));
+        node.addChild(node("baz", "/foo/baz"));
+        node.addChild(node("bar", "/foo/bar[2]").addJcrProperty(property("index", "/foo/bar[2]", "2")));
+        node.setChildrenCursor("cursor");
+
+        JSONObject written = new JSONObject(write(node));
+        assertEquals(node.toJSON().toString(), written.toString());
+
+        JSONObject children = written.getJSONObject(RestNode.CHILDREN_FIELD_NAME);
+        assertEquals(2, children.length());
+        assertEquals("2", children.getJSONObject("bar").getString("index"));
+        assertEquals("cursor", written.getString(RestNode.CHILDREN_CURSOR_FIELD_NAME));
+    }
+
+    @Test
+    public void shouldNotDropPropertyNamedLikeChildrenCursor() throws Exception {
+        RestNode node = node("foo", "/foo").addJcrProperty(property("childrenCursor", "/foo", "value"));
+
+        JSONObject json = node.toJSON();
+        assertEquals("value", json.getString("childrenCursor"));
+        assertFalse(json.has(RestNode.CHILDREN_CURSOR_FIELD_NAME));
+        assertEquals(json.toString(), new JSONObject(write(node)).toString());
+    }
+
+    private RestNode node( String name,
+                           String path ) {
+        return new RestNode(name, path, URL + path, URL + path.substring(0, path.lastIndexOf('/')));
+    }
+
+    private RestProperty property( String name,
+                                   String parentPath,
+                                   String value ) {
+        return new RestProperty(name, URL + parentPath + "/" + name, URL + parentPath, Collections.singletonList(value), false);
+    }
+
+    private String write( RestNode node ) throws Exception {
+        StringWriter writer = new StringWriter();
+        node.writeJSON(writer);
+        return writer.toString();
+    }
+}